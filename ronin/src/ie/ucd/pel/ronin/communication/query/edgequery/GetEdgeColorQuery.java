@@ -66,7 +66,7 @@ public class GetEdgeColorQuery extends Query {
             return new EdgeColorServerResponse(ServerResponse.StatusResponse.STATUS_FAILED,
                     "The edge was not found for the requested id " + edgeId + ".", -1, -1, -1, -1);
         }
-        int currentload = roninServer.getSimulation().getCurrentStepFinalLoadForEdge(edgeId).size();
+        int currentload = roninServer.getSimulation().getCurrentStepFinalLoadCountForEdge(edgeId);
         Color color = e.getColor(currentload);
         return new EdgeColorServerResponse(ServerResponse.StatusResponse.STATUS_SUCCESS,
                 "The request has been processed successfully",
@@ -20,8 +20,6 @@ import ie.ucd.pel.ronin.communication.query.Query;
 import ie.ucd.pel.ronin.communication.serverresponse.ServerResponse;
 import ie.ucd.pel.ronin.communication.serverresponse.vehicleresponse.CountVehiclesServerResponse;
 import ie.ucd.pel.ronin.communication.socket.RoninServer;
-import ie.ucd.pel.ronin.model.Vehicle;
-import java.util.List;
 
 /**
  *
@@ -64,9 +62,9 @@ public class GetVehiclesCountOnEdgeQuery extends Query {
      */
     @Override
     public CountVehiclesServerResponse execute(RoninServer roninServer) {
-        List<Vehicle> vehList = roninServer.getSimulation().getCurrentStepFinalLoadForEdge(edgeId);
+        int nbVehicles = roninServer.getSimulation().getCurrentStepFinalLoadCountForEdge(edgeId);
         return new CountVehiclesServerResponse(ServerResponse.StatusResponse.STATUS_SUCCESS,
-                "The query has been processed successfully.", vehList.size());
+                "The query has been processed successfully.", nbVehicles);
     }
 
     @Override
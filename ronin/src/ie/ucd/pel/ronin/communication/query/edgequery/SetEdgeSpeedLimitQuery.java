@@ -20,6 +20,7 @@ import ie.ucd.pel.ronin.communication.query.Query;
 import ie.ucd.pel.ronin.communication.serverresponse.ServerResponse;
 import ie.ucd.pel.ronin.communication.socket.RoninServer;
 import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Network;
 
 /**
  *
@@ -65,12 +66,13 @@ public class SetEdgeSpeedLimitQuery extends Query {
      */
     @Override
     public ServerResponse execute(RoninServer roninServer) {
-        Edge e = roninServer.getSimulation().getNetwork().getEdge(edgeId);
+        Network network = roninServer.getSimulation().getNetwork();
+        Edge e = network.getEdge(edgeId);
         if (e == null) {
             return new ServerResponse(ServerResponse.StatusResponse.STATUS_FAILED,
                     "The edge was not found for the requested id " + edgeId + ".");
         }
-        e.setSpeedLimit(newSpeedLimit);
+        network.setEdgeSpeedLimit(e, newSpeedLimit);
         return new ServerResponse(ServerResponse.StatusResponse.STATUS_SUCCESS,
                 "The request has been processed successfully.");
     }
@@ -0,0 +1,431 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.roninfilesreader;
+
+import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.javafx.model.StepLoads;
+import ie.ucd.pel.ronin.outputswriter.BinaryLoadsMatrixWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read a binary loads matrix file produced by Ronin. The file is
+ * read through a MappedFileInput, so that files larger than 2 GB can be read,
+ * and its header and index are read once. A step is read by
+ * decompressing its block and decoding the steps of the block up to it; the
+ * last decoded block is kept, so that the steps read one after the other are
+ * only decoded once. A BinaryLoadsMatrixReader can not be used by several
+ * threads.
+ */
+public class BinaryLoadsMatrixReader extends AbstractFileReader {
+
+    /**
+     * The mapped content of the file.
+     */
+    private final MappedFileInput buffer;
+
+    /**
+     * The number of steps of a block.
+     */
+    private final int nbStepsPerBlock;
+
+    /**
+     * If true, the steps that are not the first of their block only contain
+     * the differences to the previous step.
+     */
+    private final boolean isDeltaEncoded;
+
+    /**
+     * The ids of the Edges, indexed by their dense index.
+     */
+    private final String[] edgesIds;
+
+    /**
+     * The numbers of the steps of the file, in increasing order.
+     */
+    private final int[] stepNumbers;
+
+    /**
+     * The time slots of the steps in seconds, indexed as the numbers of the
+     * steps.
+     */
+    private final double[] timeSlots;
+
+    /**
+     * The offsets of the compressed blocks in the file.
+     */
+    private final long[] blocksOffsets;
+
+    /**
+     * The lengths in bytes of the compressed blocks.
+     */
+    private final int[] blocksCompressedLengths;
+
+    /**
+     * The lengths in bytes of the uncompressed blocks.
+     */
+    private final int[] blocksLengths;
+
+    /**
+     * The decompressor of the blocks.
+     */
+    private final Inflater inflater;
+
+    /**
+     * The uncompressed content of the last decoded block.
+     */
+    private byte[] block;
+
+    /**
+     * The index of the last decoded block, -1 if there is none.
+     */
+    private int decodedBlockIndex;
+
+    /**
+     * The position in the last decoded block of the last decoded step, -1 if
+     * no step of the block is decoded.
+     */
+    private int decodedStepInBlock;
+
+    /**
+     * The offset in the last decoded block of the next step to decode.
+     */
+    private int blockCursor;
+
+    /**
+     * The loads of the last decoded step, indexed by the dense index of the
+     * edges.
+     */
+    private final int[] loads;
+
+    /**
+     * The dense indexes of the edges of the step being decoded, read from the
+     * column of indexes before the column of loads.
+     */
+    private final int[] entriesIndexes;
+
+    /**
+     * Constructs and initializes a BinaryLoadsMatrixReader, opens its file and
+     * reads its header and its index.
+     *
+     * @param filePath the path to a binary loads matrix file produced by Ronin
+     */
+    public BinaryLoadsMatrixReader(String filePath) {
+        super(filePath, BinaryLoadsMatrixWriter.EXTENSION);
+
+        try {
+            this.buffer = new MappedFileInput(new File(filePath));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the binary loads matrix at location " + filePath + ".", ex);
+        }
+        boolean isIndexRead = false;
+        try {
+            if (buffer.getInt() != BinaryLoadsMatrixWriter.MAGIC_NUMBER
+                    || buffer.getInt() != BinaryLoadsMatrixWriter.FORMAT_VERSION) {
+                throw new RuntimeException("Error : the file at location " + filePath + " is not a valid binary loads matrix.");
+            }
+            this.nbStepsPerBlock = buffer.getInt();
+            if (nbStepsPerBlock < 1) {
+                throw new RuntimeException("Error : the file at location " + filePath + " is not a valid binary loads matrix.");
+            }
+            this.isDeltaEncoded = buffer.get() != 0;
+            this.edgesIds = new String[buffer.getInt()];
+            for (int i = 0; i < edgesIds.length; i++) {
+                edgesIds[i] = buffer.getString();
+            }
+
+            if (buffer.size() < buffer.position() + BinaryLoadsMatrixWriter.FOOTER_LENGTH) {
+                throw new RuntimeException("Error : the binary loads matrix at location " + filePath + " has no index, its simulation may not be finished.");
+            }
+            buffer.position(buffer.size() - BinaryLoadsMatrixWriter.FOOTER_LENGTH);
+            long indexOffset = buffer.getLong();
+            int nbSteps = buffer.getInt();
+            int nbBlocks = (nbSteps + nbStepsPerBlock - 1) / nbStepsPerBlock;
+            if (buffer.getInt() != BinaryLoadsMatrixWriter.MAGIC_NUMBER
+                    || indexOffset + nbSteps * 12L + nbBlocks * 16L != buffer.size() - BinaryLoadsMatrixWriter.FOOTER_LENGTH) {
+                throw new RuntimeException("Error : the binary loads matrix at location " + filePath + " has no index, its simulation may not be finished.");
+            }
+
+            this.stepNumbers = new int[nbSteps];
+            this.timeSlots = new double[nbSteps];
+            buffer.position(indexOffset);
+            for (int i = 0; i < nbSteps; i++) {
+                stepNumbers[i] = buffer.getInt();
+                timeSlots[i] = buffer.getDouble();
+            }
+            this.blocksOffsets = new long[nbBlocks];
+            this.blocksCompressedLengths = new int[nbBlocks];
+            this.blocksLengths = new int[nbBlocks];
+            for (int i = 0; i < nbBlocks; i++) {
+                blocksOffsets[i] = buffer.getLong();
+                blocksCompressedLengths[i] = buffer.getInt();
+                blocksLengths[i] = buffer.getInt();
+            }
+            isIndexRead = true;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new RuntimeException("Error : cannot read the binary loads matrix at location " + filePath + ".", ex);
+        } finally {
+            if (!isIndexRead) {
+                closeBuffer();
+            }
+        }
+
+        this.inflater = new Inflater();
+        this.block = new byte[0];
+        this.decodedBlockIndex = -1;
+        this.decodedStepInBlock = -1;
+        this.blockCursor = 0;
+        this.loads = new int[edgesIds.length];
+        this.entriesIndexes = new int[edgesIds.length];
+    }
+
+    /**
+     * Returns the number of steps of the file.
+     *
+     * @return the number of steps of the file
+     */
+    public int getNbSteps() {
+        return stepNumbers.length;
+    }
+
+    /**
+     * Returns the numbers of the steps of the file, in increasing order.
+     *
+     * @return the numbers of the steps of the file
+     */
+    public int[] getStepNumbers() {
+        return Arrays.copyOf(stepNumbers, stepNumbers.length);
+    }
+
+    /**
+     * Returns the ids of the Edges of the file, indexed by their dense index.
+     *
+     * @return the ids of the Edges of the file
+     */
+    public String[] getEdgesIds() {
+        return Arrays.copyOf(edgesIds, edgesIds.length);
+    }
+
+    /**
+     * Returns the time slot of a step of the file in seconds.
+     *
+     * @param stepNumber the number of the step
+     * @return the time slot of the step in seconds
+     */
+    public double getTimeSlot(int stepNumber) {
+        return timeSlots[getStepIndex(stepNumber)];
+    }
+
+    /**
+     * Returns the number of the step of the file that covers a time slot, i.e.
+     * the last step whose time slot is lower or equal to it.
+     *
+     * @param timeSlot the time slot in seconds
+     * @return the number of the step that covers the time slot, -1 if the time
+     * slot is before the first step
+     */
+    public int getStepNumberAtTimeSlot(double timeSlot) {
+        int low = 0;
+        int high = timeSlots.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timeSlots[middle] <= timeSlot) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? -1 : stepNumbers[found];
+    }
+
+    /**
+     * Reads and returns the loads of a step, indexed by the dense index of the
+     * edges.
+     *
+     * @param stepNumber the number of the step
+     * @return the number of vehicles per edge for the step, indexed by the
+     * dense index of the edges
+     */
+    public int[] readLoads(int stepNumber) {
+        decodeStep(getStepIndex(stepNumber));
+        return Arrays.copyOf(loads, loads.length);
+    }
+
+    /**
+     * Reads the loads per Edge of a step of the file. Only the Edges whose
+     * load is not 0 are in the map, as in the step files of the light loads
+     * matrix.
+     *
+     * @param stepNumber the number of the step
+     * @return a StepLoads object that describes the map of loads per Edge for
+     * the step
+     */
+    public StepLoads readStepLoads(int stepNumber) {
+        int i = getStepIndex(stepNumber);
+        decodeStep(i);
+
+        Map<String, Double> loadPerEdge = new HashMap<>();
+        for (int j = 0; j < loads.length; j++) {
+            if (loads[j] != 0) {
+                loadPerEdge.put(edgesIds[j], (double) loads[j]);
+            }
+        }
+        return new StepLoads(timeSlots[i], loadPerEdge);
+    }
+
+    /**
+     * Releases the decompressor of the blocks and the file. The reader can not
+     * be used anymore.
+     */
+    public void close() {
+        inflater.end();
+        closeBuffer();
+    }
+
+    /**
+     * Closes the file, ignoring the errors as nothing more is read from it.
+     */
+    private void closeBuffer() {
+        try {
+            buffer.close();
+        } catch (IOException ex) {
+            //nothing more is read from the file
+        }
+    }
+
+    /**
+     * Decodes the loads of a step, starting from the last decoded step if it
+     * is a previous step of the same block.
+     *
+     * @param stepIndex the position of the step in the index of the file
+     */
+    private void decodeStep(int stepIndex) {
+        int blockIndex = stepIndex / nbStepsPerBlock;
+        int stepInBlock = stepIndex % nbStepsPerBlock;
+
+        if (blockIndex != decodedBlockIndex || stepInBlock < decodedStepInBlock) {
+            inflateBlock(blockIndex);
+        }
+
+        try {
+            while (decodedStepInBlock < stepInBlock) {
+                boolean isKeyStep = !isDeltaEncoded || decodedStepInBlock < 0;
+                if (isKeyStep) {
+                    Arrays.fill(loads, 0);
+                }
+                int nbEntries = readVarInt();
+                int edgeIndex = -1;
+                for (int j = 0; j < nbEntries; j++) {
+                    edgeIndex += readVarInt() + 1;
+                    entriesIndexes[j] = edgeIndex;
+                }
+                for (int j = 0; j < nbEntries; j++) {
+                    int zigzag = readVarInt();
+                    loads[entriesIndexes[j]] += (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+                decodedStepInBlock++;
+            }
+        } catch (ArrayIndexOutOfBoundsException ex) {
+            decodedBlockIndex = -1;
+            throw new RuntimeException("Error : the block " + blockIndex + " of the binary loads matrix at location " + filePath + " is not valid.", ex);
+        }
+    }
+
+    /**
+     * Decompresses a block of the file, so that its steps can be decoded.
+     *
+     * @param blockIndex the index of the block
+     */
+    private void inflateBlock(int blockIndex) {
+        byte[] compressed = new byte[blocksCompressedLengths[blockIndex]];
+        try {
+            buffer.position(blocksOffsets[blockIndex]);
+            buffer.get(compressed);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            decodedBlockIndex = -1;
+            throw new RuntimeException("Error : the block " + blockIndex + " of the binary loads matrix at location " + filePath + " can not be read.", ex);
+        }
+
+        if (block.length < blocksLengths[blockIndex]) {
+            block = new byte[blocksLengths[blockIndex]];
+        }
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < blocksLengths[blockIndex]) {
+                int nbInflatedBytes = inflater.inflate(block, length, blocksLengths[blockIndex] - length);
+                //a truncated or corrupted block ends before its length
+                if (nbInflatedBytes == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("the block ends after " + length + " bytes instead of " + blocksLengths[blockIndex] + ".");
+                }
+                length += nbInflatedBytes;
+            }
+        } catch (DataFormatException ex) {
+            decodedBlockIndex = -1;
+            throw new RuntimeException("Error : the block " + blockIndex + " of the binary loads matrix at location " + filePath + " is not valid.", ex);
+        }
+
+        decodedBlockIndex = blockIndex;
+        decodedStepInBlock = -1;
+        blockCursor = 0;
+    }
+
+    /**
+     * Reads a positive integer written as a variable length integer in the
+     * last decoded block.
+     *
+     * @return the integer read
+     */
+    private int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = block[blockCursor++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Returns the position of a step in the index of the file.
+     *
+     * @param stepNumber the number of the step
+     * @return the position of the step in the index of the file
+     */
+    private int getStepIndex(int stepNumber) {
+        int i = Arrays.binarySearch(stepNumbers, stepNumber);
+        if (i < 0) {
+            throw new IllegalArgumentException("Error : there is no step " + stepNumber + " in the binary loads matrix at location " + filePath + ".");
+        }
+        return i;
+    }
+
+}
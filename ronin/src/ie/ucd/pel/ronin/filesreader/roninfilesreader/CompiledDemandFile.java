@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.roninfilesreader;
+
+import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Graph;
+import ie.ucd.pel.ronin.model.Network;
+import ie.ucd.pel.ronin.model.Route;
+import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.model.VehicleType;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read and write a compiled demand file produced by Ronin. It is
+ * a flat binary copy of the vehicles read from a sumo file .rou.xml, that is
+ * written next to the sumo file and read through a MappedFileInput when the
+ * same vehicles are read again. The file starts with the length and the hash of the content of
+ * the sumo file and a hash of the Edges of the Graph, so that it is ignored
+ * when the sumo file or the network changes. Then come the ids of the vehicle
+ * types, the routes as arrays of dense indexes of Edges, and the vehicles (id,
+ * vehicle type, departure time and route) sorted by departure time. Unlike the
+ * sumo reader, which returns the vehicles in the order of the sumo file, the
+ * vehicles of the compiled file are thus returned by departure time, the
+ * vehicles with the same departure time keeping the order of the sumo file.
+ * This is the order in which the Network departs them anyway, and it lets the
+ * vehicles be read one after the other during the simulation.
+ */
+public class CompiledDemandFile extends AbstractFileReader {
+
+    /**
+     * The extension of the compiled demand files, added to the path of the
+     * sumo file.
+     */
+    public static final String EXTENSION = "rdem";
+
+    /**
+     * The magic number at the beginning of the compiled demand files.
+     */
+    private static final int MAGIC_NUMBER = 0x5244454D;
+
+    /**
+     * The version of the format of the compiled demand files. It must be
+     * increased when the format changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The mapped content of the file, null if the file is not opened.
+     */
+    private MappedFileInput buffer;
+
+    /**
+     * The ids of the vehicle types, indexed as in the file.
+     */
+    private String[] vehicleTypesIds;
+
+    /**
+     * The routes, indexed as in the file.
+     */
+    private Route[] routes;
+
+    /**
+     * The number of vehicles of the file that are not read yet.
+     */
+    private int nbRemainingVehicles;
+
+    /**
+     * Constructs and initializes a CompiledDemandFile that can read and write a
+     * compiled demand file.
+     *
+     * @param filePath the path to the compiled demand file
+     */
+    public CompiledDemandFile(String filePath) {
+        super(filePath, EXTENSION);
+        this.buffer = null;
+        this.nbRemainingVehicles = 0;
+    }
+
+    /**
+     * Opens the compiled demand file if it exists and if it was compiled from
+     * a sumo file with a specific length and hash for the Graph of a Network.
+     * The routes of the file are interned in the Network.
+     *
+     * @param network the network which will contain the Vehicles
+     * @param sourceLength the length in bytes of the sumo file
+     * @param sourceHash the hash of the content of the sumo file
+     * @return true if the file is opened; false if the file does not exist, is
+     * not valid or was compiled from another sumo file or for another network
+     */
+    public boolean open(Network network, long sourceLength, long sourceHash) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try {
+            buffer = new MappedFileInput(file);
+
+            if (buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != sourceLength || buffer.getLong() != sourceHash
+                    || buffer.getLong() != getNetworkHash(network.getGraph())) {
+                close();
+                return false;
+            }
+
+            vehicleTypesIds = new String[buffer.getInt()];
+            for (int i = 0; i < vehicleTypesIds.length; i++) {
+                vehicleTypesIds[i] = buffer.getString();
+            }
+
+            routes = new Route[buffer.getInt()];
+            for (int i = 0; i < routes.length; i++) {
+                int[] edgesIndexes = new int[buffer.getInt()];
+                for (int j = 0; j < edgesIndexes.length; j++) {
+                    edgesIndexes[j] = buffer.getInt();
+                }
+                routes[i] = network.getRouteTable().intern(edgesIndexes);
+                if (routes[i] == null) {
+                    close();
+                    return false;
+                }
+            }
+
+            nbRemainingVehicles = buffer.getInt();
+            return true;
+
+        } catch (IOException | BufferUnderflowException | NegativeArraySizeException ex) {
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if there are still vehicles to read in the opened file;
+     * false otherwise.
+     *
+     * @return true if there are still vehicles to read in the opened file;
+     * false otherwise
+     */
+    public boolean hasNextVehicle() {
+        return buffer != null && nbRemainingVehicles > 0;
+    }
+
+    /**
+     * Reads the next vehicle of the opened file.
+     *
+     * @param network the network which will contain the Vehicle
+     * @return the next vehicle of the file
+     */
+    public Vehicle readNextVehicle(Network network) {
+        if (!hasNextVehicle()) {
+            throw new IllegalStateException("Error : there is no more vehicle to read in the file at location " + filePath + ".");
+        }
+        try {
+            String idVehicle = buffer.getString();
+            String idVType = vehicleTypesIds[buffer.getInt()];
+            double departureTime = buffer.getDouble();
+            Route route = routes[buffer.getInt()];
+            nbRemainingVehicles--;
+
+            VehicleType vType = network.getVehicleType(idVType);
+            if (vType == null) {
+                throw new RuntimeException("The VehicleType with idVehicleType \"" + idVType + "\" of a Vehicle  whose idVehicle is \"" + idVehicle + "\" is null.");
+            }
+            Vehicle v = new Vehicle(idVehicle, departureTime, vType);
+            v.setRoute(route);
+            return v;
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            close();
+            throw new RuntimeException("Error : the file at location " + filePath + " is not valid.", ex);
+        }
+    }
+
+    /**
+     * Closes the opened file.
+     */
+    public void close() {
+        if (buffer != null) {
+            try {
+                buffer.close();
+            } catch (IOException ex) {
+                System.err.println("Warning : cannot close the file at location " + filePath + " : " + ex.getMessage());
+            }
+        }
+        buffer = null;
+        vehicleTypesIds = null;
+        routes = null;
+        nbRemainingVehicles = 0;
+    }
+
+    /**
+     * Writes vehicles in the compiled demand file, sorted by departure time.
+     * The vehicles with the same departure time are kept in the order of the
+     * list. The file is first written next to its final location and then
+     * moved, so that a file being written is never read.
+     *
+     * @param vehicles the vehicles read from the sumo file
+     * @param graph the graph of the Edges of the routes of the vehicles
+     * @param sourceLength the length in bytes of the sumo file
+     * @param sourceHash the hash of the content of the sumo file
+     * @throws IOException if the file can not be written
+     */
+    public void writeVehicles(List<Vehicle> vehicles, Graph graph, long sourceLength, long sourceHash) throws IOException {
+        List<Vehicle> sortedVehicles = new ArrayList<>(vehicles);
+        sortedVehicles.sort(Comparator.comparingDouble(Vehicle::getDepartureTime));
+
+        Map<String, Integer> vehicleTypesIndexes = new HashMap<>();
+        List<String> sortedVehicleTypesIds = new ArrayList<>();
+        Map<List<Edge>, Integer> routesIndexes = new IdentityHashMap<>();
+        List<Vehicle> routesVehicles = new ArrayList<>();
+        for (Vehicle v : sortedVehicles) {
+            if (vehicleTypesIndexes.putIfAbsent(v.getvType(), sortedVehicleTypesIds.size()) == null) {
+                sortedVehicleTypesIds.add(v.getvType());
+            }
+            if (routesIndexes.putIfAbsent(v.getRoute(), routesVehicles.size()) == null) {
+                routesVehicles.add(v);
+            }
+        }
+
+        File file = new File(filePath);
+        File tempFile = new File(filePath + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceHash);
+            out.writeLong(getNetworkHash(graph));
+
+            out.writeInt(sortedVehicleTypesIds.size());
+            for (String idVType : sortedVehicleTypesIds) {
+                writeString(out, idVType);
+            }
+
+            out.writeInt(routesVehicles.size());
+            for (Vehicle v : routesVehicles) {
+                int size = v.getRoute().size();
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(v.getEdgeIndexOfRouteAtPosition(i));
+                }
+            }
+
+            out.writeInt(sortedVehicles.size());
+            for (Vehicle v : sortedVehicles) {
+                writeString(out, v.getId());
+                out.writeInt(vehicleTypesIndexes.get(v.getvType()));
+                out.writeDouble(v.getDepartureTime());
+                out.writeInt(routesIndexes.get(v.getRoute()));
+            }
+        } catch (IOException ex) {
+            tempFile.delete();
+            throw ex;
+        }
+
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns a hash of the ids of the Edges of a Graph in the order of their
+     * dense indexes, so that the routes of the file are only read for the
+     * network they were compiled for.
+     *
+     * @param graph the graph
+     * @return the hash of the ids of the Edges of the Graph
+     */
+    private static long getNetworkHash(Graph graph) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < graph.getNbEdges(); i++) {
+            crc.update(graph.getEdgeByIndex(i).getId().getBytes(StandardCharsets.UTF_8));
+            crc.update(0);
+        }
+        return crc.getValue() ^ ((long) graph.getNbEdges() << 32);
+    }
+
+    /**
+     * Writes a string as the number of its UTF-8 bytes followed by its bytes.
+     *
+     * @param out the stream where to write the string
+     * @param s the string to write
+     * @throws IOException if the string can not be written
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.roninfilesreader;
+
+import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Graph;
+import ie.ucd.pel.ronin.model.Node;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read and write a compiled network file produced by Ronin. It
+ * is a flat binary copy of a Graph read from a sumo file .net.xml, that is
+ * written next to the sumo file and read through a MappedFileInput when the
+ * same network is read again. The file starts with the length and the hash of the content of
+ * the sumo file, so that it is ignored when the sumo file changes. Then come
+ * the Nodes (id and coordinates) and the Edges (id, dense indexes of their
+ * Nodes, capacity, length, speed limit and priority), ordered by dense index.
+ * The ingoing and outgoing Edges of the Nodes are bound in the order of the
+ * Edges, as the sumo reader does.
+ */
+public class CompiledNetworkFile extends AbstractFileReader {
+
+    /**
+     * The extension of the compiled network files, added to the path of the
+     * sumo file.
+     */
+    public static final String EXTENSION = "rnet";
+
+    /**
+     * The magic number at the beginning of the compiled network files.
+     */
+    private static final int MAGIC_NUMBER = 0x524E4554;
+
+    /**
+     * The version of the format of the compiled network files. It must be
+     * increased when the format changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Constructs and initializes a CompiledNetworkFile that can read and write
+     * a compiled network file.
+     *
+     * @param filePath the path to the compiled network file
+     */
+    public CompiledNetworkFile(String filePath) {
+        super(filePath, EXTENSION);
+    }
+
+    /**
+     * Reads the Nodes and the Edges of a Graph from the compiled network file,
+     * if it exists and if it was compiled from a sumo file with a specific
+     * length and hash. The Graph is left empty if the file can not be read.
+     *
+     * @param graph the empty network graph to fill
+     * @param sourceLength the length in bytes of the sumo file
+     * @param sourceHash the hash of the content of the sumo file
+     * @return true if the Graph is read from the compiled network file; false
+     * if the file does not exist, is not valid or was compiled from another
+     * sumo file
+     */
+    public boolean readGraph(Graph graph, long sourceLength, long sourceHash) {
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            return false;
+        }
+
+        try (MappedFileInput buffer = new MappedFileInput(file)) {
+            if (buffer.getInt() != MAGIC_NUMBER || buffer.getInt() != FORMAT_VERSION
+                    || buffer.getLong() != sourceLength || buffer.getLong() != sourceHash) {
+                return false;
+            }
+
+            int nbNodes = buffer.getInt();
+            int nbEdges = buffer.getInt();
+
+            for (int i = 0; i < nbNodes; i++) {
+                String id = buffer.getString();
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                graph.addNode(new Node(id, x, y));
+            }
+
+            for (int i = 0; i < nbEdges; i++) {
+                String id = buffer.getString();
+                Node startNode = graph.getNodeByIndex(buffer.getInt());
+                Node endNode = graph.getNodeByIndex(buffer.getInt());
+                int capacity = buffer.getInt();
+                double length = buffer.getDouble();
+                double speedLimit = buffer.getDouble();
+                int priority = buffer.getInt();
+
+                Edge edge = new Edge(id, capacity, length, speedLimit, priority, startNode, endNode);
+                endNode.addIngoingEdge(edge);
+                startNode.addOutgoingEdge(edge);
+                graph.addEdge(edge);
+            }
+
+            if (graph.getNbNodes() != nbNodes || graph.getNbEdges() != nbEdges) {
+                graph.clear();
+                return false;
+            }
+            return true;
+
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            graph.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Writes the Nodes and the Edges of a Graph in the compiled network file.
+     * The file is first written next to its final location and then moved, so
+     * that a file being written is never read.
+     *
+     * @param graph the network graph read from the sumo file
+     * @param sourceLength the length in bytes of the sumo file
+     * @param sourceHash the hash of the content of the sumo file
+     * @throws IOException if the file can not be written
+     */
+    public void writeGraph(Graph graph, long sourceLength, long sourceHash) throws IOException {
+        File file = new File(filePath);
+        File tempFile = new File(filePath + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceHash);
+            out.writeInt(graph.getNbNodes());
+            out.writeInt(graph.getNbEdges());
+
+            for (int i = 0; i < graph.getNbNodes(); i++) {
+                Node node = graph.getNodeByIndex(i);
+                writeString(out, node.getId());
+                out.writeDouble(node.getX());
+                out.writeDouble(node.getY());
+            }
+
+            for (Edge edge : graph.getEdgesByIndex()) {
+                writeString(out, edge.getId());
+                out.writeInt(edge.getStartNode().getIndex());
+                out.writeInt(edge.getEndNode().getIndex());
+                out.writeInt(edge.getCapacity());
+                out.writeDouble(edge.getLength());
+                out.writeDouble(edge.getSpeedLimit());
+                out.writeInt(edge.getPriority());
+            }
+        } catch (IOException ex) {
+            tempFile.delete();
+            throw ex;
+        }
+
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a string as the number of its UTF-8 bytes followed by its bytes.
+     *
+     * @param out the stream where to write the string
+     * @param s the string to write
+     * @throws IOException if the string can not be written
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+}
@@ -18,6 +18,7 @@ package ie.ucd.pel.ronin.filesreader.roninfilesreader;
 
 import ie.ucd.pel.ronin.javafx.model.StepLoads;
 import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.utils.SymbolTable;
 import ie.ucd.pel.ronin.utils.XmlParser;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,29 +38,29 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
      * The xml tag name for the element that will contain the loads for every
      * edge for one step.
      */
-    private final String ELEMENT_TIME_STEP = "step";
+    private static final String ELEMENT_TIME_STEP = "step";
 
     /**
      * The xml tag name for the attribute of a step that indicate the timeslot
      * of the step.
      */
-    private final String ATTRIBUTE_TIME_SLOT = "timeSlot";
+    private static final String ATTRIBUTE_TIME_SLOT = "timeSlot";
 
     /**
      * The xml tag name for the element that will contain the informations about
      * an edge.
      */
-    private final String ELEMENT_EDGE = "edge";
+    private static final String ELEMENT_EDGE = "edge";
 
     /**
      * The xml tag name for the attribute that contains the id of elements.
      */
-    private final String ATTRIBUTE_ID = "id";
+    private static final String ATTRIBUTE_ID = "id";
 
     /**
      * The xml tag name for the element that describes the load in an edge.
      */
-    private final String ATTRIBUTE_LOAD = "load";
+    private static final String ATTRIBUTE_LOAD = "load";
 
     /**
      * Constructs and initializes a LightLoadsMatrixStepReader that can read a
@@ -80,25 +81,42 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
      * specific step
      */
     public StepLoads readStepLoads() {
-        Document doc = XmlParser.getDocDomElement(filePath);
+        return readStepLoads(XmlParser.getDocDomElement(filePath), filePath, null);
+    }
 
+    /**
+     * Reads the loads of a step from the DOM Document Node of a step file. It
+     * is also used to read the step files stored in a container.
+     *
+     * @param doc the DOM Document Node of the step file
+     * @param sourcePath the path to the step file, or to its container, used
+     * in the error messages
+     * @param edgesIds the table where the ids of the Edges are interned when
+     * several steps are read, null if they are not interned
+     * @return a StepLoads object that describes the map of loads per Edge for a
+     * specific step
+     */
+    static StepLoads readStepLoads(Document doc, String sourcePath, SymbolTable edgesIds) {
         if (doc == null) {
-            throw new RuntimeException("The DOM Document element of the file at location " + filePath + " is null.");
+            throw new RuntimeException("The DOM Document element of the file at location " + sourcePath + " is null.");
         }
 
         NodeList edgesXmlNodeList = doc.getElementsByTagName(ELEMENT_EDGE);
         NodeList stepNodeList = doc.getElementsByTagName(ELEMENT_TIME_STEP);
 
-        return new StepLoads(readTimeSlot(stepNodeList), readLoadPerEdge(edgesXmlNodeList));
+        return new StepLoads(readTimeSlot(stepNodeList, sourcePath), readLoadPerEdge(edgesXmlNodeList, sourcePath, edgesIds));
     }
 
     /**
      * Reads and returns a map of load per Edge.
      *
      * @param edgesXmlNodeList the nodelist of xml edges nodes
+     * @param sourcePath the path to the read file, used in the error messages
+     * @param edgesIds the table where the ids of the Edges are interned, null
+     * if they are not interned
      * @return a map of load per Edge
      */
-    private Map<String, Double> readLoadPerEdge(NodeList edgesXmlNodeList) {
+    private static Map<String, Double> readLoadPerEdge(NodeList edgesXmlNodeList, String sourcePath, SymbolTable edgesIds) {
         Map<String, Double> loadPerEdge = new HashMap<>();
 
         final int listLength = edgesXmlNodeList.getLength();
@@ -111,7 +129,7 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
 
             idEdge = edgeXmlElement.getAttribute(ATTRIBUTE_ID);
             if (idEdge.isEmpty()) {
-                throw new RuntimeException("The id of an Edge object is empty in file " + filePath + " .");
+                throw new RuntimeException("The id of an Edge object is empty in file " + sourcePath + " .");
             }
 
             //if the id of the Edge begins with ":", it means that it is an 
@@ -123,10 +141,10 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
             try {
                 load = Double.parseDouble(edgeXmlElement.getAttribute(ATTRIBUTE_LOAD));
             } catch (NumberFormatException e) {
-                throw new RuntimeException("The load of an Edge object whose id is \"" + idEdge + "\" is not valid in file " + filePath + " .");
+                throw new RuntimeException("The load of an Edge object whose id is \"" + idEdge + "\" is not valid in file " + sourcePath + " .");
             }
 
-            loadPerEdge.put(idEdge, load);
+            loadPerEdge.put(edgesIds == null ? idEdge : edgesIds.intern(idEdge), load);
         }
         return loadPerEdge;
     }
@@ -135,9 +153,10 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
      * Reads and returns the timeslot of the read step file in seconds.
      *
      * @param stepXmlNodeList the nodelist of xml step node
+     * @param sourcePath the path to the read file, used in the error messages
      * @return the timeslot of the read step file in seconds.
      */
-    private double readTimeSlot(NodeList stepXmlNodeList) {
+    private static double readTimeSlot(NodeList stepXmlNodeList, String sourcePath) {
 
         org.w3c.dom.Node stepXmlNode = stepXmlNodeList.item(0);
         Element stepXmlElement = (Element) stepXmlNode;
@@ -147,7 +166,7 @@ public class LightLoadsMatrixStepReader extends AbstractFileReader {
         try {
             timeslot = Double.parseDouble(stepXmlElement.getAttribute(ATTRIBUTE_TIME_SLOT));
         } catch (NumberFormatException e) {
-            throw new RuntimeException("The timeslot in file " + filePath + " is invalid.");
+            throw new RuntimeException("The timeslot in file " + sourcePath + " is invalid.");
         }
 
         return timeslot;
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.roninfilesreader;
+
+import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.javafx.model.StepLoads;
+import ie.ucd.pel.ronin.outputswriter.LoadsMatrixContainerWriter;
+import ie.ucd.pel.ronin.utils.SymbolTable;
+import ie.ucd.pel.ronin.utils.XmlParser;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read a container file of a matrix of loads produced by Ronin,
+ * that contains all the step files of the matrix. The index of the container
+ * is read once, then each step is read by seeking straight to its step file.
+ * The ids of the Edges are interned, so that the loads of all the steps read
+ * share the same id instances.
+ */
+public class LoadsMatrixContainerReader extends AbstractFileReader {
+
+    /**
+     * The extension of the step files stored in the container.
+     */
+    private final String stepsExtension;
+
+    /**
+     * The numbers of the steps of the container, in increasing order.
+     */
+    private final int[] stepNumbers;
+
+    /**
+     * The time slots of the steps in seconds, indexed as the numbers of the
+     * steps.
+     */
+    private final double[] timeSlots;
+
+    /**
+     * The offsets of the step files in the container, indexed as the numbers
+     * of the steps.
+     */
+    private final long[] offsets;
+
+    /**
+     * The lengths in bytes of the step files, indexed as the numbers of the
+     * steps.
+     */
+    private final int[] lengths;
+
+    /**
+     * The ids of the Edges of the steps already read.
+     */
+    private final SymbolTable edgesIds;
+
+    /**
+     * Constructs and initializes a LoadsMatrixContainerReader and reads the
+     * index of the container.
+     *
+     * @param filePath the path to a container file of a matrix of loads
+     * produced by Ronin
+     */
+    public LoadsMatrixContainerReader(String filePath) {
+        super(filePath, LoadsMatrixContainerWriter.LIGHT_LOADS_MATRIX_EXTENSION, LoadsMatrixContainerWriter.LOADS_MATRIX_EXTENSION);
+        this.edgesIds = new SymbolTable();
+
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
+            if (file.readInt() != LoadsMatrixContainerWriter.MAGIC_NUMBER
+                    || file.readInt() != LoadsMatrixContainerWriter.FORMAT_VERSION) {
+                throw new RuntimeException("Error : the file at location " + filePath + " is not a valid container of a matrix of loads.");
+            }
+            this.stepsExtension = file.readUTF();
+
+            if (file.length() < file.getFilePointer() + LoadsMatrixContainerWriter.FOOTER_LENGTH) {
+                throw new RuntimeException("Error : the container at location " + filePath + " has no index, its simulation may not be finished.");
+            }
+            file.seek(file.length() - LoadsMatrixContainerWriter.FOOTER_LENGTH);
+            long indexOffset = file.readLong();
+            int nbSteps = file.readInt();
+            if (file.readInt() != LoadsMatrixContainerWriter.MAGIC_NUMBER
+                    || indexOffset + (long) nbSteps * LoadsMatrixContainerWriter.INDEX_ENTRY_LENGTH != file.length() - LoadsMatrixContainerWriter.FOOTER_LENGTH) {
+                throw new RuntimeException("Error : the container at location " + filePath + " has no index, its simulation may not be finished.");
+            }
+
+            this.stepNumbers = new int[nbSteps];
+            this.timeSlots = new double[nbSteps];
+            this.offsets = new long[nbSteps];
+            this.lengths = new int[nbSteps];
+            file.seek(indexOffset);
+            for (int i = 0; i < nbSteps; i++) {
+                stepNumbers[i] = file.readInt();
+                timeSlots[i] = file.readDouble();
+                offsets[i] = file.readLong();
+                lengths[i] = file.readInt();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the container at location " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Returns the extension of the step files stored in the container, without
+     * the first dot.
+     *
+     * @return the extension of the step files stored in the container
+     */
+    public String getStepsExtension() {
+        return stepsExtension;
+    }
+
+    /**
+     * Returns the number of steps of the container.
+     *
+     * @return the number of steps of the container
+     */
+    public int getNbSteps() {
+        return stepNumbers.length;
+    }
+
+    /**
+     * Returns the numbers of the steps of the container, in increasing order.
+     *
+     * @return the numbers of the steps of the container
+     */
+    public int[] getStepNumbers() {
+        return Arrays.copyOf(stepNumbers, stepNumbers.length);
+    }
+
+    /**
+     * Returns true if the container contains a step; false otherwise.
+     *
+     * @param stepNumber the number of the step
+     * @return true if the container contains the step; false otherwise
+     */
+    public boolean hasStep(int stepNumber) {
+        return Arrays.binarySearch(stepNumbers, stepNumber) >= 0;
+    }
+
+    /**
+     * Returns the time slot of a step of the container in seconds.
+     *
+     * @param stepNumber the number of the step
+     * @return the time slot of the step in seconds
+     */
+    public double getTimeSlot(int stepNumber) {
+        return timeSlots[getStepIndex(stepNumber)];
+    }
+
+    /**
+     * Returns the number of the step of the container that covers a time
+     * slot, i.e. the last step whose time slot is lower or equal to it.
+     *
+     * @param timeSlot the time slot in seconds
+     * @return the number of the step that covers the time slot, -1 if the time
+     * slot is before the first step
+     */
+    public int getStepNumberAtTimeSlot(double timeSlot) {
+        int low = 0;
+        int high = timeSlots.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (timeSlots[middle] <= timeSlot) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found < 0 ? -1 : stepNumbers[found];
+    }
+
+    /**
+     * Reads and returns the content of the step file of a step, as it would
+     * have been written in its own file.
+     *
+     * @param stepNumber the number of the step
+     * @return the content of the step file of the step
+     */
+    public byte[] readStepFile(int stepNumber) {
+        int i = getStepIndex(stepNumber);
+        byte[] content = new byte[lengths[i]];
+
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r")) {
+            file.seek(offsets[i]);
+            file.readFully(content);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the step " + stepNumber + " of the container at location " + filePath + ".", ex);
+        }
+        return content;
+    }
+
+    /**
+     * Reads the loads per Edge of a step of the container.
+     *
+     * @param stepNumber the number of the step
+     * @return a StepLoads object that describes the map of loads per Edge for
+     * the step
+     */
+    public StepLoads readStepLoads(int stepNumber) {
+        try (ByteArrayInputStream in = new ByteArrayInputStream(readStepFile(stepNumber))) {
+            return LightLoadsMatrixStepReader.readStepLoads(XmlParser.getDocDomElement(in), filePath, edgesIds);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the step " + stepNumber + " of the container at location " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Returns the position of a step in the index of the container.
+     *
+     * @param stepNumber the number of the step
+     * @return the position of the step in the index of the container
+     */
+    private int getStepIndex(int stepNumber) {
+        int i = Arrays.binarySearch(stepNumbers, stepNumber);
+        if (i < 0) {
+            throw new IllegalArgumentException("Error : there is no step " + stepNumber + " in the container at location " + filePath + ".");
+        }
+        return i;
+    }
+
+}
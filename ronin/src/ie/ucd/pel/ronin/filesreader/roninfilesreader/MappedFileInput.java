@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.roninfilesreader;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read a binary file through windows of the file mapped in
+ * memory. A mapped buffer can not exceed Integer.MAX_VALUE bytes, so a new
+ * window is mapped at the current position when a value does not fit in the
+ * rest of the current one, or when the position is moved out of the current
+ * window. The values are read as written by a DataOutputStream.
+ */
+public class MappedFileInput implements Closeable {
+
+    /**
+     * The default size in bytes of the mapped windows.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    /**
+     * The channel of the file, kept opened to map the next windows.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The size in bytes of the file.
+     */
+    private final long fileSize;
+
+    /**
+     * The size in bytes of the mapped windows.
+     */
+    private final int windowSize;
+
+    /**
+     * The position in the file of the beginning of the current window.
+     */
+    private long windowPosition;
+
+    /**
+     * The current mapped window of the file.
+     */
+    private ByteBuffer window;
+
+    /**
+     * Constructs and initializes a MappedFileInput that reads a file from its
+     * beginning with windows of the default size.
+     *
+     * @param file the file to read
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public MappedFileInput(File file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructs and initializes a MappedFileInput that reads a file from its
+     * beginning with windows of a specific size.
+     *
+     * @param file the file to read
+     * @param windowSize the size in bytes of the mapped windows
+     * @throws IOException if the file can not be opened or mapped
+     */
+    public MappedFileInput(File file, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Error : the size of the mapped windows must be strictly positive.");
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        try {
+            this.fileSize = channel.size();
+            this.windowPosition = 0;
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(windowSize, fileSize));
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns the current window, after mapping a new one at the current
+     * position if the rest of the current window is smaller than a number of
+     * bytes.
+     *
+     * @param nbBytes the number of bytes to read
+     * @return the window where the bytes can be read
+     * @throws IOException if the next window can not be mapped
+     * @throws BufferUnderflowException if the rest of the file is smaller than
+     * the number of bytes
+     */
+    private ByteBuffer getWindow(int nbBytes) throws IOException {
+        if (window.remaining() < nbBytes) {
+            long position = windowPosition + window.position();
+            if (fileSize - position < nbBytes) {
+                throw new BufferUnderflowException();
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.max(windowSize, nbBytes), fileSize - position));
+            windowPosition = position;
+        }
+        return window;
+    }
+
+    /**
+     * Returns the size in bytes of the file.
+     *
+     * @return the size in bytes of the file
+     */
+    public long size() {
+        return fileSize;
+    }
+
+    /**
+     * Returns the current position in the file.
+     *
+     * @return the current position in the file
+     */
+    public long position() {
+        return windowPosition + window.position();
+    }
+
+    /**
+     * Moves the current position in the file. The current window is kept if
+     * it contains the position.
+     *
+     * @param position the new position in the file
+     * @throws IOException if the window of the position can not be mapped
+     */
+    public void position(long position) throws IOException {
+        if (position < 0 || position > fileSize) {
+            throw new IllegalArgumentException("Error : the position " + position + " is out of the file of " + fileSize + " bytes.");
+        }
+        if (position >= windowPosition && position <= windowPosition + window.limit()) {
+            window.position((int) (position - windowPosition));
+        } else {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, fileSize - position));
+            windowPosition = position;
+        }
+    }
+
+    /**
+     * Reads the next byte of the file.
+     *
+     * @return the byte read
+     * @throws IOException if the file can not be read
+     */
+    public byte get() throws IOException {
+        return getWindow(Byte.BYTES).get();
+    }
+
+    /**
+     * Reads the next bytes of the file, as many as the length of an array.
+     *
+     * @param bytes the array where to read the bytes
+     * @throws IOException if the file can not be read
+     */
+    public void get(byte[] bytes) throws IOException {
+        getWindow(bytes.length).get(bytes);
+    }
+
+    /**
+     * Reads the next int of the file.
+     *
+     * @return the int read
+     * @throws IOException if the file can not be read
+     */
+    public int getInt() throws IOException {
+        return getWindow(Integer.BYTES).getInt();
+    }
+
+    /**
+     * Reads the next long of the file.
+     *
+     * @return the long read
+     * @throws IOException if the file can not be read
+     */
+    public long getLong() throws IOException {
+        return getWindow(Long.BYTES).getLong();
+    }
+
+    /**
+     * Reads the next double of the file.
+     *
+     * @return the double read
+     * @throws IOException if the file can not be read
+     */
+    public double getDouble() throws IOException {
+        return getWindow(Double.BYTES).getDouble();
+    }
+
+    /**
+     * Reads the next string of the file, written as the number of its UTF-8
+     * bytes followed by its bytes.
+     *
+     * @return the string read
+     * @throws IOException if the file can not be read
+     */
+    public String getString() throws IOException {
+        byte[] bytes = new byte[getInt()];
+        get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Closes the channel of the file.
+     *
+     * @throws IOException if the channel can not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+}
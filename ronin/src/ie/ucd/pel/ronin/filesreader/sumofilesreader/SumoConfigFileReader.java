@@ -19,6 +19,8 @@ package ie.ucd.pel.ronin.filesreader.sumofilesreader;
 import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
 import ie.ucd.pel.ronin.model.TimeConfiguration;
 import ie.ucd.pel.ronin.utils.XmlParser;
+import java.util.ArrayList;
+import java.util.List;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -149,14 +151,15 @@ public class SumoConfigFileReader extends AbstractFileReader {
     }
 
     /**
-     * Reads and returns the sumonet and sumorou file paths.
+     * Reads and returns the sumonet and sumorou file paths. As in SUMO, the
+     * route-files value can be a comma-separated list of sumorou files.
      *
      * @return an array containing in first position the sumonet file path and
-     * in second position the sumorou file path
+     * in the next positions the sumorou files paths, in the order of the list
      */
     public String[] readSumoFilesInputsConfiguration() {
         String sumonetPath = "";
-        String sumorouPath = "";
+        List<String> result = new ArrayList<>();
 
         Document doc = XmlParser.getDocDomElement(filePath);
 
@@ -175,12 +178,19 @@ public class SumoConfigFileReader extends AbstractFileReader {
 
         NodeList rouFileNodeList = inputElement.getElementsByTagName(ELEMENT_ROU_FILE);
         Element rouFileElement = (Element) rouFileNodeList.item(0);
+        result.add(sumonetPath);
         if (rouFileElement != null && !rouFileElement.getAttribute(ATTRIBUTE_VALUE).isEmpty()) {
-            sumorouPath = rouFileElement.getAttribute(ATTRIBUTE_VALUE);
+            for (String sumorouPath : rouFileElement.getAttribute(ATTRIBUTE_VALUE).split(",")) {
+                if (!sumorouPath.trim().isEmpty()) {
+                    result.add(sumorouPath.trim());
+                }
+            }
+        }
+        if (result.size() == 1) {
+            result.add("");
         }
 
-        String[] result = {sumonetPath, sumorouPath};
-        return result;
+        return result.toArray(new String[result.size()]);
     }
 
     /**
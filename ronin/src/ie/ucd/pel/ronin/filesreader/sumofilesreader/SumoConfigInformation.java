@@ -18,6 +18,10 @@ package ie.ucd.pel.ronin.filesreader.sumofilesreader;
 
 import ie.ucd.pel.ronin.utils.FileUtils;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  *
@@ -35,10 +39,10 @@ public class SumoConfigInformation {
     private final String vehiclesTypesFilePath;
 
     /**
-     * The path to the SUMO rou file that contains the vehicles,their routes and
-     * the vehicle types.
+     * The paths to the SUMO rou files that contain the vehicles,their routes
+     * and the vehicle types, in the order they are given.
      */
-    private final String sumorouFilePath;
+    private final List<String> sumorouFilesPaths;
 
     /**
      * The path to the SUMO net file that contains the nodes and the edges.
@@ -55,7 +59,8 @@ public class SumoConfigInformation {
      * Constructs and initializes a SumoConfigInfos with the given properties.
      *
      * @param sumorouFilePath the path to the SUMO rou file that contains the
-     * vehicles and their routes
+     * vehicles and their routes, or a comma-separated list of paths to SUMO rou
+     * files
      * @param sumonetFilePath the path to the SUMO net file that contains the
      * nodes, the edges, and the vehicle types
      * @param sumocfgFilePath the path to the SUMO sumocfg file that contains
@@ -64,7 +69,7 @@ public class SumoConfigInformation {
      * the vehicles types to read from
      */
     public SumoConfigInformation(String sumorouFilePath, String sumonetFilePath, String sumocfgFilePath, String vehiclesTypesFilePath) {
-        this.sumorouFilePath = sumorouFilePath;
+        this.sumorouFilesPaths = getSumorouFilesPaths("", sumorouFilePath.split(","));
         this.sumonetFilePath = sumonetFilePath;
         this.sumocfgFilePath = sumocfgFilePath;
         this.vehiclesTypesFilePath = vehiclesTypesFilePath;
@@ -87,11 +92,8 @@ public class SumoConfigInformation {
         } else {
             this.sumonetFilePath = "";
         }
-        if (sumoFilePaths.length >= 2 && !sumoFilePaths[1].isEmpty()) {
-            this.sumorouFilePath = FileUtils.getFileParentFolderPath(sumocfgFilePath) + File.separator + sumoFilePaths[1];
-        } else {
-            this.sumorouFilePath = "";
-        }
+        this.sumorouFilesPaths = getSumorouFilesPaths(FileUtils.getFileParentFolderPath(sumocfgFilePath) + File.separator,
+                Arrays.copyOfRange(sumoFilePaths, Math.min(1, sumoFilePaths.length), sumoFilePaths.length));
         this.vehiclesTypesFilePath = "";
     }
 
@@ -116,23 +118,31 @@ public class SumoConfigInformation {
         } else {
             this.sumonetFilePath = "";
         }
-        if (sumoFilePaths.length >= 2 && !sumoFilePaths[1].isEmpty()) {
-            this.sumorouFilePath = FileUtils.getFileParentFolderPath(sumocfgFilePath) + File.separator + sumoFilePaths[1];
-        } else {
-            this.sumorouFilePath = "";
-        }
+        this.sumorouFilesPaths = getSumorouFilesPaths(FileUtils.getFileParentFolderPath(sumocfgFilePath) + File.separator,
+                Arrays.copyOfRange(sumoFilePaths, Math.min(1, sumoFilePaths.length), sumoFilePaths.length));
         this.vehiclesTypesFilePath = vehiclesTypesFilePath;
     }
 
     /**
-     * Returns the path to the SUMO rou file that contains the vehicles and
-     * their routes
+     * Returns the path to the first SUMO rou file that contains the vehicles
+     * and their routes
      *
-     * @return the path to the SUMO rou file that contains the vehicles and
-     * their routes
+     * @return the path to the first SUMO rou file that contains the vehicles
+     * and their routes, empty if there is none
      */
     public String getSumorouFilePath() {
-        return sumorouFilePath;
+        return sumorouFilesPaths.isEmpty() ? "" : sumorouFilesPaths.get(0);
+    }
+
+    /**
+     * Returns the paths to the SUMO rou files that contain the vehicles and
+     * their routes, in the order they are given.
+     *
+     * @return the unmodifiable list of the paths to the SUMO rou files, empty
+     * if there is none
+     */
+    public List<String> getSumorouFilesPaths() {
+        return sumorouFilesPaths;
     }
 
     /**
@@ -168,4 +178,22 @@ public class SumoConfigInformation {
         return vehiclesTypesFilePath;
     }
 
+    /**
+     * Returns the paths to the SUMO rou files, ignoring the empty paths.
+     *
+     * @param folderPath the path prefixed to each path, empty if the paths
+     * are used as given
+     * @param paths the paths to the SUMO rou files
+     * @return the unmodifiable list of the non empty prefixed paths
+     */
+    private static List<String> getSumorouFilesPaths(String folderPath, String[] paths) {
+        List<String> sumorouFilesPaths = new ArrayList<>();
+        for (String path : paths) {
+            if (!path.trim().isEmpty()) {
+                sumorouFilesPaths.add(folderPath + path.trim());
+            }
+        }
+        return Collections.unmodifiableList(sumorouFilesPaths);
+    }
+
 }
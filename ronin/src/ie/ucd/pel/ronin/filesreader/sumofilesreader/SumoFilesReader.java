@@ -18,6 +18,13 @@ package ie.ucd.pel.ronin.filesreader.sumofilesreader;
 
 import ie.ucd.pel.ronin.model.TimeConfiguration;
 import ie.ucd.pel.ronin.model.Network;
+import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.utils.ThreadsUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -61,6 +68,18 @@ public class SumoFilesReader {
      * @return the network which will contain the Vehicles and the Traffic Graph
      */
     public Network readNetwork() {
+        return readNetwork(true);
+    }
+
+    /**
+     * Read the Network from SUMO files, constructing and initializing the
+     * Edges, the Nodes, the VehicleTypes and, if asked, the Vehicles.
+     *
+     * @param isVehiclesRead if true, the Vehicles are read; otherwise they can
+     * be read during the simulation with the stream reader of the route file
+     * @return the network which will contain the Vehicles and the Traffic Graph
+     */
+    public Network readNetwork(boolean isVehiclesRead) {
         Network network = new Network();
 
         SumoNetFileReader sumoNetFileReader = new SumoNetFileReader(sumoInfos.getSumonetFilePath());
@@ -70,12 +89,19 @@ public class SumoFilesReader {
             SumoRouteFileReader sumoRouteFileReader = new SumoRouteFileReader(sumoInfos.getVehiclesTypesFilePath());
             sumoRouteFileReader.readVehicleTypes(network);
         }
-        if (!sumoInfos.getSumorouFilePath().isEmpty()) {
-            SumoRouteFileReader sumoRouteFileReader = new SumoRouteFileReader(sumoInfos.getSumorouFilePath());
+        //the vehicles types are all read before the vehicles, which only get them
+        List<SumoRouteFileReader> sumoRouteFileReaders = new ArrayList<>();
+        for (String sumorouFilePath : sumoInfos.getSumorouFilesPaths()) {
+            SumoRouteFileReader sumoRouteFileReader = new SumoRouteFileReader(sumorouFilePath);
             if (sumoInfos.getVehiclesTypesFilePath().isEmpty()) {
                 sumoRouteFileReader.readVehicleTypes(network);
             }
-            sumoRouteFileReader.readVehicles(network);
+            sumoRouteFileReaders.add(sumoRouteFileReader);
+        }
+        if (isVehiclesRead && sumoRouteFileReaders.size() == 1) {
+            sumoRouteFileReaders.get(0).readVehicles(network);
+        } else if (isVehiclesRead && sumoRouteFileReaders.size() > 1) {
+            readVehiclesInParallel(network, sumoRouteFileReaders);
         }
 
         System.out.println("nodes : " + network.getNodes().size());
@@ -85,4 +111,55 @@ public class SumoFilesReader {
         return network;
     }
 
+    /**
+     * Reads the Vehicles of several SUMO route files at the same time, each
+     * file with its own thread. The Vehicles of the files are then added to
+     * the Network by departure time; the Vehicles that depart at the same time
+     * are added in the order of the files. WARNING : the vehicles types of all
+     * the files must be read before.
+     *
+     * @param network the network which will contain the Vehicles
+     * @param sumoRouteFileReaders the readers of the SUMO route files
+     */
+    private void readVehiclesInParallel(Network network, List<SumoRouteFileReader> sumoRouteFileReaders) {
+        List<List<Vehicle>> vehiclesOfFiles = new ArrayList<>(sumoRouteFileReaders.size());
+        List<Callable<Void>> tasks = new ArrayList<>(sumoRouteFileReaders.size());
+        for (SumoRouteFileReader sumoRouteFileReader : sumoRouteFileReaders) {
+            vehiclesOfFiles.add(null);
+            final int iFile = tasks.size();
+            tasks.add(() -> {
+                vehiclesOfFiles.set(iFile, sumoRouteFileReader.loadVehicles(network));
+                return null;
+            });
+        }
+
+        ForkJoinPool threadsPool = new ForkJoinPool(Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            ThreadsUtils.invokeAllAndWait(threadsPool, tasks);
+        } finally {
+            threadsPool.shutdown();
+        }
+
+        List<Vehicle> vehicles = new ArrayList<>();
+        vehiclesOfFiles.forEach(vehicles::addAll);
+        vehicles.sort(Comparator.comparingDouble(Vehicle::getDepartureTime));
+        for (Vehicle v : vehicles) {
+            network.addVehicleToLoadedVehicles(v);
+        }
+    }
+
+    /**
+     * Returns a reader of the Vehicles of the SUMO route files that reads them
+     * during the simulation.
+     *
+     * @return a stream reader of the SUMO route files, null if there is no
+     * route file
+     */
+    public SumoRouteFileStreamReader getRouteFileStreamReader() {
+        if (sumoInfos.getSumorouFilesPaths().isEmpty()) {
+            return null;
+        }
+        return new SumoRouteFileStreamReader(sumoInfos.getSumorouFilesPaths());
+    }
+
 }
@@ -17,13 +17,22 @@
 package ie.ucd.pel.ronin.filesreader.sumofilesreader;
 
 import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.CompiledNetworkFile;
 import ie.ucd.pel.ronin.model.Edge;
 import ie.ucd.pel.ronin.model.Graph;
 import ie.ucd.pel.ronin.model.Node;
+import ie.ucd.pel.ronin.utils.FileUtils;
 import ie.ucd.pel.ronin.utils.XmlParser;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  *
@@ -34,12 +43,6 @@ import org.w3c.dom.NodeList;
  */
 public class SumoNetFileReader extends AbstractFileReader {
 
-    /**
-     * Attribute used for giving output to the user during the execution of the
-     * program. But if it is set to true, the performances will decrease.
-     */
-    private final boolean PRINT_ESTIMATION_TIME = false;
-
     /**
      * SUMO tag name for Edge element.
      */
@@ -123,161 +126,259 @@ public class SumoNetFileReader extends AbstractFileReader {
 
     /**
      * Reads the graph network from SUMO File, constructing and initializing the
-     * Nodes and the Edges of the Graph.
+     * Nodes and the Edges of the Graph. The Graph is read from the compiled
+     * network file next to the SUMO file if it was compiled from the same
+     * content. Otherwise the SUMO file is read and the compiled network file is
+     * written for the next readings.
      *
      * @param graph the network graph to fill
      */
     public void readGraph(Graph graph) {
-        Document doc = XmlParser.getDocDomElement(filePath);
-
-        if (doc == null) {
-            throw new RuntimeException("The DOM Document element of the file at location " + filePath + " is null.");
+        long tStart = System.currentTimeMillis();
+        File file = XmlParser.getXmlFile(filePath);
+        long sourceLength = file.length();
+        long sourceHash;
+        try {
+            sourceHash = FileUtils.getContentHash(file);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the file at location " + filePath + ".", ex);
         }
 
-        NodeList edgesXmlNodeList = doc.getElementsByTagName(ELEMENT_EDGE);
-        NodeList junctionsXmlNodeList = doc.getElementsByTagName(ELEMENT_JUNCTION);
+        CompiledNetworkFile compiledNetworkFile = new CompiledNetworkFile(filePath + "." + CompiledNetworkFile.EXTENSION);
+        if (graph.isEmpty() && compiledNetworkFile.readGraph(graph, sourceLength, sourceHash)) {
+            long tEnd = System.currentTimeMillis();
+            System.out.println("Nodes and Edges loaded from " + compiledNetworkFile.getFilePath() + " in " + (tEnd - tStart) / 1000 + " seconds.");
+            return;
+        }
 
-        readNodes(junctionsXmlNodeList, graph);
-        readEdges(edgesXmlNodeList, graph);
+        readXmlGraph(graph);
 
+        try {
+            compiledNetworkFile.writeGraph(graph, sourceLength, sourceHash);
+        } catch (IOException ex) {
+            System.err.println("Warning : cannot write the compiled network file " + compiledNetworkFile.getFilePath() + " : " + ex.getMessage());
+        }
     }
 
     /**
-     * Constructs and initializes the Nodes in the Graph of the Network
+     * Reads the graph network from SUMO File, constructing and initializing the
+     * Nodes and the Edges of the Graph. The file is read in a single pass with
+     * a StAX reader, so that only the Graph is kept in memory. The internal
+     * edges are skipped without being read. As the edges come before the
+     * junctions in the SUMO files, the properties of the Edges are kept until
+     * all the Nodes are constructed.
      *
-     * @param junctionsXmlNodeList a list of the xml elements corresponding to
-     * the Nodes to construct
-     * @param graph the Network Graph where we want to constructs the Nodes
+     * @param graph the network graph to fill
      */
-    private void readNodes(NodeList junctionsXmlNodeList, Graph graph) {
+    private void readXmlGraph(Graph graph) {
         long tStart = System.currentTimeMillis();
-        final int listLength = junctionsXmlNodeList.getLength();
-        for (int i = 0; i < listLength; i++) {
-            org.w3c.dom.Node junctionXmlNode = junctionsXmlNodeList.item(i);
-            Element junctionXmlElement = (Element) junctionXmlNode;
-            String id;
-            Double x, y;
-
-            id = junctionXmlElement.getAttribute(ATTRIBUTE_ID);
-            if (id.isEmpty()) {
-                throw new RuntimeException("The id of a junction object is empty in file " + filePath + " .");
-            }
+        List<EdgeProperties> edgesProperties = new ArrayList<>();
 
+        try (InputStream in = new BufferedInputStream(new FileInputStream(XmlParser.getXmlFile(filePath)))) {
+            XMLStreamReader reader = XmlParser.getXmlStreamReader(in);
             try {
-                x = Double.parseDouble(junctionXmlElement.getAttribute(ATTRIBUTE_X));
-                y = Double.parseDouble(junctionXmlElement.getAttribute(ATTRIBUTE_Y));
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("Coordinates of a junction object whose id is \"" + id + "\" are not valid in file " + filePath + " .");
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if (ELEMENT_JUNCTION.equals(reader.getLocalName())) {
+                        graph.addNode(readNode(reader));
+                    } else if (ELEMENT_EDGE.equals(reader.getLocalName())) {
+                        EdgeProperties edgeProperties = readEdgeProperties(reader);
+                        if (edgeProperties != null) {
+                            edgesProperties.add(edgeProperties);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
             }
+        } catch (IOException | XMLStreamException ex) {
+            throw new RuntimeException("Error : cannot read the file at location " + filePath + ".", ex);
+        }
+        long tEnd = System.currentTimeMillis();
+        System.out.println("Nodes loaded in " + (tEnd - tStart) / 1000 + " seconds.");
 
-            graph.addNode(new Node(id, x, y));
+        tStart = System.currentTimeMillis();
+        for (EdgeProperties edgeProperties : edgesProperties) {
+            graph.addEdge(createEdge(edgeProperties, graph));
+        }
+        tEnd = System.currentTimeMillis();
+        System.out.println("Edges loaded in " + (tEnd - tStart) / 1000 + " seconds.");
+    }
 
-            if (PRINT_ESTIMATION_TIME) {
-                long tEnd = System.currentTimeMillis();
-                System.out.print("Remaining time for Nodes : " + (int) (((tEnd - tStart) * listLength / (double) i - (tEnd - tStart))) / 1000 + "s ("
-                        + (i * 10000 / listLength) / 100 + "%)           \r");
-            }
+    /**
+     * Constructs and initializes a Node from the junction element at the
+     * current position of a StAX reader.
+     *
+     * @param reader the StAX reader on the start of the junction element
+     * @return the Node of the junction element
+     */
+    private Node readNode(XMLStreamReader reader) {
+        String id;
+        Double x, y;
 
+        id = getAttribute(reader, ATTRIBUTE_ID);
+        if (id.isEmpty()) {
+            throw new RuntimeException("The id of a junction object is empty in file " + filePath + " .");
         }
-        long tEnd = System.currentTimeMillis();
-        System.out.println("Nodes loaded in " + (tEnd - tStart) / 1000 + " seconds.");
+
+        try {
+            x = Double.parseDouble(getAttribute(reader, ATTRIBUTE_X));
+            y = Double.parseDouble(getAttribute(reader, ATTRIBUTE_Y));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Coordinates of a junction object whose id is \"" + id + "\" are not valid in file " + filePath + " .");
+        }
+
+        return new Node(id, x, y);
     }
 
     /**
-     * Constructs and initializes the Edges in the Network's Graph
+     * Reads the properties of an Edge from the edge element at the current
+     * position of a StAX reader, including the number of its lanes and the
+     * length and speed limit of its first lane. The reader is moved to the end
+     * of the edge element.
      *
-     * @param edgesXmlNodeList a list of the xml elements corresponding to the
-     * Edges to construct
-     * @param graph the Network graph where we want to constructs the Edges
+     * @param reader the StAX reader on the start of the edge element
+     * @return the properties of the Edge, null if it is an internal edge
+     * @throws XMLStreamException if the edge element can not be read
      */
-    private void readEdges(NodeList edgesXmlNodeList, Graph graph) {
-        long tStart = System.currentTimeMillis();
-        final int listLength = edgesXmlNodeList.getLength();
-        for (int i = 0; i < listLength; i++) {
-            org.w3c.dom.Node edgeXmlNode = edgesXmlNodeList.item(i);
-            Element edgeXmlElement = (Element) edgeXmlNode;
-
-            String idEdge, idNodeFrom, idNodeTo;
-            Double length, speedLimit;
-            int priority, capacity;
-            Node startNode, endNode;
-
-            idEdge = edgeXmlElement.getAttribute(ATTRIBUTE_ID);
-            if (idEdge.isEmpty()) {
-                throw new RuntimeException("The id of an Edge object is empty in file " + filePath + " .");
-            }
+    private EdgeProperties readEdgeProperties(XMLStreamReader reader) throws XMLStreamException {
+        EdgeProperties edge = new EdgeProperties();
 
-            //if the id of the Edge begins with ":", it means that it is an 
-            //internal edge that won't be considered by our parsing.
-            if (idEdge.startsWith(":")) {
-                continue;
-            }
+        edge.id = getAttribute(reader, ATTRIBUTE_ID);
+        if (edge.id.isEmpty()) {
+            throw new RuntimeException("The id of an Edge object is empty in file " + filePath + " .");
+        }
 
-            idNodeFrom = edgeXmlElement.getAttribute(ATTRIBUTE_FROM);
-            if (idNodeFrom.isEmpty()) {
-                throw new RuntimeException("The id of the starting node of an Edge object whose id is \"" + idEdge + "\" is empty in file " + filePath + " .");
-            }
+        //if the id of the Edge begins with ":", it means that it is an 
+        //internal edge that won't be considered by our parsing.
+        if (edge.id.startsWith(":")) {
+            skipElement(reader);
+            return null;
+        }
 
-            idNodeTo = edgeXmlElement.getAttribute(ATTRIBUTE_TO);
-            if (idNodeTo.isEmpty()) {
-                throw new RuntimeException("The id of the ending node of an Edge object whose id is \"" + idEdge + "\" is empty in file " + filePath + " .");
-            }
+        edge.idNodeFrom = getAttribute(reader, ATTRIBUTE_FROM);
+        if (edge.idNodeFrom.isEmpty()) {
+            throw new RuntimeException("The id of the starting node of an Edge object whose id is \"" + edge.id + "\" is empty in file " + filePath + " .");
+        }
 
-            try {
-                priority = Integer.parseInt(edgeXmlElement.getAttribute(ATTRIBUTE_PRIORITY));
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("The priority of an Edge object whose id is \"" + idEdge + "\" is not valid in file " + filePath + " .");
-            }
+        edge.idNodeTo = getAttribute(reader, ATTRIBUTE_TO);
+        if (edge.idNodeTo.isEmpty()) {
+            throw new RuntimeException("The id of the ending node of an Edge object whose id is \"" + edge.id + "\" is empty in file " + filePath + " .");
+        }
+
+        try {
+            edge.priority = Integer.parseInt(getAttribute(reader, ATTRIBUTE_PRIORITY));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The priority of an Edge object whose id is \"" + edge.id + "\" is not valid in file " + filePath + " .");
+        }
 
-            //An Edge is composed of lanes in SUMO from which we can get the speed and length of the Edge
-            NodeList lanesXmlNodeList = edgeXmlElement.getElementsByTagName(ELEMENT_LANE);
-            if (lanesXmlNodeList.item(0).getNodeType() != org.w3c.dom.Node.ELEMENT_NODE) {
-                throw new RuntimeException("Error importation while getting lane information for an Edge object  whose id is \"" + idEdge + "\" in file " + filePath + " .");
+        //An Edge is composed of lanes in SUMO from which we can get the speed and length of the Edge
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (ELEMENT_LANE.equals(reader.getLocalName())) {
+                    if (edge.nbLanes == 0) {
+                        readFirstLane(reader, edge);
+                    }
+                    edge.nbLanes++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
             }
+        }
 
-            Element firstLaneXmlElement = (Element) lanesXmlNodeList.item(0);
+        if (edge.nbLanes == 0) {
+            throw new RuntimeException("Error importation while getting lane information for an Edge object  whose id is \"" + edge.id + "\" in file " + filePath + " .");
+        }
 
-            try {
-                length = Double.parseDouble(firstLaneXmlElement.getAttribute(ATTRIBUTE_LENGTH));
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("The length of a lane of an Edge object whose id is \"" + idEdge + "\" is not valid in file " + filePath + " .");
-            }
+        return edge;
+    }
 
-            try {
-                speedLimit = Double.parseDouble(firstLaneXmlElement.getAttribute(ATTRIBUTE_SPEED));
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("The speed limit of a lane of an Edge object whose id is \"" + idEdge + "\" is not valid in file " + filePath + " .");
-            }
+    /**
+     * Reads the length and the speed limit of an Edge from the element of its
+     * first lane at the current position of a StAX reader.
+     *
+     * @param reader the StAX reader on the start of the lane element
+     * @param edge the properties of the Edge of the lane
+     */
+    private void readFirstLane(XMLStreamReader reader, EdgeProperties edge) {
+        try {
+            edge.length = Double.parseDouble(getAttribute(reader, ATTRIBUTE_LENGTH));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The length of a lane of an Edge object whose id is \"" + edge.id + "\" is not valid in file " + filePath + " .");
+        }
 
-            capacity = calculCarCapacity(lanesXmlNodeList.getLength(), length);
+        try {
+            edge.speedLimit = Double.parseDouble(getAttribute(reader, ATTRIBUTE_SPEED));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The speed limit of a lane of an Edge object whose id is \"" + edge.id + "\" is not valid in file " + filePath + " .");
+        }
+    }
 
-            //the nodes are supposed to be created before the edges.
-            startNode = graph.getNode(idNodeFrom);
-            if (startNode == null) {
-                throw new RuntimeException("The starting Node with idNodeFrom \"" + idNodeFrom + "\" of an Edge whose id is \"" + idEdge + "\" is null in file " + filePath + " .");
-            }
+    /**
+     * Constructs and initializes an Edge from its properties, and binds it to
+     * its Nodes in the Graph.
+     *
+     * @param edge the properties of the Edge
+     * @param graph the Network graph where the Nodes of the Edge are
+     * @return the newly constructed Edge
+     */
+    private Edge createEdge(EdgeProperties edge, Graph graph) {
+        int capacity = calculCarCapacity(edge.nbLanes, edge.length);
 
-            endNode = graph.getNode(idNodeTo);
-            if (endNode == null) {
-                throw new RuntimeException("The ending Node with idNodeTo \"" + idNodeTo + "\" of an Edge whose id is \"" + idEdge + "\" is null in file " + filePath + " .");
-            }
+        //the nodes are supposed to be created before the edges.
+        Node startNode = graph.getNode(edge.idNodeFrom);
+        if (startNode == null) {
+            throw new RuntimeException("The starting Node with idNodeFrom \"" + edge.idNodeFrom + "\" of an Edge whose id is \"" + edge.id + "\" is null in file " + filePath + " .");
+        }
 
-            //When we create the new Edge, we have to make the bound with the nodes.
-            Edge edge = new Edge(idEdge, capacity, length, speedLimit, priority, startNode, endNode);
-            endNode.addIngoingEdge(edge);
-            startNode.addOutgoingEdge(edge);
+        Node endNode = graph.getNode(edge.idNodeTo);
+        if (endNode == null) {
+            throw new RuntimeException("The ending Node with idNodeTo \"" + edge.idNodeTo + "\" of an Edge whose id is \"" + edge.id + "\" is null in file " + filePath + " .");
+        }
 
-            graph.addEdge(edge);
+        //When we create the new Edge, we have to make the bound with the nodes.
+        Edge e = new Edge(edge.id, capacity, edge.length, edge.speedLimit, edge.priority, startNode, endNode);
+        endNode.addIngoingEdge(e);
+        startNode.addOutgoingEdge(e);
+        return e;
+    }
 
-            if (PRINT_ESTIMATION_TIME) {
-                long tEnd = System.currentTimeMillis();
-                System.out.print("Remaining time for Edges : " + (int) (((tEnd - tStart) * listLength / (double) i - (tEnd - tStart))) / 1000 + "s ("
-                        + (i * 10000 / listLength) / 100 + "%)           \r");
+    /**
+     * Returns the value of an attribute of the element at the current position
+     * of a StAX reader.
+     *
+     * @param reader the StAX reader on the start of an element
+     * @param name the name of the attribute
+     * @return the value of the attribute, an empty string if the element has
+     * no such attribute
+     */
+    private String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Moves a StAX reader from the start of an element to its end, skipping
+     * all its children.
+     *
+     * @param reader the StAX reader on the start of an element
+     * @throws XMLStreamException if the element can not be read
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
             }
         }
-
-        long tEnd = System.currentTimeMillis();
-        System.out.println("Edges loaded in " + (tEnd - tStart) / 1000 + " seconds.");
     }
 
     /**
@@ -297,4 +398,47 @@ public class SumoNetFileReader extends AbstractFileReader {
         return capacity;
     }
 
+    /**
+     * The properties of an Edge read from the file, kept until the Nodes of
+     * the Edge are constructed.
+     */
+    private static class EdgeProperties {
+
+        /**
+         * The id of the Edge.
+         */
+        private String id;
+
+        /**
+         * The id of the starting Node of the Edge.
+         */
+        private String idNodeFrom;
+
+        /**
+         * The id of the ending Node of the Edge.
+         */
+        private String idNodeTo;
+
+        /**
+         * The priority of the Edge.
+         */
+        private int priority;
+
+        /**
+         * The length in meter of the first lane of the Edge.
+         */
+        private double length;
+
+        /**
+         * The speed limit in m/s of the first lane of the Edge.
+         */
+        private double speedLimit;
+
+        /**
+         * The number of lanes of the Edge.
+         */
+        private int nbLanes;
+
+    }
+
 }
@@ -0,0 +1,733 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.sumofilesreader;
+
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.CompiledDemandFile;
+import ie.ucd.pel.ronin.model.Network;
+import ie.ucd.pel.ronin.model.Route;
+import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import ie.ucd.pel.ronin.utils.XmlParser;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Reader of the vehicles of a sumo file .rou.xml one after the other. The file
+ * is streamed with a StAX reader. The routes defined with an id outside of the
+ * vehicles, and the route distributions, are kept to be referenced by the
+ * vehicles and the flows. A flow is kept as a definition until its last
+ * vehicle is read: its vehicles are generated one by one when they are the
+ * next vehicles, so that they are never all in memory. The vehicles of the
+ * file and of the flows are read by departure time, provided that the file is
+ * sorted by departure time and begin time as SUMO requires. A flow vehicle
+ * that departs at the same time as a vehicle of the file is read first.
+ */
+class SumoRouteFileCursor {
+
+    /**
+     * The seed of the choice of the routes of the route distributions, the
+     * default seed of SUMO.
+     */
+    private static final long ROUTE_DISTRIBUTION_SEED = 23423;
+
+    /**
+     * The end time of the flows without end attribute, 24 hours as in SUMO.
+     * The flows with a number attribute but no end attribute end after their
+     * last vehicle instead.
+     */
+    private static final double DEFAULT_FLOW_END = 86400.;
+
+    /**
+     * The reader of the route file that constructs the vehicles.
+     */
+    private final SumoRouteFileReader routeFileReader;
+
+    /**
+     * The routes already read, mapped on their edges attribute.
+     */
+    private final Map<String, Route> routes;
+
+    /**
+     * True if the compiled demand file of the file is read instead of the file
+     * when it is valid; false otherwise.
+     */
+    private final boolean isCompiledDemandFileUsed;
+
+    /**
+     * The edges attributes of the routes defined with an id, mapped on their
+     * id.
+     */
+    private final Map<String, String> namedRoutes;
+
+    /**
+     * The route distributions, mapped on their id.
+     */
+    private final Map<String, RouteDistribution> routeDistributions;
+
+    /**
+     * The flows that still have vehicles to generate, ordered by departure
+     * time of their next vehicle and then by order in the file.
+     */
+    private final PriorityQueue<Flow> flows;
+
+    /**
+     * The generator of the choices of the routes of the route distributions.
+     */
+    private final Random random;
+
+    /**
+     * The number of flows read in the file.
+     */
+    private int nbFlows;
+
+    /**
+     * The compiled demand file, null if it is not opened or not valid.
+     */
+    private CompiledDemandFile compiledDemandFile;
+
+    /**
+     * The stream of the file, null if it is not opened.
+     */
+    private InputStream in;
+
+    /**
+     * The StAX reader of the file, null if it is not opened.
+     */
+    private XMLStreamReader reader;
+
+    /**
+     * The next vehicle element of the file that is read but not returned yet,
+     * null if there is none.
+     */
+    private Vehicle nextFileVehicle;
+
+    /**
+     * The next vehicle, of the file or of a flow, that is read but not
+     * returned yet, null if there is none.
+     */
+    private Vehicle nextVehicle;
+
+    /**
+     * True if the end of the file is reached; false otherwise.
+     */
+    private boolean isEndOfFile;
+
+    /**
+     * Constructs and initializes a SumoRouteFileCursor for the file of a
+     * SumoRouteFileReader. The file is opened at the first reading.
+     *
+     * @param routeFileReader the reader of the route file that constructs the
+     * vehicles
+     * @param routes the routes already read, mapped on their edges attribute
+     * @param isCompiledDemandFileUsed true if the compiled demand file of the
+     * file is read instead of the file when it is valid; false otherwise
+     */
+    SumoRouteFileCursor(SumoRouteFileReader routeFileReader, Map<String, Route> routes, boolean isCompiledDemandFileUsed) {
+        this.routeFileReader = routeFileReader;
+        this.routes = routes;
+        this.isCompiledDemandFileUsed = isCompiledDemandFileUsed;
+        this.namedRoutes = new HashMap<>();
+        this.routeDistributions = new HashMap<>();
+        this.flows = new PriorityQueue<>(Comparator.comparingDouble(Flow::getNextDepartureTime).thenComparingInt((flow) -> flow.order));
+        this.random = new Random(ROUTE_DISTRIBUTION_SEED);
+        this.nbFlows = 0;
+        this.compiledDemandFile = null;
+        this.in = null;
+        this.reader = null;
+        this.nextFileVehicle = null;
+        this.nextVehicle = null;
+        this.isEndOfFile = false;
+    }
+
+    /**
+     * Returns true if flows were read in the file; false otherwise.
+     *
+     * @return true if flows were read in the file; false otherwise
+     */
+    boolean hasFlows() {
+        return nbFlows > 0;
+    }
+
+    /**
+     * Returns the next vehicle of the file without removing it. The vehicle is
+     * read if it is not yet.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return the next vehicle of the file, null if all the vehicles are read
+     */
+    Vehicle peekNextVehicle(Network network) {
+        if (nextVehicle == null) {
+            nextVehicle = readNextVehicle(network);
+        }
+        return nextVehicle;
+    }
+
+    /**
+     * Returns and removes the next vehicle of the file. The vehicle is read if
+     * it is not yet.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return the next vehicle of the file, null if all the vehicles are read
+     */
+    Vehicle pollNextVehicle(Network network) {
+        Vehicle v = peekNextVehicle(network);
+        nextVehicle = null;
+        return v;
+    }
+
+    /**
+     * Closes the file. The vehicles that are not read yet are not read.
+     */
+    void close() {
+        flows.clear();
+        nextVehicle = null;
+        closeFile();
+    }
+
+    /**
+     * Reads the next vehicle, of the file or of a flow.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return the next vehicle, null if all the vehicles are read
+     */
+    private Vehicle readNextVehicle(Network network) {
+        if (nextFileVehicle == null && !isEndOfFile) {
+            nextFileVehicle = readNextFileVehicle(network);
+        }
+        Flow flow = flows.peek();
+        if (flow != null && (nextFileVehicle == null || flow.getNextDepartureTime() <= nextFileVehicle.getDepartureTime())) {
+            flows.poll();
+            Vehicle v = flow.createNextVehicle(network);
+            if (flow.hasNextVehicle()) {
+                flows.add(flow);
+            }
+            return v;
+        }
+        Vehicle v = nextFileVehicle;
+        nextFileVehicle = null;
+        return v;
+    }
+
+    /**
+     * Reads the next vehicle element of the file, and the routes, route
+     * distributions and flows before it. The file is opened if it is not yet,
+     * and closed when its end is reached. The compiled demand file is used
+     * instead of the file if it is allowed and valid.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return the next vehicle of the file, null if the end of the file is
+     * reached
+     */
+    private Vehicle readNextFileVehicle(Network network) {
+        String filePath = routeFileReader.getFilePath();
+        try {
+            if (compiledDemandFile == null && reader == null) {
+                File file = XmlParser.getXmlFile(filePath);
+                CompiledDemandFile compiledFile = new CompiledDemandFile(filePath + "." + CompiledDemandFile.EXTENSION);
+                if (isCompiledDemandFileUsed && compiledFile.open(network, file.length(), FileUtils.getContentHash(file))) {
+                    compiledDemandFile = compiledFile;
+                } else {
+                    in = new BufferedInputStream(new FileInputStream(file));
+                    reader = XmlParser.getXmlStreamReader(in);
+                }
+            }
+            if (compiledDemandFile != null) {
+                if (compiledDemandFile.hasNextVehicle()) {
+                    return compiledDemandFile.readNextVehicle(network);
+                }
+                closeFile();
+                return null;
+            }
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String elementName = reader.getLocalName();
+                if (routeFileReader.ELEMENT_VEHICLE.equals(elementName)) {
+                    return readVehicle(network);
+                } else if (routeFileReader.ELEMENT_FLOW.equals(elementName)) {
+                    readFlow();
+                } else if (routeFileReader.ELEMENT_ROUTE.equals(elementName)) {
+                    readRoute();
+                } else if (routeFileReader.ELEMENT_ROUTE_DISTRIBUTION.equals(elementName)) {
+                    readRouteDistribution();
+                } else if (routeFileReader.ELEMENT_TRIP.equals(elementName)) {
+                    System.err.println("Warning : the trip \"" + SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID)
+                            + "\" of the file " + filePath + " is ignored, Ronin does not compute the routes of the trips.");
+                    skipElement();
+                }
+            }
+        } catch (IOException | XMLStreamException ex) {
+            close();
+            throw new RuntimeException("Error : cannot read the file at location " + filePath + ".", ex);
+        }
+        closeFile();
+        return null;
+    }
+
+    /**
+     * Constructs and initializes a Vehicle from the vehicle element at the
+     * current position of the StAX reader. The route of the vehicle is its
+     * route element, or the route or the route distribution referenced by its
+     * route attribute. The reader is moved to the end of the vehicle element.
+     *
+     * @param network the network which will contain the Vehicle
+     * @return the Vehicle of the vehicle element
+     * @throws XMLStreamException if the vehicle element can not be read
+     */
+    private Vehicle readVehicle(Network network) throws XMLStreamException {
+        String idVehicle = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID);
+        String idVType = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_TYPE);
+        String departureTime = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_DEPART);
+        String idRoute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ROUTE);
+        String edges = readInnerRouteEdges();
+
+        if (edges == null && !idRoute.isEmpty()) {
+            edges = getReferencedRouteEdges(idRoute, idVehicle);
+        }
+        return routeFileReader.createVehicle(network, idVehicle, idVType, departureTime, edges, routes);
+    }
+
+    /**
+     * Reads the flow element at the current position of the StAX reader and
+     * adds it to the flows if it has vehicles. The reader is moved to the end
+     * of the flow element.
+     *
+     * @throws XMLStreamException if the flow element can not be read
+     */
+    private void readFlow() throws XMLStreamException {
+        String idFlow = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID);
+        String idVType = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_TYPE);
+        String idRoute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ROUTE);
+        String beginAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_BEGIN);
+        String endAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_END);
+        String periodAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_PERIOD);
+        String vehsPerHourAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_VEHS_PER_HOUR);
+        String numberAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_NUMBER);
+        boolean isProbabilistic = !SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_PROBABILITY).isEmpty();
+        String edges = readInnerRouteEdges();
+
+        if (idFlow.isEmpty()) {
+            throw new RuntimeException("The id of a Flow object is empty in file at location " + routeFileReader.getFilePath() + ".");
+        }
+        if (isProbabilistic) {
+            throw new RuntimeException("The probability of the Flow object whose id is \"" + idFlow + "\" is not supported.");
+        }
+
+        double begin;
+        double end;
+        double period;
+        long number;
+        try {
+            begin = beginAttribute.isEmpty() ? 0. : Double.parseDouble(beginAttribute);
+            end = endAttribute.isEmpty() ? DEFAULT_FLOW_END : Double.parseDouble(endAttribute);
+            number = numberAttribute.isEmpty() ? -1 : Long.parseLong(numberAttribute);
+            if (!periodAttribute.isEmpty()) {
+                period = Double.parseDouble(periodAttribute);
+            } else if (!vehsPerHourAttribute.isEmpty()) {
+                period = 3600. / Double.parseDouble(vehsPerHourAttribute);
+            } else if (number > 0) {
+                period = (end - begin) / number;
+            } else {
+                period = Double.NaN;
+            }
+            //without end, a flow with a number of vehicles ends after its last vehicle
+            if (endAttribute.isEmpty() && number >= 0) {
+                end = begin + number * period;
+            }
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The begin, end, period, vehsPerHour or number of the Flow object whose id is \"" + idFlow + "\" is not valid.");
+        }
+        if (!(period > 0) || Double.isInfinite(period) || number < -1 || end < begin) {
+            throw new RuntimeException("The begin, end, period, vehsPerHour or number of the Flow object whose id is \"" + idFlow + "\" is not valid.");
+        }
+
+        RouteDistribution routeDistribution = null;
+        if (edges == null && !idRoute.isEmpty()) {
+            routeDistribution = routeDistributions.get(idRoute);
+            if (routeDistribution == null) {
+                edges = getReferencedRouteEdges(idRoute, idFlow);
+            }
+        }
+        if (edges == null && routeDistribution == null) {
+            throw new RuntimeException("Error importation while getting route information for a Flow object whose id is \"" + idFlow + "\" .");
+        }
+
+        Flow flow = new Flow(idFlow, idVType, edges, routeDistribution, begin, end, period, number, nbFlows);
+        nbFlows++;
+        if (flow.hasNextVehicle()) {
+            flows.add(flow);
+        }
+    }
+
+    /**
+     * Reads the route element at the current position of the StAX reader,
+     * outside of a vehicle or a flow, and keeps its edges if it has an id. The
+     * reader stays at the start of the route element.
+     */
+    private void readRoute() {
+        String idRoute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID);
+        if (!idRoute.isEmpty()) {
+            namedRoutes.put(idRoute, SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_EDGES));
+        }
+    }
+
+    /**
+     * Reads the routeDistribution element at the current position of the StAX
+     * reader and keeps it if it has an id. The routes of the distribution with
+     * an id are kept as the other routes. The reader is moved to the end of
+     * the routeDistribution element.
+     *
+     * @throws XMLStreamException if the routeDistribution element can not be
+     * read
+     */
+    private void readRouteDistribution() throws XMLStreamException {
+        String idDistribution = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID);
+        RouteDistribution routeDistribution = new RouteDistribution();
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (routeFileReader.ELEMENT_ROUTE.equals(reader.getLocalName())) {
+                    String idRoute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_ID);
+                    String refId = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_REF_ID);
+                    String probabilityAttribute = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_PROBABILITY);
+                    String edges = refId.isEmpty() ? SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_EDGES) : getReferencedRouteEdges(refId, idDistribution);
+                    if (!idRoute.isEmpty()) {
+                        namedRoutes.put(idRoute, edges);
+                    }
+                    double probability;
+                    try {
+                        probability = probabilityAttribute.isEmpty() ? 1. : Double.parseDouble(probabilityAttribute);
+                    } catch (NumberFormatException e) {
+                        throw new RuntimeException("The probability of a route of the routeDistribution object whose id is \"" + idDistribution + "\" is not valid.");
+                    }
+                    routeDistribution.addRoute(edges, probability);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (!idDistribution.isEmpty() && !routeDistribution.isEmpty()) {
+            routeDistributions.put(idDistribution, routeDistribution);
+        }
+    }
+
+    /**
+     * Reads the element at the current position of the StAX reader until its
+     * end, and returns the edges attribute of its first route element.
+     *
+     * @return the edges attribute of the first route element of the element,
+     * null if there is none
+     * @throws XMLStreamException if the element can not be read
+     */
+    private String readInnerRouteEdges() throws XMLStreamException {
+        String edges = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                if (edges == null && routeFileReader.ELEMENT_ROUTE.equals(reader.getLocalName())) {
+                    edges = SumoRouteFileReader.getAttribute(reader, routeFileReader.ATTRIBUTE_EDGES);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Moves the StAX reader to the end of the element at its current position.
+     *
+     * @throws XMLStreamException if the element can not be read
+     */
+    private void skipElement() throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Returns the edges attribute of a route referenced by its id, chosen in
+     * the route distribution if the id is the id of a route distribution.
+     *
+     * @param idRoute the id of the route or of the route distribution
+     * @param idObject the id of the object that references the route
+     * @return the edges attribute of the route
+     */
+    private String getReferencedRouteEdges(String idRoute, String idObject) {
+        RouteDistribution routeDistribution = routeDistributions.get(idRoute);
+        if (routeDistribution != null) {
+            return routeDistribution.chooseRoute(random);
+        }
+        String edges = namedRoutes.get(idRoute);
+        if (edges == null) {
+            throw new RuntimeException("The route \"" + idRoute + "\" referenced by the object whose id is \"" + idObject + "\" is not defined before it in the file at location " + routeFileReader.getFilePath() + ".");
+        }
+        return edges;
+    }
+
+    /**
+     * Closes the file and the compiled demand file, keeping the flows.
+     */
+    private void closeFile() {
+        isEndOfFile = true;
+        nextFileVehicle = null;
+        if (compiledDemandFile != null) {
+            compiledDemandFile.close();
+            compiledDemandFile = null;
+        }
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+            if (in != null) {
+                in.close();
+            }
+        } catch (IOException | XMLStreamException ex) {
+            throw new RuntimeException("Error : cannot close the file at location " + routeFileReader.getFilePath() + ".", ex);
+        } finally {
+            reader = null;
+            in = null;
+        }
+    }
+
+    /**
+     * Routes of a routeDistribution element with their probabilities.
+     */
+    private static final class RouteDistribution {
+
+        /**
+         * The edges attributes of the routes.
+         */
+        private final List<String> routesEdges;
+
+        /**
+         * The cumulative probabilities of the routes.
+         */
+        private final List<Double> cumulativeProbabilities;
+
+        /**
+         * The sum of the probabilities of the routes.
+         */
+        private double totalProbability;
+
+        /**
+         * Constructs an empty RouteDistribution.
+         */
+        private RouteDistribution() {
+            this.routesEdges = new ArrayList<>();
+            this.cumulativeProbabilities = new ArrayList<>();
+            this.totalProbability = 0.;
+        }
+
+        /**
+         * Adds a route to this distribution. The routes without positive
+         * probability are never chosen.
+         *
+         * @param edges the edges attribute of the route
+         * @param probability the probability of the route, relative to the
+         * probabilities of the other routes
+         */
+        private void addRoute(String edges, double probability) {
+            if (probability > 0) {
+                totalProbability += probability;
+                routesEdges.add(edges);
+                cumulativeProbabilities.add(totalProbability);
+            }
+        }
+
+        /**
+         * Returns true if this distribution has no route; false otherwise.
+         *
+         * @return true if this distribution has no route; false otherwise
+         */
+        private boolean isEmpty() {
+            return routesEdges.isEmpty();
+        }
+
+        /**
+         * Chooses a route of this distribution according to the probabilities
+         * of the routes.
+         *
+         * @param random the generator of the choice
+         * @return the edges attribute of the chosen route
+         */
+        private String chooseRoute(Random random) {
+            double r = random.nextDouble() * totalProbability;
+            for (int i = 0; i < routesEdges.size() - 1; i++) {
+                if (r < cumulativeProbabilities.get(i)) {
+                    return routesEdges.get(i);
+                }
+            }
+            return routesEdges.get(routesEdges.size() - 1);
+        }
+
+    }
+
+    /**
+     * Definition of a flow element, that generates its vehicles one by one.
+     * The vehicles depart every period from the begin time, until the end time
+     * or the number of vehicles is reached. As in SUMO, their ids are the id
+     * of the flow followed by a dot and their number in the flow.
+     */
+    private final class Flow {
+
+        /**
+         * The id of the flow.
+         */
+        private final String id;
+
+        /**
+         * The id of the type of the vehicles.
+         */
+        private final String idVType;
+
+        /**
+         * The edges attribute of the route of the vehicles, null if the route
+         * is chosen in a route distribution.
+         */
+        private final String edges;
+
+        /**
+         * The route distribution of the vehicles, null if they have the same
+         * route.
+         */
+        private final RouteDistribution routeDistribution;
+
+        /**
+         * The departure time of the first vehicle.
+         */
+        private final double begin;
+
+        /**
+         * The time before which the vehicles depart.
+         */
+        private final double end;
+
+        /**
+         * The time between the departures of two vehicles.
+         */
+        private final double period;
+
+        /**
+         * The number of vehicles, -1 if it is only limited by the end time.
+         */
+        private final long number;
+
+        /**
+         * The order of the flow in the file.
+         */
+        private final int order;
+
+        /**
+         * The number of vehicles already generated.
+         */
+        private long nbGeneratedVehicles;
+
+        /**
+         * Constructs and initializes a Flow.
+         *
+         * @param id the id of the flow
+         * @param idVType the id of the type of the vehicles
+         * @param edges the edges attribute of the route of the vehicles, null
+         * if the route is chosen in a route distribution
+         * @param routeDistribution the route distribution of the vehicles, null
+         * if they have the same route
+         * @param begin the departure time of the first vehicle
+         * @param end the time before which the vehicles depart
+         * @param period the time between the departures of two vehicles
+         * @param number the number of vehicles, -1 if it is only limited by the
+         * end time
+         * @param order the order of the flow in the file
+         */
+        private Flow(String id, String idVType, String edges, RouteDistribution routeDistribution, double begin, double end, double period, long number, int order) {
+            this.id = id;
+            this.idVType = idVType;
+            this.edges = edges;
+            this.routeDistribution = routeDistribution;
+            this.begin = begin;
+            this.end = end;
+            this.period = period;
+            this.number = number;
+            this.order = order;
+            this.nbGeneratedVehicles = 0;
+        }
+
+        /**
+         * Returns the departure time of the next vehicle of this flow.
+         *
+         * @return the departure time of the next vehicle of this flow
+         */
+        private double getNextDepartureTime() {
+            return begin + nbGeneratedVehicles * period;
+        }
+
+        /**
+         * Returns true if this flow has still vehicles to generate; false
+         * otherwise.
+         *
+         * @return true if this flow has still vehicles to generate; false
+         * otherwise
+         */
+        private boolean hasNextVehicle() {
+            return (number < 0 || nbGeneratedVehicles < number) && getNextDepartureTime() < end;
+        }
+
+        /**
+         * Constructs and initializes the next vehicle of this flow.
+         *
+         * @param network the network which will contain the Vehicle
+         * @return the next vehicle of this flow
+         */
+        private Vehicle createNextVehicle(Network network) {
+            String vehicleEdges = (routeDistribution != null) ? routeDistribution.chooseRoute(random) : edges;
+            Vehicle v = routeFileReader.createVehicle(network, id + "." + nbGeneratedVehicles, idVType, getNextDepartureTime(), vehicleEdges, routes);
+            nbGeneratedVehicles++;
+            return v;
+        }
+
+    }
+
+}
@@ -17,13 +17,28 @@
 package ie.ucd.pel.ronin.filesreader.sumofilesreader;
 
 import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.CompiledDemandFile;
+import ie.ucd.pel.ronin.model.Edge;
 import ie.ucd.pel.ronin.model.Network;
+import ie.ucd.pel.ronin.model.Route;
 import ie.ucd.pel.ronin.model.Vehicle;
 import ie.ucd.pel.ronin.model.VehicleType;
+import ie.ucd.pel.ronin.utils.FileUtils;
 import ie.ucd.pel.ronin.utils.XmlParser;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  *
@@ -34,12 +49,6 @@ import org.w3c.dom.NodeList;
  */
 public class SumoRouteFileReader extends AbstractFileReader {
 
-    /**
-     * Attribute used for giving output to the user during the execution of the
-     * program. But if it is set to true, the performances will decrease.
-     */
-    private final boolean PRINT_ESTIMATION_TIME = false;
-
     /**
      * SUMO tag name for Vehicle element.
      */
@@ -50,6 +59,21 @@ public class SumoRouteFileReader extends AbstractFileReader {
      */
     public final String ELEMENT_ROUTE = "route";
 
+    /**
+     * SUMO tag name for Flow element.
+     */
+    public final String ELEMENT_FLOW = "flow";
+
+    /**
+     * SUMO tag name for Trip element.
+     */
+    public final String ELEMENT_TRIP = "trip";
+
+    /**
+     * SUMO tag name for routeDistribution element.
+     */
+    public final String ELEMENT_ROUTE_DISTRIBUTION = "routeDistribution";
+
     /**
      * SUMO tag name for vType element.
      */
@@ -86,6 +110,49 @@ public class SumoRouteFileReader extends AbstractFileReader {
      */
     public final String ATTRIBUTE_EDGES = "edges";
 
+    /**
+     * SUMO tag name for Vehicle's and Flow's attribute route, the id of a
+     * Route or of a routeDistribution.
+     */
+    public final String ATTRIBUTE_ROUTE = "route";
+
+    /**
+     * SUMO tag name for the attribute refId of a Route of a
+     * routeDistribution.
+     */
+    public final String ATTRIBUTE_REF_ID = "refId";
+
+    /**
+     * SUMO tag name for the attribute probability of a Route of a
+     * routeDistribution and of a Flow.
+     */
+    public final String ATTRIBUTE_PROBABILITY = "probability";
+
+    /**
+     * SUMO tag name for Flow's attribute begin.
+     */
+    public final String ATTRIBUTE_BEGIN = "begin";
+
+    /**
+     * SUMO tag name for Flow's attribute end.
+     */
+    public final String ATTRIBUTE_END = "end";
+
+    /**
+     * SUMO tag name for Flow's attribute period.
+     */
+    public final String ATTRIBUTE_PERIOD = "period";
+
+    /**
+     * SUMO tag name for Flow's attribute vehsPerHour.
+     */
+    public final String ATTRIBUTE_VEHS_PER_HOUR = "vehsPerHour";
+
+    /**
+     * SUMO tag name for Flow's attribute number.
+     */
+    public final String ATTRIBUTE_NUMBER = "number";
+
     /**
      * Constructs and initializes a SumoRouteFileReader, able to read the
      * vehicles from a sumo file .rou.xml
@@ -105,74 +172,180 @@ public class SumoRouteFileReader extends AbstractFileReader {
      * @param network the network which will contain the Vehicles
      */
     public void readVehicles(Network network) {
+        for (Vehicle v : loadVehicles(network)) {
+            network.addVehicleToLoadedVehicles(v);
+        }
+    }
+
+    /**
+     * Reads the Vehicles from SUMO .rou File, constructing and initializing the
+     * Vehicles and their routes, without adding them to the Network. The
+     * Vehicles are read from the compiled demand file next to the SUMO file if
+     * it was compiled from the same content for the same Graph. Otherwise the
+     * SUMO file is read and the compiled demand file is written for the next
+     * readings, unless the file has flows. The vehicles of the flows are all
+     * generated. Only the Graph, the vehicles types and the routes of the
+     * Network are used, so that several files can be read at the same time.
+     * WARNING : the vehicles types must be read before reading the vehicles.
+     *
+     * @param network the network whose Graph and vehicles types are used
+     * @return the Vehicles of the file that have a route, with only the first
+     * Vehicle of each id, in the order of the SUMO file when it is read and
+     * sorted by departure time when the compiled demand file is read
+     */
+    public List<Vehicle> loadVehicles(Network network) {
+        long tStart = System.currentTimeMillis();
+        File file = XmlParser.getXmlFile(filePath);
+        long sourceLength = file.length();
+        long sourceHash;
+        try {
+            sourceHash = FileUtils.getContentHash(file);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot read the file at location " + filePath + ".", ex);
+        }
 
-        Document doc = XmlParser.getDocDomElement(filePath);
+        CompiledDemandFile compiledDemandFile = new CompiledDemandFile(filePath + "." + CompiledDemandFile.EXTENSION);
+        if (compiledDemandFile.open(network, sourceLength, sourceHash)) {
+            List<Vehicle> vehicles = new ArrayList<>();
+            while (compiledDemandFile.hasNextVehicle()) {
+                vehicles.add(compiledDemandFile.readNextVehicle(network));
+            }
+            compiledDemandFile.close();
+            long tEnd = System.currentTimeMillis();
+            System.out.println("Vehicles loaded from " + compiledDemandFile.getFilePath() + " in " + (tEnd - tStart) / 1000 + " seconds.");
+            return vehicles;
+        }
 
-        if (doc == null) {
-            throw new RuntimeException("The DOM Document element of the file at location " + filePath + " is null.");
+        SumoRouteFileCursor cursor = new SumoRouteFileCursor(this, new HashMap<>(), false);
+        List<Vehicle> vehicles = readXmlVehicles(network, cursor);
+        //the vehicles of the flows are generated again rather than compiled
+        if (cursor.hasFlows()) {
+            return vehicles;
         }
 
-        NodeList vehiclesXmlNodeList = doc.getElementsByTagName(ELEMENT_VEHICLE);
+        try {
+            compiledDemandFile.writeVehicles(vehicles, network.getGraph(), sourceLength, sourceHash);
+        } catch (IOException ex) {
+            System.err.println("Warning : cannot write the compiled demand file " + compiledDemandFile.getFilePath() + " : " + ex.getMessage());
+        }
+        return vehicles;
+    }
 
+    /**
+     * Reads the Vehicles from SUMO .rou File with a StAX reader, generating the
+     * Vehicles of the flows. The Vehicles without route and the Vehicles whose
+     * id is already read are ignored, as the Network does.
+     *
+     * @param network the network whose Graph and vehicles types are used
+     * @param cursor the cursor of the file
+     * @return the Vehicles read, by departure time for the flows and in the
+     * order of the file for the other vehicles
+     */
+    private List<Vehicle> readXmlVehicles(Network network, SumoRouteFileCursor cursor) {
         long tStart = System.currentTimeMillis();
-        final int listLength = vehiclesXmlNodeList.getLength();
-        for (int i = 0; i < listLength; i++) {
-            org.w3c.dom.Node vehicleXmlNode = vehiclesXmlNodeList.item(i);
-            Element vehicleXmlElement = (Element) vehicleXmlNode;
-            String idVehicle, idVType;
-            Double departureTime;
-
-            idVehicle = vehicleXmlElement.getAttribute(ATTRIBUTE_ID);
-            if (idVehicle.isEmpty()) {
-                throw new RuntimeException("The id of a Vehicle object is empty in file at location " + filePath + ".");
+        List<Vehicle> vehicles = new ArrayList<>();
+        Set<String> idsVehicles = new HashSet<>();
+
+        try {
+            Vehicle v;
+            while ((v = cursor.pollNextVehicle(network)) != null) {
+                if (!v.getRoute().isEmpty() && idsVehicles.add(v.getId())) {
+                    vehicles.add(v);
+                }
             }
+        } finally {
+            cursor.close();
+        }
 
-            idVType = vehicleXmlElement.getAttribute(ATTRIBUTE_TYPE);
-            if (idVType.isEmpty()) {
-                throw new RuntimeException("The id of the Vehicle Type of a Vehicle object whose id is \"" + idVehicle + "\" is empty.");
-            }
+        long tEnd = System.currentTimeMillis();
+        System.out.println("Vehicles loaded in " + (tEnd - tStart) / 1000 + " seconds.");
 
-            try {
-                departureTime = Double.parseDouble(vehicleXmlElement.getAttribute(ATTRIBUTE_DEPART));
-            } catch (NumberFormatException e) {
-                throw new RuntimeException("The departure time of a Vehicle object whose id is \"" + idVehicle + "\" is not valid.");
-            }
+        return vehicles;
+    }
 
-            NodeList routeXmlNodeList = vehicleXmlElement.getElementsByTagName(ELEMENT_ROUTE);
-            if (routeXmlNodeList.item(0).getNodeType() != org.w3c.dom.Node.ELEMENT_NODE) {
-                throw new RuntimeException("Error importation while getting route information for a Vehicle object whose id is \"" + idVehicle + "\" .");
-            }
+    /**
+     * Constructs and initializes a Vehicle and its route from the attributes
+     * of its element in the file. The routes are shared between the Vehicles
+     * that have the same edges attribute.
+     *
+     * @param network the network which will contain the Vehicle
+     * @param idVehicle the id attribute of the vehicle element
+     * @param idVType the type attribute of the vehicle element
+     * @param departureTimeAttribute the depart attribute of the vehicle element
+     * @param edgesAttribute the edges attribute of the route element of the
+     * vehicle element, null if the vehicle element has no route element
+     * @param routes the routes already read, mapped on their edges attribute
+     * @return the newly constructed Vehicle
+     */
+    Vehicle createVehicle(Network network, String idVehicle, String idVType, String departureTimeAttribute, String edgesAttribute, Map<String, Route> routes) {
+        double departureTime;
+        try {
+            departureTime = Double.parseDouble(departureTimeAttribute);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The departure time of a Vehicle object whose id is \"" + idVehicle + "\" is not valid.");
+        }
+        return createVehicle(network, idVehicle, idVType, departureTime, edgesAttribute, routes);
+    }
 
-            //Constructs the Vehicle with the vehicleType got from the Network
-            VehicleType vType = network.getVehicleType(idVType);
-            if (vType == null) {
-                throw new RuntimeException("The VehicleType with idVehicleType \"" + idVType + "\" of a Vehicle  whose idVehicle is \"" + idVehicle + "\" is null.");
-            }
-            Vehicle v = new Vehicle(idVehicle, departureTime, vType);
+    /**
+     * Constructs and initializes a Vehicle and its route from its id, its
+     * type, its departure time and the edges attribute of its route. The
+     * routes are shared between the Vehicles that have the same edges
+     * attribute.
+     *
+     * @param network the network which will contain the Vehicle
+     * @param idVehicle the id of the vehicle
+     * @param idVType the id of the type of the vehicle
+     * @param departureTime the departure time of the vehicle
+     * @param edgesAttribute the edges attribute of the route of the vehicle,
+     * null if the vehicle has no route
+     * @param routes the routes already read, mapped on their edges attribute
+     * @return the newly constructed Vehicle
+     */
+    Vehicle createVehicle(Network network, String idVehicle, String idVType, double departureTime, String edgesAttribute, Map<String, Route> routes) {
+        if (idVehicle.isEmpty()) {
+            throw new RuntimeException("The id of a Vehicle object is empty in file at location " + filePath + ".");
+        }
+
+        if (idVType.isEmpty()) {
+            throw new RuntimeException("The id of the Vehicle Type of a Vehicle object whose id is \"" + idVehicle + "\" is empty.");
+        }
 
-            //Load the route for the vehicle
-            Element routeXmlElement = (Element) routeXmlNodeList.item(0);
-            String[] idsEdges = routeXmlElement.getAttribute(ATTRIBUTE_EDGES).split(" ");
+        if (edgesAttribute == null) {
+            throw new RuntimeException("Error importation while getting route information for a Vehicle object whose id is \"" + idVehicle + "\" .");
+        }
 
-            for (String idEdge : idsEdges) {
+        //Constructs the Vehicle with the vehicleType got from the Network
+        VehicleType vType = network.getVehicleType(idVType);
+        if (vType == null) {
+            throw new RuntimeException("The VehicleType with idVehicleType \"" + idVType + "\" of a Vehicle  whose idVehicle is \"" + idVehicle + "\" is null.");
+        }
+        Vehicle v = new Vehicle(idVehicle, departureTime, vType);
+
+        //Load the route for the vehicle
+        Route route = routes.get(edgesAttribute);
+        if (route == null) {
+            List<Edge> edges = new ArrayList<>();
+            for (String idEdge : edgesAttribute.split(" ")) {
                 if (idEdge.isEmpty() == false) {
-                    v.addEdgeToRoute(network.getEdge(idEdge));
+                    Edge e = network.getEdge(idEdge);
+                    if (e != null) {
+                        edges.add(e);
+                    }
                 }
             }
-
-            network.addVehicleToLoadedVehicles(v);
-
-            if (PRINT_ESTIMATION_TIME) {
-                long tEnd = System.currentTimeMillis();
-                System.out.print("Remaining time for Nodes : " + (int) (((tEnd - tStart) * listLength / (double) i - (tEnd - tStart))) / 1000 + "s ("
-                        + (i * 10000 / listLength) / 100 + "%)           \r");
+            route = network.getRouteTable().intern(edges);
+            if (route != null) {
+                routes.put(edgesAttribute, route);
+            } else {
+                edges.forEach(v::addEdgeToRoute);
             }
-
+        }
+        if (route != null) {
+            v.setRoute(route);
         }
 
-        long tEnd = System.currentTimeMillis();
-        System.out.println("Vehicles loaded in " + (tEnd - tStart) / 1000 + " seconds.");
-
+        return v;
     }
 
     /**
@@ -190,54 +363,71 @@ public class SumoRouteFileReader extends AbstractFileReader {
         long tStartReading = System.currentTimeMillis();
 
         for (String file : consideredFilesPaths) {
-            Document doc = XmlParser.getDocDomElement(file);
-
-            if (doc == null) {
-                throw new RuntimeException("The DOM Document element of a file at location \"" + file + "\" is null.");
-            }
-
-            NodeList vehicleTypesXmlNodeList = doc.getElementsByTagName(ELEMENT_VEHICLE_TYPE);
-
-            long tStart = System.currentTimeMillis();
-            final int listLength = vehicleTypesXmlNodeList.getLength();
-            for (int i = 0; i < listLength; i++) {
-                org.w3c.dom.Node vehicleXmlNode = vehicleTypesXmlNodeList.item(i);
-                Element vehicleXmlElement = (Element) vehicleXmlNode;
-                String idVType;
-                Double maxSpeed, length;
-
-                idVType = vehicleXmlElement.getAttribute(ATTRIBUTE_ID);
-                if (idVType.isEmpty()) {
-                    throw new RuntimeException("The id of a VehicleType object in file at location \"" + file + "\" is empty.");
-                }
-
+            //the file is streamed so that the vehicles are not kept in memory
+            try (InputStream in = new BufferedInputStream(new FileInputStream(XmlParser.getXmlFile(file)))) {
+                XMLStreamReader reader = XmlParser.getXmlStreamReader(in);
                 try {
-                    maxSpeed = Double.parseDouble(vehicleXmlElement.getAttribute(ATTRIBUTE_MAX_SPEED));
-                } catch (NumberFormatException e) {
-                    throw new RuntimeException("The maximum speed of a vehicleType object whose id is \"" + idVType + "\" is not valid.");
+                    while (reader.hasNext()) {
+                        if (reader.next() == XMLStreamConstants.START_ELEMENT && ELEMENT_VEHICLE_TYPE.equals(reader.getLocalName())) {
+                            network.addVehicleType(readVehicleType(reader, file));
+                        }
+                    }
+                } finally {
+                    reader.close();
                 }
+            } catch (IOException | XMLStreamException ex) {
+                throw new RuntimeException("Error : cannot read the file at location " + file + ".", ex);
+            }
+        }
 
-                try {
-                    length = Double.parseDouble(vehicleXmlElement.getAttribute(ATTRIBUTE_LENGTH));
-                } catch (NumberFormatException e) {
-                    throw new RuntimeException("The length of a vehicleType object whose id is \"" + idVType + "\" is not valid.");
-                }
+        long tEndReading = System.currentTimeMillis();
+        System.out.println("VehicleTypes loaded in " + (tEndReading - tStartReading) / 1000 + " seconds.");
+    }
 
-                VehicleType vType = new VehicleType(idVType, length, maxSpeed);
-                network.addVehicleType(vType);
+    /**
+     * Constructs and initializes a VehicleType from the vType element at the
+     * current position of a StAX reader.
+     *
+     * @param reader the StAX reader on the start of the vType element
+     * @param file the path to the file of the vType element
+     * @return the VehicleType of the vType element
+     */
+    private VehicleType readVehicleType(XMLStreamReader reader, String file) {
+        String idVType;
+        Double maxSpeed, length;
 
-                if (PRINT_ESTIMATION_TIME) {
-                    long tEnd = System.currentTimeMillis();
-                    System.out.print("Remaining time for Nodes : " + (int) (((tEnd - tStart) * listLength / (double) i - (tEnd - tStart))) / 1000 + "s ("
-                            + (i * 10000 / listLength) / 100 + "%)           \r");
-                }
+        idVType = getAttribute(reader, ATTRIBUTE_ID);
+        if (idVType.isEmpty()) {
+            throw new RuntimeException("The id of a VehicleType object in file at location \"" + file + "\" is empty.");
+        }
 
-            }
+        try {
+            maxSpeed = Double.parseDouble(getAttribute(reader, ATTRIBUTE_MAX_SPEED));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The maximum speed of a vehicleType object whose id is \"" + idVType + "\" is not valid.");
+        }
 
+        try {
+            length = Double.parseDouble(getAttribute(reader, ATTRIBUTE_LENGTH));
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("The length of a vehicleType object whose id is \"" + idVType + "\" is not valid.");
         }
 
-        long tEndReading = System.currentTimeMillis();
-        System.out.println("VehicleTypes loaded in " + (tEndReading - tStartReading) / 1000 + " seconds.");
+        return new VehicleType(idVType, length, maxSpeed);
+    }
+
+    /**
+     * Returns the value of an attribute of the element at the current position
+     * of a StAX reader.
+     *
+     * @param reader the StAX reader on the start of an element
+     * @param name the name of the attribute
+     * @return the value of the attribute, an empty string if the element has
+     * no such attribute
+     */
+    static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value == null ? "" : value;
     }
 
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader.sumofilesreader;
+
+import ie.ucd.pel.ronin.filesreader.AbstractFileReader;
+import ie.ucd.pel.ronin.model.Network;
+import ie.ucd.pel.ronin.model.Route;
+import ie.ucd.pel.ronin.model.Vehicle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to read the vehicles and their routes from sumo files .rou.xml
+ * during the simulation. The files are streamed with StAX readers and the
+ * vehicles are read only when the simulation time approaches their departure
+ * time, so that only the vehicles of a look-ahead window are kept in memory
+ * before they depart. As in SUMO, the vehicles of each file must be sorted by
+ * departure time: a vehicle read after its departure time departs at the step
+ * where it is read. When there are several files, the vehicle that departs
+ * first is read first, and the vehicles that depart at the same time are read
+ * in the order of the files. The vehicles of the flows are generated when they
+ * are the next vehicles of their file. The vehicles of a file are read from
+ * its compiled demand file if it was compiled from the same content for the
+ * same Graph.
+ * WARNING : the Graph and the vehicles types of the Network must be read
+ * before the vehicles.
+ */
+public class SumoRouteFileStreamReader extends AbstractFileReader {
+
+    /**
+     * The cursors of each file, in the order of the files.
+     */
+    private final List<SumoRouteFileCursor> cursors;
+
+    /**
+     * Constructs and initializes a SumoRouteFileStreamReader, able to read the
+     * vehicles from a sumo file .rou.xml during the simulation. The file is
+     * opened at the first reading.
+     *
+     * @param filePath the path to the file to read. It must be a .rou.xml file.
+     */
+    public SumoRouteFileStreamReader(String filePath) {
+        this(Collections.singletonList(filePath));
+    }
+
+    /**
+     * Constructs and initializes a SumoRouteFileStreamReader, able to read the
+     * vehicles from several sumo files .rou.xml during the simulation. The
+     * files are opened at the first reading.
+     *
+     * @param filesPaths the paths to the files to read. They must be .rou.xml
+     * files and there must be at least one.
+     */
+    public SumoRouteFileStreamReader(List<String> filesPaths) {
+        super(filesPaths.get(0), "rou.xml");
+        //the routes already read, mapped on their edges attribute
+        Map<String, Route> routes = new HashMap<>();
+        this.cursors = new ArrayList<>(filesPaths.size());
+        for (String path : filesPaths) {
+            cursors.add(new SumoRouteFileCursor(new SumoRouteFileReader(path), routes, true));
+        }
+    }
+
+    /**
+     * Returns true if there are still vehicles to read in the files; false
+     * otherwise.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return true if there are still vehicles to read in the files; false
+     * otherwise
+     */
+    public boolean hasNextVehicle(Network network) {
+        return getNextCursor(network) != null;
+    }
+
+    /**
+     * Reads the vehicles of the files whose departure time is not after a
+     * given time, and adds them to the loaded vehicles of the Network. The
+     * reading of a file stops at its first vehicle that departs after this
+     * time.
+     *
+     * @param network the network which will contain the Vehicles
+     * @param time the time in seconds until which the vehicles are read
+     */
+    public void readVehicles(Network network, double time) {
+        SumoRouteFileCursor cursor = getNextCursor(network);
+        while (cursor != null && cursor.peekNextVehicle(network).getDepartureTime() <= time) {
+            network.addVehicleToLoadedVehicles(cursor.pollNextVehicle(network));
+            cursor = getNextCursor(network);
+        }
+    }
+
+    /**
+     * Closes the files. The vehicles that are not read yet are not read.
+     */
+    public void close() {
+        for (SumoRouteFileCursor cursor : cursors) {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the cursor of the file whose next vehicle departs first; the
+     * first of the files if several next vehicles depart at the same time.
+     *
+     * @param network the network which will contain the Vehicles
+     * @return the cursor of the file whose next vehicle departs first, null if
+     * all the vehicles are read
+     */
+    private SumoRouteFileCursor getNextCursor(Network network) {
+        SumoRouteFileCursor nextCursor = null;
+        for (SumoRouteFileCursor cursor : cursors) {
+            Vehicle v = cursor.peekNextVehicle(network);
+            if (v != null && (nextCursor == null || v.getDepartureTime() < nextCursor.peekNextVehicle(network).getDepartureTime())) {
+                nextCursor = cursor;
+            }
+        }
+        return nextCursor;
+    }
+
+}
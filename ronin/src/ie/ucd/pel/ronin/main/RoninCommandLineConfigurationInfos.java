@@ -19,6 +19,7 @@ package ie.ucd.pel.ronin.main;
 import ie.ucd.pel.ronin.commandsparser.CommandLine;
 import ie.ucd.pel.ronin.commandsparser.Option;
 import ie.ucd.pel.ronin.commandsparser.OptionsList;
+import ie.ucd.pel.ronin.outputswriter.OutputsPipeline;
 import java.util.Map;
 
 /**
@@ -70,6 +71,19 @@ public class RoninCommandLineConfigurationInfos {
      */
     private boolean generateTripInfos;
 
+    /**
+     * If true, the steps of the light loads matrix and of the loads matrix are
+     * written in a single container file per matrix; otherwise they are
+     * written in one file per step. By default, one file per step.
+     */
+    private boolean loadsMatrixInContainer;
+
+    /**
+     * If true, the light loads matrix is written in a single compressed binary
+     * file; otherwise it is written in xml. By default, it is written in xml.
+     */
+    private boolean binaryLightLM;
+
     /**
      * If true, we overwrite the outputs at each run; otherwise we write new
      * outputs. By default, we do not overwrite, we write new outputs.
@@ -108,6 +122,35 @@ public class RoninCommandLineConfigurationInfos {
      */
     private String vehiclesTypesFilePath;
 
+    /**
+     * The number of threads used to compute each step of the simulation. By
+     * default, the simulation is computed by one thread.
+     */
+    private int nbThreads;
+
+    /**
+     * If positive or zero, the vehicles are read from the sumorou file during
+     * the simulation, this number of seconds before their departure time;
+     * otherwise all the vehicles are read before the simulation. By default,
+     * they are read before the simulation.
+     */
+    private double demandLookAhead;
+
+    /**
+     * The number of steps whose outputs can wait to be written by the writer
+     * threads before the simulation is blocked. If 0, the outputs are written
+     * by the thread of the simulation. By default, 16.
+     */
+    private int outputsQueueCapacity;
+
+    /**
+     * If positive, the edge data output is aggregated over intervals of this
+     * number of seconds, each interval being written as soon as it is
+     * finished; otherwise there is one interval for the whole simulation. By
+     * default, there is one interval for the whole simulation.
+     */
+    private double edgeDataPeriod;
+
     /**
      * Equivalent of the command of the option CFG that is used in d-sumo.
      */
@@ -143,6 +186,16 @@ public class RoninCommandLineConfigurationInfos {
      */
     private static final String OPTION_TRIP_INFOS_CMD = "tripInfos";
 
+    /**
+     * Command of the option loads matrix container.
+     */
+    private static final String OPTION_LOADS_MATRIX_CONTAINER_CMD = "loadsMatrixContainer";
+
+    /**
+     * Command of the option binary light loads matrix.
+     */
+    private static final String OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD = "binaryLightLoadsMatrix";
+
     /**
      * Command of the option overwrite.
      */
@@ -173,6 +226,26 @@ public class RoninCommandLineConfigurationInfos {
      */
     private static final String OPTION_SUMOROU_CMD = "vehiclesTypesFile";
 
+    /**
+     * Command of the option number of threads.
+     */
+    private static final String OPTION_THREADS_CMD = "threads";
+
+    /**
+     * Command of the option demand look-ahead.
+     */
+    private static final String OPTION_DEMAND_LOOK_AHEAD_CMD = "demandLookAhead";
+
+    /**
+     * Command of the option outputs queue capacity.
+     */
+    private static final String OPTION_OUTPUTS_QUEUE_CAPACITY_CMD = "outputsQueueCapacity";
+
+    /**
+     * Command of the option edge data period.
+     */
+    private static final String OPTION_EDGE_DATA_PERIOD_CMD = "edgeDataPeriod";
+
     /**
      * Constructs and initializes the default Ronin configuration with the
      * values by default.
@@ -184,12 +257,18 @@ public class RoninCommandLineConfigurationInfos {
         this.generateLM = false;
         this.generateEdgeData = false;
         this.generateTripInfos = false;
+        this.loadsMatrixInContainer = false;
+        this.binaryLightLM = false;
         this.overwriteOutputs = false;
         this.printProfilingTime = false;
         this.numberOfSimulationsForAverageProfilingTime = -1;
         this.simulationMonitoredByServer = false;
         this.port = -1;
         this.vehiclesTypesFilePath = "";
+        this.nbThreads = 1;
+        this.demandLookAhead = -1;
+        this.outputsQueueCapacity = OutputsPipeline.DEFAULT_CAPACITY;
+        this.edgeDataPeriod = -1;
     }
 
     /**
@@ -206,12 +285,18 @@ public class RoninCommandLineConfigurationInfos {
         this.generateLM = false;
         this.generateEdgeData = false;
         this.generateTripInfos = false;
+        this.loadsMatrixInContainer = false;
+        this.binaryLightLM = false;
         this.overwriteOutputs = false;
         this.printProfilingTime = false;
         this.numberOfSimulationsForAverageProfilingTime = -1;
         this.simulationMonitoredByServer = false;
         this.port = -1;
         this.vehiclesTypesFilePath = "";
+        this.nbThreads = 1;
+        this.demandLookAhead = -1;
+        this.outputsQueueCapacity = OutputsPipeline.DEFAULT_CAPACITY;
+        this.edgeDataPeriod = -1;
 
         if (cmdLine != null) {
 
@@ -233,6 +318,12 @@ public class RoninCommandLineConfigurationInfos {
             if (cmdLine.isOptionUsed(OPTION_TRIP_INFOS_CMD)) {
                 this.generateTripInfos = true;
             }
+            if (cmdLine.isOptionUsed(OPTION_LOADS_MATRIX_CONTAINER_CMD)) {
+                this.loadsMatrixInContainer = true;
+            }
+            if (cmdLine.isOptionUsed(OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD)) {
+                this.binaryLightLM = true;
+            }
             if (cmdLine.isOptionUsed(OPTION_OVERWRITE_OUTPUTS_CMD)) {
                 this.overwriteOutputs = true;
             }
@@ -259,6 +350,46 @@ public class RoninCommandLineConfigurationInfos {
             if (cmdLine.isOptionUsed(OPTION_SUMOROU_CMD)) {
                 this.vehiclesTypesFilePath = cmdLine.getOptionArgumentValues(OPTION_SUMOROU_CMD).get(0);
             }
+            if (cmdLine.isOptionUsed(OPTION_THREADS_CMD)) {
+                try {
+                    this.nbThreads = Integer.parseInt(cmdLine.getOptionArgumentValues(OPTION_THREADS_CMD).get(0));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error : the number of threads must be a number.");
+                }
+                if (this.nbThreads < 1) {
+                    throw new IllegalArgumentException("Error : the number of threads must be at least 1.");
+                }
+            }
+            if (cmdLine.isOptionUsed(OPTION_DEMAND_LOOK_AHEAD_CMD)) {
+                try {
+                    this.demandLookAhead = Double.parseDouble(cmdLine.getOptionArgumentValues(OPTION_DEMAND_LOOK_AHEAD_CMD).get(0));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error : the demand look-ahead must be a number.");
+                }
+                if (this.demandLookAhead < 0) {
+                    throw new IllegalArgumentException("Error : the demand look-ahead must be positive or zero.");
+                }
+            }
+            if (cmdLine.isOptionUsed(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD)) {
+                try {
+                    this.outputsQueueCapacity = Integer.parseInt(cmdLine.getOptionArgumentValues(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD).get(0));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error : the capacity of the outputs queue must be a number.");
+                }
+                if (this.outputsQueueCapacity < 0) {
+                    throw new IllegalArgumentException("Error : the capacity of the outputs queue must be positive or zero.");
+                }
+            }
+            if (cmdLine.isOptionUsed(OPTION_EDGE_DATA_PERIOD_CMD)) {
+                try {
+                    this.edgeDataPeriod = Double.parseDouble(cmdLine.getOptionArgumentValues(OPTION_EDGE_DATA_PERIOD_CMD).get(0));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Error : the edge data period must be a number.");
+                }
+                if (this.edgeDataPeriod <= 0) {
+                    throw new IllegalArgumentException("Error : the edge data period must be positive.");
+                }
+            }
         }
 
     }
@@ -270,12 +401,18 @@ public class RoninCommandLineConfigurationInfos {
         this.generateLM = false;
         this.generateEdgeData = false;
         this.generateTripInfos = false;
+        this.loadsMatrixInContainer = false;
+        this.binaryLightLM = false;
         this.overwriteOutputs = false;
         this.printProfilingTime = false;
         this.numberOfSimulationsForAverageProfilingTime = -1;
         this.simulationMonitoredByServer = false;
         this.port = -1;
         this.vehiclesTypesFilePath = "";
+        this.nbThreads = 1;
+        this.demandLookAhead = -1;
+        this.outputsQueueCapacity = OutputsPipeline.DEFAULT_CAPACITY;
+        this.edgeDataPeriod = -1;
 
         if (parameters != null) {
 
@@ -321,6 +458,18 @@ public class RoninCommandLineConfigurationInfos {
                 } catch (Exception e) {
                 }
             }
+            if (parameters.containsKey(OPTION_LOADS_MATRIX_CONTAINER_CMD)) {
+                try {
+                    this.loadsMatrixInContainer = (boolean) parameters.get(OPTION_LOADS_MATRIX_CONTAINER_CMD);
+                } catch (Exception e) {
+                }
+            }
+            if (parameters.containsKey(OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD)) {
+                try {
+                    this.binaryLightLM = (boolean) parameters.get(OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD);
+                } catch (Exception e) {
+                }
+            }
             if (parameters.containsKey(OPTION_OVERWRITE_OUTPUTS_CMD)) {
                 try {
                     this.overwriteOutputs = (boolean) parameters.get(OPTION_OVERWRITE_OUTPUTS_CMD);
@@ -361,6 +510,46 @@ public class RoninCommandLineConfigurationInfos {
                 } catch (Exception e) {
                 }
             }
+            if (parameters.containsKey(OPTION_THREADS_CMD)) {
+                try {
+                    this.nbThreads = Math.max(1, (int) parameters.get(OPTION_THREADS_CMD));
+                } catch (Exception e) {
+                    try {
+                        this.nbThreads = Math.max(1, Integer.parseInt((String) parameters.get(OPTION_THREADS_CMD)));
+                    } catch (Exception es) {
+                    }
+                }
+            }
+            if (parameters.containsKey(OPTION_DEMAND_LOOK_AHEAD_CMD)) {
+                try {
+                    this.demandLookAhead = ((Number) parameters.get(OPTION_DEMAND_LOOK_AHEAD_CMD)).doubleValue();
+                } catch (Exception e) {
+                    try {
+                        this.demandLookAhead = Double.parseDouble((String) parameters.get(OPTION_DEMAND_LOOK_AHEAD_CMD));
+                    } catch (Exception es) {
+                    }
+                }
+            }
+            if (parameters.containsKey(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD)) {
+                try {
+                    this.outputsQueueCapacity = Math.max(0, (int) parameters.get(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD));
+                } catch (Exception e) {
+                    try {
+                        this.outputsQueueCapacity = Math.max(0, Integer.parseInt((String) parameters.get(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD)));
+                    } catch (Exception es) {
+                    }
+                }
+            }
+            if (parameters.containsKey(OPTION_EDGE_DATA_PERIOD_CMD)) {
+                try {
+                    this.edgeDataPeriod = ((Number) parameters.get(OPTION_EDGE_DATA_PERIOD_CMD)).doubleValue();
+                } catch (Exception e) {
+                    try {
+                        this.edgeDataPeriod = Double.parseDouble((String) parameters.get(OPTION_EDGE_DATA_PERIOD_CMD));
+                    } catch (Exception es) {
+                    }
+                }
+            }
         }
 
     }
@@ -382,6 +571,12 @@ public class RoninCommandLineConfigurationInfos {
         if (generateTripInfos) {
             sb.append(createCmdLineForOption(OPTION_TRIP_INFOS_CMD, null));
         }
+        if (loadsMatrixInContainer) {
+            sb.append(createCmdLineForOption(OPTION_LOADS_MATRIX_CONTAINER_CMD, null));
+        }
+        if (binaryLightLM) {
+            sb.append(createCmdLineForOption(OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD, null));
+        }
         if (overwriteOutputs) {
             sb.append(createCmdLineForOption(OPTION_OVERWRITE_OUTPUTS_CMD, null));
         }
@@ -400,6 +595,18 @@ public class RoninCommandLineConfigurationInfos {
         if (!vehiclesTypesFilePath.isEmpty()) {
             sb.append(createCmdLineForOption(OPTION_SUMOROU_CMD, vehiclesTypesFilePath));
         }
+        if (nbThreads > 1) {
+            sb.append(createCmdLineForOption(OPTION_THREADS_CMD, nbThreads));
+        }
+        if (demandLookAhead >= 0) {
+            sb.append(createCmdLineForOption(OPTION_DEMAND_LOOK_AHEAD_CMD, demandLookAhead));
+        }
+        if (outputsQueueCapacity != OutputsPipeline.DEFAULT_CAPACITY) {
+            sb.append(createCmdLineForOption(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD, outputsQueueCapacity));
+        }
+        if (edgeDataPeriod > 0) {
+            sb.append(createCmdLineForOption(OPTION_EDGE_DATA_PERIOD_CMD, edgeDataPeriod));
+        }
         return sb.toString();
     }
 
@@ -444,12 +651,18 @@ public class RoninCommandLineConfigurationInfos {
             options.addOption(new Option(OPTION_LOADS_MATRIX_CMD, "lm", false, false, "if used, we generate the complete Loads Matix."));
             options.addOption(new Option(OPTION_EDGE_DATA_CMD, "ed", false, false, "if used, we generate the output containing the edges data."));
             options.addOption(new Option(OPTION_TRIP_INFOS_CMD, "ti", false, false, "if used, we generate the output containing the trip informations."));
+            options.addOption(new Option(OPTION_LOADS_MATRIX_CONTAINER_CMD, "lmc", false, false, "if used, the steps of the light loads matrix and of the loads matrix are written in a single container file per matrix, with an index of the steps, instead of one file per step."));
+            options.addOption(new Option(OPTION_BINARY_LIGHT_LOADS_MATRIX_CMD, "bllm", false, false, "if used, the light loads matrix is written in a single compressed binary file instead of xml files, ten times smaller and read without parsing."));
             options.addOption(new Option(OPTION_OVERWRITE_OUTPUTS_CMD, "ow", false, false, "if used, we overwrite the outputs if name is already taken."));
             options.addOption(new Option(OPTION_PRINT_PROFILING_TIME_CMD, "pt", false, false, "if used, we print information about the profiling time of the simulation."));
             options.addOption(new Option(OPTION_DO_AVERAGE_PROFILING_TIME_CMD, "avgpt", false, 1, "if used, we execute the specified number of simulations to give an average of the profiling time of the simulation."));
             options.addOption(new Option(OPTION_SIMULATION_MONITORED_BY_SERVER_CMD, "m", false, false, "if used, the simulation is monitored by a Ronin server configured according to sumocfg file. The simulation will then be managed by queries of a Ronin Client."));
             options.addOption(new Option(OPTION_RONIN_PORT_CMD, "p", false, 1, "if the simulation is monitored by a ronin server, this option describes the port to use. Else the port will be read from the sumocfg file."));
             options.addOption(new Option(OPTION_SUMOROU_CMD, "vtf", false, 1, "if specified, we read the different types of vehicles from this file instead of the sumorou file described in the sumocfg file."));
+            options.addOption(new Option(OPTION_THREADS_CMD, "th", false, 1, "the number of threads used to compute each step of the simulation. By default, 1."));
+            options.addOption(new Option(OPTION_DEMAND_LOOK_AHEAD_CMD, "dla", false, 1, "if used, the vehicles are read from the sumorou file during the simulation, this number of seconds before their departure time. The vehicles of the file must be sorted by departure time. By default, all the vehicles are read before the simulation."));
+            options.addOption(new Option(OPTION_OUTPUTS_QUEUE_CAPACITY_CMD, "oqc", false, 1, "the number of steps whose outputs can wait to be written by the writer threads while the simulation computes the next steps. If 0, the outputs are written by the simulation itself. By default, " + OutputsPipeline.DEFAULT_CAPACITY + "."));
+            options.addOption(new Option(OPTION_EDGE_DATA_PERIOD_CMD, "edp", false, 1, "if used with the edge data option, the edge data are aggregated over intervals of this number of seconds, each interval being written as soon as it is finished. By default, there is one interval for the whole simulation."));
         } catch (Exception e) {
             System.err.println(e.getMessage());
             System.exit(1);
@@ -509,6 +722,64 @@ public class RoninCommandLineConfigurationInfos {
         return port;
     }
 
+    /**
+     * Returns the number of threads used to compute each step of the
+     * simulation.
+     *
+     * @return the number of threads used to compute each step of the
+     * simulation
+     */
+    public int getNbThreads() {
+        return nbThreads;
+    }
+
+    /**
+     * Returns the number of seconds before their departure time when the
+     * vehicles are read from the sumorou file during the simulation. If it is
+     * negative, all the vehicles are read before the simulation.
+     *
+     * @return the number of seconds before their departure time when the
+     * vehicles are read, negative if they are read before the simulation
+     */
+    public double getDemandLookAhead() {
+        return demandLookAhead;
+    }
+
+    /**
+     * Returns true if the vehicles are read from the sumorou file during the
+     * simulation; false if they are all read before the simulation.
+     *
+     * @return true if the vehicles are read from the sumorou file during the
+     * simulation; false otherwise
+     */
+    public boolean isDemandStreamed() {
+        return demandLookAhead >= 0;
+    }
+
+    /**
+     * Returns the number of steps whose outputs can wait to be written by the
+     * writer threads before the simulation is blocked. If 0, the outputs are
+     * written by the thread of the simulation.
+     *
+     * @return the number of steps whose outputs can wait to be written by the
+     * writer threads, 0 if they are written by the thread of the simulation
+     */
+    public int getOutputsQueueCapacity() {
+        return outputsQueueCapacity;
+    }
+
+    /**
+     * Returns the number of seconds of the intervals over which the edge data
+     * output is aggregated. If it is not positive, there is one interval for
+     * the whole simulation.
+     *
+     * @return the number of seconds of the intervals of the edge data output,
+     * not positive if there is one interval for the whole simulation
+     */
+    public double getEdgeDataPeriod() {
+        return edgeDataPeriod;
+    }
+
     /**
      * Sets the name of the simulation.
      *
@@ -539,6 +810,59 @@ public class RoninCommandLineConfigurationInfos {
         this.vehiclesTypesFilePath = vehiclesTypesFilePath;
     }
 
+    /**
+     * Sets the number of threads used to compute each step of the simulation.
+     *
+     * @param nbThreads the number of threads used to compute each step of the
+     * simulation, at least 1
+     */
+    public void setNbThreads(int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("Error : the number of threads must be at least 1.");
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    /**
+     * Sets the number of seconds before their departure time when the vehicles
+     * are read from the sumorou file during the simulation. If it is negative,
+     * all the vehicles are read before the simulation.
+     *
+     * @param demandLookAhead the number of seconds before their departure time
+     * when the vehicles are read, negative to read them before the simulation
+     */
+    public void setDemandLookAhead(double demandLookAhead) {
+        this.demandLookAhead = demandLookAhead;
+    }
+
+    /**
+     * Sets the number of steps whose outputs can wait to be written by the
+     * writer threads before the simulation is blocked. If 0, the outputs are
+     * written by the thread of the simulation.
+     *
+     * @param outputsQueueCapacity the number of steps whose outputs can wait
+     * to be written by the writer threads, 0 to write them with the thread of
+     * the simulation
+     */
+    public void setOutputsQueueCapacity(int outputsQueueCapacity) {
+        if (outputsQueueCapacity < 0) {
+            throw new IllegalArgumentException("Error : the capacity of the outputs queue must be positive or zero.");
+        }
+        this.outputsQueueCapacity = outputsQueueCapacity;
+    }
+
+    /**
+     * Sets the number of seconds of the intervals over which the edge data
+     * output is aggregated. If it is not positive, there is one interval for
+     * the whole simulation.
+     *
+     * @param edgeDataPeriod the number of seconds of the intervals of the edge
+     * data output, not positive for one interval for the whole simulation
+     */
+    public void setEdgeDataPeriod(double edgeDataPeriod) {
+        this.edgeDataPeriod = edgeDataPeriod;
+    }
+
     /**
      * If we set this option to true, we generate a light loads matrix at the
      * end of the simulation.
@@ -583,6 +907,28 @@ public class RoninCommandLineConfigurationInfos {
         this.generateTripInfos = generateTripInfos;
     }
 
+    /**
+     * If we set this option to true, the steps of the loads matrixes are
+     * written in a single container file per matrix.
+     *
+     * @param loadsMatrixInContainer if we set this option to true, the steps of
+     * the loads matrixes are written in a single container file per matrix
+     */
+    public void setLoadsMatrixInContainer(boolean loadsMatrixInContainer) {
+        this.loadsMatrixInContainer = loadsMatrixInContainer;
+    }
+
+    /**
+     * If we set this option to true, the light loads matrix is written in a
+     * single compressed binary file.
+     *
+     * @param binaryLightLM if we set this option to true, the light loads
+     * matrix is written in a single compressed binary file
+     */
+    public void setBinaryLightLM(boolean binaryLightLM) {
+        this.binaryLightLM = binaryLightLM;
+    }
+
     /**
      * If we set to true, we overwrite the outputs of the simulation if the name
      * of the outputs are already taken; otherwise we write new outputs.
@@ -683,6 +1029,29 @@ public class RoninCommandLineConfigurationInfos {
         return generateTripInfos;
     }
 
+    /**
+     * Returns true if the steps of the loads matrixes are written in a single
+     * container file per matrix; false if they are written in one file per
+     * step.
+     *
+     * @return true if the steps of the loads matrixes are written in a single
+     * container file per matrix; false otherwise.
+     */
+    public boolean isLoadsMatrixInContainer() {
+        return loadsMatrixInContainer;
+    }
+
+    /**
+     * Returns true if the light loads matrix is written in a single compressed
+     * binary file; false if it is written in xml.
+     *
+     * @return true if the light loads matrix is written in a single compressed
+     * binary file; false otherwise.
+     */
+    public boolean isBinaryLightLM() {
+        return binaryLightLM;
+    }
+
     /**
      * Returns true if we overwrite outputs if their name is already taken;
      * false otherwise and in that case we write new outputs.
@@ -727,12 +1096,18 @@ public class RoninCommandLineConfigurationInfos {
         System.out.println("\tgenerate loads matrix : " + generateLM);
         System.out.println("\tgenerate edge data output : " + generateEdgeData);
         System.out.println("\tgenerate trip infos output : " + generateTripInfos);
+        System.out.println("\tloads matrix in container : " + loadsMatrixInContainer);
+        System.out.println("\tbinary light loads matrix : " + binaryLightLM);
         System.out.println("\toverwrite outputs : " + overwriteOutputs);
         System.out.println("\tprint profiling time : " + printProfilingTime);
         System.out.println("\tdo average profiling time : " + numberOfSimulationsForAverageProfilingTime);
         System.out.println("\tsimulation monitored by server : " + simulationMonitoredByServer);
         System.out.println("\tport of ronin server : " + port);
         System.out.println("\tvehicles types file : " + vehiclesTypesFilePath);
+        System.out.println("\tnumber of threads : " + nbThreads);
+        System.out.println("\tdemand look ahead : " + demandLookAhead);
+        System.out.println("\toutputs queue capacity : " + outputsQueueCapacity);
+        System.out.println("\tedge data period : " + edgeDataPeriod);
     }
 
 }
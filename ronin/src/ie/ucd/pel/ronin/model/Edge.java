@@ -33,6 +33,12 @@ public class Edge implements Serializable {
      */
     private final String id;
 
+    /**
+     * The dense index of this Edge in the Graph it belongs to, or -1 if this
+     * Edge has not been added to a Graph.
+     */
+    private int index;
+
     /**
      * The number of Vehicles that can be on this Edge at the same time.
      */
@@ -66,48 +72,36 @@ public class Edge implements Serializable {
 
     /**
      * The free-flow travel-time in seconds of this Edge as defined by the
-     * Bureau of Public Roads (BPR).
-     */
-    private final double fftv;
-
-    /**
-     * Constant parameter used to evaluate the travel time of an edge according
-     * to the formula given by the Bureau of Public Roads (BPR).
+     * Bureau of Public Roads (BPR). It is updated with the speed limit.
      */
-    private final double alpha;
-
-    /**
-     * Constant parameter used to evaluate the travel time of an edge according
-     * to the formula given by the Bureau of Public Roads (BPR).
-     */
-    private final double beta;
+    private double fftv;
 
     /**
-     * The sum of all travel times in seconds per step for this Edge for all the
-     * simulation. It is used to do some statistics measures. To get the real
-     * travel time total, use the getter because this attribute does not
-     * consider the travel times of steps where this Edge was not used.
+     * The maximum travel time in seconds of this Edge, reached when the load
+     * of this Edge is its capacity. It is updated with the speed limit.
      */
-    private double tempTravelTimeTotal;
+    private double maxTravelTime;
 
     /**
-     * A counter that counts how many times we increase the travel time total,
-     * so we can calculate the real travel time total by adding for each step
-     * where we didn't incrrease the travel time the min travel time because
-     * there was no vehicle at that times.
+     * The travel times in seconds of this Edge for the integer loads from 0 to
+     * the capacity, indexed by the load. They are calculated once with the
+     * formula given by the Bureau of Public Roads (BPR), the first time a
+     * travel time is asked, and calculated again when the speed limit
+     * changes. Null until a travel time is asked.
      */
-    private int counterIncreaseTravelTimeTotal;
+    private transient double[] travelTimes;
 
     /**
-     * The sum of all the number of vehicles per step that were on this Edge for
-     * all the simulation. It is used to do some statistics.
+     * Constant parameter used to evaluate the travel time of an edge according
+     * to the formula given by the Bureau of Public Roads (BPR).
      */
-    private double nbTotVehicles;
+    private final double alpha;
 
     /**
-     * The number of vehicles that end their trip at this Edge.
+     * Constant parameter used to evaluate the travel time of an edge according
+     * to the formula given by the Bureau of Public Roads (BPR).
      */
-    private double arrivedVehicles;
+    private final double beta;
 
     /**
      * Constructs and initializes an Edge with the specified properties.
@@ -122,6 +116,7 @@ public class Edge implements Serializable {
      */
     public Edge(String id, int capacity, Double length, Double speedLimit, int priority, Node startNode, Node endNode) {
         this.id = id;
+        this.index = -1;
         this.capacity = capacity;
         this.length = length;
         this.speedLimit = speedLimit;
@@ -130,10 +125,7 @@ public class Edge implements Serializable {
         this.endNode = endNode;
         this.alpha = 0.15;
         this.beta = 4.0;
-        this.fftv = length / speedLimit;
-        this.tempTravelTimeTotal = 0.0;
-        this.nbTotVehicles = 0.0;
-        this.arrivedVehicles = 0.0;
+        updateFreeFlowTravelTime();
     }
 
     /**
@@ -145,6 +137,27 @@ public class Edge implements Serializable {
         return id;
     }
 
+    /**
+     * Returns the dense index of this Edge in its Graph, or -1 if this Edge
+     * has not been added to a Graph. The indexes of the Edges of a Graph go
+     * from 0 to the number of Edges minus one.
+     *
+     * @return the dense index of this Edge in its Graph
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the dense index of this Edge in its Graph. It is set by the Graph
+     * when the Edge is added.
+     *
+     * @param index the dense index of this Edge in its Graph
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Returns the car capacity of this Edge.
      *
@@ -217,40 +230,6 @@ public class Edge implements Serializable {
         return beta;
     }
 
-    /**
-     * Returns the sum of all travel times per step for this Edge for all the
-     * simulation in seconds.
-     *
-     * @param nbSteps the number of steps of the simulation
-     * @return the sum of all travel times per step for this Edge for all the
-     * simulation in seconds.
-     */
-    public double getTravelTimeTotal(double nbSteps) {
-        //the total travel time is the sum of travel times when there were vehicles on this edge
-        // plus min travel time for each step where there was no vehicles on this edge.
-        return tempTravelTimeTotal + (nbSteps - counterIncreaseTravelTimeTotal) * getMinTravelTime();
-    }
-
-    /**
-     * Returns the sum of all the number of vehicles per step that were on this
-     * Edge for all the simulation.
-     *
-     * @return the sum of all the number of vehicles per step that were on this
-     * Edge for all the simulation
-     */
-    public double getNbTotVehicles() {
-        return nbTotVehicles;
-    }
-
-    /**
-     * Returns the number of vehicles that end their trip at this Edge.
-     *
-     * @return the number of vehicles that end their trip at this Edge
-     */
-    public double getArrivedVehicles() {
-        return arrivedVehicles;
-    }
-
     /**
      * Returns the travel time in seconds of this Edge. It is the time needed by
      * a Vehicle to go through this Edge. It is calculated with the formula
@@ -267,11 +246,63 @@ public class Edge implements Serializable {
 
         if (load >= this.capacity) {
             return getMaxTravelTime();
+        } else if (load == (int) load) {
+            return getTravelTimes()[(int) load];
         } else {
             return this.fftv * (1 + this.alpha * Math.pow(load / this.capacity, this.beta));
         }
     }
 
+    /**
+     * Returns the travel time in seconds of this Edge for an integer load. It
+     * is read in the travel times of this Edge calculated once per integer
+     * load with the formula given by the Bureau of Public Roads (BPR).
+     *
+     * @param load the number of Vehicles to be on this Edge. It must be
+     * positive.
+     * @return the travel time in seconds of this Edge.
+     */
+    public double getTravelTime(int load) {
+        if (load < 0) {
+            throw new IllegalArgumentException("The load used to evaluate if an Edge is overloaded must be positive.");
+        }
+
+        if (load >= this.capacity) {
+            return getMaxTravelTime();
+        }
+        return getTravelTimes()[load];
+    }
+
+    /**
+     * Returns the travel times in seconds of this Edge for the integer loads
+     * from 0 to the capacity, and calculates them if they are not calculated
+     * yet for the current speed limit.
+     *
+     * @return the travel times in seconds of this Edge indexed by the load
+     */
+    private double[] getTravelTimes() {
+        if (travelTimes == null) {
+            double[] times = new double[capacity + 1];
+            for (int load = 0; load < capacity; load++) {
+                times[load] = this.fftv * (1 + this.alpha * Math.pow((double) load / this.capacity, this.beta));
+            }
+            times[capacity] = getMaxTravelTime();
+            travelTimes = times;
+        }
+        return travelTimes;
+    }
+
+    /**
+     * Calculates the free-flow travel-time and the maximum travel time of this
+     * Edge for its length and its speed limit, and forgets the travel times
+     * calculated for the previous speed limit.
+     */
+    private void updateFreeFlowTravelTime() {
+        this.fftv = length / speedLimit;
+        this.maxTravelTime = this.fftv * (1 + this.alpha);
+        this.travelTimes = null;
+    }
+
     /**
      * Returns the minimum travel time in seconds of this Edge that is the
      * free-flow travel-time of this Edge. It is the shortest time needed by a
@@ -301,70 +332,7 @@ public class Edge implements Serializable {
             //So let's go through this Edge because it means that it is a very short edge
             return 0.0;
         }
-        return this.fftv * (1 + this.alpha);
-    }
-
-    /**
-     * Returns the mean density of this Edge for this simulation in
-     * nbVehicle/Km.
-     *
-     * @param nbSteps the nunber of steps of the simulation.
-     * @return the mean density of this Edge for this simulation in nbVehicle/Km
-     */
-    public double getMeanDensity(double nbSteps) {
-        if (this.capacity == 0) {
-            return 0.0;
-        }
-        if (nbSteps == 0 || length == 0) {
-            return 0.0;
-        }
-        // the average number of vehicles per step divided by the length of this Edge in Km.
-        return (nbTotVehicles / nbSteps) / (length / 1000);
-    }
-
-    /**
-     * Returns the mean of all travel times per step for this Edge for all the
-     * simulation in seconds.
-     *
-     * @param nbSteps the number of steps of the simulation.
-     * @return the mean of all travel times per step for this Edge for all the
-     * simulation in seconds.
-     */
-    public double getMeanTravelTime(double nbSteps) {
-        if (nbSteps == 0) {
-            return 0.0;
-        }
-        return getTravelTimeTotal(nbSteps) / nbSteps;
-    }
-
-    /**
-     * Returns the mean speed of vehicles on this Edge for all the simulation in
-     * m/s.
-     *
-     * @param nbSteps the nunber of steps of the simulation.
-     * @return the mean speed of vehicles on this Edge for all the simulation in
-     * m/s
-     */
-    public double getMeanSpeed(double nbSteps) {
-        double meanTravelTime = getMeanTravelTime(nbSteps);
-        if (meanTravelTime == 0) {
-            return 0.0;
-        }
-        return length / meanTravelTime;
-    }
-
-    /**
-     * Returns the average traffic volume in nbVehicle/hour of this Edge for the
-     * simulation.
-     *
-     * @param nbSteps the number of steps of the simulation.
-     * @return the average traffic volume in nbVehicle/hour of this Edge for the
-     * simulation
-     */
-    public double getAverageTrafficVolume(double nbSteps) {
-        // mean density in nbVeh/Km 
-        // mean speed in m/s
-        return getMeanDensity(nbSteps) * 3.6 * getMeanSpeed(nbSteps);
+        return this.maxTravelTime;
     }
 
     /**
@@ -395,7 +363,8 @@ public class Edge implements Serializable {
     }
 
     /**
-     * Sets a new value for the speed limit in m/s of this Edge.
+     * Sets a new value for the speed limit in m/s of this Edge. The travel
+     * times of this Edge are calculated again for the new speed limit.
      *
      * @param speedLimit the new speed limit in m/s of this Edge
      */
@@ -405,53 +374,7 @@ public class Edge implements Serializable {
         } else {
             this.speedLimit = speedLimit;
         }
-    }
-
-    /**
-     * Increases the number total of vehicles that were on this Edge during the
-     * simulation by the number of vehicles on this Edge during a step.
-     *
-     * @param number the number of vehicles that were on this Edge during a step
-     * of the simulation
-     */
-    public void increaseNbTotVehicles(double number) {
-        if (number < 0) {
-            throw new IllegalArgumentException("The number of vehicles to add to an Edge must be positive.");
-        }
-        nbTotVehicles += number;
-    }
-
-    /**
-     * Increases the sum of all travel times of this Edge by a travel time in
-     * seconds. By the same time we increase the counter of how much time we
-     * increase the travel time total in order to complete the calcul of travel
-     * time total.
-     *
-     * @param travelTime the travel time in seconds of this Edge during a step
-     * of the simulation
-     */
-    public void increaseTravelTimeTotal(double travelTime) {
-        if (travelTime < 0) {
-            throw new IllegalArgumentException("The travel time of an Edge must be positive.");
-        }
-        if (Double.isNaN(travelTime)) {
-            throw new IllegalArgumentException("The given travel time for Edge " + this.getId() + " is NaN.");
-        }
-
-        tempTravelTimeTotal += travelTime;
-        counterIncreaseTravelTimeTotal++;
-    }
-
-    /**
-     * Increases the number of vehicles that end their trip on this Edge.
-     *
-     * @param number a number of vehicles that end their trip on this Edge
-     */
-    public void increaseArrivedVehicles(double number) {
-        if (number < 0) {
-            throw new IllegalArgumentException("The number of arrived vehicles to add to an Edge must be positive.");
-        }
-        arrivedVehicles += number;
+        updateFreeFlowTravelTime();
     }
 
     /**
@@ -16,8 +16,10 @@
  */
 package ie.ucd.pel.ronin.model;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,6 +43,18 @@ public class Graph {
      */
     private final Map<String, Edge> edges;
 
+    /**
+     * The list of nodes of our network. The position of a Node in this list is
+     * its dense index.
+     */
+    private final List<Node> nodesByIndex;
+
+    /**
+     * The list of edges of our network. The position of an Edge in this list
+     * is its dense index.
+     */
+    private final List<Edge> edgesByIndex;
+
     /**
      * The configuration of the map of the network for GUI.
      */
@@ -53,6 +67,8 @@ public class Graph {
     public Graph() {
         nodes = new HashMap<>();
         edges = new HashMap<>();
+        nodesByIndex = new ArrayList<>();
+        edgesByIndex = new ArrayList<>();
         mapConfig = new NetworkMapConfiguration(0, 0, 0, 0);
     }
 
@@ -96,6 +112,57 @@ public class Graph {
         return edges.get(idEdge);
     }
 
+    /**
+     * Returns the Node with the given dense index.
+     *
+     * @param index the dense index of the Node to return. It must be between 0
+     * and the number of Nodes minus one.
+     * @return the Node with the given dense index
+     */
+    public Node getNodeByIndex(int index) {
+        return nodesByIndex.get(index);
+    }
+
+    /**
+     * Returns the Edge with the given dense index.
+     *
+     * @param index the dense index of the Edge to return. It must be between 0
+     * and the number of Edges minus one.
+     * @return the Edge with the given dense index
+     */
+    public Edge getEdgeByIndex(int index) {
+        return edgesByIndex.get(index);
+    }
+
+    /**
+     * Returns a non modifiable list of the Edges of this Graph ordered by their
+     * dense index.
+     *
+     * @return a non modifiable list of the Edges of this Graph ordered by their
+     * dense index
+     */
+    public List<Edge> getEdgesByIndex() {
+        return Collections.unmodifiableList(edgesByIndex);
+    }
+
+    /**
+     * Returns the number of Nodes of this Graph.
+     *
+     * @return the number of Nodes of this Graph
+     */
+    public int getNbNodes() {
+        return nodesByIndex.size();
+    }
+
+    /**
+     * Returns the number of Edges of this Graph.
+     *
+     * @return the number of Edges of this Graph
+     */
+    public int getNbEdges() {
+        return edgesByIndex.size();
+    }
+
     /**
      * Returns the map configuration of the network.
      *
@@ -107,7 +174,7 @@ public class Graph {
 
     /**
      * Adds an Edge to the map of Edges of this Graph. If the Edge is already in
-     * the map, we do nothing.
+     * the map, we do nothing. Else the Edge gets the next dense index.
      *
      * @param e the Edge we want to add.
      * @return false if the edge was null and not added to the Edges map, true
@@ -117,14 +184,17 @@ public class Graph {
         if (e == null) {
             return false;
         }
-        edges.putIfAbsent(e.getId(), e);
+        if (edges.putIfAbsent(e.getId(), e) == null) {
+            e.setIndex(edgesByIndex.size());
+            edgesByIndex.add(e);
+        }
 
         return true;
     }
 
     /**
      * Adds a Node to the map of Nodes of this Graph. If the Node is already in
-     * the map, we do nothing
+     * the map, we do nothing. Else the Node gets the next dense index.
      *
      * @param n the Node we want to add
      * @return false if the node was null and not added to the Nodes map, true
@@ -134,7 +204,10 @@ public class Graph {
         if (n == null) {
             return false;
         }
-        nodes.putIfAbsent(n.getId(), n);
+        if (nodes.putIfAbsent(n.getId(), n) == null) {
+            n.setIndex(nodesByIndex.size());
+            nodesByIndex.add(n);
+        }
 
         mapConfig.checkAndSetBordersWithCoordinates(n.getX(), n.getY());
 
@@ -158,6 +231,8 @@ public class Graph {
     public void clear() {
         nodes.clear();
         edges.clear();
+        nodesByIndex.clear();
+        edgesByIndex.clear();
         mapConfig = new NetworkMapConfiguration(0, 0, 0, 0);
     }
 
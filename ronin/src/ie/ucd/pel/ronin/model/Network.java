@@ -17,13 +17,20 @@
 package ie.ucd.pel.ronin.model;
 
 import ie.ucd.pel.ronin.utils.MapUtils;
+import ie.ucd.pel.ronin.utils.ThreadsUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -44,31 +51,22 @@ public class Network {
     private final Map<String, Vehicle> vehiclesInSimulation;
 
     /**
-     * The map of Vehicles that are currently running in our simulation (or
-     * stuck in jam). The list of running vehicles is supposed to be sorted by
-     * departure time.
+     * The store of the loaded, not departed, running and arrived Vehicles of
+     * our network with their lifecycle state. The running vehicles (or stuck
+     * in jam) are supposed to be sorted by departure time. All vehicles that
+     * are added to the simulation are first loaded during the current time
+     * step and become not departed at the beginning of next step.
      */
-    private final List<Vehicle> runningVehicles;
+    private final VehicleStore vehicleStore;
 
     /**
-     * The list of Vehicles that are arrived in our network.
+     * The calendar of not departed Vehicles of the simulation. They are
+     * waiting to be added to running vehicles. The vehicles are mapped on
+     * their departure time, so that they are always sorted by departure time.
+     * The vehicles with the same departure time are kept in the order they
+     * were added.
      */
-    private final List<Vehicle> arrivedVehicles;
-
-    /**
-     * The list of loaded Vehicles during the current time step to add to the
-     * list of not departed vehicles. All vehicles that are added to the
-     * simulation are first added to this list. The vehicles are removed from
-     * this list at the beginning of each step.
-     */
-    private final List<Vehicle> loadedVehicles;
-
-    /**
-     * The list of not departed Vehicles of the simulation. They are waiting to
-     * be added to running vehicles. The list of not departed vehicles is
-     * supposed to be sorted by departure time.
-     */
-    private List<Vehicle> notDepartedVehicles;
+    private final TreeMap<Double, LinkedHashSet<Vehicle>> notDepartedVehicles;
 
     /**
      * The list of loaded Vehicles that were loaded at the current time step. It
@@ -83,6 +81,13 @@ public class Network {
      */
     private final List<Vehicle> currentStepDepartedVehicles;
 
+    /**
+     * The list of Vehicles that arrived at the current time step of the
+     * simulation. The vehicles are removed from this list at the beginning of
+     * each repositioning.
+     */
+    private final List<Vehicle> currentStepArrivedVehicles;
+
     /**
      * The list of ids of Vehicles to remove from the simulation. The vehicles
      * are removed from this simulation and their id removed from this list at
@@ -101,21 +106,148 @@ public class Network {
      */
     private final Graph graph;
 
+    /**
+     * The table of the routes of the Vehicles of this Network, so that the
+     * Vehicles that go through the same Edges share the same Route.
+     */
+    private final RouteTable routeTable;
+
+    /**
+     * The running vehicles that are departed at the current step, copied from
+     * the running vehicles so that they can be split into chunks between the
+     * threads that reposition them.
+     */
+    private final List<Vehicle> departedRunningVehicles;
+
+    /**
+     * The final number of vehicles per edge counted by each thread that
+     * repositions running vehicles, indexed by the dense index of the edges.
+     * Null until vehicles are repositioned by several threads.
+     */
+    private int[][] threadsFinalLoads;
+
+    /**
+     * The number of vehicles that were on each edge counted by each thread
+     * that repositions running vehicles, indexed by the dense index of the
+     * edges. Null until vehicles are repositioned by several threads.
+     */
+    private int[][] threadsNbVehiclesPerEdge;
+
+    /**
+     * The dense indexes of the edges counted by each thread that repositions
+     * running vehicles. Null until vehicles are repositioned by several
+     * threads.
+     */
+    private BitSet[] threadsUsedEdges;
+
+    /**
+     * The vehicles arrived during the current step collected by each thread
+     * that repositions running vehicles. Null until vehicles are repositioned
+     * by several threads.
+     */
+    private List<List<Vehicle>> threadsArrivedVehicles;
+
+    /**
+     * The timing wheel of the running vehicles that wait on their current
+     * edge. Null if the waiting vehicles are not scheduled, in that case they
+     * are visited at every step.
+     */
+    private WaitingVehiclesWheel waitingVehiclesWheel;
+
+    /**
+     * The departed running vehicles that are not scheduled in the timing wheel
+     * of waiting vehicles, in the same order as in the running vehicles. The
+     * vehicles removed from the network stay in this list until the next
+     * repositioning, they are skipped. Only used if the waiting vehicles are
+     * scheduled.
+     */
+    private List<Vehicle> activeRunningVehicles;
+
+    /**
+     * The list used to build the new list of active running vehicles at each
+     * step. Only used if the waiting vehicles are scheduled.
+     */
+    private List<Vehicle> nextActiveRunningVehicles;
+
+    /**
+     * The vehicles whose waiting ends at the current step merged with the
+     * active running vehicles, in the same order as in the running vehicles.
+     * Only used if the waiting vehicles are scheduled.
+     */
+    private final List<Vehicle> movingRunningVehicles;
+
+    /**
+     * The vehicles whose waiting ends at the current step. Only used if the
+     * waiting vehicles are scheduled.
+     */
+    private final List<Vehicle> dueVehicles;
+
+    /**
+     * The rank of each running vehicle in the list of running vehicles,
+     * indexed by the dense index of the vehicles. The rank of an arrived
+     * vehicle is kept, so that the vehicles arrived during the current step
+     * can be put back among the running vehicles in the same order.
+     */
+    private int[] runningRanks;
+
+    /**
+     * The rank that will be given to the next vehicle added to the running
+     * vehicles.
+     */
+    private int nextRunningRank;
+
     /**
      * Constructs and initializes a Network with a new Graph, an empty map of
      * Vehicles and an empty map of VehiclesTypes.
      */
     public Network() {
-        runningVehicles = new LinkedList<>();
-        arrivedVehicles = new LinkedList<>();
-        loadedVehicles = new LinkedList<>();
-        notDepartedVehicles = new LinkedList<>();
+        vehicleStore = new VehicleStore();
+        notDepartedVehicles = new TreeMap<>();
         currentStepDepartedVehicles = new LinkedList<>();
+        currentStepArrivedVehicles = new LinkedList<>();
         vehiclesToRemoveFromSimulation = new LinkedList<>();
         currentStepLoadedVehicles = new LinkedList<>();
         vehiclesInSimulation = new HashMap<>();
         vehicleTypes = new HashMap<>();
         graph = new Graph();
+        routeTable = new RouteTable(graph);
+        departedRunningVehicles = new ArrayList<>();
+        movingRunningVehicles = new ArrayList<>();
+        dueVehicles = new ArrayList<>();
+        waitingVehiclesWheel = null;
+        runningRanks = new int[0];
+        nextRunningRank = 0;
+    }
+
+    /**
+     * Schedules the running vehicles that wait on their current edge in a
+     * timing wheel, so that they are only visited at the step where their
+     * waiting ends. The number of slots in same position and the travel time
+     * of a waiting vehicle are only updated at this step, so this mode must not
+     * be used if the vehicles are read during the simulation. It must be
+     * enabled before any vehicle is running and all the running vehicles must
+     * have been loaded in this Network.
+     *
+     * @param timeStepLength the duration in seconds of a time slot
+     */
+    public void enableWaitingVehiclesWheel(double timeStepLength) {
+        if (vehicleStore.size(VehicleStore.State.RUNNING) > 0) {
+            throw new IllegalStateException("Error : the timing wheel of waiting vehicles must be enabled before any vehicle is running.");
+        }
+        waitingVehiclesWheel = new WaitingVehiclesWheel(graph.getNbEdges(), timeStepLength);
+        activeRunningVehicles = new ArrayList<>();
+        nextActiveRunningVehicles = new ArrayList<>();
+    }
+
+    /**
+     * Returns true if the running vehicles that wait on their current edge are
+     * scheduled in a timing wheel; false otherwise.
+     *
+     * @return true if the running vehicles that wait on their current edge are
+     * scheduled in a timing wheel; false otherwise
+     */
+    public boolean isWaitingVehiclesWheelEnabled() {
+        return waitingVehiclesWheel != null;
     }
 
     /**
@@ -127,6 +259,28 @@ public class Network {
         return graph;
     }
 
+    /**
+     * Sets the speed limit in m/s of an Edge of this Network, and updates the
+     * min travel times along the routes of the Vehicles that go through this
+     * Edge.
+     *
+     * @param e the Edge
+     * @param speedLimit the new speed limit in m/s of the Edge
+     */
+    public void setEdgeSpeedLimit(Edge e, double speedLimit) {
+        e.setSpeedLimit(speedLimit);
+        routeTable.updateMinTravelTimes(e);
+    }
+
+    /**
+     * Returns the table of the routes of the Vehicles of this Network.
+     *
+     * @return the table of the routes of the Vehicles of this Network
+     */
+    public RouteTable getRouteTable() {
+        return routeTable;
+    }
+
     /**
      * Returns a non modifiable map of Nodes that composed this Graph.
      *
@@ -145,6 +299,18 @@ public class Network {
         return graph.getEdges();
     }
 
+    /**
+     * Returns the number of dense indexes given to the Vehicles loaded in this
+     * Network. The dense index of every loaded Vehicle is lower than this
+     * number.
+     *
+     * @return the number of dense indexes given to the Vehicles loaded in this
+     * Network
+     */
+    public int getNbVehiclesIndexes() {
+        return vehicleStore.getNbVehiclesIndexes();
+    }
+
     /**
      * Returns a non modifiable map of all the Vehicles (loaded, not departed,
      * running and arrived).
@@ -183,12 +349,7 @@ public class Network {
         if (idVehicle == null || idVehicle.isEmpty()) {
             return null;
         }
-        for (Vehicle v : runningVehicles) {
-            if (v.getId().equals(idVehicle)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicleStore.getVehicle(idVehicle, VehicleStore.State.RUNNING);
     }
 
     /**
@@ -201,12 +362,7 @@ public class Network {
         if (idVehicle == null || idVehicle.isEmpty()) {
             return null;
         }
-        for (Vehicle v : arrivedVehicles) {
-            if (v.getId().equals(idVehicle)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicleStore.getVehicle(idVehicle, VehicleStore.State.ARRIVED);
     }
 
     /**
@@ -220,12 +376,7 @@ public class Network {
         if (idVehicle == null || idVehicle.isEmpty()) {
             return null;
         }
-        for (Vehicle v : notDepartedVehicles) {
-            if (v.getId().equals(idVehicle)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicleStore.getVehicle(idVehicle, VehicleStore.State.NOT_DEPARTED);
     }
 
     /**
@@ -238,12 +389,7 @@ public class Network {
         if (idVehicle == null || idVehicle.isEmpty()) {
             return null;
         }
-        for (Vehicle v : loadedVehicles) {
-            if (v.getId().equals(idVehicle)) {
-                return v;
-            }
-        }
-        return null;
+        return vehicleStore.getVehicle(idVehicle, VehicleStore.State.LOADED);
     }
 
     /**
@@ -263,7 +409,7 @@ public class Network {
      * @return a non modifiable view of the list of loaded vehicles.
      */
     public List<Vehicle> getLoadedVehicles() {
-        return Collections.unmodifiableList(loadedVehicles);
+        return Collections.unmodifiableList(vehicleStore.getVehicles(VehicleStore.State.LOADED));
     }
 
     /**
@@ -277,6 +423,17 @@ public class Network {
         return Collections.unmodifiableList(currentStepDepartedVehicles);
     }
 
+    /**
+     * Returns a non modifiable view of the list of the vehicles that arrived
+     * at the current time step of the simulation.
+     *
+     * @return a non modifiable view of the list of the vehicles that arrived
+     * at the current time step of the simulation
+     */
+    public List<Vehicle> getCurrentStepArrivedVehicles() {
+        return Collections.unmodifiableList(currentStepArrivedVehicles);
+    }
+
     /**
      * Returns a non modifiable view of the list of the vehicles that were
      * loaded at the current time step of the simulation.
@@ -289,14 +446,27 @@ public class Network {
     }
 
     /**
-     * Returns a non modifiable view of the list of vehicles to add to the
-     * simulation.
+     * Returns a non modifiable copy of the list of vehicles to add to the
+     * simulation, sorted by departure time.
      *
-     * @return a non modifiable view of the list of vehicles to add to the
-     * simulation.
+     * @return a non modifiable copy of the list of vehicles to add to the
+     * simulation, sorted by departure time.
      */
     public List<Vehicle> getNotDepartedVehicles() {
-        return Collections.unmodifiableList(notDepartedVehicles);
+        List<Vehicle> vehicles = new ArrayList<>(vehicleStore.size(VehicleStore.State.NOT_DEPARTED));
+        notDepartedVehicles.values().stream().forEach((vehiclesWithSameDepartureTime) -> {
+            vehicles.addAll(vehiclesWithSameDepartureTime);
+        });
+        return Collections.unmodifiableList(vehicles);
+    }
+
+    /**
+     * Returns the number of not departed vehicles.
+     *
+     * @return the number of not departed vehicles
+     */
+    public int getNbNotDepartedVehicles() {
+        return vehicleStore.size(VehicleStore.State.NOT_DEPARTED);
     }
 
     /**
@@ -307,7 +477,7 @@ public class Network {
      * supposed to be sorted by departure time.
      */
     public List<Vehicle> getRunningVehicles() {
-        return Collections.unmodifiableList(runningVehicles);
+        return Collections.unmodifiableList(vehicleStore.getVehicles(VehicleStore.State.RUNNING));
     }
 
     /**
@@ -316,7 +486,7 @@ public class Network {
      * @return a non modifiable view of the list of arrived vehicles
      */
     public List<Vehicle> getArrivedVehicles() {
-        return Collections.unmodifiableList(arrivedVehicles);
+        return Collections.unmodifiableList(vehicleStore.getVehicles(VehicleStore.State.ARRIVED));
     }
 
     /**
@@ -374,7 +544,8 @@ public class Network {
 
     /**
      * Adds a Vehicle to the list of arrived Vehicles of this Network. If the
-     * Vehicle is already in, we do nothing.
+     * Vehicle is in another list of this Network, it is moved from that list.
+     * If the Vehicle is already in, we do nothing.
      *
      * @param v the Vehicle we want to add
      * @return false if the Vehicle is null and not added to the map, true else
@@ -383,20 +554,14 @@ public class Network {
         if (v == null) {
             return false;
         }
-        //we update the number of arrived vehicles of the final edge of the 
-        //arrived vehicle
-        if (!v.getRoute().isEmpty()) {
-            Edge finalEdge = v.getEdgeOfRouteAtPosition(v.getRoute().size() - 1);
-            finalEdge.increaseArrivedVehicles(1);
-        }
-
-        arrivedVehicles.add(v);
+        vehicleStore.setState(v, VehicleStore.State.ARRIVED);
         return true;
     }
 
     /**
      * Adds a Vehicle to the list of running Vehicles of this Network. If the
-     * Vehicle is already in, we do nothing.
+     * Vehicle is in another list of this Network, it is moved from that list.
+     * If the Vehicle is already in, we do nothing.
      *
      * @param v the Vehicle we want to add
      * @return false if the Vehicle is null and not added to the map, true else
@@ -405,13 +570,25 @@ public class Network {
         if (v == null) {
             return false;
         }
-        runningVehicles.add(v);
+        if (vehicleStore.getState(v) == VehicleStore.State.RUNNING) {
+            return true;
+        }
+        vehicleStore.setState(v, VehicleStore.State.RUNNING);
+        if (v.getIndex() >= runningRanks.length) {
+            runningRanks = Arrays.copyOf(runningRanks, Math.max(v.getIndex() + 1, 2 * runningRanks.length));
+        }
+        runningRanks[v.getIndex()] = nextRunningRank++;
+        if (waitingVehiclesWheel != null) {
+            activeRunningVehicles.add(v);
+        }
         return true;
     }
 
     /**
-     * Adds a Vehicle to the list of not departed Vehicles of this Network. If
-     * the Vehicle is already in, we do nothing.
+     * Adds a Vehicle to the calendar of not departed Vehicles of this Network,
+     * after the not departed vehicles with the same departure time. If the
+     * Vehicle is in another list of this Network, it is moved from that list.
+     * If the Vehicle is already in, we do nothing.
      *
      * @param v the Vehicle we want to add
      * @return false if the Vehicle is null and not added to the map, true else
@@ -420,7 +597,11 @@ public class Network {
         if (v == null) {
             return false;
         }
-        notDepartedVehicles.add(v);
+        if (vehicleStore.getState(v) == VehicleStore.State.NOT_DEPARTED) {
+            return true;
+        }
+        vehicleStore.setState(v, VehicleStore.State.NOT_DEPARTED);
+        notDepartedVehicles.computeIfAbsent(v.getDepartureTime(), (departureTime) -> new LinkedHashSet<>()).add(v);
         return true;
     }
 
@@ -428,8 +609,8 @@ public class Network {
      * Adds a Vehicle to the list of loaded Vehicles. The Vehicle will be add to
      * the list of not arrived Vehicles at the beginning of next step. We add
      * the vehicle to the list of vehicles considered in the simulation at same
-     * time. If the vehicle is already in the simulation we do not add it again
-     * but we return true.
+     * time and it gets its dense index. If the vehicle is already in the
+     * simulation we do not add it again but we return true.
      *
      * @param v the Vehicle to add
      * @return false if the Vehicle is null and not added to the list, true else
@@ -439,7 +620,13 @@ public class Network {
             return false;
         }
         if (!vehiclesInSimulation.containsKey(v.getId())) {
-            loadedVehicles.add(v);
+            if (!(v.getRoute() instanceof Route)) {
+                Route route = routeTable.intern(v.getRoute());
+                if (route != null) {
+                    v.setRoute(route);
+                }
+            }
+            vehicleStore.setState(v, VehicleStore.State.LOADED);
             vehiclesInSimulation.put(v.getId(), v);
         }
         return true;
@@ -508,21 +695,12 @@ public class Network {
      * departed vehicles.
      */
     public void flushLoadedVehicles() {
-        boolean areVehiclesFlushed = !loadedVehicles.isEmpty();
         currentStepLoadedVehicles.clear();
 
-        Iterator<Vehicle> iter = loadedVehicles.iterator();
-        while (iter.hasNext()) {
-            Vehicle v = iter.next();
-            notDepartedVehicles.add(v);
+        // the calendar keeps the not departed vehicles sorted by departure time
+        for (Vehicle v : vehicleStore.getVehicles(VehicleStore.State.LOADED)) {
+            addVehicleToNotDepartedVehicles(v);
             currentStepLoadedVehicles.add(v);
-            iter.remove();
-        }
-
-        // /!\ IMPORTANT !!! The list of not departed vehicles must always be sorted by departure time !
-        // Otherwise, the algorithm won't work.
-        if (areVehiclesFlushed) {
-            sortNotDepartedVehiclesByDepartureTime();
         }
 
     }
@@ -541,25 +719,21 @@ public class Network {
     }
 
     /**
-     * Looks over the not departed vehicles list in order to add the vehicles
-     * that can depart to the list of departed vehicles (and remove them from
-     * not separted vehicles) for a specific time step.
+     * Takes the vehicles that can depart from the calendar of not departed
+     * vehicles in order to add them to the list of departed vehicles for a
+     * specific time step. Only the departure times that are reached are looked
+     * over.
      *
      * @param timeSlot the time slot of the step to process in seconds.
      */
     public void updateDepartedVehiclesForCurrentTimeStep(Double timeSlot) {
         currentStepDepartedVehicles.clear();
 
-        Iterator<Vehicle> iter = notDepartedVehicles.iterator();
-        while (iter.hasNext()) {
-            Vehicle v = iter.next();
-            // WARNING !!! The list of not departed Vehicles is supposed to be sorted by departure time.
-            if (v.getDepartureTime() > timeSlot) {
-                return;
+        while (!notDepartedVehicles.isEmpty() && notDepartedVehicles.firstKey() <= timeSlot) {
+            for (Vehicle v : notDepartedVehicles.pollFirstEntry().getValue()) {
+                addVehicleToRunningVehicles(v);
+                currentStepDepartedVehicles.add(v);
             }
-            runningVehicles.add(v);
-            currentStepDepartedVehicles.add(v);
-            iter.remove();
         }
     }
 
@@ -569,161 +743,550 @@ public class Network {
      * @return true if all vehicles are arrived; false otherwise
      */
     public boolean areAllVehiclesArrived() {
-        return loadedVehicles.isEmpty() && notDepartedVehicles.isEmpty() && runningVehicles.isEmpty();
+        return vehicleStore.size(VehicleStore.State.LOADED) == 0
+                && vehicleStore.size(VehicleStore.State.NOT_DEPARTED) == 0
+                && vehicleStore.size(VehicleStore.State.RUNNING) == 0;
     }
 
     /**
-     * Removes a Vehicle from a list of Vehicles and from the list of considered
-     * vehicles in the simulation.
+     * Removes a Vehicle from the Network (from loaded, not departed, running,
+     * arrived Vehicles) and from the list of considered vehicles in the
+     * simulation. The Vehicle is found and removed in constant time.
      *
      * @param idVehicle the id of the Vehicle to remove
-     * @param collection the collection where we want to remove the vehicle
-     * @return false if the id is null or if the vehicle was not removed; true
-     * otherwise
      */
-    private boolean removeVehicleFromList(String idVehicle, List<Vehicle> collection) {
-        if (idVehicle == null) {
-            return false;
-        }
-        if (idVehicle.isEmpty()) {
-            return true;
+    public void removeVehicle(String idVehicle) {
+        if (idVehicle == null || idVehicle.isEmpty()) {
+            return;
         }
         vehiclesInSimulation.remove(idVehicle);
 
-        Iterator<Vehicle> iter = collection.iterator();
-        while (iter.hasNext()) {
-            Vehicle v = iter.next();
-            if (v.getId().equals(idVehicle)) {
-                iter.remove();
-                return true;
+        Vehicle v = vehicleStore.getVehicle(idVehicle);
+        if (v == null) {
+            return;
+        }
+        switch (vehicleStore.getState(v)) {
+            case NOT_DEPARTED:
+                removeVehicleFromNotDepartedVehicles(v);
+                break;
+            case RUNNING:
+                //a removed vehicle that is active is skipped until the next repositioning
+                if (waitingVehiclesWheel != null) {
+                    waitingVehiclesWheel.remove(v);
+                }
+                break;
+            default:
+                break;
+        }
+        vehicleStore.remove(v);
+    }
+
+    /**
+     * Removes the Vehicles that arrived at the current time step from the
+     * Network and from the list of considered vehicles in the simulation, once
+     * their trips are written. They stay in the list of the vehicles that
+     * arrived at the current time step until the next repositioning.
+     */
+    public void removeCurrentStepArrivedVehicles() {
+        for (Vehicle v : currentStepArrivedVehicles) {
+            if (vehicleStore.getState(v) == VehicleStore.State.ARRIVED) {
+                vehiclesInSimulation.remove(v.getId(), v);
+                vehicleStore.remove(v);
             }
         }
+    }
 
-        return false;
+    /**
+     * Removes a Vehicle from the calendar of not departed Vehicles.
+     *
+     * @param v the not departed Vehicle to remove
+     */
+    private void removeVehicleFromNotDepartedVehicles(Vehicle v) {
+        LinkedHashSet<Vehicle> vehicles = notDepartedVehicles.get(v.getDepartureTime());
+        if (vehicles != null && vehicles.remove(v) && vehicles.isEmpty()) {
+            notDepartedVehicles.remove(v.getDepartureTime());
+        }
     }
 
     /**
-     * Removes a Vehicle from the Network (from loaded, not departed, running,
-     * arrived Vehicles).
+     * Returns true if a Vehicle is in the list of running Vehicles of this
+     * Network; false otherwise.
      *
-     * @param idVehicle the id of the Vehicle to remove
+     * @param v the Vehicle
+     * @return true if the Vehicle is running; false otherwise
      */
-    public void removeVehicle(String idVehicle) {
-        if (idVehicle == null || idVehicle.isEmpty()) {
+    private boolean isRunning(Vehicle v) {
+        return vehicleStore.getState(v) == VehicleStore.State.RUNNING;
+    }
+
+    /**
+     * Fills a list with the departed running vehicles whose position must be
+     * estimated at the current step, in the same order as in the running
+     * vehicles. If the waiting vehicles are scheduled in the timing wheel, they
+     * are not added to the list, their estimated loads are given by
+     * addWaitingVehiclesEstimatedLoads.
+     *
+     * @param timeSlot the time slot of the step to process in seconds.
+     * @param vehicles the list to fill, it is cleared first
+     */
+    public void collectDepartedRunningVehicles(final double timeSlot, final List<Vehicle> vehicles) {
+        vehicles.clear();
+        if (waitingVehiclesWheel == null) {
+            for (Vehicle v : vehicleStore.getVehicles(VehicleStore.State.RUNNING)) {
+                //The list of running vehicles is supposed to be sorted by departure time
+                //So if a vehicle is not arrived yet, the next are not arrived neither.
+                if (v.getDepartureTime() > timeSlot) {
+                    break;
+                }
+                vehicles.add(v);
+            }
             return;
         }
-
-        if (removeVehicleFromList(idVehicle, arrivedVehicles)) {
-        } else if (removeVehicleFromList(idVehicle, runningVehicles)) {
-        } else if (removeVehicleFromList(idVehicle, notDepartedVehicles)) {
-        } else if (removeVehicleFromList(idVehicle, loadedVehicles)) {
+        for (Vehicle v : activeRunningVehicles) {
+            if (v.getDepartureTime() > timeSlot) {
+                break;
+            }
+            if (isRunning(v)) {
+                vehicles.add(v);
+            }
         }
-
     }
 
     /**
-     * Sorts the list of running vehicles by their departure time in ASC order.
+     * Adds the estimated loads of the vehicles scheduled in the timing wheel
+     * of waiting vehicles to the estimated loads of the current step. Does
+     * nothing if the waiting vehicles are not scheduled.
+     *
+     * @param loads the estimated number of vehicles per edge of the step,
+     * indexed by the dense index of the edges
+     * @param edges the dense indexes of the edges used during the step
      */
-    public void sortNotDepartedVehiclesByDepartureTime() {
-        notDepartedVehicles = notDepartedVehicles.stream().sorted((v1, v2) -> {
-            return v1.getDepartureTime().compareTo(v2.getDepartureTime());
-        }).collect(Collectors.toList());
+    public void addWaitingVehiclesEstimatedLoads(final int[] loads, final BitSet edges) {
+        if (waitingVehiclesWheel != null) {
+            waitingVehiclesWheel.addEstimatedLoads(loads, edges);
+        }
     }
 
     /**
      * Calculates and repositions the running vehicles according to the travel
      * times per edge.
      *
-     * @param finalLoads the final map of loads of vehicles per edge for this
-     * step with the accurate positions
+     * @param finalLoads the final number of vehicles per edge for this step
+     * with the accurate positions, indexed by the dense index of the edges. It
+     * is supposed to be filled with zeros by the caller
      * @param timeSlot the time slot of the step to process in seconds.
      * @param timeStepLength the duration in seconds of a time slot
-     * @param travelTimes the current map of travel time per edge for this step
+     * @param travelTimes the current travel time per edge for this step,
+     * indexed by the dense index of the edges
      * @param isGenerateEdgeData if true, we want to compute statistics for edge
-     * data output with filling positionsOfVehiclesForThisStep
-     * @param positionsOfVehiclesForThisStep a map that contains all the
-     * positions of each vehicle for this step. The key is the Edge, and value
-     * is the list of vehicles that were on this Edge during this timestep.
+     * data output with filling nbVehiclesPerEdgeForThisStep
+     * @param nbVehiclesPerEdgeForThisStep the number of vehicles that were on
+     * each edge during this step, indexed by the dense index of the edges. Used
+     * for statistics for edges.
      */
-    public void repositionRunningVehicles(final Map< String, List<Vehicle>> finalLoads,
-            final double timeSlot, final double timeStepLength, final Map< String, Double> travelTimes,
-            final boolean isGenerateEdgeData, final Map<String, List<Vehicle>> positionsOfVehiclesForThisStep) {
+    public void repositionRunningVehicles(final int[] finalLoads,
+            final double timeSlot, final double timeStepLength, final double[] travelTimes,
+            final boolean isGenerateEdgeData, final int[] nbVehiclesPerEdgeForThisStep) {
+
+        if (waitingVehiclesWheel != null) {
+            repositionRunningVehiclesWithWheel(finalLoads, timeSlot, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, null);
+            return;
+        }
 
-        Iterator<Vehicle> runningIterator = runningVehicles.iterator();
-        while (runningIterator.hasNext()) {
-            Vehicle v = runningIterator.next();
+        currentStepArrivedVehicles.clear();
+
+        //the arrived vehicles are moved from the running vehicles during the iteration
+        for (Vehicle v : vehicleStore.getVehicles(VehicleStore.State.RUNNING)) {
 
             if (v.getDepartureTime() <= timeSlot) {
-                int iCurrentPosition = v.getPosition();
-                List<Edge> route = v.getRoute();
-
-                if (v.getNbSlotsInSamePosition() == 0) {
-                    double time = 0;
-                    while (time < timeStepLength && iCurrentPosition < route.size() - 1) {
-                        Edge currentEdge = route.get(iCurrentPosition);
-                        time += travelTimes.get(currentEdge.getId());
-
-                        //if we have enough time to go through this edge, we go to the next edge
-                        if (time < timeStepLength) {
-                            iCurrentPosition += 1;
-                            if (isGenerateEdgeData) {
-                                MapUtils.addVehicleToVehiclesListMap(positionsOfVehiclesForThisStep, v, currentEdge.getId());
-                            }
-                        }
-                    }
+                if (repositionRunningVehicle(v, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, finalLoads, null)) {
+                    addVehicleToArrivedVehicles(v);
+                    currentStepArrivedVehicles.add(v);
+                }
+            } else {
+                //The list of running vehicles is supposed to be sorted by departure time
+                //So if a vehicle is not arrived yet, the next are not arrived neither.
+                break;
+            }
 
-                    //if the iCurrentPosition is the arrival
-                    if (iCurrentPosition >= route.size() - 1) {
-                        addVehicleToArrivedVehicles(v);
-                        runningIterator.remove();
+        }
 
-                        if (iCurrentPosition > route.size() - 1) {
-                            iCurrentPosition = route.size() - 1;
-                        }
+    }
 
-                    } else if (iCurrentPosition == v.getPosition()) {
-                        // if we are still on the same edge, how much time steps will we have to wait before reaching the next one?
-                        Edge currentEdge = route.get(iCurrentPosition);
-                        try {
-                            int nbSlotsInSamePosition = (int) (travelTimes.get(currentEdge.getId()) / timeStepLength);
-                            v.setNbSlotsInSamePosition(nbSlotsInSamePosition);
-                        } catch (Exception e) {
-                            System.out.println("null error on edge :" + currentEdge.getId());
-                            System.out.println("traveltimes : " + travelTimes.get(currentEdge.getId()));
-                            System.out.println("vehicle :" + v.getId());
-                            System.out.println("iCurrentPosition :" + iCurrentPosition);
-                            System.out.println("timeSlot :" + timeSlot);
-                            System.out.println("");
-                        }
-                    }
+    /**
+     * Calculates and repositions the running vehicles according to the travel
+     * times per edge with several threads. The departed running vehicles are
+     * split into one chunk per thread. Each thread repositions its chunk,
+     * counts the vehicles per edge in its own arrays and collects its arrived
+     * vehicles. The counts are then added to the arrays of the step and the
+     * arrived vehicles are moved from the running vehicles to the arrived
+     * vehicles in the order of the chunks, i.e in departure order, which gives
+     * the same result as the repositioning by one thread.
+     *
+     * @param finalLoads the final number of vehicles per edge for this step
+     * with the accurate positions, indexed by the dense index of the edges. It
+     * is supposed to be filled with zeros by the caller
+     * @param timeSlot the time slot of the step to process in seconds.
+     * @param timeStepLength the duration in seconds of a time slot
+     * @param travelTimes the current travel time per edge for this step,
+     * indexed by the dense index of the edges
+     * @param isGenerateEdgeData if true, we want to compute statistics for edge
+     * data output with filling nbVehiclesPerEdgeForThisStep
+     * @param nbVehiclesPerEdgeForThisStep the number of vehicles that were on
+     * each edge during this step, indexed by the dense index of the edges. Used
+     * for statistics for edges.
+     * @param threadsPool the pool of threads used to reposition the vehicles
+     */
+    public void repositionRunningVehiclesInParallel(final int[] finalLoads,
+            final double timeSlot, final double timeStepLength, final double[] travelTimes,
+            final boolean isGenerateEdgeData, final int[] nbVehiclesPerEdgeForThisStep,
+            final ForkJoinPool threadsPool) {
 
-                    v.setPosition(iCurrentPosition);
+        if (waitingVehiclesWheel != null) {
+            repositionRunningVehiclesWithWheel(finalLoads, timeSlot, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, threadsPool);
+            return;
+        }
 
-                } else {
-                    v.decreaseNbSlotsInSamePosition(1);
-                    if (v.getNbSlotsInSamePosition() == 0) {
-                        v.increasePosition(1);
-                        if (v.isArrived()) {
-                            addVehicleToArrivedVehicles(v);
-                            runningIterator.remove();
-                        }
+        currentStepArrivedVehicles.clear();
+        collectDepartedRunningVehicles(timeSlot, departedRunningVehicles);
+
+        repositionVehicles(departedRunningVehicles, finalLoads, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, threadsPool);
+
+        departedRunningVehicles.clear();
+    }
+
+    /**
+     * Calculates and repositions the running vehicles according to the travel
+     * times per edge, when the waiting vehicles are scheduled in the timing
+     * wheel. Only the active running vehicles and the vehicles whose waiting
+     * ends at this step are repositioned, in the same order as in the running
+     * vehicles. The vehicles that still wait are counted on their edge by the
+     * timing wheel. The vehicles that start to wait are scheduled in the
+     * timing wheel.
+     *
+     * @param finalLoads the final number of vehicles per edge for this step
+     * with the accurate positions, indexed by the dense index of the edges. It
+     * is supposed to be filled with zeros by the caller
+     * @param timeSlot the time slot of the step to process in seconds.
+     * @param timeStepLength the duration in seconds of a time slot
+     * @param travelTimes the current travel time per edge for this step,
+     * indexed by the dense index of the edges
+     * @param isGenerateEdgeData if true, we want to compute statistics for edge
+     * data output with filling nbVehiclesPerEdgeForThisStep
+     * @param nbVehiclesPerEdgeForThisStep the number of vehicles that were on
+     * each edge during this step, indexed by the dense index of the edges. Used
+     * for statistics for edges.
+     * @param threadsPool the pool of threads used to reposition the vehicles.
+     * If null, the vehicles are repositioned by the calling thread.
+     */
+    private void repositionRunningVehiclesWithWheel(final int[] finalLoads,
+            final double timeSlot, final double timeStepLength, final double[] travelTimes,
+            final boolean isGenerateEdgeData, final int[] nbVehiclesPerEdgeForThisStep,
+            final ForkJoinPool threadsPool) {
+
+        currentStepArrivedVehicles.clear();
+
+        //the vehicles whose waiting ends at this step are merged with the active vehicles
+        dueVehicles.clear();
+        waitingVehiclesWheel.poll(dueVehicles);
+        dueVehicles.sort((v1, v2) -> Integer.compare(runningRanks[v1.getIndex()], runningRanks[v2.getIndex()]));
+
+        movingRunningVehicles.clear();
+        int iActive = 0;
+        int nbActive = activeRunningVehicles.size();
+        for (Vehicle dueVehicle : dueVehicles) {
+            int rank = runningRanks[dueVehicle.getIndex()];
+            while (iActive < nbActive && runningRanks[activeRunningVehicles.get(iActive).getIndex()] < rank
+                    && activeRunningVehicles.get(iActive).getDepartureTime() <= timeSlot) {
+                addActiveVehicleIfRunning(activeRunningVehicles.get(iActive++), movingRunningVehicles);
+            }
+            //the waiting of the vehicle is synchronized up to this step
+            for (int i = 1; i < dueVehicle.getNbSlotsInSamePosition(); i++) {
+                dueVehicle.increaseTravelTime(timeStepLength);
+            }
+            dueVehicle.decreaseNbSlotsInSamePosition(dueVehicle.getNbSlotsInSamePosition() - 1);
+            movingRunningVehicles.add(dueVehicle);
+        }
+        //The list of running vehicles is supposed to be sorted by departure time
+        while (iActive < nbActive && activeRunningVehicles.get(iActive).getDepartureTime() <= timeSlot) {
+            addActiveVehicleIfRunning(activeRunningVehicles.get(iActive++), movingRunningVehicles);
+        }
+
+        //the vehicles that still wait are on their edge for this step
+        waitingVehiclesWheel.addNbVehiclesPerEdge(finalLoads);
+        if (isGenerateEdgeData) {
+            waitingVehiclesWheel.addNbVehiclesPerEdge(nbVehiclesPerEdgeForThisStep);
+        }
+
+        repositionVehicles(movingRunningVehicles, finalLoads, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, threadsPool);
+
+        nextActiveRunningVehicles.clear();
+        for (Vehicle v : movingRunningVehicles) {
+            if (v.isArrived()) {
+                continue;
+            }
+            if (v.getNbSlotsInSamePosition() > 0) {
+                waitingVehiclesWheel.schedule(v);
+            } else {
+                nextActiveRunningVehicles.add(v);
+            }
+        }
+        //the vehicles that are not departed yet stay active
+        for (int i = iActive; i < nbActive; i++) {
+            addActiveVehicleIfRunning(activeRunningVehicles.get(i), nextActiveRunningVehicles);
+        }
+
+        List<Vehicle> previousActiveRunningVehicles = activeRunningVehicles;
+        activeRunningVehicles = nextActiveRunningVehicles;
+        nextActiveRunningVehicles = previousActiveRunningVehicles;
+        nextActiveRunningVehicles.clear();
+        movingRunningVehicles.clear();
+    }
+
+    /**
+     * Adds an active running vehicle to a list of vehicles, unless it was
+     * removed from the network since the last repositioning.
+     *
+     * @param v the active running vehicle
+     * @param vehicles the list where to add the vehicle
+     */
+    private void addActiveVehicleIfRunning(Vehicle v, List<Vehicle> vehicles) {
+        if (isRunning(v)) {
+            vehicles.add(v);
+        }
+    }
+
+    /**
+     * Calculates and repositions a list of departed running vehicles according
+     * to the travel times per edge. The arrived vehicles are moved from the
+     * running vehicles to the arrived vehicles in the order of the list. If
+     * several threads are used, the list is split
+     * into one chunk per thread. Each thread repositions its chunk, counts the
+     * vehicles per edge in its own arrays and collects its arrived vehicles.
+     * The counts are then added to the arrays of the step and the arrived
+     * vehicles are collected in the order of the chunks, which gives the same
+     * result as the repositioning by one thread.
+     *
+     * @param vehicles the departed running vehicles to reposition
+     * @param finalLoads the final number of vehicles per edge for this step,
+     * indexed by the dense index of the edges
+     * @param timeStepLength the duration in seconds of a time slot
+     * @param travelTimes the current travel time per edge for this step,
+     * indexed by the dense index of the edges
+     * @param isGenerateEdgeData if true, we want to compute statistics for edge
+     * data output with filling nbVehiclesPerEdgeForThisStep
+     * @param nbVehiclesPerEdgeForThisStep the number of vehicles that were on
+     * each edge during this step, indexed by the dense index of the edges
+     * @param threadsPool the pool of threads used to reposition the vehicles.
+     * If null, the vehicles are repositioned by the calling thread.
+     */
+    private void repositionVehicles(final List<Vehicle> vehicles, final int[] finalLoads,
+            final double timeStepLength, final double[] travelTimes,
+            final boolean isGenerateEdgeData, final int[] nbVehiclesPerEdgeForThisStep,
+            final ForkJoinPool threadsPool) {
+
+        if (threadsPool == null) {
+            for (Vehicle v : vehicles) {
+                if (repositionRunningVehicle(v, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdgeForThisStep, finalLoads, null)) {
+                    addVehicleToArrivedVehicles(v);
+                    currentStepArrivedVehicles.add(v);
+                }
+            }
+            return;
+        }
+
+        int nbThreads = threadsPool.getParallelism();
+        initThreadsBuffers(nbThreads);
+        int nbVehicles = vehicles.size();
+        List<Callable<Void>> tasks = new ArrayList<>(nbThreads);
+
+        for (int iThread = 0; iThread < nbThreads; iThread++) {
+            final List<Vehicle> chunk = vehicles.subList(iThread * nbVehicles / nbThreads, (iThread + 1) * nbVehicles / nbThreads);
+            final int[] loads = threadsFinalLoads[iThread];
+            final int[] nbVehiclesPerEdge = threadsNbVehiclesPerEdge[iThread];
+            final BitSet usedEdges = threadsUsedEdges[iThread];
+            final List<Vehicle> arrived = threadsArrivedVehicles.get(iThread);
+            tasks.add(() -> {
+                for (Vehicle v : chunk) {
+                    if (repositionRunningVehicle(v, timeStepLength, travelTimes, isGenerateEdgeData, nbVehiclesPerEdge, loads, usedEdges)) {
+                        arrived.add(v);
                     }
+                }
+                return null;
+            });
+        }
+
+        ThreadsUtils.invokeAllAndWait(threadsPool, tasks);
+
+        //the counts and the arrived vehicles are merged in the order of the chunks
+        for (int iThread = 0; iThread < nbThreads; iThread++) {
+            int[] loads = threadsFinalLoads[iThread];
+            int[] nbVehiclesPerEdge = threadsNbVehiclesPerEdge[iThread];
+            BitSet usedEdges = threadsUsedEdges[iThread];
+            for (int i = usedEdges.nextSetBit(0); i >= 0; i = usedEdges.nextSetBit(i + 1)) {
+                finalLoads[i] += loads[i];
+                loads[i] = 0;
+                if (isGenerateEdgeData) {
+                    nbVehiclesPerEdgeForThisStep[i] += nbVehiclesPerEdge[i];
+                    nbVehiclesPerEdge[i] = 0;
+                }
+            }
+            usedEdges.clear();
+
+            List<Vehicle> arrived = threadsArrivedVehicles.get(iThread);
+            arrived.stream().forEach((v) -> {
+                addVehicleToArrivedVehicles(v);
+                currentStepArrivedVehicles.add(v);
+            });
+            arrived.clear();
+        }
+    }
+
+    /**
+     * Initializes the arrays used by each thread to reposition its chunk of
+     * running vehicles, if they do not exist yet for this number of threads.
+     *
+     * @param nbThreads the number of threads used to reposition the vehicles
+     */
+    private void initThreadsBuffers(int nbThreads) {
+        int nbEdges = graph.getNbEdges();
+        if (threadsFinalLoads != null && threadsFinalLoads.length == nbThreads && threadsFinalLoads[0].length == nbEdges) {
+            return;
+        }
+        threadsFinalLoads = new int[nbThreads][nbEdges];
+        threadsNbVehiclesPerEdge = new int[nbThreads][nbEdges];
+        threadsUsedEdges = new BitSet[nbThreads];
+        threadsArrivedVehicles = new ArrayList<>(nbThreads);
+        for (int iThread = 0; iThread < nbThreads; iThread++) {
+            threadsUsedEdges[iThread] = new BitSet(nbEdges);
+            threadsArrivedVehicles.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Calculates and repositions one departed running vehicle according to the
+     * travel times per edge. Only the vehicle and the given arrays are
+     * modified, so that several vehicles can be repositioned at the same time.
+     * Returns true if the vehicle arrived during this step; false otherwise.
+     * The arrived vehicle is not moved to the arrived vehicles by this method.
+     *
+     * @param v the running vehicle to reposition
+     * @param timeStepLength the duration in seconds of a time slot
+     * @param travelTimes the current travel time per edge for this step,
+     * indexed by the dense index of the edges
+     * @param isGenerateEdgeData if true, we want to compute statistics for edge
+     * data output with filling nbVehiclesPerEdgeForThisStep
+     * @param nbVehiclesPerEdgeForThisStep the number of vehicles that were on
+     * each edge during this step, indexed by the dense index of the edges
+     * @param finalLoads the final number of vehicles per edge for this step,
+     * indexed by the dense index of the edges
+     * @param usedEdges if not null, the dense indexes of the edges whose counts
+     * are increased by this method are set
+     * @return true if the vehicle arrived during this step; false otherwise
+     */
+    private boolean repositionRunningVehicle(final Vehicle v, final double timeStepLength, final double[] travelTimes,
+            final boolean isGenerateEdgeData, final int[] nbVehiclesPerEdgeForThisStep, final int[] finalLoads, final BitSet usedEdges) {
+
+        boolean isArrived = false;
+        int iCurrentPosition = v.getPosition();
+        int routeSize = v.getRoute().size();
+
+        if (v.getNbSlotsInSamePosition() == 0) {
+            double time = 0;
+            while (time < timeStepLength && iCurrentPosition < routeSize - 1) {
+                int iCurrentEdge = v.getEdgeIndexOfRouteAtPosition(iCurrentPosition);
+                time += travelTimes[iCurrentEdge];
+
+                //if we have enough time to go through this edge, we go to the next edge
+                if (time < timeStepLength) {
+                    iCurrentPosition += 1;
                     if (isGenerateEdgeData) {
-                        MapUtils.addVehicleToVehiclesListMap(positionsOfVehiclesForThisStep, v, v.getCurrentEdge().getId());
+                        nbVehiclesPerEdgeForThisStep[iCurrentEdge]++;
+                        if (usedEdges != null) {
+                            usedEdges.set(iCurrentEdge);
+                        }
                     }
                 }
+            }
 
-                v.increaseTravelTime(timeStepLength);
-                MapUtils.addVehicleToVehiclesListMap(finalLoads, v, v.getCurrentEdge().getId());
+            //if the iCurrentPosition is the arrival
+            if (iCurrentPosition >= routeSize - 1) {
+                isArrived = true;
 
-            } else {
-                //The list of running vehicles is supposed to be sorted by departure time
-                //So if a vehicle is not arrived yet, the next are not arrived neither.
+                if (iCurrentPosition > routeSize - 1) {
+                    iCurrentPosition = routeSize - 1;
+                }
+
+            } else if (iCurrentPosition == v.getPosition()) {
+                // if we are still on the same edge, how much time steps will we have to wait before reaching the next one?
+                int iCurrentEdge = v.getEdgeIndexOfRouteAtPosition(iCurrentPosition);
+                int nbSlotsInSamePosition = (int) (travelTimes[iCurrentEdge] / timeStepLength);
+                v.setNbSlotsInSamePosition(nbSlotsInSamePosition);
+            }
+
+            v.setPosition(iCurrentPosition);
+
+        } else {
+            v.decreaseNbSlotsInSamePosition(1);
+            if (v.getNbSlotsInSamePosition() == 0) {
+                v.increasePosition(1);
+                isArrived = v.isArrived();
+            }
+            if (isGenerateEdgeData) {
+                nbVehiclesPerEdgeForThisStep[v.getCurrentEdge().getIndex()]++;
+                if (usedEdges != null) {
+                    usedEdges.set(v.getCurrentEdge().getIndex());
+                }
+            }
+        }
+
+        v.increaseTravelTime(timeStepLength);
+        int iFinalEdge = v.getCurrentEdge().getIndex();
+        finalLoads[iFinalEdge]++;
+        if (usedEdges != null) {
+            usedEdges.set(iFinalEdge);
+        }
+
+        return isArrived;
+    }
+
+    /**
+     * Builds the final map of loads of vehicles per edge for the last
+     * repositioned step, i.e the running vehicles that are departed and the
+     * vehicles that arrived during this step, mapped on the id of the Edge
+     * where they are. The lists are only built on demand because the
+     * simulation itself only needs the number of vehicles per edge. The
+     * arrived vehicles are merged with the running vehicles by their running
+     * rank, so that the vehicles of each list are in the order they were
+     * repositioned, i.e. in departure order.
+     *
+     * @param timeSlot the time slot of the last repositioned step in seconds.
+     * @return the final map of loads of vehicles per edge for the last
+     * repositioned step
+     */
+    public Map<String, List<Vehicle>> collectCurrentStepFinalLoads(final double timeSlot) {
+        Map<String, List<Vehicle>> finalLoads = new HashMap<>();
+
+        Iterator<Vehicle> arrivedIterator = currentStepArrivedVehicles.iterator();
+        Vehicle arrived = arrivedIterator.hasNext() ? arrivedIterator.next() : null;
+        for (Vehicle v : vehicleStore.getVehicles(VehicleStore.State.RUNNING)) {
+            //The list of running vehicles is supposed to be sorted by departure time
+            if (v.getDepartureTime() > timeSlot) {
                 break;
             }
+            while (arrived != null && runningRanks[arrived.getIndex()] < runningRanks[v.getIndex()]) {
+                MapUtils.addVehicleToVehiclesListMap(finalLoads, arrived, arrived.getCurrentEdge().getId());
+                arrived = arrivedIterator.hasNext() ? arrivedIterator.next() : null;
+            }
+            MapUtils.addVehicleToVehiclesListMap(finalLoads, v, v.getCurrentEdge().getId());
+        }
 
+        while (arrived != null) {
+            MapUtils.addVehicleToVehiclesListMap(finalLoads, arrived, arrived.getCurrentEdge().getId());
+            arrived = arrivedIterator.hasNext() ? arrivedIterator.next() : null;
         }
 
+        return finalLoads;
     }
 
 }
@@ -35,6 +35,12 @@ public class Node implements Serializable {
      */
     private final String id;
 
+    /**
+     * The dense index of this Node in the Graph it belongs to, or -1 if this
+     * Node has not been added to a Graph.
+     */
+    private int index;
+
     /**
      * The X coordinate of this Node.
      */
@@ -64,6 +70,7 @@ public class Node implements Serializable {
      */
     public Node(String id, Double x, Double y) {
         this.id = id;
+        this.index = -1;
         this.x = x;
         this.y = y;
         this.outgoingEdges = new HashMap<>();
@@ -79,6 +86,26 @@ public class Node implements Serializable {
         return id;
     }
 
+    /**
+     * Returns the dense index of this Node in its Graph, or -1 if this Node
+     * has not been added to a Graph.
+     *
+     * @return the dense index of this Node in its Graph
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the dense index of this Node in its Graph. It is set by the Graph
+     * when the Node is added.
+     *
+     * @param index the dense index of this Node in its Graph
+     */
+    void setIndex(int index) {
+        this.index = index;
+    }
+
     /**
      * Returns the X coordinate of this Node.
      *
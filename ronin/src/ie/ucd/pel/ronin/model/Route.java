@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Immutable route of the Graph of a Network, that is the list of Edges a
+ * Vehicle has to go through from its origin to its destination. The Edges are
+ * stored as their dense indexes in the Graph. The routes are interned by the
+ * RouteTable of the Network, so that the Vehicles with the same route share
+ * the same Route. The length of the route and the cumulative min travel times
+ * along the route are calculated once when the Route is created.
+ */
+public class Route extends AbstractList<Edge> implements RandomAccess {
+
+    /**
+     * The graph of the Edges of this Route.
+     */
+    private final Graph graph;
+
+    /**
+     * The dense indexes of the Edges of this Route in the Graph, in the order
+     * they are gone through.
+     */
+    private final int[] edges;
+
+    /**
+     * The length of this Route in meter.
+     */
+    private final double length;
+
+    /**
+     * The min travel time in seconds to go through the Edges of this Route
+     * before each position, indexed by position. The value at a position is
+     * the sum of the min travel times of the Edges before this position, the
+     * value at the size of this Route is the min travel time of the whole
+     * Route.
+     */
+    private final double[] cumulativeMinTravelTimes;
+
+    /**
+     * The relative tolerance under which a sum of min travel times computed
+     * with the cumulative min travel times is too close to a duration to be
+     * compared with it. The sums of the cumulative min travel times are not
+     * rounded as the sums of the min travel times edge by edge.
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Constructs and initializes a Route with the dense indexes of its Edges
+     * in a Graph.
+     *
+     * @param graph the graph of the Edges of the newly constructed Route
+     * @param edges the dense indexes of the Edges of the newly constructed
+     * Route. The array must not be modified after.
+     */
+    public Route(Graph graph, int[] edges) {
+        this.graph = graph;
+        this.edges = edges;
+        this.cumulativeMinTravelTimes = new double[edges.length + 1];
+        double routeLength = 0;
+        for (int i = 0; i < edges.length; i++) {
+            routeLength += graph.getEdgeByIndex(edges[i]).getLength();
+        }
+        this.length = routeLength;
+        updateMinTravelTimes();
+    }
+
+    /**
+     * Calculates again the cumulative min travel times along this Route. It
+     * must be called when the min travel time of an Edge of this Route
+     * changes.
+     */
+    void updateMinTravelTimes() {
+        for (int i = 0; i < edges.length; i++) {
+            cumulativeMinTravelTimes[i + 1] = cumulativeMinTravelTimes[i] + graph.getEdgeByIndex(edges[i]).getMinTravelTime();
+        }
+    }
+
+    /**
+     * Returns the Edge at a position of this Route.
+     *
+     * @param position the position of the Edge in this Route
+     * @return the Edge at this position
+     */
+    @Override
+    public Edge get(int position) {
+        return graph.getEdgeByIndex(edges[position]);
+    }
+
+    /**
+     * Returns the number of Edges of this Route.
+     *
+     * @return the number of Edges of this Route
+     */
+    @Override
+    public int size() {
+        return edges.length;
+    }
+
+    /**
+     * Returns the dense index in the Graph of the Edge at a position of this
+     * Route.
+     *
+     * @param position the position of the Edge in this Route
+     * @return the dense index of the Edge at this position
+     */
+    public int getEdgeIndex(int position) {
+        return edges[position];
+    }
+
+    /**
+     * Returns the length of this Route in meter.
+     *
+     * @return the length of this Route in meter
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the min travel time in seconds to go through the Edges of this
+     * Route before a position.
+     *
+     * @param position a position of this Route, or the size of this Route for
+     * the whole Route
+     * @return the sum of the min travel times of the Edges before this
+     * position
+     */
+    public double getCumulativeMinTravelTime(int position) {
+        return cumulativeMinTravelTimes[position];
+    }
+
+    /**
+     * Returns the first position of this Route after a position where the
+     * min travel time to go through the Edges from this position reaches a
+     * duration. The position is found with a binary search over the cumulative
+     * min travel times. Returns the size of this Route if the duration is not
+     * reached, and -1 if the min travel time of the Edges is too close to the
+     * duration to find the position without going through the Edges one by
+     * one.
+     *
+     * @param position the position in this Route where to start
+     * @param duration the duration in seconds
+     * @return the first position after this position where the min travel
+     * time of the Edges from this position is not less than the duration, the
+     * size of this Route if there is none, -1 if the position can not be found
+     * with the cumulative min travel times
+     */
+    public int getEndOfMinTravelTime(int position, double duration) {
+        double start = cumulativeMinTravelTimes[position];
+        int low = position + 1;
+        int high = edges.length + 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeMinTravelTimes[middle] - start < duration) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        double tolerance = TOLERANCE * (cumulativeMinTravelTimes[edges.length] + duration);
+        if (low <= edges.length && cumulativeMinTravelTimes[low] - start - duration <= tolerance) {
+            return -1;
+        }
+        if (low - 1 > position && duration - (cumulativeMinTravelTimes[low - 1] - start) <= tolerance) {
+            return -1;
+        }
+        return Math.min(low, edges.length);
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Table of the Routes of a Network. A route is interned in this table, so that
+ * all the Vehicles that go through the same Edges share the same Route. The
+ * routes can be interned by several threads, as when the route files are read
+ * in parallel.
+ */
+public class RouteTable {
+
+    /**
+     * The graph of the Edges of the Routes.
+     */
+    private final Graph graph;
+
+    /**
+     * The interned Routes mapped on their Edges.
+     */
+    private final Map<RouteKey, Route> routes;
+
+    /**
+     * The interned Routes that go through each Edge, indexed by the dense
+     * index of the Edges. Null until the min travel time of an Edge changes
+     * for the first time, so that it costs nothing to the simulations where
+     * the speed limits do not change.
+     */
+    private List<List<Route>> routesByEdge;
+
+    /**
+     * Constructs and initializes an empty RouteTable for a Graph.
+     *
+     * @param graph the graph of the Edges of the Routes
+     */
+    public RouteTable(Graph graph) {
+        this.graph = graph;
+        this.routes = new HashMap<>();
+        this.routesByEdge = null;
+    }
+
+    /**
+     * Returns the number of different Routes of this table.
+     *
+     * @return the number of different Routes of this table
+     */
+    public synchronized int getNbRoutes() {
+        return routes.size();
+    }
+
+    /**
+     * Calculates again the cumulative min travel times of the Routes of this
+     * table that go through an Edge. It must be called when the min travel
+     * time of this Edge changes. Only the Routes that go through the Edge are
+     * updated, they are found with an index of the Routes per Edge that is
+     * built the first time this method is called.
+     *
+     * @param e the Edge whose min travel time changed
+     */
+    public synchronized void updateMinTravelTimes(Edge e) {
+        if (routesByEdge == null) {
+            routesByEdge = new ArrayList<>(graph.getNbEdges());
+            for (Route route : routes.values()) {
+                addToRoutesByEdge(route);
+            }
+        }
+        if (e.getIndex() < 0 || e.getIndex() >= routesByEdge.size()) {
+            return;
+        }
+        for (Route route : routesByEdge.get(e.getIndex())) {
+            route.updateMinTravelTimes();
+        }
+    }
+
+    /**
+     * Adds a Route to the index of the Routes per Edge, once for each Edge it
+     * goes through.
+     *
+     * @param route the Route to add
+     */
+    private void addToRoutesByEdge(Route route) {
+        for (int i = 0; i < route.size(); i++) {
+            int edgeIndex = route.getEdgeIndex(i);
+            while (routesByEdge.size() <= edgeIndex) {
+                routesByEdge.add(new ArrayList<>(1));
+            }
+            //the Edges of a Route are added one after the other, so a Route that goes twice through an Edge is the last of its list
+            List<Route> edgeRoutes = routesByEdge.get(edgeIndex);
+            if (edgeRoutes.isEmpty() || edgeRoutes.get(edgeRoutes.size() - 1) != route) {
+                edgeRoutes.add(route);
+            }
+        }
+    }
+
+    /**
+     * Returns the Route of this table that goes through a list of Edges. The
+     * Route is created and added to this table if there is none yet. Returns
+     * null if one of the Edges is not in the Graph of this table.
+     *
+     * @param edges the Edges of the route, in the order they are gone through
+     * @return the Route that goes through these Edges, null if one of the
+     * Edges is not in the Graph
+     */
+    public Route intern(List<Edge> edges) {
+        int[] edgesIndexes = new int[edges.size()];
+        for (int i = 0; i < edgesIndexes.length; i++) {
+            Edge e = edges.get(i);
+            if (e.getIndex() < 0 || e.getIndex() >= graph.getNbEdges() || graph.getEdgeByIndex(e.getIndex()) != e) {
+                return null;
+            }
+            edgesIndexes[i] = e.getIndex();
+        }
+        return intern(edgesIndexes);
+    }
+
+    /**
+     * Returns the Route of this table that goes through the Edges with a list
+     * of dense indexes. The Route is created and added to this table if there
+     * is none yet. Returns null if one of the indexes is not the index of an
+     * Edge of the Graph of this table.
+     *
+     * @param edgesIndexes the dense indexes of the Edges of the route, in the
+     * order they are gone through. The array must not be modified after.
+     * @return the Route that goes through these Edges, null if one of the
+     * indexes is not valid
+     */
+    public synchronized Route intern(int[] edgesIndexes) {
+        for (int edgeIndex : edgesIndexes) {
+            if (edgeIndex < 0 || edgeIndex >= graph.getNbEdges()) {
+                return null;
+            }
+        }
+        return routes.computeIfAbsent(new RouteKey(edgesIndexes), (key) -> {
+            Route route = new Route(graph, key.edges);
+            if (routesByEdge != null) {
+                addToRoutesByEdge(route);
+            }
+            return route;
+        });
+    }
+
+    /**
+     * Key of a Route in the table, that compares the dense indexes of the
+     * Edges of the Routes.
+     */
+    private static final class RouteKey {
+
+        /**
+         * The dense indexes of the Edges of the Route.
+         */
+        private final int[] edges;
+
+        /**
+         * The hashcode of the dense indexes of the Edges.
+         */
+        private final int hash;
+
+        /**
+         * Constructs a key for the dense indexes of the Edges of a Route.
+         *
+         * @param edges the dense indexes of the Edges of the Route
+         */
+        private RouteKey(int[] edges) {
+            this.edges = edges;
+            this.hash = Arrays.hashCode(edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RouteKey)) {
+                return false;
+            }
+            return Arrays.equals(edges, ((RouteKey) obj).edges);
+        }
+
+    }
+
+}
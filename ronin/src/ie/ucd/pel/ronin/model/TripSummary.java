@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Model class that describes the trip of an arrived Vehicle, without its route
+ * and its state, so that the Vehicle does not have to be kept once its trip is
+ * finished. A TripSummary is not modified after its creation.
+ */
+public class TripSummary {
+
+    /**
+     * The id of the Vehicle of the trip.
+     */
+    private final String id;
+
+    /**
+     * The id of the VehicleType of the Vehicle of the trip.
+     */
+    private final String vType;
+
+    /**
+     * The departure time of the trip in seconds.
+     */
+    private final double departureTime;
+
+    /**
+     * The id of the departure Edge of the trip.
+     */
+    private final String departureEdgeId;
+
+    /**
+     * The arrival time of the trip in seconds.
+     */
+    private final double arrivalTime;
+
+    /**
+     * The id of the arrival Edge of the trip.
+     */
+    private final String arrivalEdgeId;
+
+    /**
+     * The duration of the trip in seconds.
+     */
+    private final double duration;
+
+    /**
+     * The length of the route of the trip in meters.
+     */
+    private final double routeLength;
+
+    /**
+     * The number of steps the Vehicle had to wait during the trip.
+     */
+    private final int nbWaitSteps;
+
+    /**
+     * Constructs and initializes the TripSummary of an arrived Vehicle.
+     *
+     * @param v the arrived Vehicle
+     * @param timeUnit the duration in seconds of a step of the simulation
+     */
+    public TripSummary(Vehicle v, double timeUnit) {
+        if (!v.isArrived()) {
+            throw new IllegalArgumentException("Error : the vehicle " + v.getId() + " is not arrived, its trip is not finished.");
+        }
+        this.id = v.getId();
+        this.vType = v.getvType();
+        this.departureTime = v.getDepartureTime();
+        this.departureEdgeId = v.getEdgeOfRouteAtPosition(0).getId();
+        this.arrivalTime = v.getArrivalTime(timeUnit);
+        this.arrivalEdgeId = v.getEdgeOfRouteAtPosition(v.getRoute().size() - 1).getId();
+        this.duration = v.getTravelTime(timeUnit);
+        this.routeLength = v.getRouteLength();
+        this.nbWaitSteps = v.getNbTotSlotsInSamePosition();
+    }
+
+    /**
+     * Returns the id of the Vehicle of the trip.
+     *
+     * @return the id of the Vehicle of the trip
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the id of the VehicleType of the Vehicle of the trip.
+     *
+     * @return the id of the VehicleType of the Vehicle of the trip
+     */
+    public String getvType() {
+        return vType;
+    }
+
+    /**
+     * Returns the departure time of the trip in seconds.
+     *
+     * @return the departure time of the trip in seconds
+     */
+    public double getDepartureTime() {
+        return departureTime;
+    }
+
+    /**
+     * Returns the id of the departure Edge of the trip.
+     *
+     * @return the id of the departure Edge of the trip
+     */
+    public String getDepartureEdgeId() {
+        return departureEdgeId;
+    }
+
+    /**
+     * Returns the arrival time of the trip in seconds.
+     *
+     * @return the arrival time of the trip in seconds
+     */
+    public double getArrivalTime() {
+        return arrivalTime;
+    }
+
+    /**
+     * Returns the id of the arrival Edge of the trip.
+     *
+     * @return the id of the arrival Edge of the trip
+     */
+    public String getArrivalEdgeId() {
+        return arrivalEdgeId;
+    }
+
+    /**
+     * Returns the duration of the trip in seconds.
+     *
+     * @return the duration of the trip in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the length of the route of the trip in meters.
+     *
+     * @return the length of the route of the trip in meters
+     */
+    public double getRouteLength() {
+        return routeLength;
+    }
+
+    /**
+     * Returns the number of steps the Vehicle had to wait during the trip.
+     *
+     * @return the number of steps the Vehicle had to wait during the trip
+     */
+    public int getNbWaitSteps() {
+        return nbWaitSteps;
+    }
+
+}
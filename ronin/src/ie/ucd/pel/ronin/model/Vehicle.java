@@ -16,6 +16,9 @@
  */
 package ie.ucd.pel.ronin.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -31,6 +34,13 @@ import java.util.Objects;
  * new created and added to the simulation) * not departed (the vehicle is
  * waiting to start its trip) * running (the vehicle has started its trip and is
  * not arrived) * arrived (the vehicle has reached its destination)
+ *
+ * The state of a Vehicle that changes during the simulation (departure time,
+ * travel time, position and slots in same position) is stored in a row of
+ * VehicleStateColumns. The rows of the vehicles of a Network are in the
+ * columns of its store of vehicles. A Vehicle that is not in a Network only
+ * keeps its departure time, until its state changes: it then gets its own
+ * columns with one row.
  */
 public class Vehicle implements Serializable {
 
@@ -40,65 +50,55 @@ public class Vehicle implements Serializable {
     private final String id;
 
     /**
-     * The id of the type of this Vehicle.
-     */
-    private final String vType;
-
-    /**
-     * The time of the trip of this Vehicle from its origin to its destination
-     * in seconds.
+     * The dense index of this Vehicle in the Network it belongs to, or -1 if
+     * this Vehicle has not been added to a Network.
      */
-    private Double travelTime;
+    private transient int index;
 
     /**
-     * The timestamp in seconds when the Vehicle starts its trip.
+     * The id of the type of this Vehicle.
      */
-    private final Double departureTime;
+    private final String vType;
 
     /**
      * The maximum speed this Vehicle can drive in m/s.
      */
-    private final Double maxSpeed;
+    private final double maxSpeed;
 
     /**
      * The length of this Vehicle in meter.
      */
-    private final Double length;
+    private final double length;
 
     /**
      * The list of Edges this Vehicle has to go through to join its destination
-     * from its origin.
-     */
-    private final List<Edge> route;
-
-    /**
-     * The position of this Vehicle on its route.
+     * from its origin. It is a Route shared with the other Vehicles that go
+     * through the same Edges once the route is interned.
      */
-    private int position;
+    private transient List<Edge> route;
 
     /**
-     * The total number of timeSlots this Vehicle has to stay on the current
-     * edge before going to next Edge.
+     * The length of the route in meter.
      */
-    private int nbTotSlotsInSamePositionForCurrentEdge;
+    private double routeLength;
 
     /**
-     * The number of timeSlots this Vehicle has to stay on its current position
-     * before going to next Edge. While the nbSlotsInSamePosition is not zero,
-     * the vehicle will not be allow to move to the next position.
+     * The columns where the state of this Vehicle is stored, null if this
+     * Vehicle is not in a Network and its state did not change since it was
+     * created.
      */
-    private int nbSlotsInSamePosition;
+    private transient VehicleStateColumns states;
 
     /**
-     * The number total of steps where this vehicle has to stay in the same
-     * position during its trip.
+     * The time this Vehicle starts its trip in seconds, while its state is not
+     * stored in columns.
      */
-    private int nbTotSlotsInSamePosition;
+    private transient double departureTime;
 
     /**
-     * The length of the route in meter.
+     * The row of the state of this Vehicle in its columns.
      */
-    private double routeLength;
+    private transient int row;
 
     /**
      * Constructs and initializes a Vehicle with the specified properties.
@@ -110,14 +110,12 @@ public class Vehicle implements Serializable {
      */
     public Vehicle(String id, Double departureTime, Double maxSpeed, Double length) {
         this.id = id;
-        this.travelTime = 0.0;
+        this.index = -1;
+        this.states = null;
+        this.row = 0;
         this.departureTime = departureTime;
         this.maxSpeed = maxSpeed;
         this.length = length;
-        this.position = 0;
-        this.nbSlotsInSamePosition = 0;
-        this.nbTotSlotsInSamePositionForCurrentEdge = 0;
-        this.nbTotSlotsInSamePosition = 0;
         this.vType = "";
         this.route = new ArrayList<>();
         this.routeLength = 0;
@@ -133,14 +131,12 @@ public class Vehicle implements Serializable {
      */
     public Vehicle(String id, Double departureTime, VehicleType vType) {
         this.id = id;
-        this.travelTime = 0.0;
+        this.index = -1;
+        this.states = null;
+        this.row = 0;
         this.departureTime = departureTime;
         this.maxSpeed = vType.getMaxSpeed();
         this.length = vType.getLength();
-        this.position = 0;
-        this.nbSlotsInSamePosition = 0;
-        this.nbTotSlotsInSamePositionForCurrentEdge = 0;
-        this.nbTotSlotsInSamePosition = 0;
         this.vType = vType.getId();
         this.route = new ArrayList<>();
         this.routeLength = 0;
@@ -155,14 +151,61 @@ public class Vehicle implements Serializable {
         return id;
     }
 
+    /**
+     * Returns the dense index of this Vehicle in its Network, or -1 if this
+     * Vehicle has not been added to a Network.
+     *
+     * @return the dense index of this Vehicle in its Network
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the dense index of this Vehicle in its Network and moves its state
+     * to a row of the columns of the Network. It is set by the Network when
+     * the Vehicle is added to its store of vehicles.
+     *
+     * @param index the dense index of this Vehicle in its Network, that is
+     * also its row in the columns
+     * @param columns the columns where the state of the vehicles of the
+     * Network is stored
+     */
+    void setIndex(int index, VehicleStateColumns columns) {
+        if (states == null) {
+            columns.initRow(index, departureTime);
+        } else {
+            columns.copyRow(states, row, index);
+        }
+        this.index = index;
+        this.states = columns;
+        this.row = index;
+    }
+
+    /**
+     * Returns the columns where the state of this Vehicle is stored, so that
+     * the state can be changed. A Vehicle that is not in a Network gets its
+     * own columns with one row the first time its state changes.
+     *
+     * @return the columns where the state of this Vehicle is stored
+     */
+    private VehicleStateColumns getWritableStates() {
+        if (states == null) {
+            states = new VehicleStateColumns(1);
+            row = 0;
+            states.setDepartureTime(row, departureTime);
+        }
+        return states;
+    }
+
     /**
      * Returns the traveling time in seconds of this Vehicle.
      *
      * @param timeUnit the duration in seconds of a step of the simulation
      * @return the traveling time in seconds of this Vehicle
      */
-    public Double getTravelTime(double timeUnit) {
-        return travelTime;
+    public double getTravelTime(double timeUnit) {
+        return (states == null) ? 0 : states.getTravelTime(row);
     }
 
     /**
@@ -170,8 +213,8 @@ public class Vehicle implements Serializable {
      *
      * @return the departure time in seconds of this Vehicle
      */
-    public Double getDepartureTime() {
-        return departureTime;
+    public double getDepartureTime() {
+        return (states == null) ? departureTime : states.getDepartureTime(row);
     }
 
     /**
@@ -182,11 +225,11 @@ public class Vehicle implements Serializable {
      * @return the arrival time of this Vehicle in seconds; -1 if it is not
      * arrived yet
      */
-    public Double getArrivalTime(double timeUnit) {
+    public double getArrivalTime(double timeUnit) {
         if (!isArrived()) {
             return -1.;
         }
-        return departureTime + getTravelTime(timeUnit);
+        return getDepartureTime() + getTravelTime(timeUnit);
     }
 
     /**
@@ -194,7 +237,7 @@ public class Vehicle implements Serializable {
      *
      * @return the maximum speed in m/s this Vehicle can drive
      */
-    public Double getMaxSpeed() {
+    public double getMaxSpeed() {
         return maxSpeed;
     }
 
@@ -205,10 +248,10 @@ public class Vehicle implements Serializable {
      * @return the speed in m/s of this Vehicle for the current step
      */
     public double getCurrentStepSpeed(double timeStepLength) {
-        if (nbSlotsInSamePosition == 0) {
+        if (getNbSlotsInSamePosition() == 0) {
             return getCurrentEdge().getSpeedLimit();
         }
-        double timeToGoToNextEdge = (nbTotSlotsInSamePositionForCurrentEdge) * timeStepLength;
+        double timeToGoToNextEdge = (states.getNbTotSlotsInSamePositionForCurrentEdge(row)) * timeStepLength;
         double speed = getCurrentEdge().getLength() / timeToGoToNextEdge;
         return speed;
     }
@@ -220,9 +263,11 @@ public class Vehicle implements Serializable {
      * @return the current position of this Vehicle in meter on the current Edge
      */
     public double getPositionOnCurrentEdge(double timeStepLength) {
+        int nbSlotsInSamePosition = getNbSlotsInSamePosition();
         if (nbSlotsInSamePosition == 0) {
             return 0;
         } else {
+            int nbTotSlotsInSamePositionForCurrentEdge = states.getNbTotSlotsInSamePositionForCurrentEdge(row);
             double timeToGoToNextEdge = (nbTotSlotsInSamePositionForCurrentEdge) * timeStepLength;
             double factor = ((nbTotSlotsInSamePositionForCurrentEdge - nbSlotsInSamePosition) / nbTotSlotsInSamePositionForCurrentEdge);
             double positionOnCurrentEdge = getCurrentEdge().getLength() * factor;
@@ -230,12 +275,51 @@ public class Vehicle implements Serializable {
         }
     }
 
+    /**
+     * Returns the end (excluded) of the positions of the route where this
+     * Vehicle may be during a step, if it goes through the edges at their min
+     * travel time from its current position. The vehicle may be on the edges
+     * of the route from its current position to this end. The final edge of
+     * the route is never considered.
+     *
+     * @param timeStepLength the duration in second of a time step
+     * @return the end (excluded) of the positions of the route where this
+     * Vehicle may be during a step
+     */
+    public int getEndOfEstimatedPositions(double timeStepLength) {
+        double time = 0.0;
+        int iCurrentPosition = getPosition();
+        int end = iCurrentPosition;
+
+        //the interned routes find the end with their cumulative min travel times
+        if (route instanceof Route && timeStepLength > 0 && iCurrentPosition < route.size() - 1) {
+            int endOfMinTravelTime = ((Route) route).getEndOfMinTravelTime(iCurrentPosition, timeStepLength);
+            if (endOfMinTravelTime >= 0) {
+                return Math.min(endOfMinTravelTime, route.size() - 1);
+            }
+        }
+
+        //while we have enough time to move 
+        //and while we are not arrived, we can move.
+        while (time < timeStepLength && iCurrentPosition < route.size() - 1) {
+            end = iCurrentPosition + 1;
+            time += route.get(iCurrentPosition).getMinTravelTime();
+
+            //if we have enough time to go through this edge, we go to the next edge
+            if (time < timeStepLength) {
+                iCurrentPosition += 1;
+            }
+        }
+
+        return end;
+    }
+
     /**
      * Returns the length of this Vehicle in meter.
      *
      * @return the length of this Vehicle in meter
      */
-    public Double getLength() {
+    public double getLength() {
         return length;
     }
 
@@ -244,7 +328,7 @@ public class Vehicle implements Serializable {
      *
      * @return the length of the route of this Vehicle in meter
      */
-    public Double getRouteLength() {
+    public double getRouteLength() {
         return routeLength;
     }
 
@@ -263,9 +347,37 @@ public class Vehicle implements Serializable {
      * @return the non modifiable route of this Vehicle that is a list of Edges
      */
     public List<Edge> getRoute() {
+        if (route instanceof Route) {
+            return route;
+        }
         return Collections.unmodifiableList(route);
     }
 
+    /**
+     * Sets the route of this Vehicle to an interned Route.
+     *
+     * @param route the interned Route of this Vehicle
+     */
+    public void setRoute(Route route) {
+        this.route = route;
+        this.routeLength = route.getLength();
+    }
+
+    /**
+     * Returns the dense index of the Edge at the index position of the route
+     * of this Vehicle.
+     *
+     * @param position the index of the wanted edge in the route of this Vehicle
+     * @return the dense index of the Edge at the index position of the route of
+     * this Vehicle
+     */
+    public int getEdgeIndexOfRouteAtPosition(int position) {
+        if (route instanceof Route) {
+            return ((Route) route).getEdgeIndex(position);
+        }
+        return route.get(position).getIndex();
+    }
+
     /**
      * Returns the Edge at the index position of the route of this Vehicle.
      *
@@ -282,6 +394,7 @@ public class Vehicle implements Serializable {
      * @return the current edge where this Vehicle is located
      */
     public Edge getCurrentEdge() {
+        int position = getPosition();
         if (position < 0) {
             System.out.println("position : " + position);
             System.out.println("idVeh : " + id);
@@ -300,7 +413,7 @@ public class Vehicle implements Serializable {
      * @return the position of this Vehicle in its route
      */
     public int getPosition() {
-        return position;
+        return (states == null) ? 0 : states.getPosition(row);
     }
 
     /**
@@ -311,7 +424,7 @@ public class Vehicle implements Serializable {
      * same position during its trip
      */
     public int getNbTotSlotsInSamePosition() {
-        return nbTotSlotsInSamePosition;
+        return (states == null) ? 0 : states.getNbTotSlotsInSamePosition(row);
     }
 
     /**
@@ -322,7 +435,7 @@ public class Vehicle implements Serializable {
      * position.
      */
     public int getNbSlotsInSamePosition() {
-        return nbSlotsInSamePosition;
+        return (states == null) ? 0 : states.getNbSlotsInSamePosition(row);
     }
 
     /**
@@ -334,19 +447,26 @@ public class Vehicle implements Serializable {
      * the current position of this Vehicle.
      */
     public void setPosition(int position) {
-        if (position < this.position) {
-            if (this.position >= this.route.size()) {
-                this.position = this.route.size() - 1;
-            } else {
-                throw new IllegalArgumentException("Error : a vehicle cannot move to a previous position. In the worst case, it stays at the same position.");
-            }
+        if (position < getPosition() && getPosition() < this.route.size()) {
+            throw new IllegalArgumentException("Error : a vehicle cannot move to a previous position. In the worst case, it stays at the same position.");
         }
-        this.position = position;
+        updatePosition(position);
+    }
 
+    /**
+     * Sets the new position of this Vehicle, bounded by the last position of
+     * its route.
+     *
+     * @param position the new position of this Vehicle
+     */
+    private void updatePosition(int position) {
+        VehicleStateColumns columns = getWritableStates();
         if (this.route.isEmpty()) {
-            this.position = 0;
-        } else if (this.position >= this.route.size()) {
-            this.position = this.route.size() - 1;
+            columns.setPosition(row, 0);
+        } else if (position >= this.route.size()) {
+            columns.setPosition(row, this.route.size() - 1);
+        } else {
+            columns.setPosition(row, position);
         }
     }
 
@@ -362,16 +482,19 @@ public class Vehicle implements Serializable {
             throw new IllegalArgumentException("The new value for the jam penality of a Vehicle cannot be negative.");
         }
 
+        VehicleStateColumns columns = getWritableStates();
+
         // Normally, we use this method to set the number of slots we have to 
         // stay on this position, not to increase or decrease this number.
-        this.nbTotSlotsInSamePositionForCurrentEdge = nbSlotsInSamePosition;
+        columns.setNbTotSlotsInSamePositionForCurrentEdge(row, nbSlotsInSamePosition);
 
         //if we increase the number of slots in the same position, we increase the number tot of slots in the same position.
-        if (nbSlotsInSamePosition > this.nbSlotsInSamePosition) {
-            nbTotSlotsInSamePosition += nbSlotsInSamePosition - this.nbSlotsInSamePosition;
+        int previousNbSlotsInSamePosition = columns.getNbSlotsInSamePosition(row);
+        if (nbSlotsInSamePosition > previousNbSlotsInSamePosition) {
+            columns.setNbTotSlotsInSamePosition(row, columns.getNbTotSlotsInSamePosition(row) + nbSlotsInSamePosition - previousNbSlotsInSamePosition);
         }
 
-        this.nbSlotsInSamePosition = nbSlotsInSamePosition;
+        columns.setNbSlotsInSamePosition(row, nbSlotsInSamePosition);
     }
 
     /**
@@ -384,6 +507,9 @@ public class Vehicle implements Serializable {
         if (e == null) {
             return false;
         }
+        if (route instanceof Route) {
+            route = new ArrayList<>(route);
+        }
         route.add(e);
         routeLength += e.getLength();
         return true;
@@ -399,13 +525,7 @@ public class Vehicle implements Serializable {
         if (number < 0) {
             throw new IllegalArgumentException("Error : we can only increase the position of a vehicle by a positive number.");
         }
-        this.position += number;
-
-        if (this.route.isEmpty()) {
-            this.position = 0;
-        } else if (this.position >= this.route.size()) {
-            this.position = this.route.size() - 1;
-        }
+        updatePosition(getPosition() + number);
     }
 
     /**
@@ -420,8 +540,9 @@ public class Vehicle implements Serializable {
         if (number < 0) {
             throw new IllegalArgumentException("The number of time slots to increase the jam penality of a Vehicle cannot be negative.");
         }
-        this.nbSlotsInSamePosition += number;
-        this.nbTotSlotsInSamePosition += number;
+        VehicleStateColumns columns = getWritableStates();
+        columns.setNbSlotsInSamePosition(row, columns.getNbSlotsInSamePosition(row) + number);
+        columns.setNbTotSlotsInSamePosition(row, columns.getNbTotSlotsInSamePosition(row) + number);
     }
 
     /**
@@ -434,7 +555,8 @@ public class Vehicle implements Serializable {
         if (timeToAddInSeconds < 0) {
             throw new IllegalArgumentException("We cannot add a negative time to the traveling time : " + timeToAddInSeconds);
         }
-        this.travelTime += timeToAddInSeconds;
+        VehicleStateColumns columns = getWritableStates();
+        columns.setTravelTime(row, columns.getTravelTime(row) + timeToAddInSeconds);
     }
 
     /**
@@ -449,11 +571,8 @@ public class Vehicle implements Serializable {
         if (number < 0) {
             throw new IllegalArgumentException("The number of time slots to increase the jam penality of a Vehicle cannot be negative.");
         }
-        this.nbSlotsInSamePosition -= number;
-
-        if (this.nbSlotsInSamePosition < 0) {
-            this.nbSlotsInSamePosition = 0;
-        }
+        VehicleStateColumns columns = getWritableStates();
+        columns.setNbSlotsInSamePosition(row, Math.max(0, columns.getNbSlotsInSamePosition(row) - number));
     }
 
     /**
@@ -466,7 +585,7 @@ public class Vehicle implements Serializable {
         if (route.isEmpty()) {
             return true;
         }
-        return position == route.size() - 1;
+        return getPosition() == route.size() - 1;
     }
 
     /**
@@ -504,4 +623,55 @@ public class Vehicle implements Serializable {
         return Objects.equals(this.id, other.id);
     }
 
+    /**
+     * Writes this Vehicle in a stream. The route and the state of the Vehicle
+     * are written after its other properties, because the route may be shared
+     * with other Vehicles and the state is stored out of the Vehicle.
+     *
+     * @param out the stream where to write this Vehicle
+     * @throws IOException if an I/O error occurs
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(new ArrayList<>(route));
+        out.writeDouble(getDepartureTime());
+        out.writeDouble(getTravelTime(0));
+        out.writeInt(getPosition());
+        out.writeInt(getNbSlotsInSamePosition());
+        out.writeInt((states == null) ? 0 : states.getNbTotSlotsInSamePositionForCurrentEdge(row));
+        out.writeInt(getNbTotSlotsInSamePosition());
+    }
+
+    /**
+     * Reads a Vehicle from a stream. The read Vehicle is not in a Network, its
+     * state is only stored in its own columns if it is not the initial state.
+     *
+     * @param in the stream where to read this Vehicle
+     * @throws IOException if an I/O error occurs
+     * @throws ClassNotFoundException if the class of a property is not found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        route = (List<Edge>) in.readObject();
+        index = -1;
+        states = null;
+        row = 0;
+        departureTime = in.readDouble();
+        double travelTime = in.readDouble();
+        int position = in.readInt();
+        int nbSlotsInSamePosition = in.readInt();
+        int nbTotSlotsInSamePositionForCurrentEdge = in.readInt();
+        int nbTotSlotsInSamePosition = in.readInt();
+        if (travelTime != 0 || position != 0 || nbSlotsInSamePosition != 0
+                || nbTotSlotsInSamePositionForCurrentEdge != 0 || nbTotSlotsInSamePosition != 0) {
+            VehicleStateColumns columns = getWritableStates();
+            columns.setTravelTime(row, travelTime);
+            columns.setPosition(row, position);
+            columns.setNbSlotsInSamePosition(row, nbSlotsInSamePosition);
+            columns.setNbTotSlotsInSamePositionForCurrentEdge(row, nbTotSlotsInSamePositionForCurrentEdge);
+            columns.setNbTotSlotsInSamePosition(row, nbTotSlotsInSamePosition);
+        }
+    }
+
 }
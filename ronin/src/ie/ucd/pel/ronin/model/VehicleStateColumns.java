@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.Arrays;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Column-oriented storage of the state of vehicles that changes during a
+ * simulation (departure time, travel time, position and slots in same
+ * position). The state of each vehicle is a row of primitive arrays, so that
+ * the vehicles of a Network are stored next to each other and without boxing.
+ * The Vehicles are views over their row.
+ */
+public class VehicleStateColumns {
+
+    /**
+     * The timestamp in seconds when each vehicle starts its trip, indexed by
+     * row.
+     */
+    private double[] departureTimes;
+
+    /**
+     * The time of the trip of each vehicle from its origin in seconds, indexed
+     * by row.
+     */
+    private double[] travelTimes;
+
+    /**
+     * The position of each vehicle on its route, indexed by row.
+     */
+    private int[] positions;
+
+    /**
+     * The number of timeSlots each vehicle has to stay on its current position
+     * before going to next Edge, indexed by row.
+     */
+    private int[] nbSlotsInSamePosition;
+
+    /**
+     * The total number of timeSlots each vehicle has to stay on the current
+     * edge before going to next Edge, indexed by row.
+     */
+    private int[] nbTotSlotsInSamePositionForCurrentEdge;
+
+    /**
+     * The number total of steps where each vehicle has to stay in the same
+     * position during its trip, indexed by row.
+     */
+    private int[] nbTotSlotsInSamePosition;
+
+    /**
+     * Constructs and initializes VehicleStateColumns with a number of rows
+     * filled with zeros.
+     *
+     * @param nbRows the number of rows
+     */
+    public VehicleStateColumns(int nbRows) {
+        this.departureTimes = new double[nbRows];
+        this.travelTimes = new double[nbRows];
+        this.positions = new int[nbRows];
+        this.nbSlotsInSamePosition = new int[nbRows];
+        this.nbTotSlotsInSamePositionForCurrentEdge = new int[nbRows];
+        this.nbTotSlotsInSamePosition = new int[nbRows];
+    }
+
+    /**
+     * Returns the number of rows of these columns.
+     *
+     * @return the number of rows of these columns
+     */
+    public int getNbRows() {
+        return positions.length;
+    }
+
+    /**
+     * Makes sure that these columns have at least a number of rows. The new
+     * rows are filled with zeros.
+     *
+     * @param nbRows the minimum number of rows
+     */
+    public void ensureCapacity(int nbRows) {
+        if (nbRows <= positions.length) {
+            return;
+        }
+        int capacity = Math.max(nbRows, 2 * positions.length);
+        departureTimes = Arrays.copyOf(departureTimes, capacity);
+        travelTimes = Arrays.copyOf(travelTimes, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        nbSlotsInSamePosition = Arrays.copyOf(nbSlotsInSamePosition, capacity);
+        nbTotSlotsInSamePositionForCurrentEdge = Arrays.copyOf(nbTotSlotsInSamePositionForCurrentEdge, capacity);
+        nbTotSlotsInSamePosition = Arrays.copyOf(nbTotSlotsInSamePosition, capacity);
+    }
+
+    /**
+     * Copies a row of other columns in a row of these columns.
+     *
+     * @param from the columns to copy the row from
+     * @param fromRow the row to copy
+     * @param toRow the row of these columns where to copy the row
+     */
+    public void copyRow(VehicleStateColumns from, int fromRow, int toRow) {
+        departureTimes[toRow] = from.departureTimes[fromRow];
+        travelTimes[toRow] = from.travelTimes[fromRow];
+        positions[toRow] = from.positions[fromRow];
+        nbSlotsInSamePosition[toRow] = from.nbSlotsInSamePosition[fromRow];
+        nbTotSlotsInSamePositionForCurrentEdge[toRow] = from.nbTotSlotsInSamePositionForCurrentEdge[fromRow];
+        nbTotSlotsInSamePosition[toRow] = from.nbTotSlotsInSamePosition[fromRow];
+    }
+
+    /**
+     * Initializes a row of these columns with the initial state of a vehicle:
+     * only its departure time is set, the rest of the row is filled with
+     * zeros.
+     *
+     * @param row the row of the vehicle
+     * @param departureTime the departure time in seconds of the vehicle
+     */
+    public void initRow(int row, double departureTime) {
+        departureTimes[row] = departureTime;
+        travelTimes[row] = 0;
+        positions[row] = 0;
+        nbSlotsInSamePosition[row] = 0;
+        nbTotSlotsInSamePositionForCurrentEdge[row] = 0;
+        nbTotSlotsInSamePosition[row] = 0;
+    }
+
+    /**
+     * Returns the departure time in seconds of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @return the departure time in seconds of the vehicle
+     */
+    public double getDepartureTime(int row) {
+        return departureTimes[row];
+    }
+
+    /**
+     * Sets the departure time in seconds of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @param departureTime the departure time in seconds of the vehicle
+     */
+    public void setDepartureTime(int row, double departureTime) {
+        departureTimes[row] = departureTime;
+    }
+
+    /**
+     * Returns the travel time in seconds of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @return the travel time in seconds of the vehicle
+     */
+    public double getTravelTime(int row) {
+        return travelTimes[row];
+    }
+
+    /**
+     * Sets the travel time in seconds of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @param travelTime the travel time in seconds of the vehicle
+     */
+    public void setTravelTime(int row, double travelTime) {
+        travelTimes[row] = travelTime;
+    }
+
+    /**
+     * Returns the position on its route of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @return the position on its route of the vehicle
+     */
+    public int getPosition(int row) {
+        return positions[row];
+    }
+
+    /**
+     * Sets the position on its route of the vehicle of a row.
+     *
+     * @param row the row of the vehicle
+     * @param position the position on its route of the vehicle
+     */
+    public void setPosition(int row, int position) {
+        positions[row] = position;
+    }
+
+    /**
+     * Returns the number of time slots the vehicle of a row has to stay on its
+     * current position.
+     *
+     * @param row the row of the vehicle
+     * @return the number of time slots the vehicle has to stay on its current
+     * position
+     */
+    public int getNbSlotsInSamePosition(int row) {
+        return nbSlotsInSamePosition[row];
+    }
+
+    /**
+     * Sets the number of time slots the vehicle of a row has to stay on its
+     * current position.
+     *
+     * @param row the row of the vehicle
+     * @param nbSlots the number of time slots the vehicle has to stay on its
+     * current position
+     */
+    public void setNbSlotsInSamePosition(int row, int nbSlots) {
+        nbSlotsInSamePosition[row] = nbSlots;
+    }
+
+    /**
+     * Returns the total number of time slots the vehicle of a row has to stay
+     * on its current edge.
+     *
+     * @param row the row of the vehicle
+     * @return the total number of time slots the vehicle has to stay on its
+     * current edge
+     */
+    public int getNbTotSlotsInSamePositionForCurrentEdge(int row) {
+        return nbTotSlotsInSamePositionForCurrentEdge[row];
+    }
+
+    /**
+     * Sets the total number of time slots the vehicle of a row has to stay on
+     * its current edge.
+     *
+     * @param row the row of the vehicle
+     * @param nbSlots the total number of time slots the vehicle has to stay on
+     * its current edge
+     */
+    public void setNbTotSlotsInSamePositionForCurrentEdge(int row, int nbSlots) {
+        nbTotSlotsInSamePositionForCurrentEdge[row] = nbSlots;
+    }
+
+    /**
+     * Returns the number total of steps where the vehicle of a row has to stay
+     * in the same position during its trip.
+     *
+     * @param row the row of the vehicle
+     * @return the number total of steps where the vehicle has to stay in the
+     * same position during its trip
+     */
+    public int getNbTotSlotsInSamePosition(int row) {
+        return nbTotSlotsInSamePosition[row];
+    }
+
+    /**
+     * Sets the number total of steps where the vehicle of a row has to stay in
+     * the same position during its trip.
+     *
+     * @param row the row of the vehicle
+     * @param nbSlots the number total of steps where the vehicle has to stay in
+     * the same position during its trip
+     */
+    public void setNbTotSlotsInSamePosition(int row, int nbSlots) {
+        nbTotSlotsInSamePosition[row] = nbSlots;
+    }
+
+}
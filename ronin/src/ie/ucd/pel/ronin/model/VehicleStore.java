@@ -0,0 +1,515 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Store of the vehicles of a Network that keeps the lifecycle state of each
+ * vehicle (loaded, not departed, running or arrived). The vehicles are
+ * indexed by their dense index and mapped on their id, so that a vehicle is
+ * found, removed or moved to another state in constant time. The vehicles of
+ * each state are kept in a doubly linked list made of arrays of dense
+ * indexes, in the order they entered the state: the running vehicles are thus
+ * iterated by departure time. The state of the vehicles that changes during
+ * the simulation is stored in columns indexed by the dense index of the
+ * vehicles.
+ */
+public class VehicleStore {
+
+    /**
+     * The lifecycle states of a vehicle in the store.
+     */
+    public enum State {
+        /**
+         * The vehicle is not in the store.
+         */
+        NONE,
+        /**
+         * The vehicle is loaded during the current step.
+         */
+        LOADED,
+        /**
+         * The vehicle waits for its departure time.
+         */
+        NOT_DEPARTED,
+        /**
+         * The vehicle is running in the network.
+         */
+        RUNNING,
+        /**
+         * The vehicle is arrived.
+         */
+        ARRIVED
+    }
+
+    /**
+     * The value of a link to no vehicle.
+     */
+    private static final int NO_VEHICLE = -1;
+
+    /**
+     * The vehicles of the store mapped on their ids.
+     */
+    private final Map<String, Vehicle> vehiclesById;
+
+    /**
+     * The vehicles of the store indexed by their dense index.
+     */
+    private Vehicle[] vehicles;
+
+    /**
+     * The columns where the state of the vehicles that changes during the
+     * simulation is stored, indexed by the dense index of the vehicles.
+     */
+    private final VehicleStateColumns columns;
+
+    /**
+     * The state of each vehicle, indexed by the dense index of the vehicles.
+     */
+    private State[] states;
+
+    /**
+     * The dense index of the previous vehicle in the same state, indexed by
+     * the dense index of the vehicles.
+     */
+    private int[] previous;
+
+    /**
+     * The dense index of the next vehicle in the same state, indexed by the
+     * dense index of the vehicles.
+     */
+    private int[] next;
+
+    /**
+     * The dense index of the first vehicle of each state, indexed by the
+     * ordinal of the states.
+     */
+    private final int[] heads;
+
+    /**
+     * The dense index of the last vehicle of each state, indexed by the
+     * ordinal of the states.
+     */
+    private final int[] tails;
+
+    /**
+     * The number of vehicles of each state, indexed by the ordinal of the
+     * states.
+     */
+    private final int[] sizes;
+
+    /**
+     * The dense index that will be given to the next vehicle added to this
+     * store.
+     */
+    private int nextVehicleIndex;
+
+    /**
+     * Constructs and initializes an empty VehicleStore.
+     */
+    public VehicleStore() {
+        this.vehiclesById = new HashMap<>();
+        this.vehicles = new Vehicle[0];
+        this.columns = new VehicleStateColumns(0);
+        this.states = new State[0];
+        this.previous = new int[0];
+        this.next = new int[0];
+        this.heads = new int[State.values().length];
+        this.tails = new int[State.values().length];
+        this.sizes = new int[State.values().length];
+        Arrays.fill(heads, NO_VEHICLE);
+        Arrays.fill(tails, NO_VEHICLE);
+        this.nextVehicleIndex = 0;
+    }
+
+    /**
+     * Returns the number of dense indexes given to the vehicles of this store.
+     *
+     * @return the number of dense indexes given to the vehicles of this store
+     */
+    public int getNbVehiclesIndexes() {
+        return nextVehicleIndex;
+    }
+
+    /**
+     * Returns the number of vehicles in a state.
+     *
+     * @param state the state
+     * @return the number of vehicles in this state
+     */
+    public int size(State state) {
+        return sizes[state.ordinal()];
+    }
+
+    /**
+     * Returns the vehicle of this store with a specific id.
+     *
+     * @param idVehicle the id of the vehicle
+     * @return the vehicle with this id. Returns null if not found.
+     */
+    public Vehicle getVehicle(String idVehicle) {
+        return vehiclesById.get(idVehicle);
+    }
+
+    /**
+     * Returns the vehicle of this store with a specific id if it is in a
+     * specific state.
+     *
+     * @param idVehicle the id of the vehicle
+     * @param state the state of the vehicle
+     * @return the vehicle with this id. Returns null if not found or if the
+     * vehicle is in another state.
+     */
+    public Vehicle getVehicle(String idVehicle, State state) {
+        Vehicle v = vehiclesById.get(idVehicle);
+        return (v != null && getState(v) == state) ? v : null;
+    }
+
+    /**
+     * Returns the state of a vehicle.
+     *
+     * @param v the vehicle
+     * @return the state of the vehicle, NONE if it is not in this store
+     */
+    public State getState(Vehicle v) {
+        int index = v.getIndex();
+        if (index < 0 || index >= nextVehicleIndex || vehicles[index] != v) {
+            return State.NONE;
+        }
+        return states[index];
+    }
+
+    /**
+     * Puts a vehicle in a state, after the vehicles that are already in this
+     * state. If the vehicle is not in this store, it is added and it gets its
+     * dense index if it does not have one yet. If the vehicle was in another
+     * state, it is moved from that state.
+     *
+     * @param v the vehicle
+     * @param state the new state of the vehicle, it must not be NONE
+     */
+    public void setState(Vehicle v, State state) {
+        if (state == State.NONE) {
+            throw new IllegalArgumentException("Error : a vehicle can not be put in the state NONE, it must be removed.");
+        }
+        State currentState = getState(v);
+        if (currentState == State.NONE) {
+            add(v);
+        } else if (currentState == state) {
+            return;
+        } else {
+            unlink(v.getIndex(), currentState);
+        }
+        link(v.getIndex(), state);
+    }
+
+    /**
+     * Removes a vehicle from this store. Its dense index is not given to
+     * another vehicle.
+     *
+     * @param v the vehicle to remove
+     * @return true if the vehicle was in this store; false otherwise
+     */
+    public boolean remove(Vehicle v) {
+        State currentState = getState(v);
+        if (currentState == State.NONE) {
+            return false;
+        }
+        unlink(v.getIndex(), currentState);
+        states[v.getIndex()] = State.NONE;
+        vehicles[v.getIndex()] = null;
+        vehiclesById.remove(v.getId(), v);
+        return true;
+    }
+
+    /**
+     * Returns a view of the vehicles in a state, in the order they entered
+     * the state. A vehicle returned by the iterators of the view can be moved
+     * to another state during the iteration. Removing a vehicle with the
+     * iterators of the view removes it from this store. The view is a linked
+     * list: its iterators go forward and backward in constant time, but the
+     * access to a vehicle by its position in the list is linear.
+     *
+     * @param state the state of the vehicles
+     * @return a view of the vehicles in this state
+     */
+    public List<Vehicle> getVehicles(State state) {
+        return new StateView(state);
+    }
+
+    /**
+     * Adds a vehicle to this store without state and gives it a dense index if
+     * it does not have one yet. The state of the vehicle is moved to the
+     * columns of this store.
+     *
+     * @param v the vehicle to add
+     */
+    private void add(Vehicle v) {
+        int index = v.getIndex();
+        if (index < 0 || index >= nextVehicleIndex || vehicles[index] != null) {
+            index = nextVehicleIndex++;
+        }
+        columns.ensureCapacity(index + 1);
+        v.setIndex(index, columns);
+        if (index >= vehicles.length) {
+            int capacity = Math.max(16, 2 * vehicles.length);
+            vehicles = Arrays.copyOf(vehicles, capacity);
+            states = Arrays.copyOf(states, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            next = Arrays.copyOf(next, capacity);
+        }
+        vehicles[index] = v;
+        vehiclesById.put(v.getId(), v);
+    }
+
+    /**
+     * Appends a vehicle to the list of a state.
+     *
+     * @param index the dense index of the vehicle
+     * @param state the state
+     */
+    private void link(int index, State state) {
+        int iState = state.ordinal();
+        states[index] = state;
+        previous[index] = tails[iState];
+        next[index] = NO_VEHICLE;
+        if (tails[iState] == NO_VEHICLE) {
+            heads[iState] = index;
+        } else {
+            next[tails[iState]] = index;
+        }
+        tails[iState] = index;
+        sizes[iState]++;
+    }
+
+    /**
+     * Removes a vehicle from the list of a state.
+     *
+     * @param index the dense index of the vehicle
+     * @param state the state of the vehicle
+     */
+    private void unlink(int index, State state) {
+        int iState = state.ordinal();
+        if (previous[index] == NO_VEHICLE) {
+            heads[iState] = next[index];
+        } else {
+            next[previous[index]] = next[index];
+        }
+        if (next[index] == NO_VEHICLE) {
+            tails[iState] = previous[index];
+        } else {
+            previous[next[index]] = previous[index];
+        }
+        sizes[iState]--;
+    }
+
+    /**
+     * View of the vehicles of a state.
+     */
+    private class StateView extends AbstractSequentialList<Vehicle> {
+
+        /**
+         * The state of the vehicles of this view.
+         */
+        private final State state;
+
+        /**
+         * Constructs a view of the vehicles of a state.
+         *
+         * @param state the state of the vehicles
+         */
+        private StateView(State state) {
+            this.state = state;
+        }
+
+        @Override
+        public int size() {
+            return sizes[state.ordinal()];
+        }
+
+        @Override
+        public ListIterator<Vehicle> listIterator(int index) {
+            if (index < 0 || index > size()) {
+                throw new IndexOutOfBoundsException("Error : index " + index + " out of the view of size " + size());
+            }
+            //the iterator starts from the closest end of the list
+            int size = size();
+            if (index <= size / 2) {
+                StateIterator iter = new StateIterator(state, heads[state.ordinal()], 0);
+                for (int i = 0; i < index; i++) {
+                    iter.next();
+                }
+                return iter;
+            }
+            StateIterator iter = new StateIterator(state, NO_VEHICLE, size);
+            for (int i = size; i > index; i--) {
+                iter.previous();
+            }
+            return iter;
+        }
+
+    }
+
+    /**
+     * Iterator over the vehicles of a state. The next vehicle is read before
+     * the current one is returned, so that the current vehicle can be moved
+     * to another state during the iteration. The previous vehicle is read from
+     * the links of the next one, so that the iterator can go backward. The
+     * vehicles can not be replaced or added through the iterator, they enter
+     * a state with setState.
+     */
+    private class StateIterator implements ListIterator<Vehicle> {
+
+        /**
+         * The state of the iterated vehicles.
+         */
+        private final State state;
+
+        /**
+         * The dense index of the vehicle returned by the next call to next.
+         */
+        private int nextIndex;
+
+        /**
+         * The dense index of the vehicle returned by the last call to next or
+         * previous.
+         */
+        private int lastIndex;
+
+        /**
+         * True if the last vehicle was returned by next, false if it was
+         * returned by previous.
+         */
+        private boolean isLastForward;
+
+        /**
+         * The position of the iterator in the list.
+         */
+        private int position;
+
+        /**
+         * Constructs an iterator over the vehicles of a state.
+         *
+         * @param state the state of the vehicles
+         * @param nextIndex the dense index of the vehicle returned by the first
+         * call to next, NO_VEHICLE if the iterator is at the end of the list
+         * @param position the position of the iterator in the list
+         */
+        private StateIterator(State state, int nextIndex, int position) {
+            this.state = state;
+            this.nextIndex = nextIndex;
+            this.lastIndex = NO_VEHICLE;
+            this.isLastForward = true;
+            this.position = position;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex != NO_VEHICLE;
+        }
+
+        @Override
+        public Vehicle next() {
+            if (nextIndex == NO_VEHICLE) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = next[nextIndex];
+            isLastForward = true;
+            position++;
+            return vehicles[lastIndex];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return previousLink() != NO_VEHICLE;
+        }
+
+        @Override
+        public Vehicle previous() {
+            int previousIndex = previousLink();
+            if (previousIndex == NO_VEHICLE) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = previousIndex;
+            nextIndex = previousIndex;
+            isLastForward = false;
+            position--;
+            return vehicles[lastIndex];
+        }
+
+        /**
+         * Returns the dense index of the vehicle before the position of this
+         * iterator in the list.
+         *
+         * @return the dense index of the vehicle before the position of this
+         * iterator, NO_VEHICLE if the iterator is at the beginning of the list
+         */
+        private int previousLink() {
+            return (nextIndex == NO_VEHICLE) ? tails[state.ordinal()] : previous[nextIndex];
+        }
+
+        @Override
+        public void remove() {
+            if (lastIndex == NO_VEHICLE) {
+                throw new IllegalStateException();
+            }
+            if (isLastForward) {
+                position--;
+            } else {
+                //the removed vehicle was the next one
+                nextIndex = next[lastIndex];
+            }
+            if (states[lastIndex] == state && vehicles[lastIndex] != null) {
+                VehicleStore.this.remove(vehicles[lastIndex]);
+            }
+            lastIndex = NO_VEHICLE;
+        }
+
+        @Override
+        public int nextIndex() {
+            return position;
+        }
+
+        @Override
+        public int previousIndex() {
+            return position - 1;
+        }
+
+        @Override
+        public void set(Vehicle v) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(Vehicle v) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
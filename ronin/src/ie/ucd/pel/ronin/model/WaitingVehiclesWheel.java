@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Hierarchical timing wheel of the running vehicles that wait on their current
+ * edge (nbSlotsInSamePosition greater than 0). A waiting vehicle is scheduled
+ * for the step at which its waiting ends, so that it is not visited at the
+ * steps where it only waits. The first level of the wheel contains one slot
+ * per step of the current revolution, the second level contains one slot per
+ * following revolution and the vehicles that wait longer are kept in an
+ * overflow map. The wheel also keeps for every edge the number of waiting
+ * vehicles on the edge and the estimated loads of the waiting vehicles, which
+ * are the same at each step of their waiting.
+ */
+public class WaitingVehiclesWheel {
+
+    /**
+     * The number of bits of a step number that give its slot in a level of
+     * the wheel.
+     */
+    private static final int SLOT_BITS = 8;
+
+    /**
+     * The number of slots of each level of the wheel.
+     */
+    private static final int NB_SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * The mask that gives the slot of a step number in a level of the wheel.
+     */
+    private static final int SLOT_MASK = NB_SLOTS - 1;
+
+    /**
+     * The vehicles whose waiting ends at a step of the current revolution,
+     * indexed by the step modulo the number of slots.
+     */
+    private final List<List<Vehicle>> firstLevel;
+
+    /**
+     * The vehicles whose waiting ends during one of the next revolutions,
+     * indexed by the revolution modulo the number of slots.
+     */
+    private final List<List<Vehicle>> secondLevel;
+
+    /**
+     * The vehicles whose waiting ends after the revolutions of the second
+     * level, mapped on the step at which their waiting ends.
+     */
+    private final TreeMap<Integer, List<Vehicle>> overflow;
+
+    /**
+     * The step at which the waiting of each scheduled vehicle ends, indexed by
+     * the dense index of the vehicles.
+     */
+    private int[] dueSteps;
+
+    /**
+     * The next step to poll.
+     */
+    private int currentStep;
+
+    /**
+     * The number of vehicles scheduled in this wheel.
+     */
+    private int nbVehicles;
+
+    /**
+     * The duration in seconds of a time slot, used to estimate the loads of
+     * the waiting vehicles.
+     */
+    private final double timeStepLength;
+
+    /**
+     * The number of scheduled vehicles on each edge, indexed by the dense
+     * index of the edges.
+     */
+    private final int[] nbVehiclesPerEdge;
+
+    /**
+     * The dense indexes of the edges where there is at least one scheduled
+     * vehicle.
+     */
+    private final BitSet edgesWithVehicles;
+
+    /**
+     * The estimated number of scheduled vehicles per edge, indexed by the dense
+     * index of the edges.
+     */
+    private final int[] estimatedLoads;
+
+    /**
+     * The dense indexes of the edges with an estimated load of scheduled
+     * vehicles.
+     */
+    private final BitSet edgesWithEstimatedLoads;
+
+    /**
+     * Constructs and initializes an empty WaitingVehiclesWheel for a graph.
+     *
+     * @param nbEdges the number of edges of the graph
+     * @param timeStepLength the duration in seconds of a time slot
+     */
+    public WaitingVehiclesWheel(int nbEdges, double timeStepLength) {
+        this.firstLevel = new ArrayList<>(NB_SLOTS);
+        this.secondLevel = new ArrayList<>(NB_SLOTS);
+        for (int i = 0; i < NB_SLOTS; i++) {
+            firstLevel.add(new ArrayList<>());
+            secondLevel.add(new ArrayList<>());
+        }
+        this.overflow = new TreeMap<>();
+        this.dueSteps = new int[0];
+        this.currentStep = 0;
+        this.nbVehicles = 0;
+        this.timeStepLength = timeStepLength;
+        this.nbVehiclesPerEdge = new int[nbEdges];
+        this.edgesWithVehicles = new BitSet(nbEdges);
+        this.estimatedLoads = new int[nbEdges];
+        this.edgesWithEstimatedLoads = new BitSet(nbEdges);
+    }
+
+    /**
+     * Returns the number of vehicles scheduled in this wheel.
+     *
+     * @return the number of vehicles scheduled in this wheel
+     */
+    public int getNbVehicles() {
+        return nbVehicles;
+    }
+
+    /**
+     * Schedules a waiting vehicle for the step at which its waiting ends, i.e
+     * its number of slots in same position after the last polled step. The
+     * vehicle is counted on its current edge until it is polled.
+     *
+     * @param v the waiting vehicle. It must have a dense index.
+     */
+    public void schedule(Vehicle v) {
+        if (v.getIndex() < 0 || v.getNbSlotsInSamePosition() <= 0) {
+            throw new IllegalArgumentException("Error : only a waiting vehicle of the network can be scheduled.");
+        }
+        if (v.getIndex() >= dueSteps.length) {
+            dueSteps = Arrays.copyOf(dueSteps, Math.max(v.getIndex() + 1, 2 * dueSteps.length));
+        }
+        int dueStep = currentStep - 1 + v.getNbSlotsInSamePosition();
+        dueSteps[v.getIndex()] = dueStep;
+        place(v, dueStep);
+        nbVehicles++;
+        updateCounts(v, 1);
+    }
+
+    /**
+     * Puts a vehicle in the slot of the wheel that corresponds to the step at
+     * which its waiting ends.
+     *
+     * @param v the vehicle
+     * @param dueStep the step at which the waiting of the vehicle ends
+     */
+    private void place(Vehicle v, int dueStep) {
+        int revolution = dueStep >>> SLOT_BITS;
+        int currentRevolution = currentStep >>> SLOT_BITS;
+        if (revolution == currentRevolution) {
+            firstLevel.get(dueStep & SLOT_MASK).add(v);
+        } else if (revolution - currentRevolution < NB_SLOTS) {
+            secondLevel.get(revolution & SLOT_MASK).add(v);
+        } else {
+            overflow.computeIfAbsent(dueStep, (k) -> new ArrayList<>()).add(v);
+        }
+    }
+
+    /**
+     * Polls the vehicles whose waiting ends at the next step and removes them
+     * from this wheel. Their waiting is not synchronized, the vehicles still
+     * have the number of slots in same position they had when they were
+     * scheduled.
+     *
+     * @param dueVehicles the list where to add the vehicles whose waiting ends
+     * at the next step
+     */
+    public void poll(List<Vehicle> dueVehicles) {
+        if ((currentStep & SLOT_MASK) == 0) {
+            int revolution = currentStep >>> SLOT_BITS;
+            //at the beginning of a revolution, the vehicles of the revolution go to the first level
+            if ((revolution & SLOT_MASK) == 0) {
+                Iterator<Map.Entry<Integer, List<Vehicle>>> iter = overflow.entrySet().iterator();
+                while (iter.hasNext()) {
+                    Map.Entry<Integer, List<Vehicle>> entry = iter.next();
+                    if ((entry.getKey() >>> SLOT_BITS) - revolution >= NB_SLOTS) {
+                        break;
+                    }
+                    entry.getValue().stream().forEach((v) -> {
+                        place(v, entry.getKey());
+                    });
+                    iter.remove();
+                }
+            }
+            List<Vehicle> slot = secondLevel.get(revolution & SLOT_MASK);
+            slot.stream().forEach((v) -> {
+                firstLevel.get(dueSteps[v.getIndex()] & SLOT_MASK).add(v);
+            });
+            slot.clear();
+        }
+
+        List<Vehicle> slot = firstLevel.get(currentStep & SLOT_MASK);
+        slot.stream().forEach((v) -> {
+            updateCounts(v, -1);
+        });
+        nbVehicles -= slot.size();
+        dueVehicles.addAll(slot);
+        slot.clear();
+        currentStep++;
+    }
+
+    /**
+     * Removes a vehicle from this wheel before the end of its waiting. Returns
+     * true if the vehicle was scheduled in this wheel; false otherwise.
+     *
+     * @param v the vehicle to remove
+     * @return true if the vehicle was scheduled in this wheel; false otherwise
+     */
+    public boolean remove(Vehicle v) {
+        if (v.getIndex() < 0 || v.getIndex() >= dueSteps.length) {
+            return false;
+        }
+        int dueStep = dueSteps[v.getIndex()];
+        boolean isRemoved = firstLevel.get(dueStep & SLOT_MASK).remove(v)
+                || secondLevel.get((dueStep >>> SLOT_BITS) & SLOT_MASK).remove(v);
+        if (!isRemoved && overflow.containsKey(dueStep)) {
+            isRemoved = overflow.get(dueStep).remove(v);
+            if (overflow.get(dueStep).isEmpty()) {
+                overflow.remove(dueStep);
+            }
+        }
+        if (isRemoved) {
+            nbVehicles--;
+            updateCounts(v, -1);
+        }
+        return isRemoved;
+    }
+
+    /**
+     * Adds the number of scheduled vehicles per edge to the number of vehicles
+     * per edge of a step.
+     *
+     * @param loads the number of vehicles per edge of the step, indexed by the
+     * dense index of the edges
+     */
+    public void addNbVehiclesPerEdge(int[] loads) {
+        for (int i = edgesWithVehicles.nextSetBit(0); i >= 0; i = edgesWithVehicles.nextSetBit(i + 1)) {
+            loads[i] += nbVehiclesPerEdge[i];
+        }
+    }
+
+    /**
+     * Adds the estimated loads of the scheduled vehicles to the estimated
+     * loads of a step.
+     *
+     * @param loads the estimated number of vehicles per edge of the step,
+     * indexed by the dense index of the edges
+     * @param edges the dense indexes of the edges used during the step
+     */
+    public void addEstimatedLoads(int[] loads, BitSet edges) {
+        for (int i = edgesWithEstimatedLoads.nextSetBit(0); i >= 0; i = edgesWithEstimatedLoads.nextSetBit(i + 1)) {
+            loads[i] += estimatedLoads[i];
+        }
+        edges.or(edgesWithEstimatedLoads);
+    }
+
+    /**
+     * Adds or removes a vehicle from the number of scheduled vehicles per edge
+     * and from the estimated loads of the scheduled vehicles.
+     *
+     * @param v the vehicle
+     * @param delta 1 to add the vehicle, -1 to remove it
+     */
+    private void updateCounts(Vehicle v, int delta) {
+        int iEdge = v.getCurrentEdge().getIndex();
+        nbVehiclesPerEdge[iEdge] += delta;
+        edgesWithVehicles.set(iEdge, nbVehiclesPerEdge[iEdge] != 0);
+
+        int end = v.getEndOfEstimatedPositions(timeStepLength);
+        for (int i = v.getPosition(); i < end; i++) {
+            iEdge = v.getEdgeIndexOfRouteAtPosition(i);
+            estimatedLoads[iEdge] += delta;
+            edgesWithEstimatedLoads.set(iEdge, estimatedLoads[iEdge] != 0);
+        }
+    }
+
+}
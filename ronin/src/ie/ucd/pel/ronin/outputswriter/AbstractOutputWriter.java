@@ -16,11 +16,12 @@
  */
 package ie.ucd.pel.ronin.outputswriter;
 
-import ie.ucd.pel.ronin.utils.XmlParser;
+import ie.ucd.pel.ronin.utils.XmlWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import org.w3c.dom.Document;
 
 /**
  *
@@ -30,6 +31,12 @@ import org.w3c.dom.Document;
  */
 public abstract class AbstractOutputWriter {
 
+    /**
+     * The xml writer of each thread, kept between the output files so that its
+     * buffer is reused from one step to the next.
+     */
+    private static final ThreadLocal<XmlWriter> XML_WRITERS = ThreadLocal.withInitial(XmlWriter::new);
+
     /**
      * The path to the directory of the output of this Writer.
      */
@@ -51,8 +58,8 @@ public abstract class AbstractOutputWriter {
     private final String outputExtension;
 
     /**
-     * Constructs and initializes an AbstractOutputWriter. If the output
-     * directory of this writer does not exist, we create it.
+     * Constructs and initializes an AbstractOutputWriter. The output directory
+     * of this writer is created when the output file is written.
      *
      * @param globalOutputsDirectoryPath the path to the global outputs
      * directory of this simulation.
@@ -70,10 +77,6 @@ public abstract class AbstractOutputWriter {
         this.outputExtension = outputExtension;
 
         Path resultDirectoryPath = Paths.get(globalOutputsDirectoryPath, outputDirectoryName);
-        File resultDirectory = new File(resultDirectoryPath.toString());
-        if (!resultDirectory.exists()) {
-            resultDirectory.mkdirs();
-        }
         this.outputDirectoryPath = resultDirectoryPath.toString();
     }
 
@@ -143,21 +146,42 @@ public abstract class AbstractOutputWriter {
 
     /**
      * Writes the output in an xml file in the output directory of the
-     * application.
+     * application. If the output directory does not exist, we create it.
      */
     public void writeOutputFile() {
 
-        Document doc = getDocElement();
-        File outputFile = new File(getOutputFilePath());
-        XmlParser.writeDomDocIntoFile(doc, outputFile);
+        File resultDirectory = new File(outputDirectoryPath);
+        if (!resultDirectory.exists()) {
+            resultDirectory.mkdirs();
+        }
+
+        XmlWriter xmlWriter = XML_WRITERS.get();
+        xmlWriter.startDocument();
+        writeRootElement(xmlWriter);
+        xmlWriter.endDocument(new File(getOutputFilePath()));
+
+    }
+
+    /**
+     * Writes the output as an xml document into a stream, that is not closed.
+     *
+     * @param out the stream where we want to write the output
+     * @throws IOException if the output can not be written
+     */
+    public void writeOutput(OutputStream out) throws IOException {
+
+        XmlWriter xmlWriter = XML_WRITERS.get();
+        xmlWriter.startDocument();
+        writeRootElement(xmlWriter);
+        xmlWriter.endDocument(out);
 
     }
 
     /**
-     * Creates and returns the DOM document Element of our xml output file.
+     * Writes the root element of our xml output file and its content.
      *
-     * @return the DOM document Element of our xml output file
+     * @param xmlWriter the xml writer of the output file
      */
-    protected abstract Document getDocElement();
+    protected abstract void writeRootElement(XmlWriter xmlWriter);
 
 }
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.outputswriter;
+
+import ie.ucd.pel.ronin.model.Edge;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to write the light loads matrix of a simulation in a single
+ * binary file, far smaller than the xml step files. The file starts with a
+ * header that contains the ids of the Edges once, so that an Edge is then
+ * identified by its dense index. The steps are grouped in blocks of a fixed
+ * number of steps, and each block is compressed with deflate. In a block, a
+ * step is stored as its number of Edges, then the column of the increasing
+ * indexes of its Edges, written as the gaps between them, then the column of
+ * their loads, written as zigzag integers. The first step of a
+ * block contains the Edges whose load is not 0; if the file is delta-encoded,
+ * the next steps of the block only contain the Edges whose load changed, with
+ * the difference to the previous step. The numbers are written as variable
+ * length integers. When the file is closed, an index is appended with the
+ * number and the time slot of each step and the location of each block,
+ * followed by a footer giving the offset of the index.
+ */
+public class BinaryLoadsMatrixWriter {
+
+    /**
+     * The extension of the binary loads matrix files.
+     */
+    public static final String EXTENSION = "blm";
+
+    /**
+     * The magic number at the beginning and at the end of the binary loads
+     * matrix files.
+     */
+    public static final int MAGIC_NUMBER = 0x52424C4D;
+
+    /**
+     * The version of the format of the binary loads matrix files. It must be
+     * increased when the format changes.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    /**
+     * The default number of steps of a block. A step is read by decompressing
+     * its block and decoding the previous steps of the block.
+     */
+    public static final int DEFAULT_NB_STEPS_PER_BLOCK = 64;
+
+    /**
+     * The length in bytes of the footer: the offset of the index, the number
+     * of steps and the magic number.
+     */
+    public static final int FOOTER_LENGTH = 8 + 4 + 4;
+
+    /**
+     * The path to the binary loads matrix file.
+     */
+    private final String filePath;
+
+    /**
+     * The stream of the file, null once the file is closed.
+     */
+    private DataOutputStream out;
+
+    /**
+     * The number of steps of a block.
+     */
+    private final int nbStepsPerBlock;
+
+    /**
+     * If true, the steps that are not the first of their block only contain
+     * the differences to the previous step.
+     */
+    private final boolean isDeltaEncoded;
+
+    /**
+     * The loads of the previous step, indexed by the dense index of the edges.
+     */
+    private final int[] previousLoads;
+
+    /**
+     * The uncompressed content of the current block, reused from one block to
+     * the next.
+     */
+    private byte[] block;
+
+    /**
+     * The length of the uncompressed content of the current block.
+     */
+    private int blockLength;
+
+    /**
+     * The number of steps already written in the current block.
+     */
+    private int nbStepsInBlock;
+
+    /**
+     * The compressor of the blocks.
+     */
+    private final Deflater deflater;
+
+    /**
+     * The buffer of the compressed content of the blocks.
+     */
+    private final byte[] deflateBuffer;
+
+    /**
+     * The number and the time slot of the steps already written.
+     */
+    private final ByteArrayOutputStream stepsIndexBuffer;
+
+    /**
+     * The stream used to write the entries of the index of the steps.
+     */
+    private final DataOutputStream stepsIndex;
+
+    /**
+     * The offset, the compressed length and the length of the blocks already
+     * written.
+     */
+    private final ByteArrayOutputStream blocksIndexBuffer;
+
+    /**
+     * The stream used to write the entries of the index of the blocks.
+     */
+    private final DataOutputStream blocksIndex;
+
+    /**
+     * The number of steps already written.
+     */
+    private int nbSteps;
+
+    /**
+     * The number of the last step written, -1 if there is none.
+     */
+    private int lastStepNumber;
+
+    /**
+     * The offset in the file where the next block will be written.
+     */
+    private long position;
+
+    /**
+     * Constructs and initializes a BinaryLoadsMatrixWriter, creates its file in
+     * the global outputs directory of the simulation and writes the ids of the
+     * edges in it.
+     *
+     * @param globalOutputsDirectoryPath the path to the global outputs
+     * directory of this simulation
+     * @param outputBaseFileName the base name of the file
+     * @param edgesByIndex the edges of the graph ordered by their dense index
+     * @param nbStepsPerBlock the number of steps of a block
+     * @param isDeltaEncoded if true, the steps that are not the first of their
+     * block only contain the differences to the previous step
+     */
+    public BinaryLoadsMatrixWriter(String globalOutputsDirectoryPath, String outputBaseFileName, List<Edge> edgesByIndex, int nbStepsPerBlock, boolean isDeltaEncoded) {
+        if (nbStepsPerBlock < 1) {
+            throw new IllegalArgumentException("Error : the number of steps of a block must be at least 1.");
+        }
+        File directory = new File(globalOutputsDirectoryPath);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        Path path = Paths.get(globalOutputsDirectoryPath, outputBaseFileName + "." + EXTENSION);
+        this.filePath = path.toString();
+        this.nbStepsPerBlock = nbStepsPerBlock;
+        this.isDeltaEncoded = isDeltaEncoded;
+        this.previousLoads = new int[edgesByIndex.size()];
+        this.block = new byte[1 << 16];
+        this.blockLength = 0;
+        this.nbStepsInBlock = 0;
+        this.deflater = new Deflater();
+        this.deflateBuffer = new byte[1 << 16];
+        this.stepsIndexBuffer = new ByteArrayOutputStream();
+        this.stepsIndex = new DataOutputStream(stepsIndexBuffer);
+        this.blocksIndexBuffer = new ByteArrayOutputStream();
+        this.blocksIndex = new DataOutputStream(blocksIndexBuffer);
+        this.nbSteps = 0;
+        this.lastStepNumber = -1;
+
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)));
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nbStepsPerBlock);
+            out.writeBoolean(isDeltaEncoded);
+            out.writeInt(edgesByIndex.size());
+            for (Edge e : edgesByIndex) {
+                byte[] bytes = e.getId().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            this.position = out.size();
+        } catch (IOException ex) {
+            deflater.end();
+            throw new RuntimeException("Error : cannot create the binary loads matrix file " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Returns the path to the binary loads matrix file.
+     *
+     * @return the path to the binary loads matrix file
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Writes the loads of a step. The steps must be written in the increasing
+     * order of their numbers.
+     *
+     * @param stepNumber the number of the step
+     * @param timeSlot the time slot of the step in seconds
+     * @param loads the number of vehicles per edge for the step, indexed by
+     * the dense index of the edges
+     */
+    public void writeStep(int stepNumber, double timeSlot, int[] loads) {
+        if (out == null) {
+            throw new IllegalStateException("Error : the binary loads matrix file " + filePath + " is closed.");
+        }
+        if (stepNumber <= lastStepNumber) {
+            throw new IllegalArgumentException("Error : the step " + stepNumber + " is written after the step " + lastStepNumber + " in the binary loads matrix file " + filePath + ".");
+        }
+        if (loads.length != previousLoads.length) {
+            throw new IllegalArgumentException("Error : the step " + stepNumber + " has " + loads.length + " loads instead of " + previousLoads.length + ".");
+        }
+
+        boolean isKeyStep = !isDeltaEncoded || nbStepsInBlock == 0;
+
+        int nbEntries = 0;
+        for (int i = 0; i < loads.length; i++) {
+            if (loads[i] != (isKeyStep ? 0 : previousLoads[i])) {
+                nbEntries++;
+            }
+        }
+
+        writeVarInt(nbEntries);
+        //the column of the indexes of the edges, then the column of their loads
+        int previousIndex = -1;
+        for (int i = 0; i < loads.length; i++) {
+            if (loads[i] != (isKeyStep ? 0 : previousLoads[i])) {
+                writeVarInt(i - previousIndex - 1);
+                previousIndex = i;
+            }
+        }
+        for (int i = 0; i < loads.length; i++) {
+            int value = isKeyStep ? loads[i] : loads[i] - previousLoads[i];
+            if (value != 0) {
+                writeVarInt((value << 1) ^ (value >> 31));
+            }
+        }
+        System.arraycopy(loads, 0, previousLoads, 0, loads.length);
+
+        try {
+            stepsIndex.writeInt(stepNumber);
+            stepsIndex.writeDouble(timeSlot);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the step " + stepNumber + " in the binary loads matrix file " + filePath + ".", ex);
+        }
+        lastStepNumber = stepNumber;
+        nbSteps++;
+        nbStepsInBlock++;
+
+        if (nbStepsInBlock == nbStepsPerBlock) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the last block, the index and the footer at the end of the file
+     * and closes it. Nothing is done if the file is already closed.
+     */
+    public void close() {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            if (nbStepsInBlock > 0) {
+                writeBlock();
+            }
+            stepsIndexBuffer.writeTo(out);
+            blocksIndexBuffer.writeTo(out);
+            out.writeLong(position);
+            out.writeInt(nbSteps);
+            out.writeInt(MAGIC_NUMBER);
+            out.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the index of the binary loads matrix file " + filePath + ".", ex);
+        } finally {
+            out = null;
+            deflater.end();
+        }
+    }
+
+    /**
+     * Compresses the current block, writes it into the file and starts a new
+     * block.
+     */
+    private void writeBlock() {
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+
+        try {
+            int compressedLength = 0;
+            while (!deflater.finished()) {
+                int length = deflater.deflate(deflateBuffer);
+                out.write(deflateBuffer, 0, length);
+                compressedLength += length;
+            }
+
+            blocksIndex.writeLong(position);
+            blocksIndex.writeInt(compressedLength);
+            blocksIndex.writeInt(blockLength);
+            position += compressedLength;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the step " + lastStepNumber + " in the binary loads matrix file " + filePath + ".", ex);
+        }
+
+        blockLength = 0;
+        nbStepsInBlock = 0;
+    }
+
+    /**
+     * Appends a positive integer to the current block, 7 bits per byte from
+     * the lowest bits, the highest bit of a byte telling if another byte
+     * follows.
+     *
+     * @param value the integer to append, read as unsigned
+     */
+    private void writeVarInt(int value) {
+        if (blockLength + 5 > block.length) {
+            block = Arrays.copyOf(block, block.length * 2);
+        }
+        while ((value & ~0x7F) != 0) {
+            block[blockLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[blockLength++] = (byte) value;
+    }
+
+}
@@ -17,14 +17,16 @@
 package ie.ucd.pel.ronin.outputswriter;
 
 import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.statistics.EdgesIntervalStatistics;
+import ie.ucd.pel.ronin.utils.XmlWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  *
@@ -32,12 +34,17 @@ import org.w3c.dom.Element;
  *
  * Class used to write global information about each edge in an xml file such as
  * the average density, the average traffic volume. It is a light version of
- * EdgeData output of SUMO. The file contains for every Edge : - its id - the
- * number of arrived vehicles on this Edge - its mean density in nbVehicles /
- * kilometer - its mean traffic volume in nbVehicles / hour - its mean travel
- * time in seconds - the mean speed of vehicles on this Edge in m/s
+ * EdgeData output of SUMO. The file contains for every interval of time and
+ * every Edge : - its id - the number of arrived vehicles on this Edge - its
+ * mean density in nbVehicles / kilometer - its mean traffic volume in
+ * nbVehicles / hour - its mean travel time in seconds - the mean speed of
+ * vehicles on this Edge in m/s
+ *
+ * The file is opened at the beginning of the simulation and each interval is
+ * written as soon as it is finished, so that the statistics of the edges only
+ * have to be kept for the current interval.
  */
-public class EdgesWriter extends AbstractOutputWriter {
+public class EdgesWriter {
 
     /**
      * The xml tag name for the element that will contain the data.
@@ -45,20 +52,20 @@ public class EdgesWriter extends AbstractOutputWriter {
     private final String ELEMENT_MEAN_DATA = "meandata";
 
     /**
-     * The xml tag name for the element that describes the interval of time of
-     * the whole simulation.
+     * The xml tag name for the element that describes an interval of time of
+     * the simulation.
      */
     private final String ELEMENT_INTERVAL = "interval";
 
     /**
      * The xml tag name for the attribute that contains the beginning time slot
-     * of the simulation in seconds.
+     * of an interval in seconds.
      */
     private final String ATTRIBUTE_BEGIN = "begin";
 
     /**
-     * The xml tag name for the attribute that contains the end time slot of the
-     * simulation in seconds.
+     * The xml tag name for the attribute that contains the end time slot of an
+     * interval in seconds.
      */
     private final String ATTRIBUTE_END = "end";
 
@@ -104,100 +111,114 @@ public class EdgesWriter extends AbstractOutputWriter {
     private final String ATTRIBUTE_ARRIVED = "arrived";
 
     /**
-     * The map of the edges of the network.
-     */
-    private final Collection<Edge> edges;
-
-    /**
-     * The begin time slot of the simulation in seconds.
+     * The path to the edge data file.
      */
-    private final double beginTime;
+    private final String filePath;
 
     /**
-     * The end time slot of the simulation in seconds.
+     * The xml writer of the edge data file, that is not shared with the other
+     * outputs as the document is written during the whole simulation.
      */
-    private final double endTime;
+    private final XmlWriter xmlWriter;
 
     /**
-     * The number of steps of the simulation.
+     * The stream of the file, null once the file is closed.
      */
-    private final double nbSteps;
+    private OutputStream out;
 
     /**
-     * Constructs and initializes a EdgesWriter with the loads of one step of
-     * the simulation to write into a file and informations about the
-     * simulation.
+     * Constructs and initializes a EdgesWriter, creates its file in the global
+     * outputs directory of the simulation and starts the element that contains
+     * the intervals.
      *
      * @param globalOutputsDirectoryPath the path to the output directory of
      * this simulation.
      * @param outputName the body name of the output file
-     * @param edges the collection of the edges of the network
-     * @param beginTime the begin time slot in seconds of the simulation.
-     * @param endTime the end time slot in seconds of the simulation
-     * @param nbSteps the number of steps of the simulation
      */
-    public EdgesWriter(final String globalOutputsDirectoryPath, final String outputName, final Collection<Edge> edges, final double beginTime, final double endTime, final double nbSteps) {
-        super(globalOutputsDirectoryPath, "", "edgeData", outputName, "edd.xml");
+    public EdgesWriter(final String globalOutputsDirectoryPath, final String outputName) {
+        File directory = new File(globalOutputsDirectoryPath);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        String bodyFileName = (outputName == null || outputName.isEmpty()) ? "" : "_" + outputName;
+        Path path = Paths.get(globalOutputsDirectoryPath, "edgeData" + bodyFileName + ".edd.xml");
+        this.filePath = path.toString();
+        this.xmlWriter = new XmlWriter();
 
-        this.edges = edges;
-        this.beginTime = beginTime;
-        this.endTime = endTime;
-        this.nbSteps = nbSteps;
+        try {
+            this.out = new BufferedOutputStream(new FileOutputStream(filePath));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot create the edge data file " + filePath + ".", ex);
+        }
+        xmlWriter.startDocument();
+        xmlWriter.startElement(ELEMENT_MEAN_DATA);
     }
 
     /**
-     * Builds and returns the DOM node that contains the edges data for the
-     * simulation.
+     * Returns the path to the edge data file.
      *
-     * @return the DOM node that contains the edges data for the simulation.
+     * @return the path to the edge data file
      */
-    @Override
-    protected Document getDocElement() {
-        DocumentBuilderFactory icFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder icBuilder;
-        Document doc = null;
-
-        try {
-            icBuilder = icFactory.newDocumentBuilder();
-            doc = icBuilder.newDocument();
-            Element mainRootElement = doc.createElement(ELEMENT_MEAN_DATA);
-            doc.appendChild(mainRootElement);
-
-            Element intervalElement = doc.createElement(ELEMENT_INTERVAL);
-            intervalElement.setAttribute(ATTRIBUTE_BEGIN, Double.toString(beginTime));
-            intervalElement.setAttribute(ATTRIBUTE_END, Double.toString(endTime));
-            mainRootElement.appendChild(intervalElement);
-
-            appendChildEdgesNodesToIntervalElement(doc, intervalElement);
-        } catch (ParserConfigurationException ex) {
-            Logger.getLogger(EdgesWriter.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        return doc;
+    public String getFilePath() {
+        return filePath;
     }
 
     /**
-     * Creates and appends the child edges nodes to the interval node.
+     * Writes the node of a finished interval with the data of the edges, and
+     * writes it into the file. The attributes are written in alphabetical
+     * order, as in the files written from a DOM document.
      *
-     * @param doc the DOM doc element that contains our xml content
-     * @param stepElement the DOM node that represent the interval of the whole
-     * simulation
+     * @param edges the collection of the edges of the network
+     * @param statistics the statistics of the edges for the interval
+     * @param endTime the end time slot of the interval in seconds
      */
-    private void appendChildEdgesNodesToIntervalElement(Document doc, Element intervalElement) {
-        Element edgeElement;
+    public void writeInterval(Collection<Edge> edges, EdgesIntervalStatistics statistics, double endTime) {
+        if (out == null) {
+            throw new IllegalStateException("Error : the edge data file " + filePath + " is closed.");
+        }
+        xmlWriter.startElement(ELEMENT_INTERVAL);
+        xmlWriter.attribute(ATTRIBUTE_BEGIN, statistics.getBeginTime());
+        xmlWriter.attribute(ATTRIBUTE_END, endTime);
 
         for (Edge e : edges) {
-            edgeElement = doc.createElement(ELEMENT_EDGE);
-            edgeElement.setAttribute(ATTRIBUTE_ID, e.getId());
-            edgeElement.setAttribute(ATTRIBUTE_ARRIVED, Double.toString(e.getArrivedVehicles()));
-            edgeElement.setAttribute(ATTRIBUTE_DENSITY, Double.toString(e.getMeanDensity(nbSteps)));
-            edgeElement.setAttribute(ATTRIBUTE_SPEED, Double.toString(e.getMeanSpeed(nbSteps)));
-            edgeElement.setAttribute(ATTRIBUTE_TRAVEL_TIME, Double.toString(e.getMeanTravelTime(nbSteps)));
-            edgeElement.setAttribute(ATTRIBUTE_TRAFFIC_VOLUME, Double.toString(e.getAverageTrafficVolume(nbSteps)));
-
-            intervalElement.appendChild(edgeElement);
+            xmlWriter.startElement(ELEMENT_EDGE);
+            xmlWriter.attribute(ATTRIBUTE_ARRIVED, statistics.getArrivedVehicles(e));
+            xmlWriter.attribute(ATTRIBUTE_DENSITY, statistics.getMeanDensity(e));
+            xmlWriter.attribute(ATTRIBUTE_ID, e.getId());
+            xmlWriter.attribute(ATTRIBUTE_SPEED, statistics.getMeanSpeed(e));
+            xmlWriter.attribute(ATTRIBUTE_TRAFFIC_VOLUME, statistics.getAverageTrafficVolume(e));
+            xmlWriter.attribute(ATTRIBUTE_TRAVEL_TIME, statistics.getMeanTravelTime(e));
+            xmlWriter.endElement();
+        }
+
+        xmlWriter.endElement();
+
+        try {
+            xmlWriter.flush(out);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the interval " + statistics.getBeginTime() + " in the edge data file " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Ends the element that contains the intervals, writes the end of the
+     * document and closes the file. Nothing is done if the file is already
+     * closed.
+     */
+    public void close() {
+        if (out == null) {
+            return;
         }
 
+        try {
+            xmlWriter.endElement();
+            xmlWriter.endDocument(out);
+            out.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the end of the edge data file " + filePath + ".", ex);
+        } finally {
+            out = null;
+        }
     }
 
 }
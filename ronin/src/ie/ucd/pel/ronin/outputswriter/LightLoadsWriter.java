@@ -16,16 +16,9 @@
  */
 package ie.ucd.pel.ronin.outputswriter;
 
-import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.utils.XmlWriter;
 import java.util.List;
-import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  *
@@ -74,9 +67,15 @@ public class LightLoadsWriter extends AbstractOutputWriter {
     private final String ATTRIBUTE_LOAD = "load";
 
     /**
-     * The loads per edge for one step of the simulation to write into a file.
+     * The edges of the graph ordered by their dense index.
      */
-    private final Map< String, List<Vehicle>> loadsForOneStep;
+    private final List<Edge> edgesByIndex;
+
+    /**
+     * The number of vehicles per edge for one step of the simulation to write
+     * into a file, indexed by the dense index of the edges.
+     */
+    private final int[] loadsForOneStep;
 
     /**
      * The time slot corresponding to the loads in seconds.
@@ -89,72 +88,61 @@ public class LightLoadsWriter extends AbstractOutputWriter {
     private final int stepNumber;
 
     /**
-     * Constructs and initializes a LoadsWriter with the loads of one step of
-     * the simulation to write into a file and informations about the
+     * Constructs and initializes a LightLoadsWriter with the loads of one step
+     * of the simulation to write into a file and informations about the
      * simulation.
      *
      * @param globalOutputsDirectoryPath the path to the output directory of
      * this simulation.
      * @param outputBodyFileName the body name of the output file
-     * @param loadsForOneStep the loads per edge for one step of the simulation
-     * to write into a file
+     * @param edgesByIndex the edges of the graph ordered by their dense index
+     * @param loadsForOneStep the number of vehicles per edge for one step of
+     * the simulation to write into a file, indexed by the dense index of the
+     * edges
      * @param timeSlot the time slot corresponding to the loads in seconds
      * @param stepNumber the number of the step of the loads we want to write
      * into a file
      */
-    public LightLoadsWriter(String globalOutputsDirectoryPath, String outputBodyFileName, Map<String, List<Vehicle>> loadsForOneStep, double timeSlot, int stepNumber) {
+    public LightLoadsWriter(String globalOutputsDirectoryPath, String outputBodyFileName, List<Edge> edgesByIndex, int[] loadsForOneStep, double timeSlot, int stepNumber) {
         super(globalOutputsDirectoryPath, "lightLoadsMatrix", "step_" + Integer.toString(stepNumber), outputBodyFileName, "llm.xml");
+        this.edgesByIndex = edgesByIndex;
         this.loadsForOneStep = loadsForOneStep;
         this.timeSlot = timeSlot;
         this.stepNumber = stepNumber;
     }
 
     /**
-     * Builds and returns the DOM node that represents a step for the
-     * simulation.
+     * Writes the node that represents a step for the simulation. The
+     * attributes are written in alphabetical order, as in the files written
+     * from a DOM document.
      *
-     * @return the DOM node that represents a step for the simulation.
+     * @param xmlWriter the xml writer of the output file
      */
     @Override
-    protected Document getDocElement() {
-        DocumentBuilderFactory icFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder icBuilder;
-        Document doc = null;
-
-        try {
-            icBuilder = icFactory.newDocumentBuilder();
-            doc = icBuilder.newDocument();
-            Element mainRootElement = doc.createElement(ELEMENT_TIME_STEP);
-            mainRootElement.setAttribute(ATTRIBUTE_ID, Integer.toString(stepNumber));
-            mainRootElement.setAttribute(ATTRIBUTE_TIME_SLOT, Double.toString(timeSlot));
-            doc.appendChild(mainRootElement);
-            appendChildEdgesNodesToStepElement(doc, mainRootElement);
-        } catch (ParserConfigurationException ex) {
-            Logger.getLogger(LightLoadsWriter.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        return doc;
+    protected void writeRootElement(XmlWriter xmlWriter) {
+        xmlWriter.startElement(ELEMENT_TIME_STEP);
+        xmlWriter.attribute(ATTRIBUTE_ID, stepNumber);
+        xmlWriter.attribute(ATTRIBUTE_TIME_SLOT, timeSlot);
+        writeEdgesElements(xmlWriter);
+        xmlWriter.endElement();
     }
 
     /**
-     * Creates and appends the child edges nodes to the step node.
+     * Writes the edges nodes in the step node.
      *
-     * @param doc the DOM doc element that contains our xml content
-     * @param stepElement the DOM node that represent a step
+     * @param xmlWriter the xml writer of the output file
      */
-    private void appendChildEdgesNodesToStepElement(Document doc, Element stepElement) {
-        Element edgeElement;
-        List<Vehicle> load;
-
-        for (Map.Entry<String, List<Vehicle>> anItem : loadsForOneStep.entrySet()) {
-            load = anItem.getValue();
+    private void writeEdgesElements(XmlWriter xmlWriter) {
+        int load;
 
-            if (!load.isEmpty() || OPTIMIZE_WRITTING == false) {
-                edgeElement = doc.createElement(ELEMENT_EDGE);
-                edgeElement.setAttribute(ATTRIBUTE_ID, anItem.getKey());
-                edgeElement.setAttribute(ATTRIBUTE_LOAD, Integer.toString(load.size()));
+        for (int i = 0; i < loadsForOneStep.length; i++) {
+            load = loadsForOneStep[i];
 
-                stepElement.appendChild(edgeElement);
+            if (load != 0 || OPTIMIZE_WRITTING == false) {
+                xmlWriter.startElement(ELEMENT_EDGE);
+                xmlWriter.attribute(ATTRIBUTE_ID, edgesByIndex.get(i).getId());
+                xmlWriter.attribute(ATTRIBUTE_LOAD, load);
+                xmlWriter.endElement();
             }
 
         }
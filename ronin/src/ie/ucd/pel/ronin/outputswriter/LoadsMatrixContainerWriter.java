@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.outputswriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to write all the steps of a matrix of loads in a single container
+ * file instead of one file per step. The file starts with a header (magic
+ * number, version of the format and extension of the step files stored), then
+ * the step files are appended one after the other as they are written by the
+ * simulation. When the container is closed, an index is appended with, for each
+ * step, its number, its time slot, and the offset and length of its step file
+ * in the container, followed by a footer giving the offset of the index. A
+ * reader can then seek straight to any step without reading the others.
+ */
+public class LoadsMatrixContainerWriter {
+
+    /**
+     * The extension of the container files of the light loads matrix.
+     */
+    public static final String LIGHT_LOADS_MATRIX_EXTENSION = "llmc";
+
+    /**
+     * The extension of the container files of the loads matrix.
+     */
+    public static final String LOADS_MATRIX_EXTENSION = "lmc";
+
+    /**
+     * The magic number at the beginning and at the end of the container files.
+     */
+    public static final int MAGIC_NUMBER = 0x524C4D43;
+
+    /**
+     * The version of the format of the container files. It must be increased
+     * when the format changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The length in bytes of an entry of the index: the number of the step,
+     * its time slot, and the offset and the length of its step file.
+     */
+    public static final int INDEX_ENTRY_LENGTH = 4 + 8 + 8 + 4;
+
+    /**
+     * The length in bytes of the footer: the offset of the index, the number
+     * of steps and the magic number.
+     */
+    public static final int FOOTER_LENGTH = 8 + 4 + 4;
+
+    /**
+     * The path to the container file.
+     */
+    private final String filePath;
+
+    /**
+     * The stream of the container file, null once the container is closed.
+     */
+    private DataOutputStream out;
+
+    /**
+     * The buffer where a step file is written before being appended to the
+     * container, reused from one step to the next.
+     */
+    private final ByteArrayOutputStream stepBuffer;
+
+    /**
+     * The index of the steps already appended, written at the end of the
+     * container when it is closed.
+     */
+    private final ByteArrayOutputStream indexBuffer;
+
+    /**
+     * The stream used to write the entries of the index.
+     */
+    private final DataOutputStream index;
+
+    /**
+     * The number of steps already appended to the container.
+     */
+    private int nbSteps;
+
+    /**
+     * The number of the last step appended to the container, -1 if there is
+     * none.
+     */
+    private int lastStepNumber;
+
+    /**
+     * The offset in the container file where the next step file will be
+     * appended.
+     */
+    private long position;
+
+    /**
+     * Constructs and initializes a LoadsMatrixContainerWriter and creates its
+     * container file in the global outputs directory of the simulation.
+     *
+     * @param globalOutputsDirectoryPath the path to the global outputs
+     * directory of this simulation
+     * @param outputBaseFileName the base name of the container file
+     * @param outputExtension the extension of the container file without the
+     * first dot
+     * @param stepsExtension the extension of the step files stored in the
+     * container, without the first dot
+     */
+    public LoadsMatrixContainerWriter(String globalOutputsDirectoryPath, String outputBaseFileName, String outputExtension, String stepsExtension) {
+        File directory = new File(globalOutputsDirectoryPath);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        Path path = Paths.get(globalOutputsDirectoryPath, outputBaseFileName + "." + outputExtension);
+        this.filePath = path.toString();
+        this.stepBuffer = new ByteArrayOutputStream();
+        this.indexBuffer = new ByteArrayOutputStream();
+        this.index = new DataOutputStream(indexBuffer);
+        this.nbSteps = 0;
+        this.lastStepNumber = -1;
+
+        try {
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)));
+            out.writeInt(MAGIC_NUMBER);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(stepsExtension);
+            this.position = out.size();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot create the container file " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Returns the path to the container file.
+     *
+     * @return the path to the container file
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Appends the step file written by a writer to the container. The steps
+     * must be appended in the increasing order of their numbers.
+     *
+     * @param stepNumber the number of the step
+     * @param timeSlot the time slot of the step in seconds
+     * @param stepWriter the writer of the step file
+     */
+    public void writeStep(int stepNumber, double timeSlot, AbstractOutputWriter stepWriter) {
+        if (out == null) {
+            throw new IllegalStateException("Error : the container file " + filePath + " is closed.");
+        }
+        if (stepNumber <= lastStepNumber) {
+            throw new IllegalArgumentException("Error : the step " + stepNumber + " is appended after the step " + lastStepNumber + " in the container file " + filePath + ".");
+        }
+
+        try {
+            stepBuffer.reset();
+            stepWriter.writeOutput(stepBuffer);
+            stepBuffer.writeTo(out);
+
+            index.writeInt(stepNumber);
+            index.writeDouble(timeSlot);
+            index.writeLong(position);
+            index.writeInt(stepBuffer.size());
+
+            position += stepBuffer.size();
+            lastStepNumber = stepNumber;
+            nbSteps++;
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the step " + stepNumber + " in the container file " + filePath + ".", ex);
+        }
+    }
+
+    /**
+     * Writes the index and the footer at the end of the container and closes
+     * its file. Nothing is done if the container is already closed.
+     */
+    public void close() {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            indexBuffer.writeTo(out);
+            out.writeLong(position);
+            out.writeInt(nbSteps);
+            out.writeInt(MAGIC_NUMBER);
+            out.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the index of the container file " + filePath + ".", ex);
+        } finally {
+            out = null;
+        }
+    }
+
+}
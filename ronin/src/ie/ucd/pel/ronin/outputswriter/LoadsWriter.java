@@ -17,15 +17,9 @@
 package ie.ucd.pel.ronin.outputswriter;
 
 import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.utils.XmlWriter;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 /**
  *
@@ -123,53 +117,40 @@ public class LoadsWriter extends AbstractOutputWriter {
     }
 
     /**
-     * Builds and returns the DOM node that represents a step for the
-     * simulation.
+     * Writes the node that represents a step for the simulation. The
+     * attributes are written in alphabetical order, as in the files written
+     * from a DOM document.
      *
-     * @return the DOM node that represents a step for the simulation.
+     * @param xmlWriter the xml writer of the output file
      */
     @Override
-    protected Document getDocElement() {
-        DocumentBuilderFactory icFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder icBuilder;
-        Document doc = null;
-
-        try {
-            icBuilder = icFactory.newDocumentBuilder();
-            doc = icBuilder.newDocument();
-            Element mainRootElement = doc.createElement(ELEMENT_TIME_STEP);
-            mainRootElement.setAttribute(ATTRIBUTE_ID, Integer.toString(stepNumber));
-            mainRootElement.setAttribute(ATTRIBUTE_TIME_SLOT, Double.toString(timeSlot));
-            doc.appendChild(mainRootElement);
-            appendChildEdgesNodesToStepElement(doc, mainRootElement);
-        } catch (ParserConfigurationException ex) {
-            Logger.getLogger(LoadsWriter.class.getName()).log(Level.SEVERE, null, ex);
-        }
-
-        return doc;
+    protected void writeRootElement(XmlWriter xmlWriter) {
+        xmlWriter.startElement(ELEMENT_TIME_STEP);
+        xmlWriter.attribute(ATTRIBUTE_ID, stepNumber);
+        xmlWriter.attribute(ATTRIBUTE_TIME_SLOT, timeSlot);
+        writeEdgesElements(xmlWriter);
+        xmlWriter.endElement();
     }
 
     /**
-     * Creates and appends the child edges nodes to the step node.
+     * Writes the edges nodes in the step node.
      *
-     * @param doc the DOM doc element that contains our xml content
-     * @param stepElement the DOM node that represent a step
+     * @param xmlWriter the xml writer of the output file
      */
-    private void appendChildEdgesNodesToStepElement(Document doc, Element stepElement) {
-        Element edgeElement;
+    private void writeEdgesElements(XmlWriter xmlWriter) {
         List<Vehicle> load;
 
         for (Map.Entry<String, List<Vehicle>> anItem : loadsForOneStep.entrySet()) {
             load = anItem.getValue();
 
             if (!load.isEmpty() || OPTIMIZE_WRITTING == false) {
-                edgeElement = doc.createElement(ELEMENT_EDGE);
-                edgeElement.setAttribute(ATTRIBUTE_ID, anItem.getKey());
-                edgeElement.setAttribute(ATTRIBUTE_LOAD, Integer.toString(load.size()));
+                xmlWriter.startElement(ELEMENT_EDGE);
+                xmlWriter.attribute(ATTRIBUTE_ID, anItem.getKey());
+                xmlWriter.attribute(ATTRIBUTE_LOAD, load.size());
 
-                appendChildVehiclesNodesToEdgeElement(doc, edgeElement, anItem.getKey(), load);
+                writeVehiclesElements(xmlWriter, anItem.getKey(), load);
 
-                stepElement.appendChild(edgeElement);
+                xmlWriter.endElement();
             }
 
         }
@@ -177,19 +158,20 @@ public class LoadsWriter extends AbstractOutputWriter {
     }
 
     /**
-     * Creates and appends the child vehicles nodes to the edge node.
+     * Writes the vehicles nodes in the edge node.
      *
-     * @param doc the DOM doc element that contains our xml content
-     * @param edgeElement the DOM node that represent a step
+     * @param xmlWriter the xml writer of the output file
+     * @param idEdge the id of the edge
+     * @param load the vehicles on the edge
      */
-    private void appendChildVehiclesNodesToEdgeElement(Document doc, Element edgeElement, String idEdge, List<Vehicle> load) {
-
-        load.stream().forEach(v -> {
-            Element vehicleElement = doc.createElement(ELEMENT_VEHICLE);
-            vehicleElement.setAttribute(ATTRIBUTE_ID, v.getId());
-            //vehicleElement.setAttribute(ATTRIBUTE_POSITION,idEdge);
-            edgeElement.appendChild(vehicleElement);
-        });
+    private void writeVehiclesElements(XmlWriter xmlWriter, String idEdge, List<Vehicle> load) {
+
+        for (Vehicle v : load) {
+            xmlWriter.startElement(ELEMENT_VEHICLE);
+            xmlWriter.attribute(ATTRIBUTE_ID, v.getId());
+            //xmlWriter.attribute(ATTRIBUTE_POSITION, idEdge);
+            xmlWriter.endElement();
+        }
 
     }
 
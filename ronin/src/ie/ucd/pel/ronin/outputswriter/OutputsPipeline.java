@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.outputswriter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to write outputs with a writer thread, so that the simulation can
+ * compute the next step while the outputs of the previous steps are written.
+ * The writing tasks are executed one after the other in the order they were
+ * submitted, so they can write into the same file. The tasks wait in a queue of
+ * bounded capacity: when it is full, the simulation is blocked until the
+ * writer thread catches up. A task must only use data that is not modified by
+ * the simulation afterwards. If a task fails, the next tasks are not executed
+ * and the failure is thrown again to the simulation at its next submission or
+ * at the next flush.
+ */
+public class OutputsPipeline {
+
+    /**
+     * The default number of tasks that can wait in the queue.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The task that ends the writer thread.
+     */
+    private static final Runnable END_OF_OUTPUTS = () -> {
+    };
+
+    /**
+     * The name of the pipeline, used to name its thread and in the error
+     * messages.
+     */
+    private final String name;
+
+    /**
+     * The tasks waiting to be executed by the writer thread.
+     */
+    private final BlockingQueue<Runnable> tasks;
+
+    /**
+     * The writer thread.
+     */
+    private final Thread writerThread;
+
+    /**
+     * The exception thrown by the first failed task, null if no task failed.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * If true, the pipeline is closed and does not accept tasks anymore.
+     */
+    private boolean closed;
+
+    /**
+     * Constructs and initializes an OutputsPipeline and starts its writer
+     * thread.
+     *
+     * @param name the name of the pipeline
+     * @param capacity the number of tasks that can wait in the queue before
+     * the submissions are blocked
+     */
+    public OutputsPipeline(String name, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Error : the capacity of the outputs pipeline " + name + " must be at least 1.");
+        }
+        this.name = name;
+        this.tasks = new ArrayBlockingQueue<>(capacity);
+        this.failure = null;
+        this.closed = false;
+        this.writerThread = new Thread(this::executeTasks, "ronin-outputs-" + name);
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Returns the name of the pipeline.
+     *
+     * @return the name of the pipeline
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Submits a writing task to the writer thread. Waits if the queue is full.
+     *
+     * @param task the writing task
+     */
+    public void submit(Runnable task) {
+        if (closed) {
+            throw new IllegalStateException("Error : the outputs pipeline " + name + " is closed.");
+        }
+        checkFailure();
+        put(task);
+    }
+
+    /**
+     * Waits until all the tasks submitted before are executed.
+     */
+    public void flush() {
+        if (closed) {
+            return;
+        }
+        CountDownLatch barrier = new CountDownLatch(1);
+        put(new FlushBarrier(barrier));
+        try {
+            barrier.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error : interrupted while waiting for the outputs pipeline " + name + ".", ex);
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits until all the tasks submitted before are executed and stops the
+     * writer thread. Nothing is done if the pipeline is already closed.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            put(END_OF_OUTPUTS);
+            try {
+                writerThread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Error : interrupted while waiting for the outputs pipeline " + name + ".", ex);
+            }
+        }
+    }
+
+    /**
+     * Throws again the failure of a task, if any.
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new RuntimeException("Error : the outputs pipeline " + name + " failed to write an output.", failure);
+        }
+    }
+
+    /**
+     * Puts a task in the queue, waiting if it is full.
+     *
+     * @param task the task
+     */
+    private void put(Runnable task) {
+        try {
+            tasks.put(task);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error : interrupted while submitting an output to the outputs pipeline " + name + ".", ex);
+        }
+    }
+
+    /**
+     * Executes the tasks of the queue until the end of the outputs. Once a
+     * task failed, only the flush barriers are executed.
+     */
+    private void executeTasks() {
+        while (true) {
+            Runnable task;
+            try {
+                task = tasks.take();
+            } catch (InterruptedException ex) {
+                failure = ex;
+                continue;
+            }
+            if (task == END_OF_OUTPUTS) {
+                return;
+            }
+            if (failure == null || task instanceof FlushBarrier) {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }
+    }
+
+    /**
+     * Task that releases the thread waiting for a flush.
+     */
+    private static class FlushBarrier implements Runnable {
+
+        /**
+         * The latch the flushing thread waits on.
+         */
+        private final CountDownLatch barrier;
+
+        /**
+         * Constructs and initializes a FlushBarrier.
+         *
+         * @param barrier the latch the flushing thread waits on
+         */
+        public FlushBarrier(CountDownLatch barrier) {
+            this.barrier = barrier;
+        }
+
+        @Override
+        public void run() {
+            barrier.countDown();
+        }
+    }
+
+}
@@ -16,15 +16,15 @@
  */
 package ie.ucd.pel.ronin.outputswriter;
 
-import ie.ucd.pel.ronin.model.Vehicle;
-import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import ie.ucd.pel.ronin.model.TripSummary;
+import ie.ucd.pel.ronin.utils.XmlWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  *
@@ -37,8 +37,19 @@ import org.w3c.dom.Element;
  * of its total route in meter - the duration in seconds of its trip - the
  * number of steps this Vehicle had to wait - the id of the vehicle type of this
  * Vehicle
+ *
+ * The file is opened at the beginning of the simulation and the trip of each
+ * vehicle is written as soon as it arrives, so that the arrived vehicles do
+ * not have to be kept until the end of the simulation. The trips are written
+ * in the order of their arrival.
  */
-public class TripInfosWriter extends AbstractOutputWriter {
+public class TripInfosWriter {
+
+    /**
+     * The number of characters of the trips buffered before they are written
+     * into the file.
+     */
+    private static final int FLUSH_LENGTH = 1 << 16;
 
     /**
      * The xml tag name for the element that contains all the trip infos for the
@@ -106,83 +117,107 @@ public class TripInfosWriter extends AbstractOutputWriter {
     private final String ATTRIBUTE_VEHICLE_TYPE = "vType";
 
     /**
-     * The list of all the vehicles at the end of the simulation.
+     * The path to the trip infos file.
+     */
+    private final String filePath;
+
+    /**
+     * The xml writer of the trip infos file, that is not shared with the other
+     * outputs as the document is written during the whole simulation.
      */
-    private final List<Vehicle> arrivedVehicles;
+    private final XmlWriter xmlWriter;
 
     /**
-     * The duration in seconds of a timeslot.
+     * The stream of the file, null once the file is closed.
      */
-    private final double timeUnit;
+    private OutputStream out;
 
     /**
-     * Constructs and initializes a tripinfosWriter.
+     * Constructs and initializes a TripInfosWriter, creates its file in the
+     * global outputs directory of the simulation and starts the element that
+     * contains the trips.
      *
      * @param globalOutputsDirectoryPath the path to the output directory of
      * this simulation
      * @param outputName the body name of the output file
-     * @param timeUnit the duration in seconds of a timeslot
-     * @param arrivedVehicles the list of all the vehicles at the end of the
-     * simulation
      */
-    public TripInfosWriter(String globalOutputsDirectoryPath, String outputName, Double timeUnit, List<Vehicle> arrivedVehicles) {
-        super(globalOutputsDirectoryPath, "", "tripinfos", outputName, "ti.xml");
-
-        this.arrivedVehicles = arrivedVehicles;
-        this.timeUnit = timeUnit;
+    public TripInfosWriter(String globalOutputsDirectoryPath, String outputName) {
+        File directory = new File(globalOutputsDirectoryPath);
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+        String bodyFileName = (outputName == null || outputName.isEmpty()) ? "" : "_" + outputName;
+        Path path = Paths.get(globalOutputsDirectoryPath, "tripinfos" + bodyFileName + ".ti.xml");
+        this.filePath = path.toString();
+        this.xmlWriter = new XmlWriter();
 
+        try {
+            this.out = new BufferedOutputStream(new FileOutputStream(filePath));
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot create the trip infos file " + filePath + ".", ex);
+        }
+        xmlWriter.startDocument();
+        xmlWriter.startElement(ELEMENT_TRIP_INFOS);
     }
 
     /**
-     * Builds and returns the DOM node that contains the tripinfos for the
-     * simulation.
+     * Returns the path to the trip infos file.
      *
-     * @return the DOM node that contains the edges data for the simulation.
+     * @return the path to the trip infos file
      */
-    @Override
-    protected Document getDocElement() {
-        DocumentBuilderFactory icFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder icBuilder;
-        Document doc = null;
+    public String getFilePath() {
+        return filePath;
+    }
 
-        try {
-            icBuilder = icFactory.newDocumentBuilder();
-            doc = icBuilder.newDocument();
-            Element mainRootElement = doc.createElement(ELEMENT_TRIP_INFOS);
-            doc.appendChild(mainRootElement);
-
-            appendChildTripinfoNodesToTripInfosRootElement(doc, mainRootElement);
-        } catch (ParserConfigurationException ex) {
-            Logger.getLogger(TripInfosWriter.class.getName()).log(Level.SEVERE, null, ex);
+    /**
+     * Writes the trip of an arrived vehicle. The attributes are written in
+     * alphabetical order, as in the files written from a DOM document.
+     *
+     * @param trip the trip of the arrived vehicle
+     */
+    public void writeTripInfo(TripSummary trip) {
+        if (out == null) {
+            throw new IllegalStateException("Error : the trip infos file " + filePath + " is closed.");
+        }
+        xmlWriter.startElement(ELEMENT_TRIP_INFO);
+        xmlWriter.attribute(ATTRIBUTE_ARRIVAL, trip.getArrivalTime());
+        xmlWriter.attribute(ATTRIBUTE_ARRIVAL_EDGE, trip.getArrivalEdgeId());
+        xmlWriter.attribute(ATTRIBUTE_DEPART, trip.getDepartureTime());
+        xmlWriter.attribute(ATTRIBUTE_DEPART_EDGE, trip.getDepartureEdgeId());
+        xmlWriter.attribute(ATTRIBUTE_DURATION, trip.getDuration());
+        xmlWriter.attribute(ATTRIBUTE_ID, trip.getId());
+        xmlWriter.attribute(ATTRIBUTE_ROUTE_LENGTH, trip.getRouteLength());
+        xmlWriter.attribute(ATTRIBUTE_VEHICLE_TYPE, trip.getvType());
+        xmlWriter.attribute(ATTRIBUTE_WAIT_STEPS, (double) trip.getNbWaitSteps());
+        xmlWriter.endElement();
+
+        if (xmlWriter.getBufferedLength() >= FLUSH_LENGTH) {
+            try {
+                xmlWriter.flush(out);
+            } catch (IOException ex) {
+                throw new RuntimeException("Error : cannot write the trip of the vehicle " + trip.getId() + " in the trip infos file " + filePath + ".", ex);
+            }
         }
-
-        return doc;
     }
 
     /**
-     * Creates and appends the child tripinfo nodes to the tripinfos node.
-     *
-     * @param doc the DOM doc element that contains our xml content
-     * @param stepElement the DOM node that represent the interval of the whole
-     * simulation
-     */
-    private void appendChildTripinfoNodesToTripInfosRootElement(Document doc, Element tripInfosElement) {
-
-        arrivedVehicles.stream().forEach(v -> {
-            Element tripinfoElement = doc.createElement(ELEMENT_TRIP_INFO);
-            tripinfoElement.setAttribute(ATTRIBUTE_ID, v.getId());
-            tripinfoElement.setAttribute(ATTRIBUTE_DEPART, Double.toString(v.getDepartureTime()));
-            tripinfoElement.setAttribute(ATTRIBUTE_DEPART_EDGE, v.getEdgeOfRouteAtPosition(0).getId());
-            tripinfoElement.setAttribute(ATTRIBUTE_ARRIVAL, Double.toString(v.getArrivalTime(timeUnit)));
-            tripinfoElement.setAttribute(ATTRIBUTE_ARRIVAL_EDGE, v.getEdgeOfRouteAtPosition(v.getRoute().size() - 1).getId());
-            tripinfoElement.setAttribute(ATTRIBUTE_ROUTE_LENGTH, Double.toString(v.getRouteLength()));
-            tripinfoElement.setAttribute(ATTRIBUTE_DURATION, Double.toString(v.getTravelTime(timeUnit)));
-            tripinfoElement.setAttribute(ATTRIBUTE_WAIT_STEPS, Double.toString(v.getNbTotSlotsInSamePosition()));
-            tripinfoElement.setAttribute(ATTRIBUTE_VEHICLE_TYPE, v.getvType());
-
-            tripInfosElement.appendChild(tripinfoElement);
-
-        });
+     * Ends the element that contains the trips, writes the end of the document
+     * and closes the file. Nothing is done if the file is already closed.
+     */
+    public void close() {
+        if (out == null) {
+            return;
+        }
+
+        try {
+            xmlWriter.endElement();
+            xmlWriter.endDocument(out);
+            out.close();
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write the end of the trip infos file " + filePath + ".", ex);
+        } finally {
+            out = null;
+        }
     }
 
 }
@@ -18,29 +18,37 @@ package ie.ucd.pel.ronin.simulation;
 
 import ie.ucd.pel.ronin.main.RoninCommandLineConfigurationInfos;
 import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoFilesReader;
+import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoRouteFileStreamReader;
 import ie.ucd.pel.ronin.model.Network;
 import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoConfigInformation;
 import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Graph;
 import ie.ucd.pel.ronin.model.TimeConfiguration;
+import ie.ucd.pel.ronin.model.TripSummary;
 import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.outputswriter.BinaryLoadsMatrixWriter;
 import ie.ucd.pel.ronin.outputswriter.EdgesWriter;
 import ie.ucd.pel.ronin.outputswriter.LightLoadsWriter;
+import ie.ucd.pel.ronin.outputswriter.LoadsMatrixContainerWriter;
 import ie.ucd.pel.ronin.outputswriter.LoadsWriter;
+import ie.ucd.pel.ronin.outputswriter.OutputsPipeline;
 import ie.ucd.pel.ronin.outputswriter.TripInfosWriter;
+import ie.ucd.pel.ronin.statistics.EdgesIntervalStatistics;
 import ie.ucd.pel.ronin.statistics.SimulationProfilingTimeStatistics;
 import ie.ucd.pel.ronin.utils.FileUtils;
-import ie.ucd.pel.ronin.utils.MapUtils;
+import ie.ucd.pel.ronin.utils.ThreadsUtils;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -66,16 +74,201 @@ public class Simulation {
      */
     private final String globalOutputsDirectoryPath;
 
+    /**
+     * The container of the steps of the light loads matrix, null if the light
+     * loads matrix is not generated or is not written in a container.
+     */
+    private LoadsMatrixContainerWriter lightLoadsMatrixContainer;
+
+    /**
+     * The container of the steps of the loads matrix, null if the loads matrix
+     * is not generated or is written in one file per step.
+     */
+    private LoadsMatrixContainerWriter loadsMatrixContainer;
+
+    /**
+     * The writer of the binary light loads matrix, null if the light loads
+     * matrix is not generated or is written in xml.
+     */
+    private BinaryLoadsMatrixWriter binaryLightLoadsMatrix;
+
+    /**
+     * The writer thread of the light loads matrix, null if the light loads
+     * matrix is not generated or is written by the thread of the simulation.
+     */
+    private OutputsPipeline lightLoadsMatrixOutputs;
+
+    /**
+     * The writer thread of the loads matrix, null if the loads matrix is not
+     * generated or is written by the thread of the simulation.
+     */
+    private OutputsPipeline loadsMatrixOutputs;
+
+    /**
+     * The writer of the trip infos, that writes the trip of each vehicle when
+     * it arrives, null if the trip infos are not generated.
+     */
+    private TripInfosWriter tripInfosWriter;
+
+    /**
+     * The writer thread of the trip infos, null if the trip infos are not
+     * generated or are written by the thread of the simulation.
+     */
+    private OutputsPipeline tripInfosOutputs;
+
+    /**
+     * The writer of the edge data, that writes each interval of the edge data
+     * when it is finished, null if the edge data are not generated.
+     */
+    private EdgesWriter edgesWriter;
+
+    /**
+     * The writer thread of the edge data, null if the edge data are not
+     * generated or are written by the thread of the simulation.
+     */
+    private OutputsPipeline edgeDataOutputs;
+
+    /**
+     * The statistics of the edges for the current interval of the edge data,
+     * null if the edge data are not generated.
+     */
+    private EdgesIntervalStatistics edgesIntervalStatistics;
+
     /**
      * The network for the simulation.
      */
     private final Network network;
 
     /**
-     * the final map of loads of vehicles per edge for this step with the
-     * accurate positions of the running vehicles.
+     * The final number of vehicles per edge for this step with the accurate
+     * positions of the running vehicles, indexed by the dense index of the
+     * edges.
+     */
+    private final int[] currentStepFinalLoads;
+
+    /**
+     * The final map of loads of vehicles per edge for this step with the
+     * accurate positions of the running vehicles. It is only built when the
+     * lists of vehicles are needed (loads matrix output or server queries),
+     * null otherwise.
+     */
+    private Map<String, List<Vehicle>> currentStepFinalVehicles;
+
+    /**
+     * The time slot of the last processed step in seconds.
+     */
+    private double currentStepTimeSlot;
+
+    /**
+     * The estimated number of vehicles per edge for the current step, indexed
+     * by the dense index of the edges. Vehicles may be on several edges, we are
+     * making estimation.
+     */
+    private final int[] estimatedLoads;
+
+    /**
+     * The travel time per edge for the current step, indexed by the dense
+     * index of the edges. Only the values of the edges used during the step
+     * and of the edges leading to an overloaded edge are up to date, unless
+     * the overloads are propagated incrementally. In that case, the values of
+     * all the edges are up to date.
+     */
+    private final double[] travelTimes;
+
+    /**
+     * True if the travel times are only calculated again for the edges whose
+     * estimated load changed since the previous step and for the edges
+     * leading to them; false if they are calculated again for all the edges
+     * used at each step.
+     */
+    private final boolean isOverloadPropagationIncremental;
+
+    /**
+     * The estimated number of vehicles per edge for the previous step, indexed
+     * by the dense index of the edges. Only used if the overloads are
+     * propagated incrementally.
+     */
+    private final int[] previousEstimatedLoads;
+
+    /**
+     * The dense indexes of the edges that were used during the previous step.
+     * Only used if the overloads are propagated incrementally.
+     */
+    private final BitSet previousEdgesToConsider;
+
+    /**
+     * The number of overloaded edges that each edge leads to, indexed by the
+     * dense index of the edges. Only used if the overloads are propagated
+     * incrementally.
+     */
+    private final int[] nbOverloadedNextEdges;
+
+    /**
+     * The dense indexes of the edges whose travel time must be calculated
+     * again during the current step. Only used if the overloads are
+     * propagated incrementally.
+     */
+    private final BitSet edgesToUpdate;
+
+    /**
+     * The dense indexes of the edges that are used during the current step.
+     */
+    private final BitSet edgesToConsider;
+
+    /**
+     * The dense indexes of the edges that are overloaded during the current
+     * step.
+     */
+    private final BitSet overloadedEdges;
+
+    /**
+     * The number of vehicles that were on each edge during the current step,
+     * indexed by the dense index of the edges. Used for statistics for edges.
+     */
+    private final int[] nbVehiclesPerEdgeForThisStep;
+
+    /**
+     * The minimum number of running vehicles per thread for a phase of a step
+     * to be computed in parallel. Under this number, the synchronisation of
+     * the threads costs more than it saves.
+     */
+    private final int MIN_VEHICLES_PER_THREAD = 1024;
+
+    /**
+     * The number of threads used to compute each step of the simulation.
+     */
+    private final int nbThreads;
+
+    /**
+     * The pool of threads used to compute each step of the simulation. Null if
+     * the simulation is computed by one thread.
+     */
+    private final ForkJoinPool threadsPool;
+
+    /**
+     * The running vehicles that are departed at the current step, copied from
+     * the network so that they can be split into chunks between the threads.
+     */
+    private final List<Vehicle> departedRunningVehicles;
+
+    /**
+     * The estimated number of vehicles per edge computed by each thread for
+     * its chunk of running vehicles, indexed by the dense index of the edges.
+     * They are merged into the estimated loads and reset after each step.
+     */
+    private final int[][] partialEstimatedLoads;
+
+    /**
+     * The dense indexes of the edges used by the chunk of running vehicles of
+     * each thread during the current step.
      */
-    private final Map<String, List<Vehicle>> currentStepFinalLoads;
+    private final BitSet[] partialEdgesToConsider;
+
+    /**
+     * The reader of the vehicles of the route file during the simulation, null
+     * if all the vehicles are read before the simulation.
+     */
+    private final SumoRouteFileStreamReader routeFileStreamReader;
 
     /**
      * The time configurations for the simulation including the begin time, the
@@ -107,19 +300,7 @@ public class Simulation {
      * the values of command line.
      */
     public Simulation(RoninCommandLineConfigurationInfos roninCmdConfig) {
-        this.currentStepFinalLoads = new HashMap<>();
-
-        this.profilingTimeStats = new SimulationProfilingTimeStatistics();
-
-        this.roninCmdConfig = roninCmdConfig;
-        SumoConfigInformation sumoInfos = (roninCmdConfig.getVehiclesTypesFilePath().isEmpty()) ? new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath()) : new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath(), roninCmdConfig.getVehiclesTypesFilePath());
-        SumoFilesReader sumoReader = new SumoFilesReader(sumoInfos);
-
-        this.network = sumoReader.readNetwork();
-        this.timeConfig = sumoReader.readSimulationTimeConfiguration();
-        this.currentStep = 0;
-
-        globalOutputsDirectoryPath = getGlobalOutputsDirectoryPath();
+        this(roninCmdConfig, (roninCmdConfig.getVehiclesTypesFilePath().isEmpty()) ? new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath()) : new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath(), roninCmdConfig.getVehiclesTypesFilePath()), null);
     }
 
     /**
@@ -133,21 +314,73 @@ public class Simulation {
      * already defined in Sumo file, the value is overriden by this one.
      */
     public Simulation(RoninCommandLineConfigurationInfos roninCmdConfig, double stepLength) {
-        this.currentStepFinalLoads = new HashMap<>();
+        this(roninCmdConfig, new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath()), stepLength);
+    }
 
+    /**
+     * Constructs and initializes a Simulation Manager with the network read
+     * from sumo files, and the state of its steps.
+     *
+     * @param roninCmdConfig object containing the configuration of Ronin with
+     * the values of command line.
+     * @param sumoInfos the paths to the sumo files of the simulation
+     * @param stepLength the duration of a time slot in seconds, overriding the
+     * one of the sumo files; null to keep the one of the sumo files
+     */
+    private Simulation(RoninCommandLineConfigurationInfos roninCmdConfig, SumoConfigInformation sumoInfos, Double stepLength) {
         this.profilingTimeStats = new SimulationProfilingTimeStatistics();
 
         this.roninCmdConfig = roninCmdConfig;
-
-        SumoConfigInformation sumoInfos = new SumoConfigInformation(roninCmdConfig.getSumocfgFilePath());
         SumoFilesReader sumoReader = new SumoFilesReader(sumoInfos);
 
-        this.network = sumoReader.readNetwork();
+        this.network = sumoReader.readNetwork(!roninCmdConfig.isDemandStreamed());
+        this.routeFileStreamReader = roninCmdConfig.isDemandStreamed() ? sumoReader.getRouteFileStreamReader() : null;
         this.timeConfig = sumoReader.readSimulationTimeConfiguration();
-        this.timeConfig.setStepLength(stepLength);
+        if (stepLength != null) {
+            this.timeConfig.setStepLength(stepLength);
+        }
         this.currentStep = 0;
 
+        int nbEdges = network.getGraph().getNbEdges();
+        this.estimatedLoads = new int[nbEdges];
+        this.travelTimes = new double[nbEdges];
+        this.edgesToConsider = new BitSet(nbEdges);
+        this.overloadedEdges = new BitSet(nbEdges);
+        //the travel times of a simulation monitored by a server can change with the speed limits
+        this.isOverloadPropagationIncremental = !roninCmdConfig.isSimulationMonitoredByServer();
+        this.previousEstimatedLoads = new int[nbEdges];
+        this.previousEdgesToConsider = new BitSet(nbEdges);
+        this.nbOverloadedNextEdges = new int[nbEdges];
+        this.edgesToUpdate = new BitSet(nbEdges);
+        if (isOverloadPropagationIncremental) {
+            for (int i = 0; i < nbEdges; i++) {
+                travelTimes[i] = network.getGraph().getEdgeByIndex(i).getTravelTime(0);
+            }
+        }
+        this.nbVehiclesPerEdgeForThisStep = new int[nbEdges];
+        this.currentStepFinalLoads = new int[nbEdges];
+        this.currentStepFinalVehicles = null;
+        this.currentStepTimeSlot = timeConfig.getBeginTime();
+
+        this.nbThreads = roninCmdConfig.getNbThreads();
+        this.threadsPool = (nbThreads > 1) ? new ForkJoinPool(nbThreads) : null;
+        this.departedRunningVehicles = new ArrayList<>();
+        this.partialEstimatedLoads = new int[nbThreads][];
+        this.partialEdgesToConsider = new BitSet[nbThreads];
+        if (nbThreads > 1) {
+            for (int iThread = 0; iThread < nbThreads; iThread++) {
+                partialEstimatedLoads[iThread] = new int[nbEdges];
+                partialEdgesToConsider[iThread] = new BitSet(nbEdges);
+            }
+        }
+
+        //the vehicles of a simulation monitored by a server can be read at any step, so they must be up to date
+        if (!roninCmdConfig.isSimulationMonitoredByServer()) {
+            network.enableWaitingVehiclesWheel(timeConfig.getStepLength());
+        }
+
         globalOutputsDirectoryPath = getGlobalOutputsDirectoryPath();
+        openOutputsFiles();
     }
 
     /**
@@ -195,6 +428,44 @@ public class Simulation {
         return profilingTimeStats;
     }
 
+    /**
+     * Opens the files where all the steps of the loads matrixes are written,
+     * if they are not written in one file per step, opens the trip infos file
+     * and the edge data file and starts the writer threads of these outputs,
+     * if they are not written by the thread of the simulation.
+     */
+    private void openOutputsFiles() {
+        if (roninCmdConfig.isGenerateLightLM() && roninCmdConfig.isBinaryLightLM()) {
+            binaryLightLoadsMatrix = new BinaryLoadsMatrixWriter(globalOutputsDirectoryPath, "lightLoadsMatrix", network.getGraph().getEdgesByIndex(), BinaryLoadsMatrixWriter.DEFAULT_NB_STEPS_PER_BLOCK, true);
+        } else if (roninCmdConfig.isGenerateLightLM() && roninCmdConfig.isLoadsMatrixInContainer()) {
+            lightLoadsMatrixContainer = new LoadsMatrixContainerWriter(globalOutputsDirectoryPath, "lightLoadsMatrix", LoadsMatrixContainerWriter.LIGHT_LOADS_MATRIX_EXTENSION, "llm.xml");
+        }
+        if (roninCmdConfig.isGenerateLM() && roninCmdConfig.isLoadsMatrixInContainer()) {
+            loadsMatrixContainer = new LoadsMatrixContainerWriter(globalOutputsDirectoryPath, "LoadsMatrix", LoadsMatrixContainerWriter.LOADS_MATRIX_EXTENSION, "lm.xml");
+        }
+        if (roninCmdConfig.isGenerateTripInfos()) {
+            tripInfosWriter = new TripInfosWriter(globalOutputsDirectoryPath, "");
+        }
+        if (roninCmdConfig.isGenerateEdgeData()) {
+            edgesWriter = new EdgesWriter(globalOutputsDirectoryPath, "");
+            edgesIntervalStatistics = new EdgesIntervalStatistics(network.getGraph().getEdgesByIndex().size(), timeConfig.getBeginTime());
+        }
+        if (roninCmdConfig.getOutputsQueueCapacity() > 0) {
+            if (roninCmdConfig.isGenerateLightLM()) {
+                lightLoadsMatrixOutputs = new OutputsPipeline("lightLoadsMatrix", roninCmdConfig.getOutputsQueueCapacity());
+            }
+            if (roninCmdConfig.isGenerateLM()) {
+                loadsMatrixOutputs = new OutputsPipeline("LoadsMatrix", roninCmdConfig.getOutputsQueueCapacity());
+            }
+            if (roninCmdConfig.isGenerateTripInfos()) {
+                tripInfosOutputs = new OutputsPipeline("tripinfos", roninCmdConfig.getOutputsQueueCapacity());
+            }
+            if (roninCmdConfig.isGenerateEdgeData()) {
+                edgeDataOutputs = new OutputsPipeline("edgeData", roninCmdConfig.getOutputsQueueCapacity());
+            }
+        }
+    }
+
     /**
      * Returns the output directory path for the directory where we will write
      * our outputs for this simulation. If the directory does not exist we
@@ -235,7 +506,62 @@ public class Simulation {
      * current time step of this Simulation
      */
     public List<Vehicle> getCurrentStepFinalLoadForEdge(String idEdge) {
-        return currentStepFinalLoads.getOrDefault(idEdge, new LinkedList<>());
+        return getCurrentStepFinalVehicles().getOrDefault(idEdge, new LinkedList<>());
+    }
+
+    /**
+     * Returns the number of running vehicles that are on a specific Edge at
+     * the current time step of this Simulation. Returns 0 if the Edge is not
+     * found.
+     *
+     * @param idEdge the id of the Edge that we want the number of vehicles
+     * @return the number of running vehicles that are on a specific Edge at
+     * the current time step of this Simulation
+     */
+    public int getCurrentStepFinalLoadCountForEdge(String idEdge) {
+        Edge edge = network.getEdge(idEdge);
+        if (edge == null) {
+            return 0;
+        }
+        return currentStepFinalLoads[edge.getIndex()];
+    }
+
+    /**
+     * Returns the estimated number of vehicles on an Edge at the current time
+     * step of this Simulation, before the vehicles are repositioned.
+     *
+     * @param edgeIndex the dense index of the Edge
+     * @return the estimated number of vehicles on the Edge at the current time
+     * step of this Simulation
+     */
+    int getCurrentStepEstimatedLoad(int edgeIndex) {
+        return estimatedLoads[edgeIndex];
+    }
+
+    /**
+     * Returns true if an Edge is overloaded at the current time step of this
+     * Simulation; false otherwise.
+     *
+     * @param edgeIndex the dense index of the Edge
+     * @return true if the Edge is overloaded at the current time step of this
+     * Simulation; false otherwise
+     */
+    boolean isCurrentStepOverloadedEdge(int edgeIndex) {
+        return overloadedEdges.get(edgeIndex);
+    }
+
+    /**
+     * Returns the final map of loads of vehicles per edge for the current step
+     * with the accurate positions of the running vehicles. The map is built
+     * the first time it is requested during a step.
+     *
+     * @return the final map of loads of vehicles per edge for the current step
+     */
+    private Map<String, List<Vehicle>> getCurrentStepFinalVehicles() {
+        if (currentStepFinalVehicles == null) {
+            currentStepFinalVehicles = network.collectCurrentStepFinalLoads(currentStepTimeSlot);
+        }
+        return currentStepFinalVehicles;
     }
 
     /**
@@ -253,7 +579,9 @@ public class Simulation {
     public boolean isFinished() {
         //We do the simulation while there is stil a not arrived vehicle or until we reach the end time of the simulation
         boolean doWeConsiderEndTime = timeConfig.getEndTime() >= 0;
-        return !(!network.areAllVehiclesArrived() && ((timeConfig.getBeginTime() + currentStep * timeConfig.getStepLength() <= timeConfig.getEndTime() && doWeConsiderEndTime) || doWeConsiderEndTime == false));
+        boolean areAllVehiclesArrived = network.areAllVehiclesArrived()
+                && (routeFileStreamReader == null || !routeFileStreamReader.hasNextVehicle(network));
+        return !(!areAllVehiclesArrived && ((timeConfig.getBeginTime() + currentStep * timeConfig.getStepLength() <= timeConfig.getEndTime() && doWeConsiderEndTime) || doWeConsiderEndTime == false));
     }
 
     /**
@@ -303,13 +631,63 @@ public class Simulation {
 
     /**
      * Does the work of end of simulation including writting the outputs of end
-     * of simulation.
+     * of simulation. Every output, the threads pool and the route file are
+     * closed even if one of them fails; the first failure is then thrown, with
+     * the next ones as suppressed exceptions.
      */
     public void endSimulationWork() {
         double bTimeWriteOutputs = System.currentTimeMillis();
-        writeEndSimulationOutputs();
+        // the outputs of the last steps are flushed before the files of the loads matrixes are closed
+        RuntimeException failure = null;
+        failure = runEndTask(() -> closeOutputsPipeline(lightLoadsMatrixOutputs), failure);
+        failure = runEndTask(() -> closeOutputsPipeline(loadsMatrixOutputs), failure);
+        failure = runEndTask(() -> closeOutputsPipeline(tripInfosOutputs), failure);
+        failure = runEndTask(() -> closeOutputsPipeline(edgeDataOutputs), failure);
+        if (binaryLightLoadsMatrix != null) {
+            failure = runEndTask(binaryLightLoadsMatrix::close, failure);
+        }
+        if (lightLoadsMatrixContainer != null) {
+            failure = runEndTask(lightLoadsMatrixContainer::close, failure);
+        }
+        if (loadsMatrixContainer != null) {
+            failure = runEndTask(loadsMatrixContainer::close, failure);
+        }
+        failure = writeEndSimulationOutputs(failure);
         double eTimeWriteOutputs = System.currentTimeMillis();
         profilingTimeStats.setTimeWriteEndSimulationOutputs((eTimeWriteOutputs - bTimeWriteOutputs) / 1000);
+
+        if (threadsPool != null) {
+            failure = runEndTask(threadsPool::shutdown, failure);
+        }
+        if (routeFileStreamReader != null) {
+            failure = runEndTask(routeFileStreamReader::close, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs a task of the end of the simulation, keeping its failure so that
+     * the next tasks are still run.
+     *
+     * @param task the task to run
+     * @param failure the first failure of the previous tasks, null if they
+     * did not fail
+     * @return the first failure of the previous tasks and of this task, with
+     * the failure of this task as suppressed exception if it is not the first
+     * one; null if no task failed
+     */
+    private static RuntimeException runEndTask(Runnable task, RuntimeException failure) {
+        try {
+            task.run();
+        } catch (RuntimeException ex) {
+            if (failure == null) {
+                return ex;
+            }
+            failure.addSuppressed(ex);
+        }
+        return failure;
     }
 
     /**
@@ -323,21 +701,17 @@ public class Simulation {
         if (!isFinished()) {
             double timeSlot = timeConfig.getBeginTime() + currentStep * timeConfig.getStepLength();
 
-            // a map of loads of vehicles per edge. Vehicles may be on several edges, we are making estimation.
-            Map<String, List<Vehicle>> estimatedLoads = new HashMap<>();
-            // a map that contains all the positions of each vehicle for this step. The key is the Edge, and value is the list of vehicles that were on this Edge during this timestep. Used for statistics for edges.
-            Map<String, List<Vehicle>> positionsOfVehiclesForThisStep = null;
-            if (roninCmdConfig.isGenerateEdgeData()) {
-                positionsOfVehiclesForThisStep = new HashMap<>();
+            // the per edge state of the previous step is reset for the new step
+            resetEdgesStepState();
+            // the final loads of vehicles per edge for this step with the accurate positions are cleared for the new step
+            Arrays.fill(currentStepFinalLoads, 0);
+            currentStepFinalVehicles = null;
+            currentStepTimeSlot = timeSlot;
+
+            // the vehicles that depart soon are read from the route file
+            if (routeFileStreamReader != null) {
+                routeFileStreamReader.readVehicles(network, timeSlot + roninCmdConfig.getDemandLookAhead());
             }
-            // a map of travel time per edge
-            Map<String, Double> travelTimes = new HashMap<>();
-            // the edges that are used during this step
-            Set<Edge> edgesToConsider = new HashSet<>();
-            // the edges that are overload during this step
-            Map<String, Edge> overloadEdges = new HashMap<>();
-            // the final map of loads of vehicles per edge for this step with the accurate positions is cleared for the new step
-            currentStepFinalLoads.clear();
 
             // We remove and/or add vehicles to simulation. (used mainly if monitored by a Ronin Server).
             network.flushLoadedVehicles();
@@ -346,32 +720,41 @@ public class Simulation {
 
             // We do the algo
             double bTimeCompute = System.currentTimeMillis();
-            computeLoads(estimatedLoads, overloadEdges, edgesToConsider);
+            computeLoads();
             double eTimeCompute = System.currentTimeMillis();
             profilingTimeStats.increaseTimeComputationLoads((eTimeCompute - bTimeCompute) / 1000);
 
             double bTimePropagate = System.currentTimeMillis();
-            propagateOverloads(estimatedLoads, travelTimes, overloadEdges, edgesToConsider);
+            propagateOverloads();
             double eTimePropagate = System.currentTimeMillis();
             profilingTimeStats.increaseTimePropagateOverloads((eTimePropagate - bTimePropagate) / 1000);
 
             double bTimeRepositioning = System.currentTimeMillis();
-            network.repositionRunningVehicles(currentStepFinalLoads, timeSlot, timeConfig.getStepLength(), travelTimes, roninCmdConfig.isGenerateEdgeData(), positionsOfVehiclesForThisStep);
+            if (isComputedInParallel()) {
+                network.repositionRunningVehiclesInParallel(currentStepFinalLoads, timeSlot, timeConfig.getStepLength(), travelTimes, roninCmdConfig.isGenerateEdgeData(), nbVehiclesPerEdgeForThisStep, threadsPool);
+            } else {
+                network.repositionRunningVehicles(currentStepFinalLoads, timeSlot, timeConfig.getStepLength(), travelTimes, roninCmdConfig.isGenerateEdgeData(), nbVehiclesPerEdgeForThisStep);
+            }
             double eTimeRepositioning = System.currentTimeMillis();
             profilingTimeStats.increasesTimeRepositioning((eTimeRepositioning - bTimeRepositioning) / 1000);
 
             if (roninCmdConfig.isGenerateEdgeData()) {
                 double bTimeStatistics = System.currentTimeMillis();
-                computeStatistics(positionsOfVehiclesForThisStep, travelTimes, edgesToConsider);
+                computeStatistics();
                 double eTimeStatistics = System.currentTimeMillis();
                 profilingTimeStats.increaseTimeComputeStatistics((eTimeStatistics - bTimeStatistics) / 1000);
             }
 
             double bTimeWritingOutputs = System.currentTimeMillis();
-            writeCurrentStepOutputs(currentStepFinalLoads, timeSlot);
+            writeCurrentStepOutputs(timeSlot);
             double eTimeWritingOutputs = System.currentTimeMillis();
             profilingTimeStats.increaseTimeWriteCurrentStepOutputs((eTimeWritingOutputs - bTimeWritingOutputs) / 1000);
 
+            //the arrived vehicles are kept only if a client of the server can query them, their trips are already written
+            if (!roninCmdConfig.isSimulationMonitoredByServer()) {
+                network.removeCurrentStepArrivedVehicles();
+            }
+
             increaseCurrentStep();
             return false;
         }
@@ -379,152 +762,382 @@ public class Simulation {
         return true;
     }
 
+    /**
+     * Resets the per edge state of the step (estimated loads, edges to
+     * consider and overloaded edges) so that it can be reused for a new step.
+     * Only the entries of the edges used during the previous step are reset.
+     * If the overloads are propagated incrementally, the estimated loads of
+     * the previous step are kept.
+     */
+    private void resetEdgesStepState() {
+        if (isOverloadPropagationIncremental) {
+            for (int i = previousEdgesToConsider.nextSetBit(0); i >= 0; i = previousEdgesToConsider.nextSetBit(i + 1)) {
+                previousEstimatedLoads[i] = 0;
+            }
+            previousEdgesToConsider.clear();
+            previousEdgesToConsider.or(edgesToConsider);
+        }
+        for (int i = edgesToConsider.nextSetBit(0); i >= 0; i = edgesToConsider.nextSetBit(i + 1)) {
+            if (isOverloadPropagationIncremental) {
+                previousEstimatedLoads[i] = estimatedLoads[i];
+            }
+            estimatedLoads[i] = 0;
+        }
+        edgesToConsider.clear();
+        overloadedEdges.clear();
+        if (roninCmdConfig.isGenerateEdgeData()) {
+            Arrays.fill(nbVehiclesPerEdgeForThisStep, 0);
+        }
+    }
+
     /**
      * Computes the loads of the edges. The vehicles are not moved but we
-     * calculate their possible positions for this step.
-     *
-     * @param estimatedLoads a map of loads of vehicles per edge. Vehicles may
-     * be on several edges, we are making estimation
-     * @param overloadEdges the map of overload edges of this step
-     * @param edgesToConsider the list of edges that are used during this step
-     * of simulation
+     * calculate their possible positions for this step. It fills the estimated
+     * loads, the edges to consider and the overloaded edges of this step. If
+     * several threads are used, each thread computes the loads of a chunk of
+     * the running vehicles and the partial loads are merged afterwards, which
+     * gives the same result as the computation by one thread.
      */
-    private void computeLoads(
-            final Map<String, List<Vehicle>> estimatedLoads, final Map<String, Edge> overloadEdges, final Set<Edge> edgesToConsider) {
+    private void computeLoads() {
 
         Double timeSlot = timeConfig.getBeginTime() + currentStep * timeConfig.getStepLength();
 
-        Iterator<Vehicle> runningIterator = network.getRunningVehicles().iterator();
-        while (runningIterator.hasNext()) {
-            Vehicle v = runningIterator.next();
-            if (v.getDepartureTime() <= timeSlot) {
-                double time = 0.0;
-                int iCurrentPosition = v.getPosition();
-                List<Edge> route = v.getRoute();
-
-                //while we have enough time to move 
-                //and while we are not arrived, we can move.
-                while (time < timeConfig.getStepLength() && iCurrentPosition < route.size() - 1) {
-                    Edge currentEdge = route.get(iCurrentPosition);
-                    edgesToConsider.add(currentEdge);
-                    MapUtils.addVehicleToVehiclesListMap(estimatedLoads, v, currentEdge.getId());
-                    //we add the min travel time because we are making 
-                    //probabilities about where the vehicle can be.
-                    time += currentEdge.getMinTravelTime();
-
-                    if (currentEdge.isOverloaded(estimatedLoads.get(currentEdge.getId()).size())) {
-                        overloadEdges.put(currentEdge.getId(), currentEdge);
-                    }
-
-                    //if we have enough time to go through this edge, we go to the next edge
-                    if (time < timeConfig.getStepLength()) {
-                        iCurrentPosition += 1;
-                    }
-                }
-            } else {
-                //The list of running vehicles is supposed to be sorted by departure time
-                //So if a vehicle is not arrived yet, the next are not arrived neither.
-                break;
+        //the estimated loads of the vehicles waiting in the timing wheel do not change while they wait
+        network.collectDepartedRunningVehicles(timeSlot, departedRunningVehicles);
+        network.addWaitingVehiclesEstimatedLoads(estimatedLoads, edgesToConsider);
+
+        if (isComputedInParallel()) {
+            computeLoadsInParallel();
+        } else {
+            departedRunningVehicles.stream().forEach((v) -> {
+                estimateLoadsOfVehicle(v, estimatedLoads, edgesToConsider);
+            });
+        }
+
+        //an edge is overloaded if its estimated load is above its capacity
+        Graph graph = network.getGraph();
+        for (int i = edgesToConsider.nextSetBit(0); i >= 0; i = edgesToConsider.nextSetBit(i + 1)) {
+            if (graph.getEdgeByIndex(i).isOverloaded(estimatedLoads[i])) {
+                overloadedEdges.set(i);
             }
+        }
+
+    }
+
+    /**
+     * Returns true if the current step is computed by several threads; false
+     * otherwise. A step is computed by several threads only if there are
+     * enough departed running vehicles for each thread.
+     *
+     * @return true if the current step is computed by several threads; false
+     * otherwise
+     */
+    boolean isComputedInParallel() {
+        return threadsPool != null && departedRunningVehicles.size() >= nbThreads * MIN_VEHICLES_PER_THREAD;
+    }
 
+    /**
+     * Computes the loads of the edges with several threads. The departed
+     * running vehicles are split into one chunk per thread, each thread fills
+     * its own partial loads, then the partial loads are added to the estimated
+     * loads of the step and reset for the next step.
+     */
+    private void computeLoadsInParallel() {
+        int nbVehicles = departedRunningVehicles.size();
+        List<Callable<Void>> tasks = new ArrayList<>(nbThreads);
+
+        for (int iThread = 0; iThread < nbThreads; iThread++) {
+            final int[] loads = partialEstimatedLoads[iThread];
+            final BitSet edges = partialEdgesToConsider[iThread];
+            final List<Vehicle> chunk = departedRunningVehicles.subList(iThread * nbVehicles / nbThreads, (iThread + 1) * nbVehicles / nbThreads);
+            tasks.add(() -> {
+                chunk.stream().forEach((v) -> {
+                    estimateLoadsOfVehicle(v, loads, edges);
+                });
+                return null;
+            });
         }
 
+        ThreadsUtils.invokeAllAndWait(threadsPool, tasks);
+
+        //the partial loads are merged in the order of the chunks
+        for (int iThread = 0; iThread < nbThreads; iThread++) {
+            int[] loads = partialEstimatedLoads[iThread];
+            BitSet edges = partialEdgesToConsider[iThread];
+            for (int i = edges.nextSetBit(0); i >= 0; i = edges.nextSetBit(i + 1)) {
+                estimatedLoads[i] += loads[i];
+                loads[i] = 0;
+            }
+            edgesToConsider.or(edges);
+            edges.clear();
+        }
     }
 
     /**
-     * Calculates the travel time for every Edge, and propagate the congestion
-     * of overloaded edges to their predecessors.
+     * Adds a running vehicle to the estimated loads of the edges it can reach
+     * during this step. The vehicle is not moved but we calculate its possible
+     * positions for this step using the min travel times of the edges.
      *
-     * @param estimatedLoads a map of loads of vehicles per edge. Vehicles may
-     * be on several edges, we are making estimation.
-     * @param travelTimes the current map of travel time per edge for this step
-     * @param overloadEdges the map of overload edges of this step
-     * @param edgesToConsider the list of edges that are used during this step
-     * of simulation
+     * @param v the running vehicle
+     * @param loads the estimated number of vehicles per edge to increase,
+     * indexed by the dense index of the edges
+     * @param edges the dense indexes of the edges used during this step
      */
-    private void propagateOverloads(final Map< String, List<Vehicle>> estimatedLoads,
-            final Map< String, Double> travelTimes, final Map<String, Edge> overloadEdges, Set<Edge> edgesToConsider) {
+    private void estimateLoadsOfVehicle(Vehicle v, int[] loads, BitSet edges) {
+        int end = v.getEndOfEstimatedPositions(timeConfig.getStepLength());
+
+        for (int i = v.getPosition(); i < end; i++) {
+            int iEdge = v.getEdgeIndexOfRouteAtPosition(i);
+            edges.set(iEdge);
+            loads[iEdge]++;
+        }
+    }
+
+    /**
+     * Calculates the travel time for every Edge used during this step, and
+     * propagate the congestion of overloaded edges to their predecessors.
+     */
+    private void propagateOverloads() {
+        if (isOverloadPropagationIncremental) {
+            propagateOverloadsIncrementally();
+            return;
+        }
+        Graph graph = network.getGraph();
 
         //first we calculate the travel time for all the edges.
-        edgesToConsider.stream().forEach((normalEdge) -> {
-            double load = estimatedLoads.get(normalEdge.getId()).size();
-            double travelTime = normalEdge.getTravelTime(load);
-            travelTimes.put(normalEdge.getId(), travelTime);
-        });
+        for (int i = edgesToConsider.nextSetBit(0); i >= 0; i = edgesToConsider.nextSetBit(i + 1)) {
+            travelTimes[i] = graph.getEdgeByIndex(i).getTravelTime(estimatedLoads[i]);
+        }
 
         //for all the edges that can lead to an overload Edge, 
         //their travel time is set to the maximum.
-        overloadEdges.values().stream().forEach((e) -> {
-            Map<String, Edge> ingoingEdges = e.getStartNode().getIngoingEdges();
+        for (int i = overloadedEdges.nextSetBit(0); i >= 0; i = overloadedEdges.nextSetBit(i + 1)) {
+            Map<String, Edge> ingoingEdges = graph.getEdgeByIndex(i).getStartNode().getIngoingEdges();
 
             ingoingEdges.values().stream().forEach((impactedEdge) -> {
-                travelTimes.put(impactedEdge.getId(), impactedEdge.getMaxTravelTime());
+                travelTimes[impactedEdge.getIndex()] = impactedEdge.getMaxTravelTime();
             });
 
-        });
+        }
+
+    }
+
+    /**
+     * Calculates the travel time of the edges whose estimated load changed
+     * since the previous step, and propagate the changes of overloads to
+     * their predecessors. The travel times of the other edges are the same as
+     * at the previous step. The travel time of an edge is the maximum if it
+     * leads to an overloaded edge, else it is given by its estimated load.
+     */
+    private void propagateOverloadsIncrementally() {
+        Graph graph = network.getGraph();
+
+        //only the edges used during this step or the previous one can have a new load
+        for (int i = edgesToConsider.nextSetBit(0); i >= 0; i = edgesToConsider.nextSetBit(i + 1)) {
+            updateEstimatedLoadChange(graph.getEdgeByIndex(i));
+        }
+        for (int i = previousEdgesToConsider.nextSetBit(0); i >= 0; i = previousEdgesToConsider.nextSetBit(i + 1)) {
+            if (!edgesToConsider.get(i)) {
+                updateEstimatedLoadChange(graph.getEdgeByIndex(i));
+            }
+        }
 
+        for (int i = edgesToUpdate.nextSetBit(0); i >= 0; i = edgesToUpdate.nextSetBit(i + 1)) {
+            Edge edge = graph.getEdgeByIndex(i);
+            travelTimes[i] = (nbOverloadedNextEdges[i] > 0) ? edge.getMaxTravelTime() : edge.getTravelTime(estimatedLoads[i]);
+        }
+        edgesToUpdate.clear();
     }
 
     /**
-     * Increases the values of attributes of objects like edges for statistical
-     * outputs.
+     * Marks an edge whose estimated load changed since the previous step to
+     * calculate again its travel time. If the edge starts or stops to be
+     * overloaded, the edges leading to it are marked too and their number of
+     * overloaded next edges is updated. Does nothing if the estimated load of
+     * the edge did not change.
      *
-     * @param positionsOfVehiclesForThisStep a map that contains all the
-     * positions of each vehicle for this step. The key is the Edge, and value
-     * is the list of vehicles that were on this Edge during this timestep.
-     * @param travelTimes the current map of travel time per edge for this step
-     * @param edgesToConsider the list of edges that are used during this step
-     * of simulation
-     */
-    private void computeStatistics(final Map< String, List<Vehicle>> positionsOfVehiclesForThisStep,
-            final Map< String, Double> travelTimes, Set<Edge> edgesToConsider) {
-
-        edgesToConsider.parallelStream().forEach((edge) -> {
-            int nbVehiclesForCurrentStepForEdge = 0;
-            if (positionsOfVehiclesForThisStep.containsKey(edge.getId())) {
-                nbVehiclesForCurrentStepForEdge = positionsOfVehiclesForThisStep.get(edge.getId()).size();
+     * @param edge the edge used during this step or the previous one
+     */
+    private void updateEstimatedLoadChange(Edge edge) {
+        int i = edge.getIndex();
+        if (estimatedLoads[i] == previousEstimatedLoads[i]) {
+            return;
+        }
+        edgesToUpdate.set(i);
+        boolean isOverloaded = edge.isOverloaded(estimatedLoads[i]);
+        if (isOverloaded != edge.isOverloaded(previousEstimatedLoads[i])) {
+            //the edges leading to this edge start or stop to lead to an overloaded edge
+            for (Edge impactedEdge : edge.getStartNode().getIngoingEdges().values()) {
+                nbOverloadedNextEdges[impactedEdge.getIndex()] += isOverloaded ? 1 : -1;
+                edgesToUpdate.set(impactedEdge.getIndex());
             }
-            double travelTimeForCurrentStepForEdge = travelTimes.getOrDefault(edge.getId(), edge.getMinTravelTime());
-            edge.increaseNbTotVehicles(nbVehiclesForCurrentStepForEdge);
-            edge.increaseTravelTimeTotal(travelTimeForCurrentStepForEdge);
-        });
+        }
+    }
+
+    /**
+     * Increases the statistics of the edges for the current interval of the
+     * edge data, with the number of vehicles per edge and the travel times of
+     * the edges used during this step and the vehicles that arrived during
+     * this step.
+     */
+    private void computeStatistics() {
+        edgesIntervalStatistics.addStep(edgesToConsider, nbVehiclesPerEdgeForThisStep, travelTimes);
+
+        for (Vehicle v : network.getCurrentStepArrivedVehicles()) {
+            if (!v.getRoute().isEmpty()) {
+                edgesIntervalStatistics.increaseArrivedVehicles(v.getEdgeOfRouteAtPosition(v.getRoute().size() - 1).getIndex());
+            }
+        }
 
     }
 
     /**
-     * Writes the outputs of the finished current step.
+     * Writes the outputs of the finished current step, in their own files, in
+     * the containers of the loads matrixes or in the binary light loads
+     * matrix. The lists of vehicles per edge
+     * are only built if the loads matrix is requested. The trips of the
+     * vehicles that arrived during the step are written in the trip infos
+     * file. If the step finishes an interval of the edge data, the interval is
+     * written. If the outputs have writer threads, the loads and the trips of
+     * the step are copied and handed to them, so that the next step can be
+     * computed while they are written.
      *
-     * @param finalLoads the final map of loads of vehicles per edge for this
-     * stpe with the accurate positions
      * @param timeSlot the timeslot of the step
      */
-    public void writeCurrentStepOutputs(final Map< String, List<Vehicle>> finalLoads, double timeSlot) {
+    public void writeCurrentStepOutputs(double timeSlot) {
+        final int stepNumber = currentStep;
+
         if (roninCmdConfig.isGenerateLightLM()) {
-            LightLoadsWriter llw = new LightLoadsWriter(globalOutputsDirectoryPath, "", finalLoads, timeSlot, currentStep);
-            llw.writeOutputFile();
+            final int[] loads = lightLoadsMatrixOutputs != null ? currentStepFinalLoads.clone() : currentStepFinalLoads;
+            submitOutput(lightLoadsMatrixOutputs, () -> writeLightLoadsMatrixStep(stepNumber, timeSlot, loads));
         }
 
         if (roninCmdConfig.isGenerateLM()) {
-            LoadsWriter lw = new LoadsWriter(globalOutputsDirectoryPath, "", finalLoads, timeSlot, currentStep);
-            lw.writeOutputFile();
+            // the lists of vehicles per edge are built for each step, and only the ids of the vehicles are written
+            LoadsWriter lw = new LoadsWriter(globalOutputsDirectoryPath, "", getCurrentStepFinalVehicles(), timeSlot, stepNumber);
+            submitOutput(loadsMatrixOutputs, () -> {
+                if (loadsMatrixContainer != null) {
+                    loadsMatrixContainer.writeStep(stepNumber, timeSlot, lw);
+                } else {
+                    lw.writeOutputFile();
+                }
+            });
+        }
+
+        if (tripInfosWriter != null && !network.getCurrentStepArrivedVehicles().isEmpty()) {
+            // the trips are summarized now, so that the arrived vehicles can be removed from the network
+            final List<TripSummary> trips = new ArrayList<>(network.getCurrentStepArrivedVehicles().size());
+            for (Vehicle v : network.getCurrentStepArrivedVehicles()) {
+                trips.add(new TripSummary(v, timeConfig.getStepLength()));
+            }
+            submitOutput(tripInfosOutputs, () -> trips.forEach(tripInfosWriter::writeTripInfo));
+        }
+
+        // the interval of the edge data is written as soon as it is finished
+        double endTimeSlot = timeConfig.getBeginTime() + timeConfig.getStepLength() * (stepNumber + 1);
+        if (edgesWriter != null && roninCmdConfig.getEdgeDataPeriod() > 0
+                && endTimeSlot >= edgesIntervalStatistics.getBeginTime() + roninCmdConfig.getEdgeDataPeriod()) {
+            writeEdgeDataInterval(endTimeSlot);
         }
 
     }
 
     /**
-     * Write the outputs of end of simulation.
+     * Writes the current interval of the edge data, that ends at the given
+     * time slot, and starts a new interval at this time slot. If the edge data
+     * have a writer thread, the statistics of the interval are copied and
+     * handed to it.
+     *
+     * @param endTimeSlot the end time slot of the interval in seconds
      */
-    private void writeEndSimulationOutputs() {
-        if (roninCmdConfig.isGenerateEdgeData()) {
-            double finalTimeSlot = timeConfig.getBeginTime() + timeConfig.getStepLength() * currentStep;
-            EdgesWriter ew = new EdgesWriter(globalOutputsDirectoryPath, "", network.getEdges().values(), timeConfig.getBeginTime(), finalTimeSlot, currentStep);
-            ew.writeOutputFile();
+    private void writeEdgeDataInterval(double endTimeSlot) {
+        final EdgesIntervalStatistics statistics = edgeDataOutputs != null ? new EdgesIntervalStatistics(edgesIntervalStatistics) : edgesIntervalStatistics;
+        submitOutput(edgeDataOutputs, () -> edgesWriter.writeInterval(network.getEdges().values(), statistics, endTimeSlot));
+        edgesIntervalStatistics.reset(endTimeSlot);
+    }
+
+    /**
+     * Writes a step of the light loads matrix, in its own file, in the
+     * container of the light loads matrix or in the binary light loads matrix.
+     *
+     * @param stepNumber the number of the step
+     * @param timeSlot the timeslot of the step
+     * @param loads the final number of vehicles per edge for the step, indexed
+     * by the dense index of the edges
+     */
+    private void writeLightLoadsMatrixStep(int stepNumber, double timeSlot, int[] loads) {
+        if (binaryLightLoadsMatrix != null) {
+            binaryLightLoadsMatrix.writeStep(stepNumber, timeSlot, loads);
+        } else {
+            LightLoadsWriter llw = new LightLoadsWriter(globalOutputsDirectoryPath, "", network.getGraph().getEdgesByIndex(), loads, timeSlot, stepNumber);
+            if (lightLoadsMatrixContainer != null) {
+                lightLoadsMatrixContainer.writeStep(stepNumber, timeSlot, llw);
+            } else {
+                llw.writeOutputFile();
+            }
         }
+    }
 
-        if (roninCmdConfig.isGenerateTripInfos()) {
-            TripInfosWriter tw = new TripInfosWriter(globalOutputsDirectoryPath, "", timeConfig.getStepLength(), network.getArrivedVehicles());
-            tw.writeOutputFile();
+    /**
+     * Hands a writing task to the writer thread of an output, or executes it
+     * if the output is written by the thread of the simulation. The time
+     * during which the simulation waits for the writer thread is added to the
+     * profiling time statistics.
+     *
+     * @param outputs the writer thread of the output, null if the output is
+     * written by the thread of the simulation
+     * @param task the writing task
+     */
+    private void submitOutput(OutputsPipeline outputs, Runnable task) {
+        if (outputs == null) {
+            task.run();
+        } else {
+            double bTimeBlocked = System.currentTimeMillis();
+            outputs.submit(task);
+            double eTimeBlocked = System.currentTimeMillis();
+            profilingTimeStats.increaseTimeBlockedOnOutputs((eTimeBlocked - bTimeBlocked) / 1000);
+        }
+    }
+
+    /**
+     * Waits until the writer thread of an output has written all its steps
+     * and stops it. The failures of the writer thread are thrown again.
+     *
+     * @param outputs the writer thread of the output, nothing is done if null
+     */
+    private void closeOutputsPipeline(OutputsPipeline outputs) {
+        if (outputs != null) {
+            double bTimeBlocked = System.currentTimeMillis();
+            outputs.close();
+            double eTimeBlocked = System.currentTimeMillis();
+            profilingTimeStats.increaseTimeBlockedOnOutputs((eTimeBlocked - bTimeBlocked) / 1000);
+        }
+    }
+
+    /**
+     * Write the outputs of end of simulation. Every output is closed even if
+     * the previous ones fail.
+     *
+     * @param failure the first failure of the previous work of end of
+     * simulation, null if it did not fail
+     * @return the first failure of the previous work and of the outputs of end
+     * of simulation, with the next ones as suppressed exceptions; null if
+     * nothing failed
+     */
+    private RuntimeException writeEndSimulationOutputs(RuntimeException failure) {
+        if (edgesWriter != null) {
+            //the last interval is written if it is not empty, or if it is the whole simulation
+            if (edgesIntervalStatistics.getNbSteps() > 0 || currentStep == 0) {
+                double finalTimeSlot = timeConfig.getBeginTime() + timeConfig.getStepLength() * currentStep;
+                failure = runEndTask(() -> edgesWriter.writeInterval(network.getEdges().values(), edgesIntervalStatistics, finalTimeSlot), failure);
+            }
+            failure = runEndTask(edgesWriter::close, failure);
+        }
+
+        if (tripInfosWriter != null) {
+            failure = runEndTask(tripInfosWriter::close, failure);
         }
+        return failure;
     }
 
 }
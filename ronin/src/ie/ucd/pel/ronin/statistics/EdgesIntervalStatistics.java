@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.statistics;
+
+import ie.ucd.pel.ronin.model.Edge;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to accumulate the statistics of the edges of a Graph during an
+ * interval of time of the simulation, for the edge data output. The
+ * accumulators are arrays indexed by the dense index of the edges, so that
+ * the memory used does not depend on the duration of the simulation. When the
+ * interval is finished, the mean values of the edges are computed from the
+ * accumulators, which are then reset for the next interval.
+ */
+public class EdgesIntervalStatistics {
+
+    /**
+     * The begin time of the interval in seconds.
+     */
+    private double beginTime;
+
+    /**
+     * The number of steps of the interval.
+     */
+    private int nbSteps;
+
+    /**
+     * The sum of the number of vehicles per step on each edge during the
+     * interval, indexed by the dense index of the edges.
+     */
+    private final double[] nbTotVehicles;
+
+    /**
+     * The sum of the travel times in seconds of each edge for the steps of the
+     * interval where the edge was used, indexed by the dense index of the
+     * edges.
+     */
+    private final double[] travelTimesTotal;
+
+    /**
+     * The number of steps of the interval where each edge was used, indexed by
+     * the dense index of the edges. For the other steps, the travel time of
+     * the edge is its minimum travel time.
+     */
+    private final int[] nbTravelTimes;
+
+    /**
+     * The number of vehicles that ended their trip on each edge during the
+     * interval, indexed by the dense index of the edges.
+     */
+    private final double[] arrivedVehicles;
+
+    /**
+     * Constructs and initializes the statistics of the edges of a Graph for an
+     * interval without step.
+     *
+     * @param nbEdges the number of edges of the Graph
+     * @param beginTime the begin time of the interval in seconds
+     */
+    public EdgesIntervalStatistics(int nbEdges, double beginTime) {
+        this.beginTime = beginTime;
+        this.nbSteps = 0;
+        this.nbTotVehicles = new double[nbEdges];
+        this.travelTimesTotal = new double[nbEdges];
+        this.nbTravelTimes = new int[nbEdges];
+        this.arrivedVehicles = new double[nbEdges];
+    }
+
+    /**
+     * Constructs a copy of the statistics of the edges of an interval.
+     *
+     * @param statistics the statistics to copy
+     */
+    public EdgesIntervalStatistics(EdgesIntervalStatistics statistics) {
+        this.beginTime = statistics.beginTime;
+        this.nbSteps = statistics.nbSteps;
+        this.nbTotVehicles = statistics.nbTotVehicles.clone();
+        this.travelTimesTotal = statistics.travelTimesTotal.clone();
+        this.nbTravelTimes = statistics.nbTravelTimes.clone();
+        this.arrivedVehicles = statistics.arrivedVehicles.clone();
+    }
+
+    /**
+     * Returns the begin time of the interval in seconds.
+     *
+     * @return the begin time of the interval in seconds
+     */
+    public double getBeginTime() {
+        return beginTime;
+    }
+
+    /**
+     * Returns the number of steps of the interval.
+     *
+     * @return the number of steps of the interval
+     */
+    public int getNbSteps() {
+        return nbSteps;
+    }
+
+    /**
+     * Adds a step of the simulation to the interval. Only the edges used during
+     * the step are updated, the travel time of the other edges is their
+     * minimum travel time.
+     *
+     * @param edgesUsed the dense indexes of the edges used during the step
+     * @param nbVehiclesPerEdge the number of vehicles that were on each edge
+     * during the step, indexed by the dense index of the edges
+     * @param travelTimes the travel time of each edge during the step in
+     * seconds, indexed by the dense index of the edges
+     */
+    public void addStep(BitSet edgesUsed, int[] nbVehiclesPerEdge, double[] travelTimes) {
+        edgesUsed.stream().parallel().forEach((i) -> {
+            if (nbVehiclesPerEdge[i] < 0) {
+                throw new IllegalArgumentException("The number of vehicles to add to an Edge must be positive.");
+            }
+            if (travelTimes[i] < 0 || Double.isNaN(travelTimes[i])) {
+                throw new IllegalArgumentException("The travel time of the Edge at index " + i + " must be a positive number.");
+            }
+            nbTotVehicles[i] += nbVehiclesPerEdge[i];
+            travelTimesTotal[i] += travelTimes[i];
+            nbTravelTimes[i]++;
+        });
+        nbSteps++;
+    }
+
+    /**
+     * Increases the number of vehicles that ended their trip on an edge during
+     * the interval.
+     *
+     * @param edgeIndex the dense index of the edge
+     */
+    public void increaseArrivedVehicles(int edgeIndex) {
+        arrivedVehicles[edgeIndex]++;
+    }
+
+    /**
+     * Resets the accumulators for a new interval without step.
+     *
+     * @param beginTime the begin time of the new interval in seconds
+     */
+    public void reset(double beginTime) {
+        this.beginTime = beginTime;
+        this.nbSteps = 0;
+        Arrays.fill(nbTotVehicles, 0.);
+        Arrays.fill(travelTimesTotal, 0.);
+        Arrays.fill(nbTravelTimes, 0);
+        Arrays.fill(arrivedVehicles, 0.);
+    }
+
+    /**
+     * Returns the number of vehicles that ended their trip on an Edge during
+     * the interval.
+     *
+     * @param e the Edge
+     * @return the number of vehicles that ended their trip on the Edge
+     */
+    public double getArrivedVehicles(Edge e) {
+        return arrivedVehicles[e.getIndex()];
+    }
+
+    /**
+     * Returns the mean density of an Edge during the interval in
+     * nbVehicle/Km.
+     *
+     * @param e the Edge
+     * @return the mean density of the Edge during the interval in nbVehicle/Km
+     */
+    public double getMeanDensity(Edge e) {
+        if (e.getCapacity() == 0) {
+            return 0.0;
+        }
+        if (nbSteps == 0 || e.getLength() == 0) {
+            return 0.0;
+        }
+        // the average number of vehicles per step divided by the length of the Edge in Km.
+        return (nbTotVehicles[e.getIndex()] / nbSteps) / (e.getLength() / 1000);
+    }
+
+    /**
+     * Returns the mean of the travel times per step of an Edge during the
+     * interval in seconds.
+     *
+     * @param e the Edge
+     * @return the mean of the travel times per step of the Edge during the
+     * interval in seconds
+     */
+    public double getMeanTravelTime(Edge e) {
+        if (nbSteps == 0) {
+            return 0.0;
+        }
+        int i = e.getIndex();
+        //the steps where there was no vehicle on the edge count for its min travel time
+        double travelTimeTotal = travelTimesTotal[i] + ((double) nbSteps - nbTravelTimes[i]) * e.getMinTravelTime();
+        return travelTimeTotal / nbSteps;
+    }
+
+    /**
+     * Returns the mean speed of the vehicles on an Edge during the interval in
+     * m/s.
+     *
+     * @param e the Edge
+     * @return the mean speed of the vehicles on the Edge during the interval in
+     * m/s
+     */
+    public double getMeanSpeed(Edge e) {
+        double meanTravelTime = getMeanTravelTime(e);
+        if (meanTravelTime == 0) {
+            return 0.0;
+        }
+        return e.getLength() / meanTravelTime;
+    }
+
+    /**
+     * Returns the average traffic volume of an Edge during the interval in
+     * nbVehicle/hour.
+     *
+     * @param e the Edge
+     * @return the average traffic volume of the Edge during the interval in
+     * nbVehicle/hour
+     */
+    public double getAverageTrafficVolume(Edge e) {
+        // mean density in nbVeh/Km
+        // mean speed in m/s
+        return getMeanDensity(e) * 3.6 * getMeanSpeed(e);
+    }
+
+}
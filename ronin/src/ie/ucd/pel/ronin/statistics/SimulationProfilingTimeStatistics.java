@@ -73,6 +73,13 @@ public class SimulationProfilingTimeStatistics {
      */
     private double timeWriteEndSimulationOutputs;
 
+    /**
+     * Time in seconds during which the simulation was blocked waiting for the
+     * writer threads of the outputs, because their queue was full or to flush
+     * them at the end of simulation.
+     */
+    private double timeBlockedOnOutputs;
+
     /**
      * Constructs and initializes an object that contains statistics about the
      * profiling time of a simulation.
@@ -87,6 +94,7 @@ public class SimulationProfilingTimeStatistics {
         this.timeComputeStatistics = 0.;
         this.timeWriteCurrentStepOutputs = 0.;
         this.timeWriteEndSimulationOutputs = 0.;
+        this.timeBlockedOnOutputs = 0.;
     }
 
     /**
@@ -242,6 +250,29 @@ public class SimulationProfilingTimeStatistics {
         return timeWriteEndSimulationOutputs;
     }
 
+    /**
+     * Returns the time in seconds during which the simulation was blocked
+     * waiting for the writer threads of the outputs.
+     *
+     * @return the time in seconds during which the simulation was blocked
+     * waiting for the writer threads of the outputs
+     */
+    public double getTimeBlockedOnOutputs() {
+        return timeBlockedOnOutputs;
+    }
+
+    /**
+     * Returns the average time per step in seconds during which the
+     * simulation was blocked waiting for the writer threads of the outputs.
+     *
+     * @param nbSteps the number of steps of the simulation
+     * @return the average time per step in seconds during which the simulation
+     * was blocked waiting for the writer threads of the outputs
+     */
+    public double getAverageTimeBlockedOnOutputs(double nbSteps) {
+        return timeBlockedOnOutputs / nbSteps;
+    }
+
     /**
      * Sets the new value of the duration of the simulation in seconds.
      *
@@ -366,6 +397,21 @@ public class SimulationProfilingTimeStatistics {
         this.timeWriteEndSimulationOutputs = timeWriteEndSimulationOutputs;
     }
 
+    /**
+     * Sets the new value of the time in seconds during which the simulation
+     * was blocked waiting for the writer threads of the outputs.
+     *
+     * @param timeBlockedOnOutputs the new value of the time in seconds during
+     * which the simulation was blocked waiting for the writer threads of the
+     * outputs. It must be positive.
+     */
+    public void setTimeBlockedOnOutputs(double timeBlockedOnOutputs) {
+        if (timeBlockedOnOutputs < 0) {
+            throw new IllegalArgumentException("Error : the time blocked on the outputs of a simulation must be positive.");
+        }
+        this.timeBlockedOnOutputs = timeBlockedOnOutputs;
+    }
+
     /**
      * Increases the time needed to compute the loads in seconds.
      *
@@ -434,7 +480,23 @@ public class SimulationProfilingTimeStatistics {
     }
 
     /**
-     * Prints the profiling time of the simulation.
+     * Increases the time in seconds during which the simulation was blocked
+     * waiting for the writer threads of the outputs.
+     *
+     * @param timeBlockedOnOutputs the time in seconds during which the
+     * simulation was blocked waiting for the writer threads of the outputs. It
+     * must be positive.
+     */
+    public void increaseTimeBlockedOnOutputs(double timeBlockedOnOutputs) {
+        if (timeBlockedOnOutputs < 0) {
+            throw new IllegalArgumentException("Error : the time blocked on the outputs of a simulation must be positive.");
+        }
+        this.timeBlockedOnOutputs += timeBlockedOnOutputs;
+    }
+
+    /**
+     * Prints the profiling time of the simulation. The time blocked on the
+     * outputs is included in the times of the steps 5 and 6.
      *
      * @param nbSteps the number of steps of the simulation
      */
@@ -459,6 +521,9 @@ public class SimulationProfilingTimeStatistics {
         System.out.println("\t\taverage time (seconds) : " + getAverageTimeWriteCurrentStepOutputs(nbSteps));
         System.out.println("\t step 6 write end simulation outputs : ");
         System.out.println("\t\ttotal time (seconds) : " + timeWriteEndSimulationOutputs);
+        System.out.println("\t blocked on outputs writer threads : ");
+        System.out.println("\t\ttotal time (seconds) : " + timeBlockedOnOutputs);
+        System.out.println("\t\taverage time (seconds) : " + getAverageTimeBlockedOnOutputs(nbSteps));
     }
 
 }
@@ -17,9 +17,13 @@
 package ie.ucd.pel.ronin.utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 /**
  *
@@ -197,4 +201,24 @@ public class FileUtils {
         return getFilesFromFolderPathWithExtension(folder, extensions);
     }
 
+    /**
+     * Returns a hash of the content of a file. The file is mapped in memory by
+     * chunks, so that it is not copied in the heap.
+     *
+     * @param file the file to hash
+     * @return the CRC32 checksum of the content of the file
+     * @throws IOException if the file can not be read
+     */
+    public static long getContentHash(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = 1 << 28;
+            for (long position = 0; position < size; position += chunkSize) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
 }
@@ -57,6 +57,7 @@ public class RunUtils {
             double timeComputeStatistics = 0;
             double timeWriteCurrentStepOutputs = 0;
             double timeWriteEndSimulationOutputs = 0;
+            double timeBlockedOnOutputs = 0;
             double nbSteps = 1;
 
             for (int i = 0; i < nbSimulationToDo; i++) {
@@ -69,6 +70,7 @@ public class RunUtils {
                 timeComputeStatistics += sm.getProfilingTimeStats().getTimeComputeStatistics();
                 timeWriteCurrentStepOutputs += sm.getProfilingTimeStats().getTimeWriteCurrentStepOutputs();
                 timeWriteEndSimulationOutputs += sm.getProfilingTimeStats().getTimeWriteEndSimulationOutputs();
+                timeBlockedOnOutputs += sm.getProfilingTimeStats().getTimeBlockedOnOutputs();
                 nbSteps = sm.getCurrentStep();
             }
 
@@ -79,6 +81,7 @@ public class RunUtils {
             timeComputeStatistics /= nbSimulationToDo;
             timeWriteCurrentStepOutputs /= nbSimulationToDo;
             timeWriteEndSimulationOutputs /= nbSimulationToDo;
+            timeBlockedOnOutputs /= nbSimulationToDo;
 
             System.out.println("----------------------------------------------------------------------");
             System.out.println("--------------------Global results of running time--------------------");
@@ -105,6 +108,9 @@ public class RunUtils {
             System.out.println("\t\tAVG average time (seconds) : " + timeWriteCurrentStepOutputs / nbSteps);
             System.out.println("\tAVG  step 6 write end simulation outputs : ");
             System.out.println("\t\tAVG total time (seconds) : " + timeWriteEndSimulationOutputs);
+            System.out.println("\tAVG  blocked on outputs writer threads : ");
+            System.out.println("\t\tAVG total time (seconds) : " + timeBlockedOnOutputs);
+            System.out.println("\t\tAVG average time (seconds) : " + timeBlockedOnOutputs / nbSteps);
         } catch (Exception e) {
             System.out.println("ERROR for file : " + roninConf.getSumocfgFilePath());
             System.out.println(e.getMessage());
@@ -156,6 +162,7 @@ public class RunUtils {
             double timeComputeStatistics = 0;
             double timeWriteCurrentStepOutputs = 0;
             double timeWriteEndSimulationOutputs = 0;
+            double timeBlockedOnOutputs = 0;
             double nbSteps = 1;
 
             for (int i = 0; i < nbSimulationToDo; i++) {
@@ -168,6 +175,7 @@ public class RunUtils {
                 timeComputeStatistics += sm.getProfilingTimeStats().getTimeComputeStatistics();
                 timeWriteCurrentStepOutputs += sm.getProfilingTimeStats().getTimeWriteCurrentStepOutputs();
                 timeWriteEndSimulationOutputs += sm.getProfilingTimeStats().getTimeWriteEndSimulationOutputs();
+                timeBlockedOnOutputs += sm.getProfilingTimeStats().getTimeBlockedOnOutputs();
                 nbSteps = sm.getCurrentStep();
             }
 
@@ -178,6 +186,7 @@ public class RunUtils {
             timeComputeStatistics /= nbSimulationToDo;
             timeWriteCurrentStepOutputs /= nbSimulationToDo;
             timeWriteEndSimulationOutputs /= nbSimulationToDo;
+            timeBlockedOnOutputs /= nbSimulationToDo;
 
             System.out.println("----------------------------------------------------------------------");
             System.out.println("--------------------Global results of running time--------------------");
@@ -204,6 +213,9 @@ public class RunUtils {
             System.out.println("\t\tAVG average time (seconds) : " + timeWriteCurrentStepOutputs / nbSteps);
             System.out.println("\tAVG  step 6 write end simulation outputs : ");
             System.out.println("\t\tAVG total time (seconds) : " + timeWriteEndSimulationOutputs);
+            System.out.println("\tAVG  blocked on outputs writer threads : ");
+            System.out.println("\t\tAVG total time (seconds) : " + timeBlockedOnOutputs);
+            System.out.println("\t\tAVG average time (seconds) : " + timeBlockedOnOutputs / nbSteps);
         } catch (Exception e) {
             System.out.println("ERROR for scale : " + scale);
             System.out.println(e.getMessage());
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Table of identifiers read many times by the same reader, as the ids of the
+ * Edges repeated in every step of a matrix of loads. Each identifier is stored
+ * once, so that the reader keeps the same String instance for the same
+ * identifier instead of the copies made by the parser. A table belongs to the
+ * reader that uses it and is freed with it.
+ */
+public class SymbolTable {
+
+    /**
+     * The identifiers of this table, mapped on themselves.
+     */
+    private final Map<String, String> symbols;
+
+    /**
+     * Constructs and initializes an empty SymbolTable.
+     */
+    public SymbolTable() {
+        this.symbols = new HashMap<>();
+    }
+
+    /**
+     * Returns the instance of this table equal to an identifier. The
+     * identifier is added to this table if it is not yet.
+     *
+     * @param symbol the identifier
+     * @return the instance of this table equal to the identifier
+     */
+    public String intern(String symbol) {
+        String interned = symbols.putIfAbsent(symbol, symbol);
+        return interned == null ? symbol : interned;
+    }
+
+    /**
+     * Returns the number of identifiers of this table.
+     *
+     * @return the number of identifiers of this table
+     */
+    public int getNbSymbols() {
+        return symbols.size();
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.utils;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Provides some utils methods for executing tasks with a pool of threads.
+ */
+public class ThreadsUtils {
+
+    /**
+     * Executes the given tasks with a pool of threads and waits for the end of
+     * all of them. If a task failed, its exception is thrown again.
+     *
+     * @param threadsPool the pool of threads that executes the tasks
+     * @param tasks the tasks to execute
+     */
+    public static void invokeAllAndWait(ForkJoinPool threadsPool, List<Callable<Void>> tasks) {
+        List<Future<Void>> futures = threadsPool.invokeAll(tasks);
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Error : the tasks executed by the pool of threads were interrupted.", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new RuntimeException("Error : a task executed by the pool of threads failed.", ex.getCause());
+        }
+    }
+
+}
@@ -19,11 +19,15 @@ package ie.ucd.pel.ronin.utils;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
@@ -57,27 +61,38 @@ public class XmlParser {
      */
     public static Document getDocDomElement(String xmlFilePath) {
         try {
-            File xmlFile = new File(xmlFilePath);
+            File xmlFile = getXmlFile(xmlFilePath);
 
-            //if the extension is not valid, we do nothing
-            if (FileUtils.checkExtensionForFile(xmlFile, ACCEPTED_XML_EXTENSIONS) == false) {
-                throw new RuntimeException("The extension of the given file " + xmlFilePath + " is not supported.");
-            }
+            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+            DocumentBuilder dBuilder = dbf.newDocumentBuilder();
 
-            if (!xmlFile.exists()) {
-                throw new RuntimeException("The given file " + xmlFilePath + " is not found.");
-            }
+            Document doc = dBuilder.parse(xmlFile);
+            doc.getDocumentElement().normalize();
+            return doc;
+
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            Logger.getLogger(XmlParser.class.getName()).log(Level.SEVERE, null, ex);
+        }
 
+        return null;
+    }
+
+    /**
+     * Returns the normalized DOM Document Node of a given xml stream.
+     *
+     * @param in the stream of the xml document, it has to be closed by the
+     * caller
+     * @return the normalized DOM Document Node of the given xml stream, null
+     * if it can not be parsed
+     */
+    public static Document getDocDomElement(InputStream in) {
+        try {
             DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
             DocumentBuilder dBuilder = dbf.newDocumentBuilder();
 
-            if (xmlFile.length() != 0) {
-                Document doc = dBuilder.parse(xmlFile);
-                doc.getDocumentElement().normalize();
-                return doc;
-            } else {
-                throw new RuntimeException("The file " + xmlFilePath + " is empty.");
-            }
+            Document doc = dBuilder.parse(in);
+            doc.getDocumentElement().normalize();
+            return doc;
 
         } catch (ParserConfigurationException | SAXException | IOException ex) {
             Logger.getLogger(XmlParser.class.getName()).log(Level.SEVERE, null, ex);
@@ -86,6 +101,47 @@ public class XmlParser {
         return null;
     }
 
+    /**
+     * Returns a StAX reader of the elements of a given xml stream. Unlike the
+     * DOM Document Node, the elements are read one after the other and are
+     * not kept in memory.
+     *
+     * @param in the stream of the xml file, it has to be closed by the caller
+     * @return a StAX reader of the elements of the given stream
+     * @throws XMLStreamException if the reader can not be created
+     */
+    public static XMLStreamReader getXmlStreamReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory.createXMLStreamReader(in);
+    }
+
+    /**
+     * Returns the File of a given xml file path, checking that the file has an
+     * accepted extension, exists and is not empty.
+     *
+     * @param xmlFilePath the path of the xml file
+     * @return the File of the given xml file path
+     */
+    public static File getXmlFile(String xmlFilePath) {
+        File xmlFile = new File(xmlFilePath);
+
+        //if the extension is not valid, we do nothing
+        if (FileUtils.checkExtensionForFile(xmlFile, ACCEPTED_XML_EXTENSIONS) == false) {
+            throw new RuntimeException("The extension of the given file " + xmlFilePath + " is not supported.");
+        }
+
+        if (!xmlFile.exists()) {
+            throw new RuntimeException("The given file " + xmlFilePath + " is not found.");
+        }
+
+        if (xmlFile.length() == 0) {
+            throw new RuntimeException("The file " + xmlFilePath + " is empty.");
+        }
+
+        return xmlFile;
+    }
+
     /**
      * Write a DOM document element into a file.
      *
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ * @author Come CACHARD
+ *
+ * Class used to write an xml document element by element, without building a
+ * DOM document. The document is encoded in a buffer that is kept between the
+ * documents, and then written into a file or a stream. The text written is the
+ * same as the one of a DOM document written by XmlParser.writeDomDocIntoFile:
+ * same declaration, same indentation of 4 spaces, empty elements closed with
+ * "/>" and same escaping of the attributes. As a DOM document sorts the
+ * attributes of an element by name, the attributes must be written in the
+ * alphabetical order to get the same text. The buffer is released after a
+ * document larger than MAX_RETAINED_CAPACITY, so that a XmlWriter kept for a
+ * long time does not hold the memory of its largest document. A XmlWriter can
+ * not be used by several threads.
+ */
+public class XmlWriter {
+
+    /**
+     * The declaration at the beginning of the documents.
+     */
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" standalone=\"no\"?>";
+
+    /**
+     * The indentation of one level of elements.
+     */
+    private static final String INDENT = "    ";
+
+    /**
+     * The end of the lines of the documents.
+     */
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The size of the chunks of the buffer written at once into a file.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The largest capacity in characters of the buffer kept between two
+     * documents.
+     */
+    static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    /**
+     * The buffer that contains the text of the document being written.
+     */
+    private final StringBuilder buffer;
+
+    /**
+     * The chunk used to copy the buffer into a file.
+     */
+    private final char[] chunk;
+
+    /**
+     * The names of the elements that are not closed yet, from the root element
+     * to the current element.
+     */
+    private final List<String> openElements;
+
+    /**
+     * True if the start tag of the current element is not closed yet, i.e. if
+     * attributes can still be written.
+     */
+    private boolean isStartTagOpen;
+
+    /**
+     * Constructs and initializes a XmlWriter with an empty buffer.
+     */
+    public XmlWriter() {
+        this.buffer = new StringBuilder();
+        this.chunk = new char[CHUNK_SIZE];
+        this.openElements = new ArrayList<>();
+        this.isStartTagOpen = false;
+    }
+
+    /**
+     * Starts a new document. The text of the previous document is discarded.
+     */
+    public void startDocument() {
+        clearBuffer();
+        openElements.clear();
+        isStartTagOpen = false;
+        buffer.append(DECLARATION).append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Starts a new element in the current element, or the root element of the
+     * document.
+     *
+     * @param name the tag name of the element
+     */
+    public void startElement(String name) {
+        if (isStartTagOpen) {
+            buffer.append('>');
+        }
+        if (!openElements.isEmpty()) {
+            newLine(openElements.size());
+        }
+        buffer.append('<').append(name);
+        openElements.add(name);
+        isStartTagOpen = true;
+    }
+
+    /**
+     * Writes an attribute of the current element.
+     *
+     * @param name the name of the attribute
+     * @param value the value of the attribute
+     */
+    public void attribute(String name, String value) {
+        startAttribute(name);
+        appendEscaped(value);
+        buffer.append('"');
+    }
+
+    /**
+     * Writes an attribute of the current element whose value is an integer.
+     *
+     * @param name the name of the attribute
+     * @param value the value of the attribute
+     */
+    public void attribute(String name, int value) {
+        startAttribute(name);
+        buffer.append(value).append('"');
+    }
+
+    /**
+     * Writes an attribute of the current element whose value is a double,
+     * written as by Double.toString.
+     *
+     * @param name the name of the attribute
+     * @param value the value of the attribute
+     */
+    public void attribute(String name, double value) {
+        startAttribute(name);
+        buffer.append(value).append('"');
+    }
+
+    /**
+     * Ends the current element.
+     */
+    public void endElement() {
+        if (openElements.isEmpty()) {
+            throw new IllegalStateException("Error : there is no element to end in the xml document.");
+        }
+        String name = openElements.remove(openElements.size() - 1);
+        if (isStartTagOpen) {
+            buffer.append("/>");
+            isStartTagOpen = false;
+        } else {
+            newLine(openElements.size());
+            buffer.append("</").append(name).append('>');
+        }
+    }
+
+    /**
+     * Ends the document and writes it into a file. If the file can not be
+     * written, the error is thrown to the caller.
+     *
+     * @param outputFile the file where we want to write the document
+     */
+    public void endDocument(File outputFile) {
+        try (OutputStream out = new FileOutputStream(outputFile)) {
+            endDocument(out);
+        } catch (IOException ex) {
+            throw new RuntimeException("Error : cannot write xml into file " + outputFile.getPath() + ".", ex);
+        }
+    }
+
+    /**
+     * Ends the document and writes it into a stream, that is not closed.
+     *
+     * @param out the stream where we want to write the document
+     * @throws IOException if the document can not be written
+     */
+    public void endDocument(OutputStream out) throws IOException {
+        if (!openElements.isEmpty()) {
+            throw new IllegalStateException("Error : the element \"" + openElements.get(openElements.size() - 1) + "\" of the xml document is not ended.");
+        }
+        buffer.append(LINE_SEPARATOR);
+        try {
+            writeBuffer(out);
+        } finally {
+            clearBuffer();
+        }
+    }
+
+    /**
+     * Returns the number of characters written in the buffer since the
+     * beginning of the document or since the last flush.
+     *
+     * @return the number of characters of the buffer
+     */
+    public int getBufferedLength() {
+        return buffer.length();
+    }
+
+    /**
+     * Writes the text of the document written so far into a stream, that is
+     * not closed, and removes it from the buffer, so that a long document can
+     * be written part by part into the same stream. The document can be
+     * continued where it was.
+     *
+     * @param out the stream where we want to write the document
+     * @throws IOException if the document can not be written
+     */
+    public void flush(OutputStream out) throws IOException {
+        writeBuffer(out);
+        clearBuffer();
+    }
+
+    /**
+     * Returns the capacity in characters of the buffer.
+     *
+     * @return the capacity of the buffer
+     */
+    int getBufferCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Empties the buffer, and releases its memory if its capacity is larger
+     * than MAX_RETAINED_CAPACITY.
+     */
+    private void clearBuffer() {
+        buffer.setLength(0);
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            buffer.trimToSize();
+        }
+    }
+
+    /**
+     * Writes the text of the buffer into a stream, chunk by chunk.
+     *
+     * @param out the stream where we want to write the text of the buffer
+     * @throws IOException if the text can not be written
+     */
+    private void writeBuffer(OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, Charset.defaultCharset());
+        final int length = buffer.length();
+        for (int begin = 0; begin < length; begin += CHUNK_SIZE) {
+            int end = Math.min(begin + CHUNK_SIZE, length);
+            buffer.getChars(begin, end, chunk, 0);
+            writer.write(chunk, 0, end - begin);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Starts an attribute of the current element, up to the opening quote of
+     * its value.
+     *
+     * @param name the name of the attribute
+     */
+    private void startAttribute(String name) {
+        if (!isStartTagOpen) {
+            throw new IllegalStateException("Error : the attribute \"" + name + "\" is not written in a start tag of the xml document.");
+        }
+        buffer.append(' ').append(name).append("=\"");
+    }
+
+    /**
+     * Begins a new line indented for an element at a specific depth.
+     *
+     * @param depth the depth of the element, 0 for the root element
+     */
+    private void newLine(int depth) {
+        buffer.append(LINE_SEPARATOR);
+        for (int i = 0; i < depth; i++) {
+            buffer.append(INDENT);
+        }
+    }
+
+    /**
+     * Appends the value of an attribute to the buffer, escaping the characters
+     * as the DOM serializer does for the ISO-8859-1 encoding. The control
+     * characters from 0x7F to 0x9F are written as they are, as the DOM
+     * serializer does.
+     *
+     * @param value the value of the attribute
+     */
+    private void appendEscaped(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    buffer.append("&amp;");
+                    break;
+                case '<':
+                    buffer.append("&lt;");
+                    break;
+                case '>':
+                    buffer.append("&gt;");
+                    break;
+                case '"':
+                    buffer.append("&quot;");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        //control characters
+                        buffer.append("&#").append((int) c).append(';');
+                    } else if (c <= 0xFF) {
+                        buffer.append(c);
+                    } else {
+                        //characters that are not in the ISO-8859-1 encoding
+                        int codePoint = value.codePointAt(i);
+                        buffer.append("&#").append(codePoint).append(';');
+                        i += Character.charCount(codePoint) - 1;
+                    }
+            }
+        }
+    }
+
+}
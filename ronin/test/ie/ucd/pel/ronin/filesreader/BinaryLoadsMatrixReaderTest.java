@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader;
+
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.BinaryLoadsMatrixReader;
+import ie.ucd.pel.ronin.javafx.model.StepLoads;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.outputswriter.BinaryLoadsMatrixWriter;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class BinaryLoadsMatrixReaderTest {
+
+    /**
+     * The temporary directory of the outputs of the test.
+     */
+    private File outputsDirectory;
+
+    public BinaryLoadsMatrixReaderTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        outputsDirectory = Files.createTempDirectory("ronin").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteFolder(outputsDirectory);
+    }
+
+    /**
+     * Test of readLoads method, of class BinaryLoadsMatrixReader, with and
+     * without delta encoding.
+     */
+    @Test
+    public void testReadLoads() {
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            edges.add(new Edge("e" + i, 35, 29.04, 90.00, 3, null, null));
+        }
+        Random random = new Random(42);
+        int[][] loads = new int[7][edges.size()];
+        for (int step = 0; step < loads.length; step++) {
+            for (int i = 0; i < edges.size(); i++) {
+                loads[step][i] = random.nextInt(4) == 0 ? random.nextInt(300) : 0;
+            }
+        }
+
+        for (boolean isDeltaEncoded : new boolean[]{true, false}) {
+            BinaryLoadsMatrixWriter writer = new BinaryLoadsMatrixWriter(outputsDirectory.getPath(), "lightLoadsMatrix", edges, 3, isDeltaEncoded);
+            for (int step = 0; step < loads.length; step++) {
+                writer.writeStep(step, 100 + step * 0.5, loads[step]);
+            }
+            writer.close();
+
+            BinaryLoadsMatrixReader reader = new BinaryLoadsMatrixReader(writer.getFilePath());
+            assertEquals(loads.length, reader.getNbSteps());
+            assertEquals("e199", reader.getEdgesIds()[199]);
+            assertEquals(4, reader.getStepNumberAtTimeSlot(102.2));
+
+            //the steps are read in any order, across and inside the blocks
+            for (int step : new int[]{4, 5, 0, 6, 2, 1, 3, 3}) {
+                assertArrayEquals(loads[step], reader.readLoads(step));
+            }
+
+            StepLoads stepLoads = reader.readStepLoads(5);
+            assertEquals(102.5, stepLoads.getTimeslot(), 0.0);
+            for (int i = 0; i < edges.size(); i++) {
+                double load = stepLoads.getLoadsPerEdge().getOrDefault("e" + i, 0.);
+                assertEquals(loads[5][i], load, 0.0);
+            }
+            reader.close();
+        }
+    }
+
+    /**
+     * Test of readLoads method, of class BinaryLoadsMatrixReader, with a block
+     * truncated or shorter than written in the index. An error is thrown
+     * instead of waiting for the rest of the block.
+     */
+    @Test(timeout = 10000)
+    public void testReadLoadsTruncatedBlock() throws IOException {
+        List<Edge> edges = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            edges.add(new Edge("e" + i, 35, 29.04, 90.00, 3, null, null));
+        }
+        int[] loads = new int[edges.size()];
+        Arrays.fill(loads, 12);
+
+        //the compressed length, then the length of the block in the index
+        for (int field = 0; field < 2; field++) {
+            BinaryLoadsMatrixWriter writer = new BinaryLoadsMatrixWriter(outputsDirectory.getPath(), "lightLoadsMatrix", edges, 3, true);
+            writer.writeStep(0, 100, loads);
+            writer.close();
+
+            try (RandomAccessFile file = new RandomAccessFile(writer.getFilePath(), "rw")) {
+                file.seek(file.length() - BinaryLoadsMatrixWriter.FOOTER_LENGTH);
+                long indexOffset = file.readLong();
+                int nbSteps = file.readInt();
+                long lengthPosition = indexOffset + nbSteps * 12L + 8 + 4 * field;
+                file.seek(lengthPosition);
+                int length = file.readInt();
+                file.seek(lengthPosition);
+                file.writeInt(field == 0 ? length / 2 : length * 2);
+            }
+
+            BinaryLoadsMatrixReader reader = new BinaryLoadsMatrixReader(writer.getFilePath());
+            try {
+                reader.readLoads(0);
+                fail("The truncated block is read.");
+            } catch (RuntimeException ex) {
+                assertTrue(ex.getMessage().startsWith("Error : the block 0 "));
+            }
+            reader.close();
+        }
+    }
+
+}
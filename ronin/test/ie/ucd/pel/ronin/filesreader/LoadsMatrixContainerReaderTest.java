@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.filesreader;
+
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.LoadsMatrixContainerReader;
+import ie.ucd.pel.ronin.javafx.model.StepLoads;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.outputswriter.LightLoadsWriter;
+import ie.ucd.pel.ronin.outputswriter.LoadsMatrixContainerWriter;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class LoadsMatrixContainerReaderTest {
+
+    /**
+     * The temporary directory of the outputs of the test.
+     */
+    private File outputsDirectory;
+
+    public LoadsMatrixContainerReaderTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        outputsDirectory = Files.createTempDirectory("ronin").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteFolder(outputsDirectory);
+    }
+
+    /**
+     * Test of readStepLoads method, of class LoadsMatrixContainerReader.
+     */
+    @Test
+    public void testReadStepLoads() {
+        List<Edge> edges = Arrays.asList(
+                new Edge("e0", 35, 29.04, 90.00, 3, null, null),
+                new Edge("e1", 35, 29.04, 90.00, 3, null, null),
+                new Edge("e2", 35, 29.04, 90.00, 3, null, null));
+        int[][] loads = {{1, 0, 2}, {0, 0, 0}, {4, 5, 6}};
+
+        LoadsMatrixContainerWriter container = new LoadsMatrixContainerWriter(outputsDirectory.getPath(), "lightLoadsMatrix", LoadsMatrixContainerWriter.LIGHT_LOADS_MATRIX_EXTENSION, "llm.xml");
+        for (int step = 0; step < loads.length; step++) {
+            double timeSlot = 10 + 2 * step;
+            container.writeStep(step, timeSlot, new LightLoadsWriter(outputsDirectory.getPath(), "", edges, loads[step], timeSlot, step));
+        }
+        container.close();
+
+        //the steps are not written in their own files
+        assertFalse(new File(outputsDirectory, "lightLoadsMatrix").exists());
+
+        LoadsMatrixContainerReader reader = new LoadsMatrixContainerReader(container.getFilePath());
+        assertEquals("llm.xml", reader.getStepsExtension());
+        assertArrayEquals(new int[]{0, 1, 2}, reader.getStepNumbers());
+        assertEquals(1, reader.getStepNumberAtTimeSlot(13.0));
+        assertEquals(-1, reader.getStepNumberAtTimeSlot(9.0));
+
+        StepLoads stepLoads = reader.readStepLoads(2);
+        assertEquals(14.0, stepLoads.getTimeslot(), 0.0);
+        assertEquals(3, stepLoads.getLoadsPerEdge().size());
+        assertEquals(5.0, stepLoads.getLoadsPerEdge().get("e1"), 0.0);
+
+        stepLoads = reader.readStepLoads(0);
+        assertEquals(10.0, stepLoads.getTimeslot(), 0.0);
+        assertEquals(2, stepLoads.getLoadsPerEdge().size());
+        assertEquals(2.0, stepLoads.getLoadsPerEdge().get("e2"), 0.0);
+
+        assertEquals(0, reader.readStepLoads(1).getLoadsPerEdge().size());
+
+        //the steps read share the same instances of the ids of the Edges
+        String idEdge = reader.readStepLoads(2).getLoadsPerEdge().keySet().stream().filter("e2"::equals).findFirst().get();
+        assertTrue(idEdge == stepLoads.getLoadsPerEdge().keySet().stream().filter("e2"::equals).findFirst().get());
+    }
+
+}
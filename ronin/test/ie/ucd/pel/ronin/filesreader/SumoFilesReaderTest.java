@@ -16,18 +16,37 @@
  */
 package ie.ucd.pel.ronin.filesreader;
 
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.CompiledDemandFile;
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.CompiledNetworkFile;
+import ie.ucd.pel.ronin.filesreader.roninfilesreader.MappedFileInput;
 import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoFilesReader;
 import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoConfigInformation;
+import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoNetFileReader;
+import ie.ucd.pel.ronin.filesreader.sumofilesreader.SumoRouteFileStreamReader;
 import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Graph;
 import ie.ucd.pel.ronin.model.Network;
 import ie.ucd.pel.ronin.model.Node;
 import ie.ucd.pel.ronin.model.TimeConfiguration;
 import ie.ucd.pel.ronin.model.Vehicle;
 import ie.ucd.pel.ronin.model.VehicleType;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import org.junit.After;
 import org.junit.AfterClass;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -38,6 +57,23 @@ import org.junit.Test;
  */
 public class SumoFilesReaderTest {
 
+    /**
+     * The fixtures of the test, copied to a temporary directory so that the
+     * compiled files written next to them are not left in the sources.
+     */
+    private static final String[] FIXTURES = {"test1.net.xml", "test1.rou.xml", "test1.sumocfg", "test2.rou.xml", "test3.rou.xml"};
+
+    /**
+     * The temporary directory of the fixtures of the test, ending with a
+     * separator.
+     */
+    private String resources;
+
+    /**
+     * The temporary directory of the fixtures of the test.
+     */
+    private File resourcesDirectory;
+
     public SumoFilesReaderTest() {
     }
 
@@ -50,11 +86,18 @@ public class SumoFilesReaderTest {
     }
 
     @Before
-    public void setUp() {
+    public void setUp() throws IOException {
+        resourcesDirectory = Files.createTempDirectory("ronin").toFile();
+        for (String fixture : FIXTURES) {
+            Files.copy(Paths.get("test", "ie", "ucd", "pel", "ronin", "resources", fixture),
+                    new File(resourcesDirectory, fixture).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        resources = resourcesDirectory.getPath() + File.separator;
     }
 
     @After
     public void tearDown() {
+        FileUtils.deleteFolder(resourcesDirectory);
     }
 
     /**
@@ -63,38 +106,8 @@ public class SumoFilesReaderTest {
     @Test
     public void testReadNetwork() {
         boolean isTestOk = true;
-        StringBuilder sbNet = new StringBuilder();
-        sbNet.append("test");
-        sbNet.append(File.separator);
-        sbNet.append("ie");
-        sbNet.append(File.separator);
-        sbNet.append("ucd");
-        sbNet.append(File.separator);
-        sbNet.append("pel");
-        sbNet.append(File.separator);
-        sbNet.append("ronin");
-        sbNet.append(File.separator);
-        sbNet.append("resources");
-        sbNet.append(File.separator);
-        sbNet.append("test1.net.xml");
-
-        StringBuilder sbRou = new StringBuilder();
-        sbRou.append("test");
-        sbRou.append(File.separator);
-        sbRou.append("ie");
-        sbRou.append(File.separator);
-        sbRou.append("ucd");
-        sbRou.append(File.separator);
-        sbRou.append("pel");
-        sbRou.append(File.separator);
-        sbRou.append("ronin");
-        sbRou.append(File.separator);
-        sbRou.append("resources");
-        sbRou.append(File.separator);
-        sbRou.append("test1.rou.xml");
-
-        String netpath = sbNet.toString();
-        String roupath = sbRou.toString();
+        String netpath = resources + "test1.net.xml";
+        String roupath = resources + "test1.rou.xml";
         SumoConfigInformation sumoInfos = new SumoConfigInformation(roupath, netpath, "", "");
         SumoFilesReader instance = new SumoFilesReader(sumoInfos);
         Network n = instance.readNetwork();
@@ -198,54 +211,9 @@ public class SumoFilesReaderTest {
      */
     @Test
     public void testReadSimulationTimeConfiguration() {
-        StringBuilder sbNet = new StringBuilder();
-        sbNet.append("test");
-        sbNet.append(File.separator);
-        sbNet.append("ie");
-        sbNet.append(File.separator);
-        sbNet.append("ucd");
-        sbNet.append(File.separator);
-        sbNet.append("pel");
-        sbNet.append(File.separator);
-        sbNet.append("ronin");
-        sbNet.append(File.separator);
-        sbNet.append("resources");
-        sbNet.append(File.separator);
-        sbNet.append("test1.net.xml");
-
-        StringBuilder sbRou = new StringBuilder();
-        sbRou.append("test");
-        sbRou.append(File.separator);
-        sbRou.append("ie");
-        sbRou.append(File.separator);
-        sbRou.append("ucd");
-        sbRou.append(File.separator);
-        sbRou.append("pel");
-        sbRou.append(File.separator);
-        sbRou.append("ronin");
-        sbRou.append(File.separator);
-        sbRou.append("resources");
-        sbRou.append(File.separator);
-        sbRou.append("test1.rou.xml");
-
-        StringBuilder sbCfg = new StringBuilder();
-        sbCfg.append("test");
-        sbCfg.append(File.separator);
-        sbCfg.append("ie");
-        sbCfg.append(File.separator);
-        sbCfg.append("ucd");
-        sbCfg.append(File.separator);
-        sbCfg.append("pel");
-        sbCfg.append(File.separator);
-        sbCfg.append("ronin");
-        sbCfg.append(File.separator);
-        sbCfg.append("resources");
-        sbCfg.append(File.separator);
-        sbCfg.append("test1.sumocfg");
-
-        String netpath = sbNet.toString();
-        String roupath = sbRou.toString();
-        String cfgpath = sbCfg.toString();
+        String netpath = resources + "test1.net.xml";
+        String roupath = resources + "test1.rou.xml";
+        String cfgpath = resources + "test1.sumocfg";
         SumoConfigInformation sumoInfos = new SumoConfigInformation(roupath, netpath, cfgpath, "");
         SumoFilesReader instance = new SumoFilesReader(sumoInfos);
 
@@ -254,4 +222,243 @@ public class SumoFilesReaderTest {
         assertEquals(expResult, result.getBeginTime(), 0.1);
     }
 
+    /**
+     * Test of getRouteFileStreamReader method, of class SumoFilesReader.
+     */
+    @Test
+    public void testGetRouteFileStreamReader() {
+        SumoConfigInformation sumoInfos = new SumoConfigInformation(resources + "test1.rou.xml", resources + "test1.net.xml", "", "");
+        SumoFilesReader instance = new SumoFilesReader(sumoInfos);
+        Network n = instance.readNetwork(false);
+        assertEquals(0, n.getAllVehiclesOfSimulation().size());
+        assertEquals(2, n.getVehicleTypes().size());
+
+        SumoRouteFileStreamReader reader = instance.getRouteFileStreamReader();
+        reader.readVehicles(n, 53999.0);
+        assertEquals(0, n.getAllVehiclesOfSimulation().size());
+        assertTrue(reader.hasNextVehicle(n));
+
+        reader.readVehicles(n, 54000.0);
+        assertEquals(6, n.getAllVehiclesOfSimulation().size());
+        assertFalse(reader.hasNextVehicle(n));
+
+        Vehicle v = n.getVehicleFromLoadedVehicles("veh1");
+        assertEquals(6, v.getRoute().size());
+        assertEquals("L10", v.getRoute().get(3).getId());
+        assertEquals(54000.0, v.getDepartureTime(), 0.);
+        reader.close();
+    }
+
+    /**
+     * Test of readGraph method, of class CompiledNetworkFile.
+     */
+    @Test
+    public void testReadCompiledNetworkFile() throws IOException {
+        File netFile = new File(resources + "test1.net.xml");
+        Graph graph = new Graph();
+        new SumoNetFileReader(netFile.getPath()).readGraph(graph);
+
+        CompiledNetworkFile compiledNetworkFile = new CompiledNetworkFile(netFile.getPath() + "." + CompiledNetworkFile.EXTENSION);
+        Graph compiledGraph = new Graph();
+        assertTrue(compiledNetworkFile.readGraph(compiledGraph, netFile.length(), FileUtils.getContentHash(netFile)));
+        assertEquals(graph.getNbNodes(), compiledGraph.getNbNodes());
+        assertEquals(graph.getNbEdges(), compiledGraph.getNbEdges());
+        for (int i = 0; i < graph.getNbEdges(); i++) {
+            Edge e = graph.getEdgeByIndex(i);
+            Edge compiledEdge = compiledGraph.getEdgeByIndex(i);
+            assertEquals(e.getId(), compiledEdge.getId());
+            assertEquals(e.getCapacity(), compiledEdge.getCapacity());
+            assertEquals(e.getLength(), compiledEdge.getLength());
+            assertEquals(e.getSpeedLimit(), compiledEdge.getSpeedLimit());
+            assertEquals(e.getStartNode().getId(), compiledEdge.getStartNode().getId());
+            assertEquals(e.getEndNode().getOutgoingEdges().keySet(), compiledEdge.getEndNode().getOutgoingEdges().keySet());
+        }
+
+        Graph staleGraph = new Graph();
+        assertFalse(compiledNetworkFile.readGraph(staleGraph, netFile.length(), FileUtils.getContentHash(netFile) + 1));
+        assertTrue(staleGraph.isEmpty());
+    }
+
+    /**
+     * Test of open and readNextVehicle methods, of class CompiledDemandFile.
+     */
+    @Test
+    public void testReadCompiledDemandFile() throws IOException {
+        File rouFile = new File(resources + "test1.rou.xml");
+        SumoConfigInformation sumoInfos = new SumoConfigInformation(rouFile.getPath(), resources + "test1.net.xml", "", "");
+        Network n = new SumoFilesReader(sumoInfos).readNetwork();
+
+        CompiledDemandFile compiledDemandFile = new CompiledDemandFile(rouFile.getPath() + "." + CompiledDemandFile.EXTENSION);
+        assertFalse(compiledDemandFile.open(n, rouFile.length(), FileUtils.getContentHash(rouFile) + 1));
+        assertTrue(compiledDemandFile.open(n, rouFile.length(), FileUtils.getContentHash(rouFile)));
+        int nbVehicles = 0;
+        double lastDepartureTime = Double.NEGATIVE_INFINITY;
+        while (compiledDemandFile.hasNextVehicle()) {
+            Vehicle compiledVehicle = compiledDemandFile.readNextVehicle(n);
+            Vehicle v = n.getVehicleFromLoadedVehicles(compiledVehicle.getId());
+            assertEquals(v.getvType(), compiledVehicle.getvType());
+            assertEquals(v.getDepartureTime(), compiledVehicle.getDepartureTime(), 0.);
+            assertTrue(v.getRoute() == compiledVehicle.getRoute());
+            //the vehicles of the compiled file are sorted by departure time
+            assertTrue(lastDepartureTime <= compiledVehicle.getDepartureTime());
+            lastDepartureTime = compiledVehicle.getDepartureTime();
+            nbVehicles++;
+        }
+        compiledDemandFile.close();
+        assertEquals(n.getAllVehiclesOfSimulation().size(), nbVehicles);
+    }
+
+    /**
+     * Test of readNetwork method with flows that have a number of vehicles but
+     * no end time, of class SumoFilesReader.
+     */
+    @Test
+    public void testReadFlowsWithoutEnd() throws IOException {
+        Files.write(Paths.get(resources + "flows.rou.xml"), Arrays.asList(
+                "<routes>",
+                "  <vType id=\"CarA\" length=\"5.0\" minGap=\"2.5\" maxSpeed=\"50.0\"/>",
+                "  <route id=\"north\" edges=\"D2 L2 L12 L10 L7 D7\"/>",
+                "  <flow id=\"f1\" type=\"CarA\" route=\"north\" begin=\"86000\" number=\"10\" period=\"100\"/>",
+                "  <flow id=\"f2\" type=\"CarA\" route=\"north\" begin=\"86000\" number=\"4\"/>",
+                "  <flow id=\"f3\" type=\"CarA\" route=\"north\" begin=\"86000\" period=\"100\"/>",
+                "</routes>"), StandardCharsets.UTF_8);
+        SumoConfigInformation sumoInfos = new SumoConfigInformation(resources + "flows.rou.xml", resources + "test1.net.xml", "", "");
+        Network n = new SumoFilesReader(sumoInfos).readNetwork();
+
+        //the end of a flow with a number of vehicles is after its last vehicle
+        assertEquals(86900.0, n.getVehicleFromLoadedVehicles("f1.9").getDepartureTime(), 0.);
+        //the vehicles of a flow without period are spread until the default end
+        assertEquals(86300.0, n.getVehicleFromLoadedVehicles("f2.3").getDepartureTime(), 0.);
+        //a flow without number stops at the default end
+        assertEquals(86300.0, n.getVehicleFromLoadedVehicles("f3.3").getDepartureTime(), 0.);
+        assertEquals(18, n.getAllVehiclesOfSimulation().size());
+    }
+
+    /**
+     * Test of the get methods of class MappedFileInput, with values across
+     * the mapped windows.
+     */
+    @Test
+    public void testMappedFileInput() throws IOException {
+        File file = new File(resources + "values.bin");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(42);
+            out.writeLong(-7L);
+            out.writeDouble(13.89);
+            byte[] bytes = "L10 é".getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt(-1);
+        }
+
+        try (MappedFileInput input = new MappedFileInput(file, 3)) {
+            assertEquals(42, input.getInt());
+            assertEquals(-7L, input.getLong());
+            assertEquals(13.89, input.getDouble(), 0.);
+            assertEquals("L10 é", input.getString());
+            assertEquals(-1, input.getInt());
+            try {
+                input.getInt();
+                fail("The end of the file is read.");
+            } catch (BufferUnderflowException ex) {
+                //expected
+            }
+        }
+    }
+
+    /**
+     * Test of the position methods of class MappedFileInput, moving in and
+     * out of the mapped windows.
+     */
+    @Test
+    public void testMappedFileInputPosition() throws IOException {
+        File file = new File(resources + "values.bin");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            for (int i = 0; i < 8; i++) {
+                out.writeInt(i);
+            }
+        }
+
+        try (MappedFileInput input = new MappedFileInput(file, 5)) {
+            assertEquals(32L, input.size());
+            input.position(28);
+            assertEquals(7, input.getInt());
+            assertEquals(32L, input.position());
+            input.position(4);
+            assertEquals(1, input.getInt());
+            input.position(6);
+            assertEquals(0, input.get());
+            assertEquals(1, input.get());
+            assertEquals(2, input.getInt());
+            assertEquals(12L, input.position());
+            try {
+                input.position(33);
+                fail("A position out of the file is accepted.");
+            } catch (IllegalArgumentException ex) {
+                //expected
+            }
+        }
+    }
+
+    /**
+     * Test of readNetwork method with several route files, of class
+     * SumoFilesReader.
+     */
+    @Test
+    public void testReadNetworkSeveralRouteFiles() {
+        SumoConfigInformation sumoInfos = new SumoConfigInformation(resources + "test1.rou.xml," + resources + "test2.rou.xml", resources + "test1.net.xml", "", "");
+        assertEquals(2, sumoInfos.getSumorouFilesPaths().size());
+        SumoFilesReader instance = new SumoFilesReader(sumoInfos);
+
+        Network n = instance.readNetwork();
+        assertEquals(3, n.getVehicleTypes().size());
+        assertEquals(9, n.getAllVehiclesOfSimulation().size());
+        Vehicle v = n.getVehicleFromLoadedVehicles("veh30");
+        assertEquals("CarC", v.getvType());
+        assertTrue(v.getRoute() == n.getVehicleFromLoadedVehicles("veh1").getRoute());
+
+        Network streamedNetwork = instance.readNetwork(false);
+        SumoRouteFileStreamReader reader = instance.getRouteFileStreamReader();
+        reader.readVehicles(streamedNetwork, 53900.0);
+        assertEquals(1, streamedNetwork.getAllVehiclesOfSimulation().size());
+        reader.readVehicles(streamedNetwork, 54000.0);
+        assertEquals(8, streamedNetwork.getAllVehiclesOfSimulation().size());
+        assertTrue(reader.hasNextVehicle(streamedNetwork));
+        reader.readVehicles(streamedNetwork, 54100.0);
+        assertEquals(9, streamedNetwork.getAllVehiclesOfSimulation().size());
+        assertFalse(reader.hasNextVehicle(streamedNetwork));
+        reader.close();
+    }
+
+    /**
+     * Test of readNetwork and getRouteFileStreamReader methods with flows, of
+     * class SumoFilesReader.
+     */
+    @Test
+    public void testReadFlows() {
+        SumoConfigInformation sumoInfos = new SumoConfigInformation(resources + "test3.rou.xml", resources + "test1.net.xml", "", "");
+        SumoFilesReader instance = new SumoFilesReader(sumoInfos);
+
+        Network n = instance.readNetwork();
+        assertEquals(10, n.getAllVehiclesOfSimulation().size());
+        assertEquals(175.0, n.getVehicleFromLoadedVehicles("f1.3").getDepartureTime(), 0.);
+        assertEquals(160.0, n.getVehicleFromLoadedVehicles("f2.1").getDepartureTime(), 0.);
+        assertEquals(154.0, n.getVehicleFromLoadedVehicles("f3.2").getDepartureTime(), 0.);
+        assertEquals("L5", n.getVehicleFromLoadedVehicles("veh1").getRoute().get(4).getId());
+        assertTrue(n.getVehicleFromLoadedVehicles("f1.0").getRoute() == n.getVehicleFromLoadedVehicles("f1.3").getRoute());
+        assertEquals("L11", n.getVehicleFromLoadedVehicles("f3.0").getRoute().get(4).getId());
+
+        Network streamedNetwork = instance.readNetwork(false);
+        SumoRouteFileStreamReader reader = instance.getRouteFileStreamReader();
+        reader.readVehicles(streamedNetwork, 100.0);
+        assertEquals(2, streamedNetwork.getAllVehiclesOfSimulation().size());
+        assertTrue(streamedNetwork.getVehicleFromLoadedVehicles("f1.0") != null);
+        reader.readVehicles(streamedNetwork, 150.0);
+        assertEquals(6, streamedNetwork.getAllVehiclesOfSimulation().size());
+        reader.readVehicles(streamedNetwork, 200.0);
+        assertEquals(10, streamedNetwork.getAllVehiclesOfSimulation().size());
+        assertFalse(reader.hasNextVehicle(streamedNetwork));
+        reader.close();
+    }
+
 }
@@ -96,6 +96,32 @@ public class EdgeTest {
         assertEquals(expResult, result, 0.1);
     }
 
+    /**
+     * Test of getTravelTime method, of class Edge.
+     */
+    @Test
+    public void testGetTravelTime3() {
+        Edge instance = new Edge("198182234#4", 35, 90.00, 30.0, 3, null, null);
+        for (int load = 0; load <= 36; load++) {
+            assertEquals(instance.getTravelTime((double) load), instance.getTravelTime(load), 0.);
+        }
+        assertEquals(3.0, instance.getTravelTime(0), 0.);
+        assertEquals(instance.getMaxTravelTime(), instance.getTravelTime(35), 0.);
+    }
+
+    /**
+     * Test of setSpeedLimit method, of class Edge.
+     */
+    @Test
+    public void testSetSpeedLimit() {
+        Edge instance = new Edge("198182234#4", 35, 90.00, 30.0, 3, null, null);
+        double travelTime = instance.getTravelTime(10);
+        instance.setSpeedLimit(15.0);
+        assertEquals(6.0, instance.getMinTravelTime(), 0.);
+        assertEquals(6.9, instance.getMaxTravelTime(), 1e-9);
+        assertEquals(2 * travelTime, instance.getTravelTime(10), 1e-9);
+    }
+
     /**
      * Test of getMaxTravelTime method, of class Edge.
      */
@@ -144,125 +170,4 @@ public class EdgeTest {
         assertEquals(expResult, result);
     }
 
-    /**
-     * Test of getMeanDensity method, of class Edge.
-     */
-    @Test
-    public void testGetMeanDensity() {
-        double nbSteps = 10;
-        Edge instance = new Edge("198182234#4", 35, 2000., 90.00, 3, null, null);
-        instance.increaseNbTotVehicles(400);
-
-        double expResult = 20.0;
-        double result = instance.getMeanDensity(nbSteps);
-        assertEquals(expResult, result, 0.0);
-
-    }
-
-    /**
-     * Test of getMeanTravelTime method, of class Edge.
-     */
-    @Test
-    public void testGetMeanTravelTime() {
-        double nbSteps = 5;
-        Edge instance = new Edge("198182234#4", 35, 2000., 90.00, 3, null, null);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-
-        double expResult = 40.0;
-        double result = instance.getMeanTravelTime(nbSteps);
-        assertEquals(expResult, result, 0.0);
-    }
-
-    /**
-     * Test of getMeanTravelTime method, of class Edge.
-     */
-    @Test
-    public void testGetMeanTravelTime2() {
-        double nbSteps = 10;
-        Edge instance = new Edge("198182234#4", 35, 2000., 100.00, 3, null, null);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-        instance.increaseTravelTimeTotal(40);
-
-        double expResult = (200 + 5 * 20) / nbSteps;
-        double result = instance.getMeanTravelTime(nbSteps);
-        assertEquals(expResult, result, 0.0);
-    }
-
-    /**
-     * Test of getMeanSpeed method, of class Edge.
-     */
-    @Test
-    public void testGetMeanSpeed() {
-        double nbSteps = 10;
-        Edge instance = new Edge("198182234#4", 35, 2000., 90.00, 3, null, null);
-        for (int i = 0; i < nbSteps; i++) {
-            instance.increaseTravelTimeTotal(40);
-        }
-
-        double expResult = 50.;
-        double result = instance.getMeanSpeed(nbSteps);
-        assertEquals(expResult, result, 0.0);
-    }
-
-    /**
-     * Test of getAverageTrafficVolume method, of class Edge.
-     */
-    @Test
-    public void testGetAverageTrafficVolume() {
-        double nbSteps = 10;
-        Edge instance = new Edge("198182234#4", 35, 2000., 90.00, 3, null, null);
-        instance.increaseNbTotVehicles(400);
-        for (int i = 0; i < nbSteps; i++) {
-            instance.increaseTravelTimeTotal(40);
-        }
-
-        double expResult = 3.6 * 20 * 50;
-        double result = instance.getAverageTrafficVolume(nbSteps);
-        assertEquals(expResult, result, 0.0);
-    }
-
-    /**
-     * Test of increaseNbTotVehicles method, of class Edge.
-     */
-    @Test
-    public void testIncreaseNbTotVehicles() {
-        double number = 5;
-        Edge instance = new Edge("198182234#4", 35, 29.04, 90.00, 3, null, null);
-        instance.increaseNbTotVehicles(number);
-
-        assertEquals(number, instance.getNbTotVehicles(), 0.1);
-    }
-
-    /**
-     * Test of increaseTravelTimeTotal method, of class Edge.
-     */
-    @Test
-    public void testIncreaseTravelTimeTotal() {
-        double travelTime = 45;
-        double nbSteps = 1;
-        Edge instance = new Edge("198182234#4", 35, 29.04, 90.00, 3, null, null);
-        instance.increaseTravelTimeTotal(travelTime);
-
-        assertEquals(travelTime, instance.getTravelTimeTotal(nbSteps), 0.);
-    }
-
-    /**
-     * Test of increaseArrivedVehicles method, of class Edge.
-     */
-    @Test
-    public void testIncreaseArrivedVehicles() {
-        double number = 5;
-        Edge instance = new Edge("198182234#4", 35, 29.04, 90.00, 3, null, null);
-        instance.increaseArrivedVehicles(number);
-
-        assertEquals(number, instance.getArrivedVehicles(), 0.);
-    }
-
 }
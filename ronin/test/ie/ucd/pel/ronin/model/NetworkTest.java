@@ -18,6 +18,8 @@ package ie.ucd.pel.ronin.model;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -494,4 +496,259 @@ public class NetworkTest {
 
     }
 
+    /**
+     * Test of flushLoadedVehicles method, of class Network, when vehicles with
+     * the same departure time are loaded at different steps.
+     */
+    @Test
+    public void testFlushLoadedVehiclesSameDepartureTime() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 762., vType);
+        Vehicle v2 = new Vehicle("v2", 761., vType);
+        Vehicle v3 = new Vehicle("v3", 762., vType);
+        Vehicle v4 = new Vehicle("v4", 761., vType);
+        Edge e = new Edge("e", 0, 10.0, 10.0, 0, null, null);
+        v1.addEdgeToRoute(e);
+        v2.addEdgeToRoute(e);
+        v3.addEdgeToRoute(e);
+        v4.addEdgeToRoute(e);
+        Network instance = new Network();
+        instance.addVehicleToLoadedVehicles(v1);
+        instance.addVehicleToLoadedVehicles(v2);
+        instance.flushLoadedVehicles();
+        instance.addVehicleToLoadedVehicles(v3);
+        instance.addVehicleToLoadedVehicles(v4);
+        instance.flushLoadedVehicles();
+
+        List<Vehicle> expResult1 = new LinkedList<>();
+        expResult1.add(v2);
+        expResult1.add(v4);
+        expResult1.add(v1);
+        expResult1.add(v3);
+        assertEquals(expResult1, instance.getNotDepartedVehicles());
+        assertEquals(4, instance.getNbNotDepartedVehicles());
+
+        instance.removeVehicle("v4");
+        instance.updateDepartedVehiclesForCurrentTimeStep(761.);
+
+        List<Vehicle> expResult2 = new LinkedList<>();
+        expResult2.add(v2);
+        assertEquals(expResult2, instance.getRunningVehicles());
+
+        List<Vehicle> expResult3 = new LinkedList<>();
+        expResult3.add(v1);
+        expResult3.add(v3);
+        assertEquals(expResult3, instance.getNotDepartedVehicles());
+        assertEquals(2, instance.getNbNotDepartedVehicles());
+    }
+
+    /**
+     * Test of repositionRunningVehicles and collectCurrentStepFinalLoads
+     * methods, of class Network.
+     */
+    @Test
+    public void testRepositionRunningVehicles() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 0.0, vType);
+        Vehicle v2 = new Vehicle("v2", 0.0, vType);
+        Vehicle v3 = new Vehicle("v3", 0.0, vType);
+        Edge e1 = new Edge("e1", 10, 10.0, 10.0, 0, null, null);
+        Edge e2 = new Edge("e2", 10, 10.0, 10.0, 0, null, null);
+        Edge e3 = new Edge("e3", 10, 10.0, 10.0, 0, null, null);
+        v1.addEdgeToRoute(e1);
+        v1.addEdgeToRoute(e2);
+        v2.addEdgeToRoute(e1);
+        v2.addEdgeToRoute(e2);
+        v2.addEdgeToRoute(e3);
+        v3.addEdgeToRoute(e1);
+        v3.addEdgeToRoute(e2);
+        Network instance = new Network();
+        instance.addEdge(e1);
+        instance.addEdge(e2);
+        instance.addEdge(e3);
+        instance.addVehicleToLoadedVehicles(v1);
+        instance.addVehicleToLoadedVehicles(v2);
+        instance.addVehicleToLoadedVehicles(v3);
+        instance.flushLoadedVehicles();
+        instance.updateDepartedVehiclesForCurrentTimeStep(0.);
+
+        int[] finalLoads = new int[3];
+        double[] travelTimes = {1.0, 20.0, 1.0};
+        instance.repositionRunningVehicles(finalLoads, 0., 10., travelTimes, false, new int[3]);
+
+        assertArrayEquals(new int[]{0, 3, 0}, finalLoads);
+
+        List<Vehicle> expResult1 = new LinkedList<>();
+        expResult1.add(v1);
+        expResult1.add(v3);
+        assertEquals(expResult1, instance.getCurrentStepArrivedVehicles());
+        assertEquals(expResult1, instance.getArrivedVehicles());
+
+        List<Vehicle> expResult2 = new LinkedList<>();
+        expResult2.add(v2);
+        assertEquals(expResult2, instance.getRunningVehicles());
+
+        Map<String, List<Vehicle>> result = instance.collectCurrentStepFinalLoads(0.);
+        assertEquals(1, result.size());
+        //the vehicles of an edge are in the order they were repositioned
+        List<Vehicle> expResult3 = new LinkedList<>();
+        expResult3.add(v1);
+        expResult3.add(v2);
+        expResult3.add(v3);
+        assertEquals(expResult3, result.get("e2"));
+    }
+
+    /**
+     * Test of removeCurrentStepArrivedVehicles method, of class Network.
+     */
+    @Test
+    public void testRemoveCurrentStepArrivedVehicles() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 0.0, vType);
+        Vehicle v2 = new Vehicle("v2", 0.0, vType);
+        Edge e1 = new Edge("e1", 10, 10.0, 10.0, 0, null, null);
+        Edge e2 = new Edge("e2", 10, 10.0, 10.0, 0, null, null);
+        Edge e3 = new Edge("e3", 10, 10.0, 10.0, 0, null, null);
+        v1.addEdgeToRoute(e1);
+        v1.addEdgeToRoute(e2);
+        v2.addEdgeToRoute(e1);
+        v2.addEdgeToRoute(e2);
+        v2.addEdgeToRoute(e3);
+        Network instance = new Network();
+        instance.addEdge(e1);
+        instance.addEdge(e2);
+        instance.addEdge(e3);
+        instance.addVehicleToLoadedVehicles(v1);
+        instance.addVehicleToLoadedVehicles(v2);
+        instance.flushLoadedVehicles();
+        instance.updateDepartedVehiclesForCurrentTimeStep(0.);
+
+        double[] travelTimes = {1.0, 20.0, 1.0};
+        instance.repositionRunningVehicles(new int[3], 0., 10., travelTimes, false, new int[3]);
+        TripSummary trip = new TripSummary(v1, 10.);
+        instance.removeCurrentStepArrivedVehicles();
+
+        assertEquals(0, instance.getArrivedVehicles().size());
+        assertNull(instance.getVehicle("v1"));
+        assertEquals(v2, instance.getVehicle("v2"));
+        assertEquals(1, instance.getRunningVehicles().size());
+        //the arrived vehicles of the step are still on their last edge for the outputs of the step
+        assertEquals(2, instance.collectCurrentStepFinalLoads(0.).get("e2").size());
+        assertEquals("e2", trip.getArrivalEdgeId());
+        assertEquals("e1", trip.getDepartureEdgeId());
+    }
+
+    /**
+     * Test of repositionRunningVehiclesInParallel method, of class Network.
+     */
+    @Test
+    public void testRepositionRunningVehiclesInParallel() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Edge e1 = new Edge("e1", 10, 10.0, 10.0, 0, null, null);
+        Edge e2 = new Edge("e2", 10, 10.0, 10.0, 0, null, null);
+        Edge e3 = new Edge("e3", 10, 10.0, 10.0, 0, null, null);
+        Network instance = new Network();
+        instance.addEdge(e1);
+        instance.addEdge(e2);
+        instance.addEdge(e3);
+        List<Vehicle> expResult1 = new LinkedList<>();
+        List<Vehicle> expResult2 = new LinkedList<>();
+        for (int i = 0; i < 10; i++) {
+            Vehicle v = new Vehicle("v" + i, 0.0, vType);
+            v.addEdgeToRoute(e1);
+            v.addEdgeToRoute(e2);
+            if (i % 3 == 0) {
+                v.addEdgeToRoute(e3);
+                expResult2.add(v);
+            } else {
+                expResult1.add(v);
+            }
+            instance.addVehicleToLoadedVehicles(v);
+        }
+        instance.flushLoadedVehicles();
+        instance.updateDepartedVehiclesForCurrentTimeStep(0.);
+
+        int[] finalLoads = new int[3];
+        int[] nbVehiclesPerEdge = new int[3];
+        double[] travelTimes = {1.0, 20.0, 1.0};
+        ForkJoinPool threadsPool = new ForkJoinPool(3);
+        instance.repositionRunningVehiclesInParallel(finalLoads, 0., 10., travelTimes, true, nbVehiclesPerEdge, threadsPool);
+        threadsPool.shutdown();
+
+        assertArrayEquals(new int[]{0, 10, 0}, finalLoads);
+        assertArrayEquals(new int[]{10, 0, 0}, nbVehiclesPerEdge);
+        assertEquals(expResult1, instance.getCurrentStepArrivedVehicles());
+        assertEquals(expResult1, instance.getArrivedVehicles());
+        assertEquals(expResult2, instance.getRunningVehicles());
+    }
+
+    /**
+     * Test of addVehicleToLoadedVehicles method, of class Network, with
+     * Vehicles that go through the same Edges.
+     */
+    @Test
+    public void testAddVehicleToLoadedVehiclesSharedRoute() {
+        Node n1 = new Node("n1", 0.0, 0.0);
+        Node n2 = new Node("n2", 10.0, 0.0);
+        Node n3 = new Node("n3", 20.0, 0.0);
+        Edge e1 = new Edge("e1", 10, 10.0, 10.0, 1, n1, n2);
+        Edge e2 = new Edge("e2", 10, 20.0, 10.0, 1, n2, n3);
+        Network instance = new Network();
+        instance.addNode(n1);
+        instance.addNode(n2);
+        instance.addNode(n3);
+        instance.addEdge(e1);
+        instance.addEdge(e2);
+
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 0.0, vType);
+        v1.addEdgeToRoute(e1);
+        v1.addEdgeToRoute(e2);
+        Vehicle v2 = new Vehicle("v2", 0.0, vType);
+        v2.addEdgeToRoute(e1);
+        v2.addEdgeToRoute(e2);
+        assertTrue(instance.addVehicleToLoadedVehicles(v1));
+        assertTrue(instance.addVehicleToLoadedVehicles(v2));
+
+        assertSame(v1.getRoute(), v2.getRoute());
+        assertEquals(1, instance.getRouteTable().getNbRoutes());
+        assertEquals(30.0, v2.getRouteLength(), 0.);
+        assertEquals(e2, v2.getEdgeOfRouteAtPosition(1));
+        assertEquals(e2.getIndex(), v2.getEdgeIndexOfRouteAtPosition(1));
+
+        v2.addEdgeToRoute(e1);
+        assertEquals(2, v1.getRoute().size());
+        assertEquals(3, v2.getRoute().size());
+    }
+
+    /**
+     * Test of setEdgeSpeedLimit method, of class Network.
+     */
+    @Test
+    public void testSetEdgeSpeedLimit() {
+        Edge e1 = new Edge("e1", 10, 10.0, 10.0, 1, null, null);
+        Edge e2 = new Edge("e2", 10, 20.0, 10.0, 1, null, null);
+        Edge e3 = new Edge("e3", 10, 30.0, 10.0, 1, null, null);
+        Network instance = new Network();
+        instance.addEdge(e1);
+        instance.addEdge(e2);
+        instance.addEdge(e3);
+        Route route12 = instance.getRouteTable().intern(new int[]{e1.getIndex(), e2.getIndex()});
+        Route route13 = instance.getRouteTable().intern(new int[]{e1.getIndex(), e3.getIndex()});
+        double minTravelTime12 = route12.getCumulativeMinTravelTime(2);
+        double minTravelTime13 = route13.getCumulativeMinTravelTime(2);
+
+        instance.setEdgeSpeedLimit(e2, 5.0);
+        assertEquals(e1.getMinTravelTime() + e2.getMinTravelTime(), route12.getCumulativeMinTravelTime(2), 1e-9);
+        assertTrue(route12.getCumulativeMinTravelTime(2) > minTravelTime12);
+        assertEquals(minTravelTime13, route13.getCumulativeMinTravelTime(2), 0.);
+
+        //a route interned after the first change is updated too
+        Route route32 = instance.getRouteTable().intern(new int[]{e3.getIndex(), e2.getIndex()});
+        instance.setEdgeSpeedLimit(e3, 5.0);
+        assertEquals(e3.getMinTravelTime() + e2.getMinTravelTime(), route32.getCumulativeMinTravelTime(2), 1e-9);
+        assertEquals(e1.getMinTravelTime() + e3.getMinTravelTime(), route13.getCumulativeMinTravelTime(2), 1e-9);
+        assertTrue(route13.getCumulativeMinTravelTime(2) > minTravelTime13);
+    }
+
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class VehicleStoreTest {
+
+    public VehicleStoreTest() {
+    }
+
+    /**
+     * Test of setState and getVehicles methods, of class VehicleStore.
+     */
+    @Test
+    public void testSetState() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 761., vType);
+        Vehicle v2 = new Vehicle("v2", 762., vType);
+        Vehicle v3 = new Vehicle("v3", 763., vType);
+        VehicleStore instance = new VehicleStore();
+        instance.setState(v1, VehicleStore.State.RUNNING);
+        instance.setState(v2, VehicleStore.State.RUNNING);
+        instance.setState(v3, VehicleStore.State.RUNNING);
+        assertEquals(3, instance.getNbVehiclesIndexes());
+        assertEquals(Arrays.asList(v1, v2, v3), instance.getVehicles(VehicleStore.State.RUNNING));
+
+        //the vehicles can be moved during the iteration
+        for (Vehicle v : instance.getVehicles(VehicleStore.State.RUNNING)) {
+            if (v != v2) {
+                instance.setState(v, VehicleStore.State.ARRIVED);
+            }
+        }
+        assertEquals(Collections.singletonList(v2), instance.getVehicles(VehicleStore.State.RUNNING));
+        assertEquals(Arrays.asList(v1, v3), instance.getVehicles(VehicleStore.State.ARRIVED));
+        assertEquals(VehicleStore.State.ARRIVED, instance.getState(v3));
+        assertEquals(v3, instance.getVehicle("v3", VehicleStore.State.ARRIVED));
+        assertNull(instance.getVehicle("v3", VehicleStore.State.RUNNING));
+    }
+
+    /**
+     * Test of remove method, of class VehicleStore.
+     */
+    @Test
+    public void testRemove() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 761., vType);
+        Vehicle v2 = new Vehicle("v2", 762., vType);
+        VehicleStore instance = new VehicleStore();
+        instance.setState(v1, VehicleStore.State.LOADED);
+        instance.setState(v2, VehicleStore.State.LOADED);
+
+        assertTrue(instance.remove(v1));
+        assertFalse(instance.remove(v1));
+        assertEquals(VehicleStore.State.NONE, instance.getState(v1));
+        assertNull(instance.getVehicle("v1"));
+        assertEquals(1, instance.size(VehicleStore.State.LOADED));
+        assertEquals(Collections.singletonList(v2), instance.getVehicles(VehicleStore.State.LOADED));
+    }
+
+    /**
+     * Test of the backward iteration over the view returned by the
+     * getVehicles method, of class VehicleStore.
+     */
+    @Test
+    public void testGetVehiclesBackward() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v1 = new Vehicle("v1", 761., vType);
+        Vehicle v2 = new Vehicle("v2", 762., vType);
+        Vehicle v3 = new Vehicle("v3", 763., vType);
+        Vehicle v4 = new Vehicle("v4", 764., vType);
+        VehicleStore instance = new VehicleStore();
+        instance.setState(v1, VehicleStore.State.RUNNING);
+        instance.setState(v2, VehicleStore.State.RUNNING);
+        instance.setState(v3, VehicleStore.State.RUNNING);
+        instance.setState(v4, VehicleStore.State.RUNNING);
+        List<Vehicle> running = instance.getVehicles(VehicleStore.State.RUNNING);
+
+        assertEquals(2, running.lastIndexOf(v3));
+        assertEquals(v3, running.get(2));
+        assertEquals(v1, running.get(0));
+
+        ListIterator<Vehicle> iter = running.listIterator(running.size());
+        assertFalse(iter.hasNext());
+        assertEquals(3, iter.previousIndex());
+        assertEquals(v4, iter.previous());
+        assertEquals(v3, iter.previous());
+        assertEquals(1, iter.previousIndex());
+        assertEquals(2, iter.nextIndex());
+
+        //the vehicle returned by previous is removed, the iterator stays before v4
+        iter.remove();
+        assertEquals(1, iter.previousIndex());
+        assertEquals(v4, iter.next());
+        assertEquals(v4, iter.previous());
+        assertEquals(v2, iter.previous());
+        assertEquals(v1, iter.previous());
+        assertFalse(iter.hasPrevious());
+        assertEquals(-1, iter.previousIndex());
+
+        assertEquals(Arrays.asList(v1, v2, v4), running);
+        assertEquals(VehicleStore.State.NONE, instance.getState(v3));
+    }
+
+}
@@ -16,6 +16,11 @@
  */
 package ie.ucd.pel.ronin.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -235,4 +240,108 @@ public class VehicleTest {
         assertEquals(expResult, instance.getPosition(), 0.1);
     }
 
+    /**
+     * Test of the state of a Vehicle added to a Network, of class Vehicle.
+     */
+    @Test
+    public void testStateInNetwork() {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle instance = new Vehicle("instance", 95.2, vType);
+        instance.addEdgeToRoute(new Edge("51", 0, 30.0, 30.0, 0, null, null));
+        instance.addEdgeToRoute(new Edge("52", 0, 30.0, 30.0, 0, null, null));
+        instance.addEdgeToRoute(new Edge("53", 0, 30.0, 30.0, 0, null, null));
+        instance.increasePosition(1);
+        instance.setNbSlotsInSamePosition(3);
+        instance.increaseTravelTime(12.0);
+
+        Network network = new Network();
+        network.addVehicleToLoadedVehicles(instance);
+        assertEquals(0, instance.getIndex());
+        assertEquals(95.2, instance.getDepartureTime(), 0.);
+        assertEquals(1, instance.getPosition());
+        assertEquals(3, instance.getNbSlotsInSamePosition());
+        assertEquals(3, instance.getNbTotSlotsInSamePosition());
+        assertEquals(12.0, instance.getTravelTime(1), 0.);
+
+        instance.increasePosition(1);
+        assertTrue(instance.isArrived());
+
+        //a Vehicle whose state did not change before it is added only has its departure time
+        Vehicle other = new Vehicle("other", 97.0, vType);
+        other.addEdgeToRoute(new Edge("51", 0, 30.0, 30.0, 0, null, null));
+        other.addEdgeToRoute(new Edge("52", 0, 30.0, 30.0, 0, null, null));
+        network.addVehicleToLoadedVehicles(other);
+        assertEquals(1, other.getIndex());
+        assertEquals(97.0, other.getDepartureTime(), 0.);
+        assertEquals(0, other.getPosition());
+        assertEquals(0, other.getNbSlotsInSamePosition());
+        assertEquals(0.0, other.getTravelTime(1), 0.);
+        assertEquals(95.2, instance.getDepartureTime(), 0.);
+    }
+
+    /**
+     * Test of the serialization of a Vehicle added to a Network, of class
+     * Vehicle.
+     */
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle instance = new Vehicle("instance", 95.2, vType);
+        instance.addEdgeToRoute(new Edge("51", 0, 30.0, 30.0, 0, null, null));
+        instance.addEdgeToRoute(new Edge("52", 0, 30.0, 30.0, 0, null, null));
+        Network network = new Network();
+        network.addVehicleToLoadedVehicles(instance);
+        instance.setNbSlotsInSamePosition(2);
+        instance.increaseTravelTime(5.0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(instance);
+        }
+        Vehicle result;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            result = (Vehicle) in.readObject();
+        }
+        assertEquals(instance, result);
+        assertEquals(-1, result.getIndex());
+        assertEquals(95.2, result.getDepartureTime(), 0.);
+        assertEquals(2, result.getNbSlotsInSamePosition());
+        assertEquals(5.0, result.getTravelTime(1), 0.);
+        assertEquals(2, result.getRoute().size());
+    }
+
+    /**
+     * Test of getEndOfEstimatedPositions method, of class Vehicle, with an
+     * interned route.
+     */
+    @Test
+    public void testGetEndOfEstimatedPositionsInterned() {
+        double[] lengths = {10.0, 25.0, 0.0, 40.0, 5.0, 60.0, 30.0, 15.0};
+        Network network = new Network();
+        Node previous = new Node("n0", 0.0, 0.0);
+        network.addNode(previous);
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle interned = new Vehicle("interned", 0.0, vType);
+        Vehicle notInterned = new Vehicle("notInterned", 0.0, vType);
+        for (int i = 0; i < lengths.length; i++) {
+            Node next = new Node("n" + (i + 1), 0.0, 0.0);
+            network.addNode(next);
+            Edge e = new Edge("e" + i, 10, lengths[i], 10.0, 1, previous, next);
+            network.addEdge(e);
+            interned.addEdgeToRoute(e);
+            notInterned.addEdgeToRoute(e);
+            previous = next;
+        }
+        network.addVehicleToLoadedVehicles(interned);
+        assertTrue(interned.getRoute() instanceof Route);
+
+        for (int position = 0; position < lengths.length; position++) {
+            for (double timeStepLength = 0.0; timeStepLength <= 20.0; timeStepLength += 0.5) {
+                assertEquals(notInterned.getEndOfEstimatedPositions(timeStepLength), interned.getEndOfEstimatedPositions(timeStepLength));
+            }
+            interned.increasePosition(1);
+            notInterned.increasePosition(1);
+        }
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class WaitingVehiclesWheelTest {
+
+    public WaitingVehiclesWheelTest() {
+    }
+
+    /**
+     * Creates a vehicle loaded in a network, on the first edge of its route
+     * and waiting for a number of steps.
+     */
+    private Vehicle createWaitingVehicle(Network network, String id, int nbSlotsInSamePosition) {
+        VehicleType vType = new VehicleType("vT1", 4.00, 90.0);
+        Vehicle v = new Vehicle(id, 0.0, vType);
+        v.addEdgeToRoute(network.getEdge("e1"));
+        v.addEdgeToRoute(network.getEdge("e2"));
+        v.addEdgeToRoute(network.getEdge("e3"));
+        network.addVehicleToLoadedVehicles(v);
+        v.setNbSlotsInSamePosition(nbSlotsInSamePosition);
+        return v;
+    }
+
+    /**
+     * Creates a network with three edges.
+     */
+    private Network createNetwork() {
+        Network network = new Network();
+        network.addEdge(new Edge("e1", 10, 10.0, 10.0, 0, null, null));
+        network.addEdge(new Edge("e2", 10, 10.0, 10.0, 0, null, null));
+        network.addEdge(new Edge("e3", 10, 10.0, 10.0, 0, null, null));
+        return network;
+    }
+
+    /**
+     * Test of schedule and poll methods, of class WaitingVehiclesWheel.
+     */
+    @Test
+    public void testScheduleAndPoll() {
+        Network network = createNetwork();
+        int[] nbSlots = {1, 255, 256, 300, 70000};
+        List<Vehicle> vehicles = new ArrayList<>();
+        for (int i = 0; i < nbSlots.length; i++) {
+            vehicles.add(createWaitingVehicle(network, "v" + i, nbSlots[i]));
+        }
+
+        WaitingVehiclesWheel instance = new WaitingVehiclesWheel(3, 1.0);
+        List<Vehicle> dueVehicles = new ArrayList<>();
+        //the vehicles are scheduled during the step 0
+        instance.poll(dueVehicles);
+        vehicles.stream().forEach((v) -> {
+            instance.schedule(v);
+        });
+        assertEquals(5, instance.getNbVehicles());
+
+        for (int step = 1; step <= 70000; step++) {
+            instance.poll(dueVehicles);
+            for (Vehicle v : dueVehicles) {
+                assertEquals(v.getNbSlotsInSamePosition(), step);
+            }
+            dueVehicles.clear();
+        }
+        assertEquals(0, instance.getNbVehicles());
+    }
+
+    /**
+     * Test of remove, addNbVehiclesPerEdge and addEstimatedLoads methods, of
+     * class WaitingVehiclesWheel.
+     */
+    @Test
+    public void testRemove() {
+        Network network = createNetwork();
+        Vehicle v1 = createWaitingVehicle(network, "v1", 3);
+        Vehicle v2 = createWaitingVehicle(network, "v2", 1000);
+
+        WaitingVehiclesWheel instance = new WaitingVehiclesWheel(3, 1.0);
+        instance.schedule(v1);
+        instance.schedule(v2);
+
+        int[] loads = new int[3];
+        instance.addNbVehiclesPerEdge(loads);
+        assertArrayEquals(new int[]{2, 0, 0}, loads);
+
+        int[] estimatedLoads = new int[3];
+        BitSet edges = new BitSet();
+        instance.addEstimatedLoads(estimatedLoads, edges);
+        assertArrayEquals(new int[]{2, 0, 0}, estimatedLoads);
+        assertTrue(edges.get(0));
+
+        assertTrue(instance.remove(v2));
+        assertFalse(instance.remove(v2));
+        assertEquals(1, instance.getNbVehicles());
+        loads = new int[3];
+        instance.addNbVehiclesPerEdge(loads);
+        assertArrayEquals(new int[]{1, 0, 0}, loads);
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.outputswriter;
+
+import ie.ucd.pel.ronin.model.Vehicle;
+import ie.ucd.pel.ronin.model.VehicleType;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class LoadsWriterTest {
+
+    /**
+     * The temporary directory of the outputs of the test.
+     */
+    private File outputsDirectory;
+
+    public LoadsWriterTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        outputsDirectory = Files.createTempDirectory("ronin").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteFolder(outputsDirectory);
+    }
+
+    /**
+     * Test of writeOutputFile method, of class LoadsWriter. The file is the
+     * same as the one written from a DOM document by the previous versions,
+     * stored in the resources of the tests, including the escaping of the ids
+     * and their non-ASCII characters.
+     */
+    @Test
+    public void testWriteOutputFile() throws IOException {
+        VehicleType vType = new VehicleType("CarA", 5.0, 50.0);
+        Map<String, List<Vehicle>> loads = new LinkedHashMap<>();
+        loads.put("L10", Arrays.asList(new Vehicle("veh1", 0., vType), new Vehicle("veh&2", 0., vType)));
+        loads.put("L12", new ArrayList<>());
+        loads.put("a&b<c>\"d'\te", Arrays.asList(new Vehicle("v\u00e9h<3>", 0., vType)));
+        loads.put("\u00d6rebro#4", Arrays.asList(new Vehicle("\u8eca5", 0., vType), new Vehicle("veh\u00856\ud83d\ude97", 0., vType)));
+
+        LoadsWriter writer = new LoadsWriter(outputsDirectory.getPath(), "", loads, 21635.0, 7);
+        writer.writeOutputFile();
+
+        //the DOM document was written with the default charset of the platform
+        String golden = new String(Files.readAllBytes(Paths.get("test", "ie", "ucd", "pel", "ronin", "resources", "step_7.lm.xml")), StandardCharsets.UTF_8);
+        byte[] expected = golden.replace("\n", System.lineSeparator()).getBytes(Charset.defaultCharset());
+        byte[] result = Files.readAllBytes(Paths.get(writer.getOutputDirectoryPath(), "step_7.lm.xml"));
+        assertArrayEquals(expected, result);
+    }
+
+}
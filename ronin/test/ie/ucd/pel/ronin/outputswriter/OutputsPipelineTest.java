@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.outputswriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class OutputsPipelineTest {
+
+    public OutputsPipelineTest() {
+    }
+
+    /**
+     * Test of flush method, of class OutputsPipeline. The tasks are executed in
+     * the order they were submitted.
+     */
+    @Test
+    public void testFlush() {
+        List<Integer> written = new ArrayList<>();
+        OutputsPipeline outputs = new OutputsPipeline("test", 2);
+        for (int i = 0; i < 100; i++) {
+            final int step = i;
+            outputs.submit(() -> written.add(step));
+        }
+        outputs.flush();
+
+        assertEquals(100, written.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) written.get(i));
+        }
+        outputs.close();
+    }
+
+    /**
+     * Test of close method, of class OutputsPipeline. The failure of a task is
+     * thrown again and the next tasks are not executed.
+     */
+    @Test
+    public void testCloseAfterFailure() {
+        List<Integer> written = new ArrayList<>();
+        OutputsPipeline outputs = new OutputsPipeline("test", 1);
+        outputs.submit(() -> written.add(0));
+        outputs.submit(() -> {
+            throw new IllegalStateException("Error : disk full.");
+        });
+        try {
+            outputs.submit(() -> written.add(2));
+        } catch (RuntimeException ex) {
+            // the failure may already be known at this submission
+        }
+
+        try {
+            outputs.close();
+            fail("the failure of the writer thread must be thrown again.");
+        } catch (RuntimeException ex) {
+            assertEquals(IllegalStateException.class, ex.getCause().getClass());
+        }
+        assertEquals(1, written.size());
+    }
+
+}
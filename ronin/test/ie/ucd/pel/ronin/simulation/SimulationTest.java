@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.simulation;
+
+import ie.ucd.pel.ronin.main.RoninCommandLineConfigurationInfos;
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.utils.FileUtils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class SimulationTest {
+
+    /**
+     * The name of the simulations of the test.
+     */
+    private static final String SIMULATION_NAME = "simulationTest";
+
+    /**
+     * The temporary directory of the input files of the test.
+     */
+    private File inputsDirectory;
+
+    public SimulationTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        inputsDirectory = Files.createTempDirectory("ronin").toFile();
+        Files.copy(Paths.get("test", "ie", "ucd", "pel", "ronin", "resources", "test1.net.xml"),
+                new File(inputsDirectory, "test1.net.xml").toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        Files.write(new File(inputsDirectory, "overloads.sumocfg").toPath(), Arrays.asList(
+                "<configuration>",
+                "    <input>",
+                "        <net-file value=\"test1.net.xml\"/>",
+                "        <route-files value=\"overloads.rou.xml\"/>",
+                "    </input>",
+                "    <time>",
+                "        <begin value=\"0\"/>",
+                "        <step-length value=\"5\"/>",
+                "    </time>",
+                "</configuration>"), StandardCharsets.UTF_8);
+
+        //two waves of vehicles overload the same edges, that are free between the waves
+        Files.write(new File(inputsDirectory, "overloads.rou.xml").toPath(), Arrays.asList(
+                "<routes>",
+                "  <vType id=\"CarA\" length=\"5.0\" minGap=\"2.5\" maxSpeed=\"50.0\"/>",
+                "  <route id=\"north\" edges=\"D2 L2 L12 L10 L7 D7\"/>",
+                "  <route id=\"south\" edges=\"D4 L4 L14 L18 L5 D5\"/>",
+                "  <route id=\"cross\" edges=\"D2 L2 L12 L15 L18 L5 D5\"/>",
+                "  <flow id=\"f1\" type=\"CarA\" route=\"north\" begin=\"0\" number=\"300\" period=\"0.05\"/>",
+                "  <flow id=\"f2\" type=\"CarA\" route=\"south\" begin=\"20\" number=\"300\" period=\"0.1\"/>",
+                "  <flow id=\"f3\" type=\"CarA\" route=\"cross\" begin=\"40\" number=\"200\" period=\"0.2\"/>",
+                "  <flow id=\"f4\" type=\"CarA\" route=\"north\" begin=\"400\" number=\"300\" period=\"0.05\"/>",
+                "  <flow id=\"f5\" type=\"CarA\" route=\"cross\" begin=\"420\" number=\"300\" period=\"0.1\"/>",
+                "</routes>"), StandardCharsets.UTF_8);
+
+        Files.write(new File(inputsDirectory, "threads.sumocfg").toPath(), Arrays.asList(
+                "<configuration>",
+                "    <input>",
+                "        <net-file value=\"test1.net.xml\"/>",
+                "        <route-files value=\"threads.rou.xml\"/>",
+                "    </input>",
+                "    <time>",
+                "        <begin value=\"0\"/>",
+                "        <step-length value=\"5\"/>",
+                "    </time>",
+                "</configuration>"), StandardCharsets.UTF_8);
+
+        //enough vehicles depart together for the first steps to be computed by two threads
+        Files.write(new File(inputsDirectory, "threads.rou.xml").toPath(), Arrays.asList(
+                "<routes>",
+                "  <vType id=\"CarA\" length=\"5.0\" minGap=\"2.5\" maxSpeed=\"50.0\"/>",
+                "  <route id=\"north\" edges=\"D2 L2 L12 L10 L7 D7\"/>",
+                "  <route id=\"south\" edges=\"D4 L4 L14 L18 L5 D5\"/>",
+                "  <route id=\"cross\" edges=\"D2 L2 L12 L15 L18 L5 D5\"/>",
+                "  <flow id=\"f1\" type=\"CarA\" route=\"north\" begin=\"0\" number=\"1200\" period=\"0.001\"/>",
+                "  <flow id=\"f2\" type=\"CarA\" route=\"south\" begin=\"0\" number=\"1000\" period=\"0.001\"/>",
+                "  <flow id=\"f3\" type=\"CarA\" route=\"cross\" begin=\"0\" number=\"800\" period=\"0.001\"/>",
+                "</routes>"), StandardCharsets.UTF_8);
+    }
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteFolder(inputsDirectory);
+        FileUtils.deleteFolder(Paths.get(".", "output", SIMULATION_NAME).toFile());
+        //the outputs folder is only deleted if it was created by the test
+        Paths.get(".", "output").toFile().delete();
+    }
+
+    /**
+     * Test of processNextStep method, of class Simulation. The incremental
+     * propagation of the overloads, used when the simulation is not monitored
+     * by a server, gives the same loads at every step as the full propagation
+     * used when it is monitored by a server.
+     */
+    @Test
+    public void testProcessNextStepIncrementalOverloads() {
+        Simulation incremental = new Simulation(createConfiguration("overloads.sumocfg", false, 1));
+        Simulation full = new Simulation(createConfiguration("overloads.sumocfg", true, 1));
+        Edge[] edges = incremental.getNetwork().getEdges().values().toArray(new Edge[0]);
+
+        boolean isOverloaded = false;
+        boolean isFinished = incremental.processNextStep();
+        while (!isFinished) {
+            assertEquals(false, full.processNextStep());
+            for (Edge e : edges) {
+                int load = incremental.getCurrentStepFinalLoadCountForEdge(e.getId());
+                assertEquals("step " + incremental.getCurrentStep() + " edge " + e.getId(),
+                        full.getCurrentStepFinalLoadCountForEdge(e.getId()), load);
+                isOverloaded |= e.isOverloaded(load);
+            }
+            isFinished = incremental.processNextStep();
+        }
+        assertTrue(full.processNextStep());
+        incremental.endSimulationWork();
+        full.endSimulationWork();
+
+        //the demand really overloads edges
+        assertTrue(isOverloaded);
+    }
+
+    /**
+     * Test of processNextStep method, of class Simulation. A simulation
+     * computed by several threads gives the same estimated loads and
+     * overloaded edges at every step as the simulation computed by one
+     * thread.
+     */
+    @Test
+    public void testProcessNextStepSeveralThreads() {
+        Simulation sequential = new Simulation(createConfiguration("threads.sumocfg", false, 1));
+        Simulation parallel = new Simulation(createConfiguration("threads.sumocfg", false, 2));
+        int nbEdges = sequential.getNetwork().getGraph().getNbEdges();
+
+        boolean isComputedInParallel = false;
+        boolean isOverloaded = false;
+        boolean isFinished = sequential.processNextStep();
+        while (!isFinished) {
+            assertEquals(false, parallel.processNextStep());
+            isComputedInParallel |= parallel.isComputedInParallel();
+            for (int i = 0; i < nbEdges; i++) {
+                String message = "step " + sequential.getCurrentStep() + " edge " + sequential.getNetwork().getGraph().getEdgeByIndex(i).getId();
+                assertEquals(message, sequential.getCurrentStepEstimatedLoad(i), parallel.getCurrentStepEstimatedLoad(i));
+                assertEquals(message, sequential.isCurrentStepOverloadedEdge(i), parallel.isCurrentStepOverloadedEdge(i));
+                isOverloaded |= sequential.isCurrentStepOverloadedEdge(i);
+            }
+            isFinished = sequential.processNextStep();
+        }
+        assertTrue(parallel.processNextStep());
+        sequential.endSimulationWork();
+        parallel.endSimulationWork();
+
+        //the steps really are computed by several threads and overload edges
+        assertTrue(isComputedInParallel);
+        assertTrue(isOverloaded);
+    }
+
+    /**
+     * Returns the configuration of a simulation of a demand of the test.
+     *
+     * @param sumocfgFileName the name of the sumo configuration file of the
+     * demand
+     * @param isSimulationMonitoredByServer true if the simulation is
+     * monitored by a server
+     * @param nbThreads the number of threads used to compute each step
+     * @return the configuration of a simulation of a demand of the test
+     */
+    private RoninCommandLineConfigurationInfos createConfiguration(String sumocfgFileName, boolean isSimulationMonitoredByServer, int nbThreads) {
+        RoninCommandLineConfigurationInfos config = new RoninCommandLineConfigurationInfos();
+        config.setSimulationName(SIMULATION_NAME);
+        config.setSumocfgFilePath(new File(inputsDirectory, sumocfgFileName).getPath());
+        config.setOverwriteOutputs(true);
+        config.setSimulationMonitoredByServer(isSimulationMonitoredByServer);
+        config.setNbThreads(nbThreads);
+        return config;
+    }
+
+}
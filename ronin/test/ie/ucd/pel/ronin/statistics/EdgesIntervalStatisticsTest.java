@@ -0,0 +1,90 @@
+/* 
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.statistics;
+
+import ie.ucd.pel.ronin.model.Edge;
+import ie.ucd.pel.ronin.model.Graph;
+import java.util.BitSet;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class EdgesIntervalStatisticsTest {
+
+    public EdgesIntervalStatisticsTest() {
+    }
+
+    /**
+     * Test of the mean values of class EdgesIntervalStatistics, the steps
+     * where the edge is not used count for its min travel time.
+     */
+    @Test
+    public void testMeanValues() {
+        Edge instance = new Edge("198182234#4", 35, 2000., 100.00, 3, null, null);
+        new Graph().addEdge(instance);
+        EdgesIntervalStatistics statistics = new EdgesIntervalStatistics(1, 300.);
+        BitSet edgesUsed = new BitSet();
+        for (int i = 0; i < 10; i++) {
+            edgesUsed.clear();
+            if (i < 5) {
+                edgesUsed.set(instance.getIndex());
+            }
+            statistics.addStep(edgesUsed, new int[]{80}, new double[]{40});
+        }
+        statistics.increaseArrivedVehicles(instance.getIndex());
+
+        assertEquals(10, statistics.getNbSteps());
+        assertEquals(1.0, statistics.getArrivedVehicles(instance), 0.0);
+        assertEquals(20.0, statistics.getMeanDensity(instance), 0.0);
+        assertEquals((200 + 5 * 20) / 10., statistics.getMeanTravelTime(instance), 0.0);
+        assertEquals(2000 / 30., statistics.getMeanSpeed(instance), 0.0);
+        assertEquals(20 * 3.6 * 2000 / 30., statistics.getAverageTrafficVolume(instance), 0.0);
+    }
+
+    /**
+     * Test of reset method, of class EdgesIntervalStatistics.
+     */
+    @Test
+    public void testReset() {
+        Edge instance = new Edge("198182234#4", 35, 2000., 100.00, 3, null, null);
+        new Graph().addEdge(instance);
+        EdgesIntervalStatistics statistics = new EdgesIntervalStatistics(1, 0.);
+        BitSet edgesUsed = new BitSet();
+        edgesUsed.set(instance.getIndex());
+        statistics.addStep(edgesUsed, new int[]{80}, new double[]{40});
+        statistics.increaseArrivedVehicles(instance.getIndex());
+        EdgesIntervalStatistics copy = new EdgesIntervalStatistics(statistics);
+
+        statistics.reset(300.);
+        assertEquals(300., statistics.getBeginTime(), 0.0);
+        assertEquals(0, statistics.getNbSteps());
+        assertEquals(0.0, statistics.getArrivedVehicles(instance), 0.0);
+        assertEquals(0.0, statistics.getMeanDensity(instance), 0.0);
+
+        statistics.addStep(new BitSet(), new int[]{0}, new double[]{0});
+        assertEquals(20.0, statistics.getMeanTravelTime(instance), 0.0);
+
+        //the copy keeps the values of the interval
+        assertEquals(0., copy.getBeginTime(), 0.0);
+        assertEquals(1.0, copy.getArrivedVehicles(instance), 0.0);
+        assertEquals(40.0, copy.getMeanTravelTime(instance), 0.0);
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.utils;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class SymbolTableTest {
+
+    public SymbolTableTest() {
+    }
+
+    /**
+     * Test of intern method, of class SymbolTable.
+     */
+    @Test
+    public void testIntern() {
+        SymbolTable instance = new SymbolTable();
+        String first = new String("198182234#4");
+        String copy = new String("198182234#4");
+        assertNotSame(first, copy);
+
+        assertSame(first, instance.intern(first));
+        assertSame(first, instance.intern(copy));
+        assertEquals(1, instance.getNbSymbols());
+
+        String other = new String("L10");
+        assertSame(other, instance.intern(other));
+        assertSame(first, instance.intern("198182234#4"));
+        assertEquals(2, instance.getNbSymbols());
+    }
+
+    /**
+     * Test of intern method, of class SymbolTable. The tables are independent.
+     */
+    @Test
+    public void testInternSeveralTables() {
+        SymbolTable instance = new SymbolTable();
+        SymbolTable other = new SymbolTable();
+        String first = new String("L10");
+        String copy = new String("L10");
+
+        assertSame(first, instance.intern(first));
+        assertSame(copy, other.intern(copy));
+        assertEquals(1, other.getNbSymbols());
+        assertEquals(0, new SymbolTable().getNbSymbols());
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 Come CACHARD
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ie.ucd.pel.ronin.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Come CACHARD
+ */
+public class XmlWriterTest {
+
+    public XmlWriterTest() {
+    }
+
+    /**
+     * Test of endDocument method, of class XmlWriter. The buffer of a small
+     * document is kept for the next documents, the buffer of a document
+     * larger than MAX_RETAINED_CAPACITY is released.
+     */
+    @Test
+    public void testEndDocumentReleasesLargeBuffer() throws IOException {
+        XmlWriter instance = new XmlWriter();
+        writeDocument(instance, 100);
+        int smallCapacity = instance.getBufferCapacity();
+        assertTrue(smallCapacity > 0);
+        writeDocument(instance, 10);
+        assertEquals(smallCapacity, instance.getBufferCapacity());
+
+        ByteArrayOutputStream out = writeDocument(instance, XmlWriter.MAX_RETAINED_CAPACITY / 10);
+        assertTrue(out.size() > XmlWriter.MAX_RETAINED_CAPACITY);
+        assertTrue(instance.getBufferCapacity() <= XmlWriter.MAX_RETAINED_CAPACITY);
+    }
+
+    /**
+     * Writes a document with a number of elements.
+     *
+     * @param xmlWriter the xml writer of the document
+     * @param nbElements the number of elements of the document
+     * @return the stream where the document is written
+     * @throws IOException if the document can not be written
+     */
+    private static ByteArrayOutputStream writeDocument(XmlWriter xmlWriter, int nbElements) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        xmlWriter.startDocument();
+        xmlWriter.startElement("step");
+        for (int i = 0; i < nbElements; i++) {
+            xmlWriter.startElement("edge");
+            xmlWriter.attribute("id", i);
+            xmlWriter.endElement();
+        }
+        xmlWriter.endElement();
+        xmlWriter.endDocument(out);
+        return out;
+    }
+
+}